@@ -0,0 +1,107 @@
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+// Command throughput of matches run as actors. Mailbox: producer threads offer into one Mailbox
+// while a consumer polls, as connections and the timer post to a match. Matches: that many
+// matches run at once on an ActorScheduler, every seat an in-memory BotConnection whose bot
+// places the standard fleet in one FLEET frame and shoots row-major, so each command is a frame
+// from a player going through a match's mailbox and game engine with no socket involved. The
+// report shows commands per second in total and per worker thread, one worker per core at most.
+//
+// Usage: java -cp bin ActorBenchmark [max matches] [workers]
+public class ActorBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int MAILBOX_MESSAGES = 5_000_000;
+
+    private static final LongAdder commands = new LongAdder();  // Frames the bots have sent
+
+    public static void main(String[] args) throws Exception {
+        int maxMatches = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1]) : cores;
+        Log.setLevel(Log.OFF);  // The matches log every move
+
+        System.out.printf("%-10s %10s %14s%n", "mailbox", "producers", "messages/s");
+        mailbox(1, MAILBOX_MESSAGES / 10);  // Warm up
+        for (int producers : new int[]{1, 2, 4}) {
+            System.out.printf("%-10s %10d %,14.0f%n", "", producers, mailbox(producers, MAILBOX_MESSAGES));
+        }
+
+        System.out.println();
+        System.out.printf("%-10s %8s %8s %12s %14s %16s%n", "matches", "workers", "matches", "commands", "commands/s", "commands/s/core");
+        int[] workerCounts = Arrays.stream(new int[]{1, 2, 4, 8, maxWorkers}).filter(n -> n <= maxWorkers).distinct().sorted().toArray();
+        int[] matchCounts = Arrays.stream(new int[]{1, 100, 1_000, 10_000, maxMatches}).filter(n -> n <= maxMatches).distinct().sorted().toArray();
+        for (int workers : workerCounts) {
+            ActorScheduler scheduler = new ActorScheduler(workers);
+            matches(scheduler, Math.min(1_000, maxMatches));  // Warm up
+            for (int count : matchCounts) {
+                commands.reset();
+                long start = System.nanoTime();
+                matches(scheduler, count);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long sent = commands.sum();
+                System.out.printf("%-10s %8d %8d %,12d %,14.0f %,16.0f%n", "", workers, count, sent, sent / seconds,
+                        sent / seconds / Math.min(workers, cores));
+            }
+            scheduler.shutdown();
+        }
+    }
+
+    // Producers offer `messages` in all while one consumer polls them; returns messages per second
+    private static double mailbox(int producers, int messages) throws InterruptedException {
+        Mailbox<Integer> mailbox = new Mailbox<>();
+        Integer message = 1;
+        int each = messages / producers;
+        Thread[] threads = new Thread[producers];
+        long start = System.nanoTime();
+        for (int i = 0; i < producers; i++) {
+            threads[i] = Thread.ofPlatform().start(() -> {
+                for (int j = 0; j < each; j++) mailbox.offer(message);
+            });
+        }
+        long received = 0;
+        while (received < (long) each * producers) {
+            if (mailbox.poll() != null) {
+                received++;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Thread thread : threads) thread.join();
+        return received / (elapsed / 1e9);
+    }
+
+    // Plays `count` matches at once to the end
+    private static void matches(ActorScheduler scheduler, int count) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            Match match = new Match(i + 1, new BotConnection(new SweepBot(), "bot-1"), new BotConnection(new SweepBot(), "bot-2"),
+                    BitboardPlayer::new, null, null, null, BoardRules.STANDARD, scheduler);
+            match.start(done::countDown);
+        }
+        done.await();
+    }
+
+    // Places the same fleet every game and shoots every cell row-major, counting what it sends
+    private static final class SweepBot implements Bot {
+        private int next = 0;
+
+        @Override
+        public void placeFleet(Fleet fleet) {
+            commands.increment();
+            for (int ship = 0; ship < Bench.SHIPS; ship++) fleet.place(ship, Bench.fleetRow(ship), 0, 0);
+        }
+
+        @Override
+        public int nextShot() {
+            commands.increment();
+            return next++ % (SIZE * SIZE);
+        }
+
+        @Override
+        public void onAttackResult(int cell, int result) {
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.nio.ByteBuffer;
+
+// Measures what batching buys at the JNI boundary. Attacks: `pairs` native player pairs each
+// attack one fresh cell per round, either one attack() call per attack or one AttackBatch for
+// the whole round, for batch sizes from 1 up. Placement: a five-ship fleet placed with five
+// PlaceShip calls or with one placeFleet call over a direct buffer. Resetting players between
+// rounds of 100 cells is left out of the timings.
+//
+// Usage: java -cp bin BatchBenchmark [seconds per case]
+public class BatchBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int[] BATCH_SIZES = {1, 4, 16, 64, 256, 1024};
+
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1;
+
+        System.out.printf("%-10s %10s %16s %16s %12s%n", "attacks", "batch", "attacks/s", "JNI calls/s", "ns/attack");
+        attacks(1, false, seconds / 2);  // Warm up both paths
+        attacks(64, true, seconds / 2);
+        printAttacks("single", 1, attacks(1, false, seconds), 1);
+        for (int batchSize : BATCH_SIZES) {
+            printAttacks("batched", batchSize, attacks(batchSize, true, seconds), batchSize);
+        }
+
+        System.out.println();
+        System.out.printf("%-10s %10s %16s %16s %12s%n", "placement", "ships", "fleets/s", "JNI calls/s", "ns/fleet");
+        placements(false, seconds / 2);
+        placements(true, seconds / 2);
+        printPlacements("PlaceShip", placements(false, seconds), Bench.SHIPS);
+        printPlacements("placeFleet", placements(true, seconds), 1);
+    }
+
+    private static void printAttacks(String mode, int batchSize, double perSecond, int attacksPerCall) {
+        System.out.printf("%-10s %10d %,16.0f %,16.0f %12.1f%n", mode, batchSize, perSecond, perSecond / attacksPerCall, 1e9 / perSecond);
+    }
+
+    private static void printPlacements(String mode, double perSecond, int callsPerFleet) {
+        System.out.printf("%-10s %10d %,16.0f %,16.0f %12.1f%n", mode, Bench.SHIPS, perSecond, perSecond * callsPerFleet, 1e9 / perSecond);
+    }
+
+    // Returns attacks per second of attack time over `seconds` of wall time
+    private static double attacks(int pairs, boolean batched, double seconds) {
+        BattleshipJNI[] players = new BattleshipJNI[2 * pairs];
+        for (int i = 0; i < players.length; i++) players[i] = new BattleshipJNI();
+        ByteBuffer fleet = fleetBuffer();
+        AttackBatch batch = new AttackBatch(pairs);
+
+        long attacks = 0, attackNanos = 0, result = 0;
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {
+            for (BattleshipJNI player : players) {
+                player.reset();
+                player.placeFleet(fleet, Bench.SHIPS);
+            }
+            long start = System.nanoTime();
+            for (int cell = 0; cell < SIZE * SIZE; cell++) {
+                int row = cell / SIZE, col = cell % SIZE;
+                if (batched) {
+                    batch.clear();
+                    for (int i = 0; i < pairs; i++) batch.add(players[2 * i], row, col, players[2 * i + 1]);
+                    batch.execute();
+                    for (int i = 0; i < pairs; i++) result += batch.result(i);
+                } else {
+                    for (int i = 0; i < pairs; i++) result += players[2 * i].attack(row, col, players[2 * i + 1]);
+                }
+            }
+            attackNanos += System.nanoTime() - start;
+            attacks += (long) pairs * SIZE * SIZE;
+        }
+        for (BattleshipJNI player : players) player.close();
+        Bench.sink += result;
+        return attacks / (attackNanos / 1e9);
+    }
+
+    // Returns fleets placed per second of placement time over `seconds` of wall time
+    private static double placements(boolean batched, double seconds) {
+        BattleshipJNI[] players = new BattleshipJNI[256];
+        for (int i = 0; i < players.length; i++) players[i] = new BattleshipJNI();
+        ByteBuffer fleet = fleetBuffer();
+        int[][] coords = new int[Bench.SHIPS][];
+        for (int ship = 0; ship < coords.length; ship++) coords[ship] = new int[]{Bench.fleetRow(ship), 0};
+
+        long fleets = 0, placeNanos = 0, placed = 0;
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {
+            for (BattleshipJNI player : players) player.reset();
+            long start = System.nanoTime();
+            for (BattleshipJNI player : players) {
+                if (batched) {
+                    placed += Integer.bitCount(player.placeFleet(fleet, Bench.SHIPS));
+                } else {
+                    for (int ship = 0; ship < Bench.SHIPS; ship++) placed += player.PlaceShip(Protocol.shipName(ship), coords[ship], 0);
+                }
+            }
+            placeNanos += System.nanoTime() - start;
+            fleets += players.length;
+        }
+        for (BattleshipJNI player : players) player.close();
+        Bench.sink += placed;
+        return fleets / (placeNanos / 1e9);
+    }
+
+    private static ByteBuffer fleetBuffer() {
+        ByteBuffer fleet = ByteBuffer.allocateDirect(Bench.SHIPS * BattleshipPlayer.FLEET_RECORD_SIZE);
+        for (int ship = 0; ship < Bench.SHIPS; ship++) {
+            fleet.put((byte) ship).put((byte) Bench.fleetRow(ship)).put((byte) 0).put((byte) 0);
+        }
+        return fleet;
+    }
+}
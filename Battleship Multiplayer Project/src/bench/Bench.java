@@ -0,0 +1,42 @@
+import java.nio.ByteBuffer;
+
+// What the benchmarks share: the standard fleet they place, ship type i horizontal from column 0
+// on row 2 * i, and a sink for results the JIT must not drop. Ship names and lengths come from
+// Protocol, as the game's own do.
+final class Bench {
+    static final int SHIPS = BoardRules.SHIP_TYPES;
+
+    static volatile long sink;  // Results land here so the JIT cannot drop the work
+
+    private Bench() {
+    }
+
+    // The row ship type `ship` lies on
+    static int fleetRow(int ship) {
+        return 2 * ship;
+    }
+
+    // Whether the standard fleet covers the cell
+    static boolean isFleetCell(int row, int col) {
+        return row % 2 == 0 && row / 2 < SHIPS && col < Protocol.shipSize(row / 2);
+    }
+
+    // Places the standard fleet one PlaceShip call at a time; returns how many ships were accepted
+    static int placeFleet(BattleshipPlayer player) {
+        int placed = 0;
+        for (int ship = 0; ship < SHIPS; ship++) placed += player.PlaceShip(Protocol.shipName(ship), new int[]{fleetRow(ship), 0}, 0);
+        return placed;
+    }
+
+    // One PLACE frame per ship of the standard fleet
+    static void writePlaces(ByteBuffer out) {
+        for (int ship = 0; ship < SHIPS; ship++) Protocol.writePlace(out, ship, fleetRow(ship), 0, 0);
+    }
+
+    // The standard fleet in one FLEET frame
+    static void writeFleet(ByteBuffer out) {
+        int start = Protocol.startFleet(out);
+        for (int ship = 0; ship < SHIPS; ship++) Protocol.addFleetShip(out, ship, fleetRow(ship), 0, 0);
+        Protocol.finishFleet(out, start);
+    }
+}
@@ -0,0 +1,57 @@
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Measures how long the density bot takes to pick a shot and learn its result, then plays it
+// against the random shooter in the self-play simulator to show what the extra work buys.
+// Runs on the pure-Java engine; no server or native library is needed.
+//
+// Usage: java -cp bin BotBenchmark [latency games] [self-play games]
+public class BotBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+
+    public static void main(String[] args) {
+        int latencyGames = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        long selfPlayGames = args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+
+        measureLatency(1_000, new SplittableRandom(1), null);  // Warm up
+        long[] decisions = new long[latencyGames * SIZE * SIZE];
+        int count = measureLatency(latencyGames, new SplittableRandom(2), decisions);
+        Arrays.sort(decisions, 0, count);
+        System.out.printf("Density bot decision latency over %,d shots (ns): p50=%d p99=%d p999=%d max=%d%n",
+                count, decisions[count / 2], decisions[(int) (count * 0.99)], decisions[(int) (count * 0.999)], decisions[count - 1]);
+        System.out.printf("Average shots to sink a random fleet: %.2f%n", (double) count / latencyGames);
+
+        for (String[] pairing : new String[][]{{"density", "random"}, {"random", "random"}, {"density", "density"}}) {
+            System.out.println();
+            System.out.println(pairing[0] + " vs " + pairing[1] + ":");
+            SelfPlaySimulator simulator = new SelfPlaySimulator(selfPlayGames, 1, BitboardPlayer::new,
+                    Bot.named(pairing[0]), Bot.named(pairing[1]), Writer.nullWriter());
+            long start = System.nanoTime();
+            simulator.run(Runtime.getRuntime().availableProcessors());
+            simulator.printSummary((System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    // The bot shoots at a random fleet until it is sunk; each nextShot plus onAttackResult is one
+    // decision. Returns the number of decisions, with their times in `decisions` if given.
+    private static int measureLatency(int games, SplittableRandom random, long[] decisions) {
+        int count = 0;
+        for (int game = 0; game < games; game++) {
+            BitboardPlayer target = new BitboardPlayer(), shooter = new BitboardPlayer();
+            RandomBot.placeRandomFleet((ship, row, col, orientation) ->
+                    target.PlaceShip(Protocol.shipName(ship), new int[]{row, col}, orientation), random);
+            Bot bot = new DensityBot(random.split());
+            while (!target.HasLost()) {
+                long start = System.nanoTime();
+                int cell = bot.nextShot();
+                int result = AttackResult.code(shooter.attack(cell / SIZE, cell % SIZE, target));
+                bot.onAttackResult(cell, result);
+                long elapsed = System.nanoTime() - start;
+                if (decisions != null) decisions[count] = elapsed;
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+// Compares the native JNI game backend with the pure-Java BitboardPlayer.
+// First plays random games on both side by side and checks that every placement, attack result,
+// loss check and grid is identical; then measures attack throughput of each backend on its own.
+//
+// The native side logs every rejected single-ship placement to stderr, so run it as
+//   java -cp bin EngineBenchmark 2>/dev/null
+// to keep the cross-check readable.
+//
+// Usage: java -cp bin EngineBenchmark [seconds per backend] [cross-check games]
+public class EngineBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        int mismatches = crossCheck(games, new Random(42));
+        System.out.printf("Cross-check: %,d random games, %d mismatches%n", games, mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+
+        double jni = throughput(BattleshipJNI::new, seconds);
+        double java = throughput(BitboardPlayer::new, seconds);
+        System.out.printf("JNI attacks/s:  %,.0f%n", jni);
+        System.out.printf("Java attacks/s: %,.0f   (%.1fx)%n", java, java / jni);
+    }
+
+    // --- Equivalence: both backends get the same random moves, including invalid ones ---
+
+    private static int crossCheck(int games, Random random) {
+        int mismatches = 0;
+        byte[] nativeCells = new byte[SIZE * SIZE], javaCells = new byte[SIZE * SIZE];
+        for (int game = 0; game < games; game++) {
+            BattleshipPlayer[] natives = {new BattleshipJNI(), new BattleshipJNI()};
+            BattleshipPlayer[] javas = {new BitboardPlayer(), new BitboardPlayer()};
+
+            // Random placements until each side has five ships; some overlap or run off the grid
+            for (int p = 0; p < 2; p++) {
+                int placed = 0;
+                while (placed < Bench.SHIPS) {
+                    String type = Protocol.shipName(random.nextInt(Bench.SHIPS));
+                    int[] coords = {random.nextInt(SIZE + 2) - 1, random.nextInt(SIZE + 2) - 1};
+                    int orientation = random.nextInt(3);
+                    int expected = natives[p].PlaceShip(type, coords, orientation);
+                    if (javas[p].PlaceShip(type, coords, orientation) != expected) mismatches++;
+                    if (expected == 1) placed++;
+                }
+            }
+
+            // Random attacks, repeats and out-of-range cells included, until someone loses
+            int attacker = 0;
+            while (!natives[0].HasLost() && !natives[1].HasLost()) {
+                int[] coord = {random.nextInt(SIZE + 2) - 1, random.nextInt(SIZE + 2) - 1};
+                int expected = natives[attacker].attack(coord[0], coord[1], natives[1 - attacker]);
+                if (javas[attacker].attack(coord[0], coord[1], javas[1 - attacker]) != expected) mismatches++;
+                if (javas[0].HasLost() != natives[0].HasLost() || javas[1].HasLost() != natives[1].HasLost()) mismatches++;
+                // Printed after every attack, so the native row cache is checked as rows change
+                for (int p = 0; p < 2; p++) {
+                    if (!natives[p].printGridsSideBySide().equals(javas[p].printGridsSideBySide())) mismatches++;
+                }
+                attacker = 1 - attacker;
+            }
+
+            for (int p = 0; p < 2; p++) {
+                natives[p].copySelfGrid(nativeCells);
+                javas[p].copySelfGrid(javaCells);
+                if (!Arrays.equals(nativeCells, javaCells)) mismatches++;
+                natives[p].copyTargetGrid(nativeCells);
+                javas[p].copyTargetGrid(javaCells);
+                if (!Arrays.equals(nativeCells, javaCells)) mismatches++;
+                if (!natives[p].printGridsSideBySide().equals(javas[p].printGridsSideBySide())) mismatches++;
+            }
+            for (BattleshipPlayer player : natives) player.close();
+        }
+        return mismatches;
+    }
+
+    // --- Throughput: fixed fleet, each side attacks the cells in a shuffled order ---
+
+    private static double throughput(Supplier<? extends BattleshipPlayer> backend, double seconds) {
+        int[] order = new int[SIZE * SIZE];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Random random = new Random(7);
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        // Warm up, then count attacks in the measured window; setup time is excluded
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < warmupEnd) playGame(backend, order);
+        long attacks = 0, attackNanos = 0;
+        long end = System.nanoTime() + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {
+            long[] result = playGame(backend, order);
+            attacks += result[0];
+            attackNanos += result[1];
+        }
+        return attacks / (attackNanos / 1e9);
+    }
+
+    // Returns {attacks made, nanoseconds spent attacking}
+    private static long[] playGame(Supplier<? extends BattleshipPlayer> backend, int[] order) {
+        BattleshipPlayer[] players = {backend.get(), backend.get()};
+        for (BattleshipPlayer player : players) Bench.placeFleet(player);
+
+        int[] coord = new int[2];
+        int[] next = new int[2];
+        int attacks = 0, attacker = 0;
+        long start = System.nanoTime();
+        while (!players[0].HasLost() && !players[1].HasLost()) {
+            int cell = order[next[attacker]++];
+            coord[0] = cell / SIZE;
+            coord[1] = cell % SIZE;
+            players[attacker].attack(coord[0], coord[1], players[1 - attacker]);
+            attacks++;
+            attacker = 1 - attacker;
+        }
+        long elapsed = System.nanoTime() - start;
+        for (BattleshipPlayer player : players) player.close();
+        return new long[]{attacks, elapsed};
+    }
+}
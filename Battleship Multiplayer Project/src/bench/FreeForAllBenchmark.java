@@ -0,0 +1,216 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// Turn throughput of free-for-all matches as the table grows. Rotation: half the players are sunk,
+// then GameEngine.nextTurn, which follows the ring of players still in, is timed against scanning
+// the seats and asking each backend HasLost, as the two-player loop used to. Games: whole games
+// through GameEngine, every player attacking the next one in turn order, reported as turns per
+// second. Sockets: a server seating that many players runs in this JVM and scripted players play
+// one match; the report shows turns per second, turn latency, and the frames each player receives
+// per turn, which stays flat because results only go to the attacker and the defender.
+//
+// Usage: java -cp bin FreeForAllBenchmark [max players] [port] [java|jni]
+public class FreeForAllBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int ROTATIONS = 2_000_000;
+    private static final int GAME_TURNS = 1_000_000;  // Per table size; the native engine plays a tenth
+
+    public static void main(String[] args) throws Exception {
+        int maxPlayers = args.length > 0 ? Integer.parseInt(args[0]) : GameEngine.MAX_PLAYERS;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 12400;
+        boolean jni = args.length > 2 && args[2].equals("jni");
+        Supplier<BattleshipPlayer> factory = jni ? BattleshipJNI::new : BitboardPlayer::new;
+
+        int[] tables = Arrays.stream(new int[]{2, 3, 4, 8, 16}).filter(n -> n <= maxPlayers).toArray();
+        System.out.println("Engine: " + (jni ? "jni" : "java"));
+        System.out.printf("%-10s %8s %16s %16s %14s %12s%n", "engine", "players", "ring ns/turn", "HasLost ns/turn", "game turns/s", "ns/turn");
+        for (int players : tables) rotationAndGames(players, factory, jni);  // Warm up
+        for (int players : tables) {
+            long[] rotation = rotation(players, factory);
+            double gameNanos = games(players, factory, jni ? GAME_TURNS / 10 : GAME_TURNS);
+            System.out.printf("%-10s %8d %16.1f %16.1f %,14.0f %12.1f%n", "", players, rotation[0] / (double) ROTATIONS,
+                    rotation[1] / (double) ROTATIONS, 1e9 / gameNanos, gameNanos);
+        }
+
+        System.out.println();
+        Log.setLevel(Log.ERROR);  // The server logs every move
+        System.out.printf("%-10s %8s %10s %14s %10s %10s %18s%n", "sockets", "players", "turns", "turns/s", "p50 us", "p99 us", "frames/player/turn");
+        for (int i = 0; i < tables.length; i++) {
+            if (tables[i] < 3) continue;
+            BattleshipServer server = new BattleshipServer(port + i, false, 0, BitboardPlayer::new);
+            server.setPlayersPerMatch(tables[i]);
+            Thread.ofPlatform().daemon().name("server").start(server::startServer);
+            Thread.sleep(500);  // Give the server time to bind
+            socketMatch(port + i, tables[i]);
+            server.stopServer();
+        }
+    }
+
+    private static void rotationAndGames(int players, Supplier<BattleshipPlayer> factory, boolean jni) {
+        rotation(players, factory);
+        games(players, factory, jni ? GAME_TURNS / 100 : GAME_TURNS / 10);
+    }
+
+    // Sinks every other player but the first two, then times ROTATIONS turns both ways. Returns
+    // the nanoseconds taken by GameEngine.nextTurn and by a HasLost scan.
+    private static long[] rotation(int players, Supplier<BattleshipPlayer> factory) {
+        BattleshipPlayer[] seated = new BattleshipPlayer[players];
+        for (int i = 0; i < players; i++) seated[i] = fleet(factory.get());
+        GameEngine engine = new GameEngine(seated, factory);
+        engine.setFirstAttacker(1);  // Player 1 does the sinking
+        for (int player = 3; player <= players; player += 2) {
+            for (int ship = 0; ship < Bench.SHIPS; ship++) {
+                for (int col = 0; col < Protocol.shipSize(ship); col++) engine.attack(player, Bench.fleetRow(ship), col);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROTATIONS; i++) engine.nextTurn();
+        long ring = System.nanoTime() - start;
+        Bench.sink = engine.getCurrentPlayer();
+
+        int current = 1;
+        start = System.nanoTime();
+        for (int i = 0; i < ROTATIONS; i++) {
+            do {
+                current = current % players + 1;
+            } while (seated[current - 1].HasLost());
+        }
+        long scan = System.nanoTime() - start;
+        Bench.sink = current;
+
+        engine.close();
+        for (BattleshipPlayer player : seated) player.close();
+        return new long[]{ring, scan};
+    }
+
+    // Plays whole games until `turns` turns are done; returns the nanoseconds per turn
+    private static double games(int players, Supplier<BattleshipPlayer> factory, int turns) {
+        long elapsed = 0;
+        int played = 0;
+        while (played < turns) {
+            BattleshipPlayer[] seated = new BattleshipPlayer[players];
+            for (int i = 0; i < players; i++) seated[i] = fleet(factory.get());
+            GameEngine engine = new GameEngine(seated, factory);
+            int[][] nextCell = new int[players + 1][players + 1];  // Row-major, per attacker and target
+
+            long start = System.nanoTime();
+            int results = 0;
+            while (!engine.isGameOver()) {
+                int attacker = engine.getCurrentPlayer();
+                int target = engine.nextAlive(attacker);
+                int cell = nextCell[attacker][target]++;
+                results += engine.attack(target, cell / SIZE, cell % SIZE);
+                engine.nextTurn();
+                played++;
+            }
+            elapsed += System.nanoTime() - start;
+            Bench.sink = results;
+
+            engine.close();
+            for (BattleshipPlayer player : seated) player.close();
+        }
+        return elapsed / (double) played;
+    }
+
+    private static BattleshipPlayer fleet(BattleshipPlayer player) {
+        Bench.placeFleet(player);
+        return player;
+    }
+
+    // --- One match over sockets ---
+
+    private static void socketMatch(int port, int players) throws Exception {
+        long[][] latencies = new long[players][];
+        long[] frames = new long[players];
+        Thread[] threads = new Thread[players];
+        long start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            int seat = i;
+            threads[i] = Thread.ofVirtual().start(() -> {
+                try {
+                    latencies[seat] = play(port, players, frames, seat);
+                } catch (Exception e) {
+                    System.err.println("Player failed: " + e);
+                    latencies[seat] = new long[0];
+                }
+            });
+        }
+        for (Thread thread : threads) thread.join();
+        long elapsed = System.nanoTime() - start;
+
+        long[] merged = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        int turns = merged.length;
+        if (turns == 0) {
+            System.err.println("No turns played with " + players + " players");
+            return;
+        }
+        long framesIn = Arrays.stream(frames).sum();
+        System.out.printf("%-10s %8d %10d %,14.0f %10d %10d %18.2f%n", "", players, turns, turns / (elapsed / 1e9),
+                merged[turns / 2] / 1000, merged[Math.min(turns - 1, (int) (turns * 0.99))] / 1000, framesIn / (double) players / turns);
+    }
+
+    // One scripted player: places the standard fleet, then on each turn attacks the lowest-numbered
+    // opponent still in, row-major. Counts the frames received during play into frames[seat] and
+    // returns the latency of each of its attacks.
+    private static long[] play(int port, int players, long[] frames, int seat) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer outBuffer = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE * Bench.SHIPS);
+            ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+            Frame frame = new Frame();
+
+            Protocol.writeHello(outBuffer);
+            send(out, outBuffer);
+            Protocol.readFrame(in, scratch, frame);  // Role
+            int me = frame.a;
+            Protocol.readFrame(in, scratch, frame);  // Board rules
+            Protocol.readFrame(in, scratch, frame);  // Players
+            if (frame.type != Protocol.PLAYERS || frame.a != players) throw new IOException("Expected " + players + " players");
+            Protocol.readFrame(in, scratch, frame);  // Welcome banner
+
+            Bench.writePlaces(outBuffer);
+            send(out, outBuffer);
+            for (int ship = 0; ship < Bench.SHIPS; ship++) Protocol.readFrame(in, scratch, frame);  // Placement results
+
+            boolean[] knockedOut = new boolean[players + 1];  // Players known to be out
+            int[] nextCell = new int[players + 1];
+            long[] samples = new long[players * SIZE * SIZE];
+            int count = 0;
+            long sentAt = 0;
+            long received = 0;
+            while (true) {
+                Protocol.readFrame(in, scratch, frame);
+                received++;
+                if (frame.type == Protocol.TURN && frame.a == me) {
+                    int target = 1;
+                    while (target == me || knockedOut[target]) target++;
+                    int cell = nextCell[target]++;
+                    Protocol.writeAttack(outBuffer, cell / SIZE, cell % SIZE, target);
+                    send(out, outBuffer);
+                    sentAt = System.nanoTime();
+                } else if (frame.type == Protocol.ATTACK_RESULT && frame.a == me) {
+                    samples[count++] = System.nanoTime() - sentAt;
+                } else if (frame.type == Protocol.PLAYER_OUT) {
+                    knockedOut[frame.a] = true;
+                    if (frame.a == me) break;
+                } else if (frame.type == Protocol.GAME_OVER) {
+                    break;
+                }
+            }
+            frames[seat] = received;
+            return Arrays.copyOf(samples, count);
+        }
+    }
+
+    private static void send(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), 0, frame.position());
+        out.flush();
+        frame.clear();
+    }
+}
@@ -0,0 +1,128 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Throughput of matches spread over backend processes by a BattleshipGateway. Ring: how evenly
+// consistent hashing spreads match ids over the backends, and how many ids move when one leaves
+// and joins again. Scaling: for 1, 2, 4 ... up to `max backends`, starts that many BattleshipServer
+// processes on loopback (pure-Java engine, logging off), puts a gateway in front of them in this
+// JVM and runs the LoadGenerator against the gateway for `seconds`. Reports matches per second and
+// how the gateway spread them. A run straight against one backend shows what the gateway costs.
+// Backends only scale while there are cores for them; on a single core they share it.
+//
+// Usage: java -cp bin GatewayBenchmark [max backends] [clients] [seconds] [base port]
+public class GatewayBenchmark {
+    private static final int KEYS = 1_000_000;  // Match ids looked up on the ring
+
+    public static void main(String[] args) throws Exception {
+        int maxBackends = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        int basePort = args.length > 3 ? Integer.parseInt(args[3]) : 13000;
+        Log.setLevel(Log.OFF);  // Probing the ports makes handshakes fail
+
+        ring(Math.max(2, maxBackends));
+
+        System.out.println();
+        List<Double> results = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        List<Process> processes = new ArrayList<>();
+        try {
+            processes.add(startBackend(basePort + 1));
+            System.out.println("== direct, 1 backend");
+            double direct = new LoadGenerator("localhost", basePort + 1, clients, 0, false, Bot.named("density"), 1).run(seconds);
+            for (int backends = 1; backends <= maxBackends; backends *= 2) {
+                while (processes.size() < backends) processes.add(startBackend(basePort + 1 + processes.size()));
+                List<String> addresses = new ArrayList<>();
+                for (int i = 0; i < backends; i++) addresses.add("localhost:" + (basePort + 1 + i));
+                BattleshipGateway gateway = new BattleshipGateway(basePort, addresses, 2);
+                Thread gatewayThread = Thread.ofPlatform().name("gateway").start(gateway::start);
+                waitForPort(basePort);
+
+                System.out.println("== gateway, " + backends + (backends == 1 ? " backend" : " backends"));
+                results.add(new LoadGenerator("localhost", basePort, clients, 0, false, Bot.named("density"), 1).run(seconds));
+                counts.add(backends);
+                StringBuilder spread = new StringBuilder("Matches routed:");
+                for (BattleshipGateway.Backend backend : gateway.getBackends()) spread.append(' ').append(backend).append('=').append(backend.getMatchesRouted());
+                System.out.println(spread);
+                gateway.stop();
+                gatewayThread.join();
+            }
+
+            System.out.println();
+            System.out.printf("%-10s %12s %10s%n", "backends", "matches/s", "speedup");
+            System.out.printf("%-10s %,12.1f %10s%n", "direct", direct, "");
+            for (int i = 0; i < results.size(); i++) {
+                System.out.printf("%-10d %,12.1f %9.2fx%n", counts.get(i), results.get(i), results.get(i) / results.get(0));
+            }
+            System.out.printf("(%d cores)%n", Runtime.getRuntime().availableProcessors());
+        } finally {
+            for (Process process : processes) process.destroy();
+        }
+    }
+
+    // Spread of match ids over `backends` nodes, then the ids that move when the last one leaves and rejoins
+    private static void ring(int backends) {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+        for (int i = 0; i < backends; i++) ring.add("backend-" + i, "localhost:" + (13001 + i));
+        int[] owned = new int[backends];
+        String[] before = new String[KEYS];
+        long start = System.nanoTime();
+        for (int key = 0; key < KEYS; key++) {
+            before[key] = ring.get(key);
+            owned[Integer.parseInt(before[key].substring("backend-".length()))]++;
+        }
+        double lookupNanos = (System.nanoTime() - start) / (double) KEYS;
+        int min = Integer.MAX_VALUE, max = 0;
+        for (int count : owned) {
+            min = Math.min(min, count);
+            max = Math.max(max, count);
+        }
+        System.out.printf("Ring: %d backends x %d points, lookup %.0f ns, share per backend %.1f%% to %.1f%% (even: %.1f%%)%n",
+                backends, ConsistentHashRing.VIRTUAL_NODES, lookupNanos, 100.0 * min / KEYS, 100.0 * max / KEYS, 100.0 / backends);
+
+        String leaving = "backend-" + (backends - 1);
+        ring.remove(leaving);
+        int moved = 0, movedElsewhere = 0;
+        for (int key = 0; key < KEYS; key++) {
+            String owner = ring.get(key);
+            if (!owner.equals(before[key])) {
+                moved++;
+                if (!before[key].equals(leaving)) movedElsewhere++;
+            }
+        }
+        ring.add(leaving, "localhost:" + (13001 + backends - 1));
+        int back = 0;
+        for (int key = 0; key < KEYS; key++) {
+            if (ring.get(key).equals(before[key])) back++;
+        }
+        System.out.printf("Leave: %.1f%% of ids moved (%d not from the leaving backend); rejoin: %.1f%% back where they were%n",
+                100.0 * moved / KEYS, movedElsewhere, 100.0 * back / KEYS);
+    }
+
+    private static Process startBackend(int port) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "BattleshipServer", "--port=" + port,
+                "--engine=java", "--log=off", "--metrics-interval=0")
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        waitForPort(port);
+        return process;
+    }
+
+    private static void waitForPort(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 200; attempt++) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 100);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("Nothing is listening on port " + port);
+    }
+}
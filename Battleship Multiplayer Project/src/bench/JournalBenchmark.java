@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Measures the match journal. Writes: appender threads record attacks as fast as they can while
+// the sync thread group-commits in the background; reports records/s, MB/s, syncs and append
+// latency. Recovery: journals random-bot games like a server would, in small segments, until a
+// crash cuts off the last hundredth of them mid-game. Segments holding only finished matches are
+// retired as it goes, so it reports how much is left, then times reading that back and replaying
+// it on the pure-Java engine.
+// Runs in a temporary directory that is deleted afterwards.
+//
+// Usage: java -cp bin JournalBenchmark [seconds per write case] [recovery matches]
+public class JournalBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int ATTACK_RECORD_SIZE = 17;  // Header 6 + payload 7 + checksum 4
+    private static final int RECOVERY_SEGMENT_SIZE = 4 << 20;  // Small, so there are segments to retire
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        int matches = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        System.out.printf("%-8s %14s %10s %8s %10s %10s %10s%n", "threads", "records/s", "MB/s", "syncs", "p50 ns", "p99 ns", "p999 ns");
+        for (int threads : new int[]{1, 1, 4, 16}) {  // The first run warms up
+            writeThroughput(threads, seconds);
+        }
+
+        System.out.println();
+        recovery(matches);
+    }
+
+    private static void writeThroughput(int threads, double seconds) throws Exception {
+        Path directory = Files.createTempDirectory("journal-bench");
+        try {
+            MatchJournal journal = MatchJournal.open(directory);
+            long[][] latencies = new long[threads][];
+            AtomicLong total = new AtomicLong();
+            Thread[] appenders = new Thread[threads];
+            long end = System.nanoTime() + (long) (seconds * 1e9);
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                appenders[t] = Thread.ofPlatform().start(() -> {
+                    long[] samples = new long[1 << 20];
+                    int sampled = 0;
+                    long count = 0;
+                    try {
+                        while (System.nanoTime() < end) {
+                            for (int i = 0; i < 64; i++) {
+                                long start = System.nanoTime();
+                                journal.attacked(thread + 1, 1, i % SIZE, i / SIZE % SIZE, Protocol.RESULT_MISS);
+                                long elapsed = System.nanoTime() - start;
+                                if ((i & 15) == 0 && sampled < samples.length) samples[sampled++] = elapsed;
+                            }
+                            count += 64;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    latencies[thread] = Arrays.copyOf(samples, sampled);
+                    total.addAndGet(count);
+                });
+            }
+            for (Thread appender : appenders) appender.join();
+            long syncs = journal.getSyncCount();
+            journal.close();
+
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            double perSecond = total.get() / seconds;
+            System.out.printf("%-8d %,14.0f %10.1f %8d %10d %10d %10d%n", threads, perSecond, perSecond * ATTACK_RECORD_SIZE / 1e6, syncs,
+                    all[all.length / 2], all[(int) (all.length * 0.99)], all[(int) (all.length * 0.999)]);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static void recovery(int matches) throws IOException {
+        Path directory = Files.createTempDirectory("journal-bench");
+        try {
+            // Journal games between random bots, the last hundredth of them cut off by a crash
+            long start = System.nanoTime();
+            int cutOff = matches - matches / 100;
+            MatchJournal journal = MatchJournal.open(directory, RECOVERY_SEGMENT_SIZE, MatchJournal.DEFAULT_SYNC_MILLIS);
+            try (journal) {
+                SplittableRandom random = new SplittableRandom(1);
+                for (int match = 1; match <= matches; match++) journalGame(journal, match, random, match > cutOff);
+            }
+            long retired = journal.getSegmentsDeleted();  // Counted once closing has synced, which retires what the last matches freed
+            long records;
+            long bytes, left;
+            try (Stream<Path> files = Files.list(directory)) {
+                long[] sizes = files.mapToLong(path -> path.toFile().length()).toArray();
+                bytes = Arrays.stream(sizes).sum();
+                left = sizes.length;
+            }
+            System.out.printf("Journaled %,d matches in %.2f s; %,d segments retired, %,d left (%,d MB)%n", matches,
+                    (System.nanoTime() - start) / 1e9, retired, left, bytes >> 20);
+
+            // Reading alone, then reading and replaying every match
+            start = System.nanoTime();
+            records = MatchJournal.read(directory, record -> { });
+            double readSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Read:   %,d records in %.2f s (%,.0f records/s)%n", records, readSeconds, records / readSeconds);
+
+            long[] mismatches = new long[1];
+            start = System.nanoTime();
+            MatchReplayer replayer = new MatchReplayer(BitboardPlayer::new, match -> mismatches[0] += match.mismatches);
+            MatchJournal.read(directory, replayer);
+            double replaySeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Replay: %,d records in %.2f s (%,.0f records/s), %d unfinished recovered, %d mismatches%n",
+                    records, replaySeconds, records / replaySeconds, replayer.getUnfinished().size(), mismatches[0]);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    // Plays one random-bot game and journals it the way Match does
+    private static void journalGame(MatchJournal journal, int match, SplittableRandom random, boolean unfinished) throws IOException {
+        BitboardPlayer[] players = {new BitboardPlayer(), new BitboardPlayer()};
+        Bot[] bots = {new RandomBot(random.split()), new RandomBot(random.split())};
+        journal.matchStarted(match);
+        for (int p = 0; p < 2; p++) {
+            int player = p;
+            bots[p].placeFleet((ship, row, col, orientation) -> {
+                players[player].PlaceShip(Protocol.shipName(ship), new int[]{row, col}, orientation);
+                try {
+                    journal.shipPlaced(match, player + 1, ship, row, col, orientation);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        int attacker = random.nextInt(2);
+        int turns = 0;
+        while (!players[0].HasLost() && !players[1].HasLost()) {
+            if (unfinished && turns == 40) return;  // Cut off, as by a crash
+            int cell = bots[attacker].nextShot();
+            int result = players[attacker].attack(cell / SIZE, cell % SIZE, players[1 - attacker]);
+            bots[attacker].onAttackResult(cell, AttackResult.code(result));
+            journal.attacked(match, attacker + 1, cell / SIZE, cell % SIZE, result);
+            attacker = 1 - attacker;
+            turns++;
+        }
+        journal.matchEnded(match, players[1].HasLost() ? 1 : 2);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+        }
+    }
+}
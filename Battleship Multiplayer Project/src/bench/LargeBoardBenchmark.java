@@ -0,0 +1,287 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Checks and measures large-board mode. Engine: SparsePlayer plays random standard games side by
+// side with BitboardPlayer and must agree on every placement, result and grid; then players on a
+// large board are filled with a fleet and shots to show what they cost in heap, and attacks are
+// timed. Sockets: a server started with that board runs in this JVM and two scripted players play
+// a whole match; one asks for a resync halfway, which arrives as CELLS frames and must rebuild
+// the same boards the deltas built, and a spectator joining at that point gets a CELLS snapshot.
+//
+// Usage: java -cp bin LargeBoardBenchmark [board, e.g. 1000x1000] [fleet] [port]
+public class LargeBoardBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int PLAYERS = 100;  // Large-board players held at once for the heap measurement
+
+    public static void main(String[] args) throws Exception {
+        BoardRules rules = BoardRules.parse(args.length > 0 ? args[0] : "1000x1000",
+                args.length > 1 ? args[1] : "carrier:40,battleship:60,cruiser:60,submarine:60,destroyer:80");
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 12399;
+
+        int mismatches = crossCheck(2000, new Random(42));
+        System.out.printf("Cross-check with BitboardPlayer: 2,000 random games, %d mismatches%n", mismatches);
+        if (mismatches > 0) System.exit(1);
+
+        System.out.println("Board: " + rules.describe());
+        heapAndThroughput(rules);
+
+        Log.setLevel(Log.ERROR);  // The server logs every move
+        BattleshipServer server = new BattleshipServer(port, false, 0, BitboardPlayer::new);
+        server.setRules(rules);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        Thread.sleep(500);  // Give the server time to bind
+        boolean ok = socketMatch(port, rules);
+        server.stopServer();
+        if (!ok) System.exit(1);
+    }
+
+    // --- Equivalence on the standard board ---
+
+    private static int crossCheck(int games, Random random) {
+        int mismatches = 0;
+        byte[] bitboardCells = new byte[SIZE * SIZE], sparseCells = new byte[SIZE * SIZE];
+        BoardRules fiveOfEach = new BoardRules(SIZE, SIZE, new int[]{5, 5, 5, 5, 5});  // Room for any five ships
+        for (int game = 0; game < games; game++) {
+            BattleshipPlayer[] bitboards = {new BitboardPlayer(), new BitboardPlayer()};
+            BattleshipPlayer[] sparse = {new SparsePlayer(fiveOfEach), new SparsePlayer(fiveOfEach)};
+
+            // Random placements until each side has five ships; some overlap or run off the grid
+            for (int p = 0; p < 2; p++) {
+                int placed = 0;
+                while (placed < Bench.SHIPS) {
+                    String type = Protocol.shipName(random.nextInt(Bench.SHIPS));
+                    int[] coords = {random.nextInt(SIZE + 2) - 1, random.nextInt(SIZE + 2) - 1};
+                    int orientation = random.nextInt(3);
+                    int expected = bitboards[p].PlaceShip(type, coords, orientation);
+                    if (sparse[p].PlaceShip(type, coords, orientation) != expected) mismatches++;
+                    if (expected == 1) placed++;
+                }
+            }
+
+            // Random attacks, repeats and out-of-range cells included, until someone sinks five ships
+            int attacker = 0;
+            while (!bitboards[0].HasLost() && !bitboards[1].HasLost()) {
+                int row = random.nextInt(SIZE + 2) - 1, col = random.nextInt(SIZE + 2) - 1;
+                int expected = bitboards[attacker].attack(row, col, bitboards[1 - attacker]);
+                if (sparse[attacker].attack(row, col, sparse[1 - attacker]) != (AttackResult.isGameOver(expected) ? expected & ~(1 << 16) : expected)) {
+                    mismatches++;
+                }
+                attacker = 1 - attacker;
+            }
+            for (int p = 0; p < 2; p++) {
+                bitboards[p].copySelfGrid(bitboardCells);
+                sparse[p].copySelfGrid(sparseCells);
+                if (!Arrays.equals(bitboardCells, sparseCells)) mismatches++;
+                bitboards[p].copyTargetGrid(bitboardCells);
+                sparse[p].copyTargetGrid(sparseCells);
+                if (!Arrays.equals(bitboardCells, sparseCells)) mismatches++;
+                if (!bitboards[p].printGridsSideBySide().equals(sparse[p].printGridsSideBySide())) mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    // --- Heap and attack cost on the large board ---
+
+    private static void heapAndThroughput(BoardRules rules) {
+        long base = usedHeap();
+        SparsePlayer[] players = new SparsePlayer[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            players[i] = new SparsePlayer(rules);
+            placeFleet(players[i], rules);
+        }
+        long placed = usedHeap();
+        System.out.printf("Heap per player, fleet placed:    %,12d bytes (a byte per cell would be %,d for two grids)%n",
+                (placed - base) / PLAYERS, 2L * rules.getRows() * rules.getCols());
+
+        // Every player fires 10,000 shots in a stripe down the board at its neighbour
+        int shots = 10_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < PLAYERS; i++) {
+            for (int shot = 0; shot < shots; shot++) {
+                players[i].attack(shot % rules.getRows(), shot / rules.getRows(), players[(i + 1) % PLAYERS]);
+            }
+        }
+        double nanos = (double) (System.nanoTime() - start) / ((long) PLAYERS * shots);
+        long fired = usedHeap();
+        System.out.printf("Heap per player, %,d shots fired: %,12d bytes%n", shots, (fired - base) / PLAYERS);
+        System.out.printf("Attack: %.0f ns (%,.0f attacks/s)%n", nanos, 1e9 / nanos);
+        if (players[0].HasLost()) System.out.println();  // Keeps the players reachable until measured
+    }
+
+    // Ship i goes horizontal from column (i / rows) * 6 on row i % rows, so every fleet that fits a stripe layout is valid
+    private static void placeFleet(BattleshipPlayer player, BoardRules rules) {
+        int i = 0;
+        for (int ship = 0; ship < BoardRules.SHIP_TYPES; ship++) {
+            for (int n = 0; n < rules.getFleet(ship); n++, i++) {
+                player.PlaceShip(Protocol.shipName(ship), new int[]{i % rules.getRows(), (i / rules.getRows()) * 6}, 0);
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // --- A match over sockets ---
+
+    private static boolean socketMatch(int port, BoardRules rules) throws Exception {
+        long[][] results = new long[2][];
+        AtomicLong spectatorCells = new AtomicLong(-1);
+        Thread[] players = new Thread[2];
+        for (int i = 0; i < 2; i++) {
+            int index = i;
+            players[i] = Thread.ofVirtual().start(() -> {
+                try {
+                    results[index] = play(port, rules, spectatorCells);
+                } catch (Exception e) {
+                    System.err.println("Player failed: " + e);
+                }
+            });
+        }
+        for (Thread player : players) player.join();
+        if (results[0] == null || results[1] == null) return false;
+
+        long[] merged = new long[(int) (results[0][0] + results[1][0])];
+        System.arraycopy(results[0], 3, merged, 0, (int) results[0][0]);
+        System.arraycopy(results[1], 3, merged, (int) results[0][0], (int) results[1][0]);
+        Arrays.sort(merged);
+        boolean resynced = results[0][1] == 1 || results[1][1] == 1;
+        System.out.printf("Socket match: %,d turns, turn p50=%d us p99=%d us, placement %,d us%n", merged.length,
+                merged[merged.length / 2] / 1000, merged[(int) (merged.length * 0.99)] / 1000, Math.max(results[0][2], results[1][2]) / 1000);
+        System.out.println("Resync over CELLS frames rebuilt the same boards: " + resynced);
+        System.out.println("Spectator snapshot cells: " + spectatorCells.get());
+        return resynced && spectatorCells.get() > 0;
+    }
+
+    // Plays one side: places the stripe fleet a window of PLACE frames per write, then shoots the opponent's stripe
+    // cells in order, so the match ends after fleet-cells turns each. Returns {turns, resync ok,
+    // placement ns, turn latencies...}.
+    private static long[] play(int port, BoardRules rules, AtomicLong spectatorCells) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer outBuffer = ByteBuffer.allocate(rules.getShipCount() * Protocol.MAX_FIXED_FRAME_SIZE);
+            ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+            Frame frame = new Frame();
+
+            Protocol.writeHello(outBuffer);
+            send(out, outBuffer);
+            Protocol.readFrame(in, scratch, frame);  // Role
+            int me = frame.a;
+            Protocol.readFrame(in, scratch, frame);
+            if (frame.type != Protocol.RULES || !frame.rules().equals(rules)) throw new IOException("Wrong rules");
+            Protocol.readFrame(in, scratch, frame);  // Welcome banner
+
+            // The stripe layout, as cells, is also the list of cells to shoot
+            int[] targets = new int[countFleetCells(rules)];
+            int[][] ships = new int[rules.getShipCount()][];  // {ship, row, col}
+            int t = 0, i = 0;
+            for (int ship = 0; ship < BoardRules.SHIP_TYPES; ship++) {
+                for (int n = 0; n < rules.getFleet(ship); n++, i++) {
+                    int row = i % rules.getRows(), col = (i / rules.getRows()) * 6;
+                    ships[i] = new int[]{ship, row, col};
+                    for (int c = 0; c < Protocol.shipSize(ship); c++) targets[t++] = row * rules.getCols() + col + c;
+                }
+            }
+
+            // Never more than MAX_PIPELINED_FRAMES placements ahead of their results
+            long placeStart = System.nanoTime();
+            ClientBoard board = new ClientBoard(rules);
+            for (int first = 0; first < ships.length; first += Protocol.MAX_PIPELINED_FRAMES) {
+                int end = Math.min(ships.length, first + Protocol.MAX_PIPELINED_FRAMES);
+                for (int n = first; n < end; n++) Protocol.writePlace(outBuffer, ships[n][0], ships[n][1], ships[n][2], 0);
+                send(out, outBuffer);
+                for (int n = first; n < end; n++) {
+                    Protocol.readFrame(in, scratch, frame);
+                    if (frame.type != Protocol.PLACE_RESULT || frame.a != Protocol.PLACE_OK) throw new IOException("Placement rejected");
+                    board.applyPlacement(frame.b, frame.c, frame.d, frame.e, frame.seq);
+                }
+            }
+            long placement = System.nanoTime() - placeStart;
+            Protocol.readFrame(in, scratch, frame);  // Game start
+
+            long[] result = new long[3 + targets.length];
+            int shot = 0;
+            long sentAt = 0;
+            ClientBoard resynced = null;
+            while (true) {
+                Protocol.readFrame(in, scratch, frame);
+                switch (frame.type) {
+                    case Protocol.TURN -> {
+                        if (frame.a != me) continue;
+                        if (me == 1 && shot == targets.length / 2 && resynced == null) {
+                            resynced = new ClientBoard(rules);
+                            Protocol.writeResync(outBuffer);
+                            Thread.ofVirtual().start(() -> watch(port, spectatorCells));
+                        }
+                        int cell = targets[shot++];
+                        Protocol.writeAttack(outBuffer, cell / rules.getCols(), cell % rules.getCols());
+                        send(out, outBuffer);
+                        sentAt = System.nanoTime();
+                    }
+                    case Protocol.ATTACK_RESULT -> {
+                        board.applyAttack(frame.a == me, frame.b, frame.c, frame.d, frame.seq);
+                        if (frame.a == me) result[(int) (3 + result[0]++)] = System.nanoTime() - sentAt;
+                    }
+                    case Protocol.CELLS -> {
+                        resynced.applyCells(frame);
+                        if (frame.a == Protocol.GRID_TARGET) {
+                            result[1] = resynced.renderSelfGrid().equals(board.renderSelfGrid())
+                                    && resynced.renderTargetGrid().equals(board.renderTargetGrid()) ? 1 : 0;
+                        }
+                    }
+                    case Protocol.GAME_OVER -> {
+                        result[2] = placement;
+                        return result;
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+    }
+
+    // Joins as a spectator and counts the cells in its first snapshot
+    private static void watch(int port, AtomicLong spectatorCells) {
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer outBuffer = ByteBuffer.allocate(2 * Protocol.MAX_FIXED_FRAME_SIZE);
+            ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+            Frame frame = new Frame();
+            Protocol.writeHello(outBuffer, Protocol.HELLO_SPECTATE);
+            Protocol.writeWatch(outBuffer, 0);
+            send(out, outBuffer);
+            Protocol.readFrame(in, scratch, frame);  // Role 0
+            Protocol.readFrame(in, scratch, frame);  // Rules
+            long cells = 0;
+            do {
+                Protocol.readFrame(in, scratch, frame);
+                if (frame.type == Protocol.CELLS) cells += frame.c;
+            } while (frame.type == Protocol.CELLS);
+            spectatorCells.set(cells);
+        } catch (IOException e) {
+            System.err.println("Spectator failed: " + e);
+        }
+    }
+
+    private static int countFleetCells(BoardRules rules) {
+        int cells = 0;
+        for (int ship = 0; ship < BoardRules.SHIP_TYPES; ship++) cells += rules.getFleet(ship) * Protocol.shipSize(ship);
+        return cells;
+    }
+
+    private static void send(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), 0, frame.position());
+        out.flush();
+        frame.clear();
+    }
+}
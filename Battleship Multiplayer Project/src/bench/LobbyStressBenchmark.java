@@ -0,0 +1,150 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Starts a lobby server in this JVM, connects many scripted client pairs to it and
+// holds all of their matches open at once before letting them play out.
+// Reports how many matches were running concurrently and the per-turn latency under that load,
+// as the bots saw it and as the server's own metrics recorded it.
+//
+// Run it once per transport or game engine to compare them side by side.
+//
+// Usage: java -cp bin LobbyStressBenchmark [matches] [port] [blocking|nio] [jni|java]
+public class LobbyStressBenchmark {
+
+    private static final AtomicInteger failures = new AtomicInteger();  // Bots that did not finish their match
+
+    public static void main(String[] args) throws Exception {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 12399;
+        boolean useNio = args.length > 2 && args[2].equals("nio");
+        boolean javaEngine = args.length > 3 && args[3].equals("java");
+
+        Log.setLevel(Log.ERROR);  // The server logs every move
+        BattleshipServer server = javaEngine
+                ? new BattleshipServer(port, useNio, 0, BitboardPlayer::new)
+                : new BattleshipServer(port, useNio, 0, BattleshipJNI::new);
+        // Bots hold their first attack until every match is placed, which can take a while
+        server.setTimeouts(MatchTimeouts.DEFAULT_PLACEMENT_MILLIS, 10 * 60_000, 0);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        Thread.sleep(500);  // Give the server time to bind
+
+        // Every bot waits here after placing its fleet, so all matches are live before anyone attacks
+        CountDownLatch allPlaced = new CountDownLatch(matches * 2);
+        CountDownLatch allDone = new CountDownLatch(matches * 2);
+        List<long[]> latencies = new ArrayList<>();
+
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < matches * 2; i++) {
+            long[] samples = new long[101];  // At most 100 attacks per game, slot 0 holds the count
+            synchronized (latencies) {
+                latencies.add(samples);
+            }
+            Thread.ofVirtual().start(() -> {
+                try {
+                    runBot(port, samples, allPlaced);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    allPlaced.countDown();
+                } finally {
+                    allDone.countDown();
+                }
+            });
+        }
+
+        allPlaced.await();
+        long placedAt = System.nanoTime();
+        int peakMatches = server.getActiveMatches();
+        System.out.printf("Transport: %s, engine: %s%n", useNio ? "nio" : "blocking", javaEngine ? "java" : "jni");
+        System.out.printf("Matches running concurrently: %d (connections: %d, setup took %d ms)%n",
+                peakMatches, server.getConnectedPlayers(), (placedAt - connectStart) / 1_000_000);
+        System.out.printf("Platform threads in this JVM: %d, pending deadlines: %d%n",
+                ManagementFactory.getThreadMXBean().getThreadCount(), server.getPendingDeadlines());
+
+        allDone.await();
+        long elapsedMs = (System.nanoTime() - placedAt) / 1_000_000;
+
+        // Merge the per-bot turn latencies and report percentiles
+        int total = 0;
+        for (long[] samples : latencies) total += (int) samples[0];
+        long[] merged = new long[total];
+        int pos = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 1, merged, pos, (int) samples[0]);
+            pos += (int) samples[0];
+        }
+        Arrays.sort(merged);
+
+        System.out.printf("Turns played: %d in %d ms (%.0f turns/s), failed bots: %d%n",
+                total, elapsedMs, total * 1000.0 / Math.max(1, elapsedMs), failures.get());
+        if (total > 0) {
+            System.out.printf("Turn latency us: p50=%d p99=%d p999=%d max=%d%n",
+                    percentile(merged, 0.50) / 1000, percentile(merged, 0.99) / 1000,
+                    percentile(merged, 0.999) / 1000, merged[total - 1] / 1000);
+        }
+        System.out.println("Server side:");
+        System.out.println(server.getMetrics().getSummary());
+        server.stopServer();
+    }
+
+    // Plays one side of a match with the same binary protocol BattleshipClient uses
+    private static void runBot(int port, long[] samples, CountDownLatch allPlaced) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer outBuffer = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+            ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+            Frame frame = new Frame();
+
+            Protocol.writeHello(outBuffer);
+            send(out, outBuffer);
+            Protocol.readFrame(in, scratch, frame);  // Role
+            int me = frame.a;
+            Protocol.readFrame(in, scratch, frame);  // Board rules
+            Protocol.readFrame(in, scratch, frame);  // Welcome banner
+
+            // Place the fleet; the fixed layout is always valid
+            for (int ship = 0; ship < Bench.SHIPS; ship++) {
+                Protocol.writePlace(outBuffer, ship, Bench.fleetRow(ship), 0, 0);
+                send(out, outBuffer);
+                Protocol.readFrame(in, scratch, frame);  // Placement result
+            }
+            Protocol.readFrame(in, scratch, frame);  // Game start
+            allPlaced.countDown();
+            allPlaced.await();
+
+            int nextCell = 0;  // Cells are attacked in row-major order
+            long sentAt = 0;
+            while (true) {
+                Protocol.readFrame(in, scratch, frame);
+                if (frame.type == Protocol.TURN && frame.a == me) {
+                    Protocol.writeAttack(outBuffer, nextCell / 10, nextCell % 10);
+                    send(out, outBuffer);
+                    nextCell++;
+                    sentAt = System.nanoTime();
+                } else if ((frame.type == Protocol.ATTACK_RESULT && frame.a == me) || frame.type == Protocol.ERROR) {
+                    samples[(int) ++samples[0]] = System.nanoTime() - sentAt;  // Attack answered
+                } else if (frame.type == Protocol.GAME_OVER) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void send(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), 0, frame.position());
+        out.flush();
+        frame.clear();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+}
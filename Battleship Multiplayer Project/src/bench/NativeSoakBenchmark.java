@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Soak test for native player lifecycles: plays many headless matches on the JNI engine and
+// samples the process RSS and the native live-player count after every round. With pooling or
+// explicit closing both should level off after the first round instead of growing per match.
+//
+// --mode=pool reuses players through a NativePlayerPool; --mode=close deletes each one after its
+// match. RSS is read from /proc/self/status, so it shows n/a outside Linux.
+//
+// Usage: java -cp bin NativeSoakBenchmark [--matches=100000] [--round=10000] [--mode=pool|close] [--threads=N]
+public class NativeSoakBenchmark {
+    public static void main(String[] args) throws IOException {
+        long matches = 100_000;
+        long round = 10_000;
+        boolean pooled = true;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--matches=")) {
+                matches = Long.parseLong(arg.substring("--matches=".length()));
+            } else if (arg.startsWith("--round=")) {
+                round = Long.parseLong(arg.substring("--round=".length()));
+            } else if (arg.equals("--mode=pool")) {
+                pooled = true;
+            } else if (arg.equals("--mode=close")) {
+                pooled = false;
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.err.println("Usage: java -cp bin NativeSoakBenchmark [--matches=100000] [--round=10000] [--mode=pool|close] [--threads=N]");
+                return;
+            }
+        }
+
+        NativePlayerPool pool = new NativePlayerPool(2 * threads);
+        System.out.println("Soaking " + matches + " matches on " + threads + " threads, players "
+                + (pooled ? "pooled" : "closed after each match"));
+        System.out.printf("%10s %12s %12s %10s%n", "matches", "RSS (KiB)", "live native", "seconds");
+        System.out.printf("%,10d %12s %,12d %10s%n", 0, rssKiB(), BattleshipJNI.livePlayerCount(), "-");
+
+        long played = 0;
+        long start = System.nanoTime();
+        while (played < matches) {
+            long games = Math.min(round, matches - played);
+            SelfPlaySimulator simulator = new SelfPlaySimulator(games, played + 1,
+                    pooled ? pool::acquire : BattleshipJNI::new, Bot.named("density"), Bot.named("density"), Writer.nullWriter());
+            simulator.run(threads);
+            played += games;
+            System.out.printf("%,10d %12s %,12d %10.1f%n", played, rssKiB(), BattleshipJNI.livePlayerCount(),
+                    (System.nanoTime() - start) / 1e9);
+        }
+        if (pooled) {
+            System.out.printf("Pool: %,d players created, %,d acquires reused, %d idle%n",
+                    pool.getCreatedCount(), pool.getReusedCount(), pool.getIdleCount());
+        }
+    }
+
+    private static String rssKiB() throws IOException {
+        Path status = Path.of("/proc/self/status");
+        if (!Files.isReadable(status)) return "n/a";
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) return String.format("%,d", Long.parseLong(line.replaceAll("\\D", "")));
+        }
+        return "n/a";
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// What pipelined attacks save on a slow link. Starts a server in this JVM (pure-Java engine,
+// logging off) behind a proxy that holds every chunk of bytes for half of `rtt ms` in each
+// direction, then plays `games` scripted games against server bots through the proxy for each
+// pipeline depth. Lock-step (0) waits a round trip per shot for TURN; deeper pipelines keep
+// attacks queued at the server, so the server plays them as soon as the turn comes around. A bot
+// answers at once, so our result and our next TURN arrive together and a pipeline of 1 is no
+// better than lock-step; each attack queued beyond that saves a round trip per shot. The
+// density bot aims worse when it fires ahead of its results, so a pipelined game takes more shots;
+// time per game is what a regression suite waits for, time per shot what the link costs.
+//
+// Usage: java -cp bin PipelineBenchmark [games] [rtt ms] [port]
+public class PipelineBenchmark {
+    private static final int[] PIPELINES = {0, 1, 2, 4, Protocol.MAX_QUEUED_ATTACKS};
+
+    // Bytes on the delay line, and when they reach the other end; no bytes ends the line
+    private static final class Chunk {
+        final long due;
+        final byte[] bytes;
+
+        Chunk(long due, byte[] bytes) {
+            this.due = due;
+            this.bytes = bytes;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long rttMillis = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 12345;
+        Log.setLevel(Log.OFF);
+
+        BattleshipServer server = new BattleshipServer(port, false, 0, BitboardPlayer::new);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        ServerSocket proxy = new ServerSocket(port + 1);
+        Thread.ofPlatform().daemon().name("proxy").start(() -> delayLine(proxy, port, rttMillis * 1_000_000 / 2));
+        Thread.sleep(500);  // Give the server time to bind
+
+        try {
+            System.out.printf("%d games per pipeline, %d ms round trip%n", games, rttMillis);
+            System.out.printf("%-10s %10s %12s %12s %12s%n", "pipeline", "shots", "ms/game", "ms/shot", "shots/s");
+            play(port + 1, 0, 2);  // Warm up
+            double lockStep = 0;
+            for (int pipeline : PIPELINES) {
+                long[] result = play(port + 1, pipeline, games);
+                double msPerGame = result[1] / 1e6 / games;
+                double msPerShot = result[1] / 1e6 / result[0];
+                if (pipeline == 0) lockStep = msPerShot;
+                System.out.printf("%-10d %10.1f %12.1f %12.2f %12.0f  (%.1fx)%n", pipeline, result[0] / (double) games, msPerGame, msPerShot,
+                        1e3 / msPerShot, lockStep / msPerShot);
+            }
+        } finally {
+            proxy.close();
+            server.stopServer();
+        }
+    }
+
+    // Plays `games` games one after another; returns our shots and the nanoseconds they took
+    private static long[] play(int port, int pipeline, int games) throws IOException {
+        long shots = 0, nanos = 0;
+        for (int game = 0; game < games; game++) {
+            ScriptedClient.Script script = ScriptedClient.Script.parse(List.of("seed " + (game + 1)));
+            ScriptedClient.Result result = new ScriptedClient(script, pipeline, true, null).play("localhost", port);
+            shots += result.shots;
+            nanos += result.nanos;
+        }
+        return new long[]{shots, nanos};
+    }
+
+    // Forwards every connection to the server, holding each chunk for `delayNanos` on the way
+    private static void delayLine(ServerSocket proxy, int serverPort, long delayNanos) {
+        try {
+            while (true) {
+                Socket client = proxy.accept();
+                Socket server = new Socket("localhost", serverPort);
+                client.setTcpNoDelay(true);
+                server.setTcpNoDelay(true);
+                forward(client, server, delayNanos);
+                forward(server, client, delayNanos);
+            }
+        } catch (IOException e) {
+            // The proxy was closed
+        }
+    }
+
+    // One direction: a reader stamps each chunk with when it is due, a writer sends it then
+    private static void forward(Socket from, Socket to, long delayNanos) {
+        LinkedBlockingQueue<Chunk> line = new LinkedBlockingQueue<>();
+        Thread.ofVirtual().start(() -> {
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = from.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) > 0) line.add(new Chunk(System.nanoTime() + delayNanos, Arrays.copyOf(buffer, read)));
+            } catch (IOException e) {
+                // Closed from either side
+            }
+            line.add(new Chunk(0, null));
+        });
+        Thread.ofVirtual().start(() -> {
+            try (OutputStream out = to.getOutputStream()) {
+                while (true) {
+                    Chunk chunk = line.take();
+                    if (chunk.bytes == null) break;
+                    long wait = chunk.due - System.nanoTime();
+                    if (wait > 0) Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                    out.write(chunk.bytes);
+                }
+            } catch (IOException | InterruptedException e) {
+                // Closed from either side
+            }
+        });
+    }
+}
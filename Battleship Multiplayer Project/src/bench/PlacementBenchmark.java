@@ -0,0 +1,149 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+// Cost of the placement phase. Check: FleetPlacement.check and place on a standard fleet, in
+// process, against placing the same ships one PlaceShip call at a time. Sockets: a server runs
+// in this JVM and scripted pairs place the standard fleet either ship by ship, one PLACE and its
+// result per round trip as the interactive client used to, or in one FLEET frame. Every round
+// trip waits an extra simulated RTT before its frame is sent, as a real network would; the report
+// shows round trips per player and the time from the welcome banner to the last placement result.
+//
+// Usage: java -cp bin PlacementBenchmark [matches] [port] [blocking|nio] [rtt ms]
+public class PlacementBenchmark {
+    private static final int CHECKS = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 12401;
+        boolean useNio = args.length > 2 && args[2].equals("nio");
+        long rttMillis = args.length > 3 ? Long.parseLong(args[3]) : 2;
+
+        System.out.printf("%-10s %16s %20s%n", "check", "ns/fleet", "placed ns/fleet");
+        check(CHECKS / 10);  // Warm up
+        check(CHECKS);
+
+        System.out.println();
+        Log.setLevel(Log.OFF);  // The server logs every ship, and every player here leaves once both have placed
+        BattleshipServer server = new BattleshipServer(port, useNio, 0, BitboardPlayer::new);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        Thread.sleep(500);  // Give the server time to bind
+        System.out.printf("%-10s %-14s %10s %18s %10s %10s%n", useNio ? "nio" : "blocking", "placement", "matches", "round trips/player", "p50 ms", "p99 ms");
+        placements(port, Math.max(1, matches / 10), false, rttMillis, false);  // Warm up
+        placements(port, Math.max(1, matches / 10), true, rttMillis, false);
+        placements(port, matches, false, rttMillis, true);
+        placements(port, matches, true, rttMillis, true);
+        server.stopServer();
+    }
+
+    // Times FleetPlacement.check alone, then check and place onto a fresh board, against five
+    // PlaceShip calls that the backend checks one by one
+    private static void check(int fleets) throws IOException {
+        ByteBuffer encoded = ByteBuffer.allocate(Protocol.fleetFrameSize(Bench.SHIPS));
+        Bench.writeFleet(encoded);
+        Frame fleet = new Frame();
+        Protocol.decode(encoded.flip(), fleet, Protocol.MAX_CLIENT_FRAME_SIZE);
+
+        long begin = System.nanoTime();
+        int checks = 0;
+        for (int i = 0; i < fleets; i++) checks += FleetPlacement.check(BoardRules.STANDARD, fleet);
+        long checkNanos = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        for (int i = 0; i < fleets; i++) {
+            BitboardPlayer player = new BitboardPlayer();
+            checks += FleetPlacement.check(BoardRules.STANDARD, fleet);
+            FleetPlacement.place(player, BoardRules.STANDARD, fleet);
+            checks += player.HasLost() ? 0 : 1;
+        }
+        long fleetNanos = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        for (int i = 0; i < fleets; i++) {
+            BitboardPlayer player = new BitboardPlayer();
+            checks += Bench.placeFleet(player);
+        }
+        long shipNanos = System.nanoTime() - begin;
+        Bench.sink = checks;
+
+        System.out.printf("%-10s %16.1f %20.1f%n", "fleet", checkNanos / (double) fleets, fleetNanos / (double) fleets);
+        System.out.printf("%-10s %16s %20.1f%n", "by ship", "-", shipNanos / (double) fleets);
+    }
+
+    // Runs `matches` matches at once whose players place their fleets the given way, then leave
+    private static void placements(int port, int matches, boolean wholeFleet, long rttMillis, boolean report) throws Exception {
+        long[] nanos = new long[matches * 2];
+        int[] roundTrips = new int[matches * 2];
+        CountDownLatch done = new CountDownLatch(matches * 2);
+        for (int i = 0; i < matches * 2; i++) {
+            int seat = i;
+            Thread.ofVirtual().start(() -> {
+                try {
+                    place(port, wholeFleet, rttMillis, nanos, roundTrips, seat);
+                } catch (Exception e) {
+                    System.err.println("Player failed: " + e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (!report) return;
+
+        Arrays.sort(nanos);
+        System.out.printf("%-10s %-14s %10d %18.1f %10.2f %10.2f%n", "", wholeFleet ? "FLEET" : "PLACE per ship", matches,
+                Arrays.stream(roundTrips).average().orElse(0), nanos[nanos.length / 2] / 1e6, nanos[(int) (nanos.length * 0.99)] / 1e6);
+    }
+
+    // One player: waits for the banner, places the standard fleet and records how long that took,
+    // then leaves once the game starts
+    private static void place(int port, boolean wholeFleet, long rttMillis, long[] nanos, int[] roundTrips, int seat) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer outBuffer = ByteBuffer.allocate(Protocol.fleetFrameSize(Bench.SHIPS));
+            ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+            Frame frame = new Frame();
+
+            Protocol.writeHello(outBuffer);
+            send(out, outBuffer);
+            Protocol.readFrame(in, scratch, frame);  // Role
+            Protocol.readFrame(in, scratch, frame);  // Board rules
+            Protocol.readFrame(in, scratch, frame);  // Welcome banner
+
+            long start = System.nanoTime();
+            if (wholeFleet) {
+                Bench.writeFleet(outBuffer);
+                Thread.sleep(rttMillis);
+                send(out, outBuffer);
+                Protocol.readFrame(in, scratch, frame);
+                if (frame.type != Protocol.FLEET_RESULT || frame.a != Protocol.PLACE_OK) throw new IOException("Fleet rejected");
+                roundTrips[seat] = 1;
+            } else {
+                for (int ship = 0; ship < Bench.SHIPS; ship++) {
+                    Protocol.writePlace(outBuffer, ship, Bench.fleetRow(ship), 0, 0);
+                    Thread.sleep(rttMillis);
+                    send(out, outBuffer);
+                    Protocol.readFrame(in, scratch, frame);
+                    if (frame.type != Protocol.PLACE_RESULT || frame.a != Protocol.PLACE_OK) throw new IOException("Ship rejected");
+                    roundTrips[seat]++;
+                }
+            }
+            nanos[seat] = System.nanoTime() - start;
+
+            // Stay until the opponent has placed too; a player who leaves first forfeits the match
+            do {
+                Protocol.readFrame(in, scratch, frame);
+            } while (frame.type != Protocol.GAME_START && frame.type != Protocol.GAME_OVER);
+        }
+    }
+
+    private static void send(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), 0, frame.position());
+        out.flush();
+        frame.clear();
+    }
+}
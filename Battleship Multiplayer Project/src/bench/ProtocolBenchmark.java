@@ -0,0 +1,236 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+
+// Compares the old Java-serialized String protocol with the binary frame protocol on the same
+// scripted game: bytes on the wire per game and messages encoded+decoded per second.
+// The old protocol re-sent whole grids every turn; the binary one sends single-cell deltas.
+// No server or native library is needed; the game is simulated here.
+//
+// Usage: java -cp bin ProtocolBenchmark [seconds per protocol]
+public class ProtocolBenchmark {
+    private static final int SIZE = 10;
+
+    private static int messages;  // Messages produced by the last simulated game
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+
+        long legacyBytes = runLegacy();
+        int legacyMessages = messages;
+        long binaryBytes = runBinary();
+        int binaryMessages = messages;
+
+        System.out.printf("Bytes per game:    legacy %,d   binary %,d   (%.1fx smaller)%n",
+                legacyBytes, binaryBytes, (double) legacyBytes / binaryBytes);
+        System.out.printf("Messages per game: legacy %,d   binary %,d%n", legacyMessages, binaryMessages);
+
+        System.out.printf("Legacy messages/s (encode+decode): %,.0f%n", throughput(true, seconds));
+        System.out.printf("Binary messages/s (encode+decode): %,.0f%n", throughput(false, seconds));
+    }
+
+    private static double throughput(boolean legacy, double seconds) throws Exception {
+        // Warm up, then count games completed in the measured window
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < warmupEnd) {
+            if (legacy) runLegacy(); else runBinary();
+        }
+        long games = 0;
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {
+            if (legacy) runLegacy(); else runBinary();
+            games++;
+        }
+        return games * messages / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // --- Old protocol: one ObjectOutputStream per direction per player, Strings parsed with regex ---
+
+    private static long runLegacy() throws Exception {
+        ByteArrayOutputStream[] toClientBytes = {new ByteArrayOutputStream(), new ByteArrayOutputStream()};
+        ByteArrayOutputStream[] toServerBytes = {new ByteArrayOutputStream(), new ByteArrayOutputStream()};
+        ObjectOutputStream[] toClient = {new ObjectOutputStream(toClientBytes[0]), new ObjectOutputStream(toClientBytes[1])};
+        ObjectOutputStream[] toServer = {new ObjectOutputStream(toServerBytes[0]), new ObjectOutputStream(toServerBytes[1])};
+        Game game = new Game();
+        messages = 0;
+
+        for (int p = 0; p < 2; p++) {
+            send(toClient[p], "You are Player " + (p + 1) + ".");
+            send(toClient[p], Match.WELCOME_MESSAGE + "\n");
+            for (int ship = 0; ship < Bench.SHIPS; ship++) {
+                send(toServer[p], Protocol.shipName(ship) + " " + Bench.fleetRow(ship) + " 0 0");
+                send(toClient[p], "Ship placed successfully. Your updated self grid:\n" + gridText("Self Grid:", game.self[p], ship));
+            }
+        }
+        for (int p = 0; p < 2; p++) send(toClient[p], "Ships placed successfully. Game starts now!");
+
+        while (!game.over()) {
+            int p = game.attacker, q = 1 - p;
+            int cell = game.nextCell[p];
+            int row = cell / SIZE, col = cell % SIZE;
+            send(toClient[p], "Your turn to attack! Enter attack coordinates (row column):");
+            send(toClient[q], "Waiting for Player " + (p + 1) + " to attack...");
+            send(toServer[p], row + " " + col);
+            int result = game.attack();
+            send(toClient[p], "Attack performed at (" + row + ", " + col + ").");
+            send(toClient[q], "Attack performed at (" + row + ", " + col + ").");
+            send(toClient[q], "Opponent attacked your grid at (" + row + ", " + col + ")." + gridText("Self Grid:", game.self[q], -1));
+            if (result == Protocol.RESULT_MISS) {
+                send(toClient[q], "Opponent missed! Your self grid: \n" + gridText("Self Grid:", game.self[q], -1));
+                send(toClient[p], "You missed! Your target grid: \n" + gridText("Target Grid:", game.target[p], -1));
+            } else if (result == Protocol.RESULT_HIT) {
+                send(toClient[q], "Opponent has hit your ship! Your self grid: \n" + gridText("Self Grid:", game.self[q], -1));
+                send(toClient[p], "You have hit a ship! Your target grid: \n" + gridText("Target Grid:", game.target[p], -1));
+            } else {
+                send(toClient[q], "Your ship has been taken down!");
+                send(toClient[p], "You have taken down an enemy ship!");
+            }
+        }
+        for (int p = 0; p < 2; p++) send(toClient[p], "Game Over!\nYou have lost all ships! You Lose...");
+
+        long total = 0;
+        for (int p = 0; p < 2; p++) {
+            toClient[p].flush();
+            toServer[p].flush();
+            total += toClientBytes[p].size() + toServerBytes[p].size();
+            drainLegacy(toClientBytes[p].toByteArray(), false);
+            drainLegacy(toServerBytes[p].toByteArray(), true);
+        }
+        return total;
+    }
+
+    private static void send(ObjectOutputStream out, String message) throws IOException {
+        out.writeObject(message);
+        messages++;
+    }
+
+    // Reads every String back; server-bound attacks go through the old regex and split parsing
+    private static void drainLegacy(byte[] bytes, boolean serverSide) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            while (true) {
+                String message = (String) in.readObject();
+                if (serverSide && message.matches("\\d+ \\d+")) {
+                    String[] coords = message.split(" ");
+                    Integer.parseInt(coords[0]);
+                    Integer.parseInt(coords[1]);
+                }
+            }
+        } catch (EOFException endOfStream) {
+            // All messages consumed
+        }
+    }
+
+    // Formats a grid the way the native GRID::printGrid does; placedShips >= 0 renders the fleet so far
+    private static String gridText(String title, byte[] cells, int placedShips) {
+        StringBuilder buffer = new StringBuilder(title).append('\n');
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                int value = cells[row * SIZE + col];
+                if (placedShips >= 0) value = (row % 2 == 0 && row / 2 <= placedShips && col < Protocol.shipSize(row / 2)) ? 1 : 0;
+                buffer.append(' ').append(value).append(' ');  // Same as setw(2) for single digits
+            }
+            buffer.append('\n');
+        }
+        return buffer.toString();
+    }
+
+    // --- New protocol: fixed-size binary frames ---
+
+    private static long runBinary() throws Exception {
+        ByteBuffer[] toClient = {ByteBuffer.allocate(64 * 1024), ByteBuffer.allocate(64 * 1024)};
+        ByteBuffer[] toServer = {ByteBuffer.allocate(8 * 1024), ByteBuffer.allocate(8 * 1024)};
+        byte[] welcome = Protocol.utf8(Match.WELCOME_MESSAGE + "\n");
+        Game game = new Game();
+        int[] seq = {Bench.SHIPS, Bench.SHIPS};  // Board sequence numbers after placement
+        messages = 0;
+
+        for (int p = 0; p < 2; p++) {
+            Protocol.writeHello(toServer[p]);
+            Protocol.writeRole(toClient[p], p + 1);
+            Protocol.writeText(toClient[p], welcome);
+            messages += 3;
+            for (int ship = 0; ship < Bench.SHIPS; ship++) {
+                Protocol.writePlace(toServer[p], ship, Bench.fleetRow(ship), 0, 0);
+                Protocol.writePlaceResult(toClient[p], Protocol.PLACE_OK, ship, Bench.fleetRow(ship), 0, 0, ship + 1);
+                messages += 2;
+            }
+        }
+        for (int p = 0; p < 2; p++) {
+            Protocol.writeGameStart(toClient[p]);
+            messages++;
+        }
+
+        while (!game.over()) {
+            int p = game.attacker, q = 1 - p;
+            int cell = game.nextCell[p];
+            int row = cell / SIZE, col = cell % SIZE;
+            Protocol.writeTurn(toClient[p], p + 1);
+            Protocol.writeTurn(toClient[q], p + 1);
+            Protocol.writeAttack(toServer[p], row, col);
+            int result = game.attack();
+            Protocol.writeAttackResult(toClient[p], p + 1, result, row, col, ++seq[p]);
+            Protocol.writeAttackResult(toClient[q], p + 1, result, row, col, ++seq[q]);
+            messages += 5;
+        }
+        for (int p = 0; p < 2; p++) {
+            Protocol.writeGameOver(toClient[p], game.winner() + 1);
+            messages++;
+        }
+
+        long total = 0;
+        Frame frame = new Frame();
+        for (int p = 0; p < 2; p++) {
+            total += toClient[p].position() + toServer[p].position();
+            toClient[p].flip();
+            while (Protocol.decode(toClient[p], frame, Protocol.MAX_FRAME_SIZE)) { }
+            toServer[p].flip();
+            while (Protocol.decode(toServer[p], frame, Protocol.MAX_CLIENT_FRAME_SIZE)) { }
+        }
+        return total;
+    }
+
+    // Minimal game state: both players use the same fleet and attack cells in row-major order
+    private static class Game {
+        final byte[][] self = new byte[2][SIZE * SIZE];
+        final byte[][] target = new byte[2][SIZE * SIZE];
+        final int[][] shipHits = new int[2][Bench.SHIPS];
+        final int[] shipsLeft = {Bench.SHIPS, Bench.SHIPS};
+        final int[] nextCell = new int[2];
+        int attacker = 0;
+
+        Game() {
+            for (int p = 0; p < 2; p++) {
+                for (int ship = 0; ship < Bench.SHIPS; ship++) {
+                    for (int i = 0; i < Protocol.shipSize(ship); i++) self[p][Bench.fleetRow(ship) * SIZE + i] = 1;
+                }
+            }
+        }
+
+        boolean over() {
+            return shipsLeft[0] == 0 || shipsLeft[1] == 0;
+        }
+
+        int winner() {
+            return shipsLeft[1] == 0 ? 0 : 1;
+        }
+
+        // Plays the attacker's next cell and returns the protocol result code
+        int attack() {
+            int p = attacker, q = 1 - p;
+            int cell = nextCell[p]++;
+            attacker = q;
+            if (self[q][cell] == 0) {
+                target[p][cell] = 2;
+                return Protocol.RESULT_MISS;
+            }
+            self[q][cell] = 3;
+            target[p][cell] = 3;
+            int ship = (cell / SIZE) / 2;
+            if (++shipHits[q][ship] == Protocol.shipSize(ship)) {
+                shipsLeft[q]--;
+                return Protocol.RESULT_SUNK;
+            }
+            return Protocol.RESULT_HIT;
+        }
+    }
+}
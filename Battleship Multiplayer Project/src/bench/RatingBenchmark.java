@@ -0,0 +1,147 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Measures the rating store. Build: rates matches between new pairs of players until that many
+// players have a rating, each match two file appends and index inserts. Updates: matches between
+// random rated players, spread over everyone or kept to a hot set that fits the profile cache.
+// Leaderboard: latency of top-N queries, right after an update, while another thread rates matches
+// as fast as it can, and against sorting every rating on demand. Lookups: profile reads that hit
+// the cache and ones that decode the file. Reopen: closing the file and loading every player back.
+// Runs in a temporary directory that is deleted afterwards.
+//
+// Usage: java -cp bin RatingBenchmark [players] [updates] [top N]
+public class RatingBenchmark {
+    private static final int QUERIES = 10_000;
+    private static final int SORTS = 10;  // Sorting a million ratings takes long enough that a few runs do
+
+    public static void main(String[] args) throws Exception {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int topN = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        Log.setLevel(Log.OFF);
+
+        Path directory = Files.createTempDirectory("rating-bench");
+        Path file = directory.resolve("ratings.dat");
+        try {
+            Ratings ratings = Ratings.open(file, Ratings.DEFAULT_CACHE_SIZE);
+            SplittableRandom random = new SplittableRandom(1);
+
+            long start = System.nanoTime();
+            for (int i = 0; i + 1 < players; i += 2) {
+                if (random.nextBoolean()) {
+                    ratings.recordMatch(name(i), name(i + 1));
+                } else {
+                    ratings.recordMatch(name(i + 1), name(i));
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-12s %,12d players in %8.2f s %,14.0f matches/s  file %,d MB%n", "build", ratings.getPlayerCount(), seconds,
+                    players / 2 / seconds, Files.size(file) >> 20);
+
+            System.out.printf("%-12s %12s %14s %10s%n", "updates", "players", "matches/s", "us/match");
+            int hot = Math.min(players, Ratings.DEFAULT_CACHE_SIZE / 2);
+            update(ratings, random, hot, updates / 10);  // Warm up
+            for (int pool : new int[]{hot, players}) {
+                double perSecond = update(ratings, random, pool, updates);
+                System.out.printf("%-12s %,12d %,14.0f %10.2f%n", "", pool, perSecond, 1e6 / perSecond);
+            }
+
+            System.out.printf("%-12s %12s %10s %10s %10s%n", "leaderboard", "top N", "p50 us", "p99 us", "max us");
+            long[] indexed = new long[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                update(ratings, random, players, 1);  // Every query sees the index just changed
+                long query = System.nanoTime();
+                if (ratings.top(topN).size() != Math.min(topN, players)) throw new IllegalStateException("Short leaderboard");
+                indexed[i] = System.nanoTime() - query;
+            }
+            report("index", topN, indexed);
+            report("contended", topN, contended(ratings, players, topN));
+            long[] sorted = new long[SORTS];
+            for (int i = 0; i < SORTS; i++) {
+                long query = System.nanoTime();
+                sortedTop(file, ratings.getPlayerCount(), topN);
+                sorted[i] = System.nanoTime() - query;
+            }
+            report("sort", topN, sorted);
+
+            System.out.printf("%-12s %12s %10s%n", "lookups", "", "ns/get");
+            for (int pool : new int[]{hot, players}) {
+                int[] names = random.ints(QUERIES * 10L, 0, pool).toArray();
+                long lookup = System.nanoTime();
+                for (int i : names) {
+                    if (ratings.get(name(i)) == null) throw new IllegalStateException("Lost " + name(i));
+                }
+                System.out.printf("%-12s %12s %,10.0f%n", "", (pool == hot) ? "hot" : "all", (System.nanoTime() - lookup) / (double) names.length);
+            }
+
+            ratings.close();
+            long reopen = System.nanoTime();
+            ratings = Ratings.open(file, Ratings.DEFAULT_CACHE_SIZE);
+            System.out.printf("%-12s %,12d players in %8.1f ms%n", "reopen", ratings.getPlayerCount(), (System.nanoTime() - reopen) / 1e6);
+            ratings.close();
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static String name(int player) {
+        return "player-" + player;
+    }
+
+    // Rates `matches` matches between random players among the first `pool`; returns matches per second
+    private static double update(Ratings ratings, SplittableRandom random, int pool, int matches) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            int winner = random.nextInt(pool);
+            int loser = random.nextInt(pool - 1);
+            ratings.recordMatch(name(winner), name(loser < winner ? loser : loser + 1));
+        }
+        return matches / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // Top-N latencies while another thread rates random matches without pause, as a busy server's
+    // match ends would
+    private static long[] contended(Ratings ratings, int players, int topN) throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = Thread.ofPlatform().name("rater").start(() -> {
+            SplittableRandom random = new SplittableRandom(2);
+            try {
+                while (!done.get()) update(ratings, random, players, 100);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        long[] nanos = new long[QUERIES];
+        try {
+            for (int i = 0; i < QUERIES; i++) {
+                long query = System.nanoTime();
+                if (ratings.top(topN).size() != Math.min(topN, players)) throw new IllegalStateException("Short leaderboard");
+                nanos[i] = System.nanoTime() - query;
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+        return nanos;
+    }
+
+    // The top N the way it would be done without an index: read every rating and sort them
+    private static double[] sortedTop(Path path, int players, int topN) throws Exception {
+        double[] all = new double[players];
+        try (RatingFile file = RatingFile.open(path)) {
+            for (int slot = 0; slot < players; slot++) all[slot] = -file.rating(slot);
+        }
+        Arrays.sort(all);
+        return Arrays.copyOf(all, topN);
+    }
+
+    private static void report(String method, int topN, long[] nanos) {
+        Arrays.sort(nanos);
+        System.out.printf("%-12s %12d %,10.1f %,10.1f %,10.1f%n", method, topN, nanos[nanos.length / 2] / 1e3,
+                nanos[(int) (nanos.length * 0.99)] / 1e3, nanos[nanos.length - 1] / 1e3);
+    }
+}
@@ -0,0 +1,178 @@
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+// What the row caches save per turn, with `threads` threads rendering at once. Client: each thread
+// plays `games` games on a ClientBoard, applying every attack as its delta arrives and rendering
+// the grid it changed, the way BattleshipClient does each turn. It is timed once through the
+// board's row cache and once drawing every row from scratch, as the board did before it kept
+// them. Native: the same games on pairs of native players, printing both grids side by side after
+// every attack; GRID now redraws only the rows that attack changed, where it used to rebuild all
+// of them with ostringstream and setw on every call. Banner: encoding the welcome banner for each
+// connection, against copying the bytes encoded once at startup. Reports ns and bytes allocated
+// per turn (per connection for the banner) and the saving.
+//
+// Usage: java -cp bin RenderBenchmark [games] [threads]
+public class RenderBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int CONNECTIONS = 1_000;  // Banners per game in the banner cases
+    private static final byte[] BANNER = Protocol.utf8(Match.WELCOME_MESSAGE + "\n");  // Encoded once, as Match does
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // One thread's share of a case: plays a game and returns the turns (or connections) it took
+    private interface Game {
+        int play(SplittableRandom random);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%d games per thread, %d threads%n", games, threads);
+        System.out.printf("%-18s %12s %10s %12s%n", "case", "ns/turn", "B/turn", "turns/s");
+        double[] scratch = measure("client.scratch", games, threads, RenderBenchmark::clientScratch);
+        double[] cached = measure("client.cached", games, threads, RenderBenchmark::clientCached);
+        measure("native.print", Math.max(1, games / 10), threads, RenderBenchmark::nativePrint);
+        double[] encode = measure("banner.encode", games, threads, RenderBenchmark::bannerEncode);
+        double[] copy = measure("banner.copy", games, threads, RenderBenchmark::bannerCopy);
+
+        System.out.printf("Client rendering saves %.0f ns and %.0f B per turn (%.1fx)%n", scratch[0] - cached[0], scratch[1] - cached[1],
+                scratch[0] / cached[0]);
+        System.out.printf("Pre-encoding the banner saves %.0f ns and %.0f B per connection (%.1fx)%n", encode[0] - copy[0], encode[1] - copy[1],
+                encode[0] / copy[0]);
+    }
+
+    // Runs `games` games on each thread at once, after a warmup; returns ns and bytes per turn
+    private static double[] measure(String name, int games, int threads, Game game) throws InterruptedException {
+        run(game, Math.max(1, games / 10), threads);  // Warm up
+        long start = System.nanoTime();
+        long[] totals = run(game, games, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double nanosPerTurn = seconds * 1e9 * threads / totals[0];  // Time each thread spends on a turn
+        double bytesPerTurn = totals[1] / (double) totals[0];
+        System.out.printf("%-18s %,12.0f %,10.0f %,12.0f%n", name, nanosPerTurn, bytesPerTurn, totals[0] / seconds);
+        return new double[]{nanosPerTurn, bytesPerTurn};
+    }
+
+    // Returns the turns played and the bytes allocated across all threads
+    private static long[] run(Game game, int games, int threads) throws InterruptedException {
+        long[] turns = new long[threads], allocated = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers[t] = Thread.ofPlatform().start(() -> {
+                SplittableRandom random = new SplittableRandom(thread);
+                long before = THREADS.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < games; i++) turns[thread] += game.play(random);
+                allocated[thread] = THREADS.getCurrentThreadAllocatedBytes() - before;
+            });
+        }
+        long[] totals = new long[2];
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            totals[0] += turns[t];
+            totals[1] += allocated[t];
+        }
+        return totals;
+    }
+
+    // Both players' attacks in a random order, ours on even turns; a cell of the order is attacked by both
+    private static int[] attackOrder(SplittableRandom random) {
+        int[] cells = new int[SIZE * SIZE];
+        for (int i = 0; i < cells.length; i++) cells[i] = i;
+        for (int i = cells.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = cells[i];
+            cells[i] = cells[j];
+            cells[j] = swap;
+        }
+        return cells;
+    }
+
+    private static int clientCached(SplittableRandom random) {
+        ClientBoard board = new ClientBoard(SIZE, SIZE);
+        int seq = 0;
+        for (int ship = 0; ship < Bench.SHIPS; ship++) board.applyPlacement(ship, Bench.fleetRow(ship), 0, 0, ++seq);
+        int length = 0;
+        for (int cell : attackOrder(random)) {
+            int result = random.nextInt(4) == 0 ? Protocol.RESULT_HIT : Protocol.RESULT_MISS;
+            board.applyAttack(true, result, cell / SIZE, cell % SIZE, ++seq);
+            length += board.renderTargetGrid().length();
+            board.applyAttack(false, result, cell / SIZE, cell % SIZE, ++seq);
+            length += board.renderSelfGrid().length();
+        }
+        Bench.sink = length;
+        return 2 * SIZE * SIZE;
+    }
+
+    // The same game, drawing the changed grid from its cells on every turn
+    private static int clientScratch(SplittableRandom random) {
+        CellMap self = new CellMap(), target = new CellMap();
+        for (int ship = 0; ship < Bench.SHIPS; ship++) {
+            for (int i = 0; i < Protocol.shipSize(ship); i++) self.put(Bench.fleetRow(ship) * SIZE + i, 1);
+        }
+        int length = 0;
+        for (int cell : attackOrder(random)) {
+            boolean hit = random.nextInt(4) == 0;
+            target.put(cell, hit ? 3 : 2);
+            length += drawFromScratch("Target Grid:", target).length();
+            if (hit) self.put(cell, 3);
+            length += drawFromScratch("Self Grid:", self).length();
+        }
+        Bench.sink = length;
+        return 2 * SIZE * SIZE;
+    }
+
+    // How ClientBoard rendered a grid before it kept its rows
+    private static String drawFromScratch(String title, CellMap cells) {
+        StringBuilder buffer = new StringBuilder(title.length() + 1 + SIZE * (SIZE * 3 + 1));
+        buffer.append(title).append('\n');
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                int value = Math.max(0, cells.get(row * SIZE + col));
+                buffer.append(value < 10 ? " " : "").append(value).append(' ');
+            }
+            buffer.append('\n');
+        }
+        return buffer.toString();
+    }
+
+    // Native players attack each other in turn until one loses, printing the attacker's grids each time
+    private static int nativePrint(SplittableRandom random) {
+        BattleshipPlayer[] pair = {new BattleshipJNI(), new BattleshipJNI()};
+        for (BattleshipPlayer player : pair) Bench.placeFleet(player);
+        int[] order = attackOrder(random);
+        int turns = 0, length = 0;
+        for (int i = 0; !pair[0].HasLost() && !pair[1].HasLost(); i++) {
+            int attacker = i & 1, cell = order[i / 2];
+            pair[attacker].attack(cell / SIZE, cell % SIZE, pair[1 - attacker]);
+            length += pair[attacker].printGridsSideBySide().length();
+            turns++;
+        }
+        for (BattleshipPlayer player : pair) player.close();
+        Bench.sink = length;
+        return turns;
+    }
+
+    private static int bannerEncode(SplittableRandom random) {
+        ByteBuffer out = ByteBuffer.allocate(8 * 1024);
+        for (int i = 0; i < CONNECTIONS; i++) {
+            out.clear();
+            Protocol.writeText(out, Protocol.utf8(Match.WELCOME_MESSAGE + "\n"));
+        }
+        Bench.sink = out.position();
+        return CONNECTIONS;
+    }
+
+    private static int bannerCopy(SplittableRandom random) {
+        ByteBuffer out = ByteBuffer.allocate(8 * 1024);
+        for (int i = 0; i < CONNECTIONS; i++) {
+            out.clear();
+            Protocol.writeText(out, BANNER);
+        }
+        Bench.sink = out.position();
+        return CONNECTIONS;
+    }
+}
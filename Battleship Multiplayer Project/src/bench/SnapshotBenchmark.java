@@ -0,0 +1,82 @@
+import java.util.Random;
+import java.util.function.Supplier;
+
+// Times player snapshots (exportState / importState) on both backends: players half way through
+// a game are exported and imported in turn. Round trips, agreement between the backends and
+// refusal of malformed snapshots are checked by PlayerSnapshotTest.
+//
+// Usage: java -cp bin SnapshotBenchmark [seconds per case]
+public class SnapshotBenchmark {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int TIMED_PLAYERS = 1000;
+
+    public static void main(String[] args) {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+
+        System.out.printf("%-8s %14s %14s%n", "engine", "export ns/op", "import ns/op");
+        for (String engine : new String[]{"jni", "java"}) {
+            Supplier<BattleshipPlayer> backend = engine.equals("jni") ? BattleshipJNI::new : BitboardPlayer::new;
+            double[] nanos = time(backend, seconds);
+            System.out.printf("%-8s %14.1f %14.1f%n", engine, nanos[0], nanos[1]);
+        }
+    }
+
+    // Returns {export ns/op, import ns/op}
+    private static double[] time(Supplier<BattleshipPlayer> backend, double seconds) {
+        Random random = new Random(7);
+        BattleshipPlayer[] players = new BattleshipPlayer[TIMED_PLAYERS];
+        byte[][] states = new byte[TIMED_PLAYERS][PlayerSnapshot.MAX_SIZE];
+        int[] lengths = new int[TIMED_PLAYERS];
+        BattleshipPlayer opponent = backend.get();
+        Bench.placeFleet(opponent);
+        for (int i = 0; i < TIMED_PLAYERS; i++) {
+            players[i] = backend.get();
+            Bench.placeFleet(players[i]);
+            for (int shot = 0; shot < 40; shot++) {
+                int cell = random.nextInt(SIZE * SIZE);
+                players[i].attack(cell / SIZE, cell % SIZE, opponent);
+                opponent.attack(cell / SIZE, cell % SIZE, players[i]);
+            }
+            lengths[i] = players[i].exportState(states[i]);
+        }
+
+        // Warm up both directions, then time each for the measured window
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < warmupEnd) {
+            exportAll(players, states);
+            importAll(players, states, lengths);
+        }
+        double exportNanos = measure(() -> exportAll(players, states), seconds);
+        double importNanos = measure(() -> importAll(players, states, lengths), seconds);
+        for (BattleshipPlayer player : players) player.close();
+        opponent.close();
+        return new double[]{exportNanos / TIMED_PLAYERS, importNanos / TIMED_PLAYERS};
+    }
+
+    // Average nanoseconds per run of `pass`
+    private static double measure(Runnable pass, double seconds) {
+        long passes = 0;
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        long now;
+        do {
+            pass.run();
+            passes++;
+        } while ((now = System.nanoTime()) < end);
+        return (now - start) / (double) passes;
+    }
+
+    private static void exportAll(BattleshipPlayer[] players, byte[][] states) {
+        int total = 0;
+        for (int i = 0; i < players.length; i++) total += players[i].exportState(states[i]);
+        Bench.sink = total;
+    }
+
+    private static void importAll(BattleshipPlayer[] players, byte[][] states, int[] lengths) {
+        int imported = 0;
+        for (int i = 0; i < players.length; i++) {
+            if (players[i].importState(states[i], lengths[i])) imported++;
+        }
+        Bench.sink = imported;
+    }
+}
@@ -0,0 +1,250 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Measures what spectators cost a match. Feed: events are published to a SpectatorFeed with
+// thousands of in-memory subscribers, a tenth of them slow, and the time the match spends per
+// event is reported next to what the spectators received. Sockets: a lobby server runs in this
+// JVM, two scripted players play a match while real spectator clients watch it, and the players'
+// turn latency is compared with and without the audience.
+//
+// Usage: java -cp bin SpectatorBenchmark [max spectators] [port] [blocking|nio]
+public class SpectatorBenchmark {
+    private static final int FEED_EVENTS = 20_000;
+    private static final long FEED_EVENT_INTERVAL_NS = 50_000;  // Roughly a fast bot match
+
+    public static void main(String[] args) throws Exception {
+        int maxSpectators = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 12398;
+        boolean useNio = args.length > 2 && args[2].equals("nio");
+
+        System.out.printf("%-10s %12s %12s %12s %16s %12s%n", "feed", "spectators", "p50 ns", "p99 ns", "frames sent", "snapshots");
+        feed(maxSpectators / 10);  // Warm up
+        for (int spectators : new int[]{0, maxSpectators / 10, maxSpectators, maxSpectators * 5}) feed(spectators);
+
+        System.out.println();
+        Log.setLevel(Log.ERROR);  // The server logs every move
+        BattleshipServer server = new BattleshipServer(port, useNio, 0, BitboardPlayer::new);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        Thread.sleep(500);  // Give the server time to bind
+        System.out.printf("%-10s %12s %12s %12s %16s %12s%n", useNio ? "nio" : "blocking", "spectators", "p50 us", "p99 us", "frames watched", "turns");
+        for (int spectators : new int[]{0, 0, maxSpectators / 10, maxSpectators}) {
+            long[] result = watchedMatch(port, spectators);
+            System.out.printf("%-10s %12d %12d %12d %,16d %12d%n", "", spectators, result[0] / 1000, result[1] / 1000, result[2], result[3]);
+        }
+        server.stopServer();
+    }
+
+    // Publishes events at a steady pace to `spectators` subscribers and times each publish
+    private static void feed(int spectators) throws Exception {
+        SpectatorFeed feed = new SpectatorFeed(1);
+        AtomicLong frames = new AtomicLong();
+        for (int i = 0; i < spectators; i++) feed.subscribe(new CountingConnection(frames, i % 10 == 0));
+
+        long[] publishNanos = new long[FEED_EVENTS];
+        long next = System.nanoTime();
+        for (int event = 0; event < FEED_EVENTS; event++) {
+            while (System.nanoTime() < next) Thread.onSpinWait();
+            next += FEED_EVENT_INTERVAL_NS;
+            long start = System.nanoTime();
+            if ((event & 1) == 0) {
+                feed.turn(1 + (event >> 1 & 1));
+            } else {
+                int cell = (event >> 1) % 100;
+                feed.attacked(1 + (event >> 1 & 1), Protocol.RESULT_MISS, cell / 10, cell % 10);
+            }
+            publishNanos[event] = System.nanoTime() - start;
+        }
+        feed.finish();
+        while (feed.getSpectatorCount() > 0) Thread.sleep(10);
+
+        Arrays.sort(publishNanos);
+        System.out.printf("%-10s %12d %12d %12d %,16d %12d%n", "", spectators, publishNanos[FEED_EVENTS / 2],
+                publishNanos[(int) (FEED_EVENTS * 0.99)], frames.get(), feed.getSnapshotsSent());
+    }
+
+    // A spectator that counts the frames it is sent; slow ones take a millisecond per write
+    private static final class CountingConnection implements PlayerConnection {
+        private final AtomicLong frames;
+        private final boolean slow;
+        private final ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+
+        CountingConnection(AtomicLong frames, boolean slow) {
+            this.frames = frames;
+            this.slow = slow;
+        }
+
+        @Override
+        public ByteBuffer writeBuffer(int size) {
+            return buffer.clear();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void sendShared(List<byte[]> sent) throws IOException {
+            frames.addAndGet(sent.size());
+            if (slow) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        @Override
+        public Frame readFrame() throws IOException {
+            throw new EOFException("Spectators do not send");
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return "spectator";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Plays one match between scripted players with `spectators` clients watching it. Returns the
+    // players' p50 and p99 turn latency in ns, the frames the spectators received and the turns played.
+    private static long[] watchedMatch(int port, int spectators) throws Exception {
+        CountDownLatch seated = new CountDownLatch(2);  // Both players have their role, so the match is live
+        CountDownLatch watching = new CountDownLatch(spectators);
+        List<long[]> latencies = new ArrayList<>();
+        Thread[] players = new Thread[2];
+        for (int i = 0; i < 2; i++) {
+            long[] samples = new long[101];  // At most 100 attacks per game, slot 0 holds the count
+            latencies.add(samples);
+            players[i] = Thread.ofVirtual().start(() -> {
+                try {
+                    play(port, samples, seated, watching);
+                } catch (Exception e) {
+                    System.err.println("Player failed: " + e);
+                }
+            });
+        }
+        seated.await();
+
+        AtomicLong watched = new AtomicLong();
+        AtomicInteger failed = new AtomicInteger();
+        Thread[] audience = new Thread[spectators];
+        for (int i = 0; i < spectators; i++) {
+            boolean slow = i % 10 == 0;
+            audience[i] = Thread.ofVirtual().start(() -> {
+                try {
+                    watch(port, slow, watched, watching);
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    watching.countDown();
+                }
+            });
+        }
+        for (Thread player : players) player.join();
+        for (Thread spectator : audience) spectator.join();
+        if (failed.get() > 0) System.err.println(failed.get() + " spectators failed");
+
+        int total = (int) (latencies.get(0)[0] + latencies.get(1)[0]);
+        long[] merged = new long[total];
+        int pos = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 1, merged, pos, (int) samples[0]);
+            pos += (int) samples[0];
+        }
+        Arrays.sort(merged);
+        return new long[]{merged[total / 2], merged[Math.min(total - 1, (int) (total * 0.99))], watched.get(), total};
+    }
+
+    // One side of the match, like LobbyStressBenchmark's bots; attacks wait until the audience is in
+    private static void play(int port, long[] samples, CountDownLatch seated, CountDownLatch watching) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer outBuffer = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+            ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+            Frame frame = new Frame();
+
+            Protocol.writeHello(outBuffer);
+            send(out, outBuffer);
+            Protocol.readFrame(in, scratch, frame);  // Role
+            int me = frame.a;
+            seated.countDown();
+            watching.await();
+            Protocol.readFrame(in, scratch, frame);  // Board rules
+            Protocol.readFrame(in, scratch, frame);  // Welcome banner
+
+            for (int ship = 0; ship < Bench.SHIPS; ship++) {
+                Protocol.writePlace(outBuffer, ship, Bench.fleetRow(ship), 0, 0);
+                send(out, outBuffer);
+                Protocol.readFrame(in, scratch, frame);  // Placement result
+            }
+
+            int nextCell = 0;
+            long sentAt = 0;
+            while (true) {
+                Protocol.readFrame(in, scratch, frame);
+                if (frame.type == Protocol.TURN && frame.a == me) {
+                    Protocol.writeAttack(outBuffer, nextCell / 10, nextCell % 10);
+                    send(out, outBuffer);
+                    nextCell++;
+                    sentAt = System.nanoTime();
+                } else if (frame.type == Protocol.ATTACK_RESULT && frame.a == me) {
+                    samples[(int) ++samples[0]] = System.nanoTime() - sentAt;
+                } else if (frame.type == Protocol.GAME_OVER) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Watches the newest match until it ends; slow spectators pause after every frame
+    private static void watch(int port, boolean slow, AtomicLong watched, CountDownLatch watching) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            ByteBuffer outBuffer = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+            ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+            Frame frame = new Frame();
+
+            Protocol.writeHello(outBuffer, Protocol.HELLO_SPECTATE);
+            Protocol.writeWatch(outBuffer, 0);
+            send(out, outBuffer);
+            Protocol.readFrame(in, scratch, frame);  // Role 0
+            if (frame.type != Protocol.ROLE) throw new IOException("Not admitted as a spectator");
+            watching.countDown();
+            long count = 0;
+            try {
+                do {
+                    Protocol.readFrame(in, scratch, frame);
+                    count++;
+                    if (slow) Thread.sleep(5);
+                } while (frame.type != Protocol.GAME_OVER);
+            } catch (EOFException e) {
+                // Disconnected after falling behind at the very end
+            }
+            watched.addAndGet(count);
+        }
+    }
+
+    private static void send(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), 0, frame.position());
+        out.flush();
+        frame.clear();
+    }
+}
@@ -1,69 +1,141 @@
-/* DO NOT EDIT THIS FILE - it is machine generated */
-#include <jni.h>
-/* Header for class BattleshipJNI */
-
-#ifndef _Included_BattleshipJNI
-#define _Included_BattleshipJNI
-#ifdef __cplusplus
-extern "C" {
-#endif
-/*
- * Class:     BattleshipJNI
- * Method:    PlaceShip
- * Signature: (Ljava/lang/String;[II)I
- */
-JNIEXPORT jint JNICALL Java_BattleshipJNI_PlaceShip
-  (JNIEnv *, jobject, jstring, jintArray, jint);
-
-/*
- * Class:     BattleshipJNI
- * Method:    Attack
- * Signature: ([ILBattleshipJNI;)Ljava/lang/String;
- */
-JNIEXPORT jstring JNICALL Java_BattleshipJNI_Attack
-  (JNIEnv *, jobject, jintArray, jobject);
-
-/*
- * Class:     BattleshipJNI
- * Method:    HasLost
- * Signature: ()Z
- */
-JNIEXPORT jboolean JNICALL Java_BattleshipJNI_HasLost
-  (JNIEnv *, jobject);
-
-/*
- * Class:     BattleshipJNI
- * Method:    printSelfGrid
- * Signature: ()Ljava/lang/String;
- */
-JNIEXPORT jstring JNICALL Java_BattleshipJNI_printSelfGrid
-  (JNIEnv *, jobject);
-
-/*
- * Class:     BattleshipJNI
- * Method:    printTargetGrid
- * Signature: ()Ljava/lang/String;
- */
-JNIEXPORT jstring JNICALL Java_BattleshipJNI_printTargetGrid
-  (JNIEnv *, jobject);
-
-/*
- * Class:     BattleshipJNI
- * Method:    printGridsSideBySide
- * Signature: ()Ljava/lang/String;
- */
-JNIEXPORT jstring JNICALL Java_BattleshipJNI_printGridsSideBySide
-  (JNIEnv *, jobject);
-
-/*
- * Class:     BattleshipJNI
- * Method:    initializePlayer
- * Signature: ()J
- */
-JNIEXPORT jlong JNICALL Java_BattleshipJNI_initializePlayer
-  (JNIEnv *, jobject);
-
-#ifdef __cplusplus
-}
-#endif
-#endif
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class BattleshipJNI */
+
+#ifndef _Included_BattleshipJNI
+#define _Included_BattleshipJNI
+#ifdef __cplusplus
+extern "C" {
+#endif
+/*
+ * Class:     BattleshipJNI
+ * Method:    PlaceShip
+ * Signature: (Ljava/lang/String;[II)I
+ */
+JNIEXPORT jint JNICALL Java_BattleshipJNI_PlaceShip
+  (JNIEnv *, jobject, jstring, jintArray, jint);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    attackCell
+ * Signature: (IILBattleshipJNI;)I
+ */
+JNIEXPORT jint JNICALL Java_BattleshipJNI_attackCell
+  (JNIEnv *, jobject, jint, jint, jobject);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    placeFleetNative
+ * Signature: (Ljava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_BattleshipJNI_placeFleetNative
+  (JNIEnv *, jobject, jobject, jint);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    attackBatch
+ * Signature: (Ljava/nio/ByteBuffer;Ljava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_BattleshipJNI_attackBatch
+  (JNIEnv *, jclass, jobject, jobject, jint);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    HasLost
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_BattleshipJNI_HasLost
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    printSelfGrid
+ * Signature: ()Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_BattleshipJNI_printSelfGrid
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    printTargetGrid
+ * Signature: ()Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_BattleshipJNI_printTargetGrid
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    printGridsSideBySide
+ * Signature: ()Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL Java_BattleshipJNI_printGridsSideBySide
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    copySelfGrid
+ * Signature: ([B)V
+ */
+JNIEXPORT void JNICALL Java_BattleshipJNI_copySelfGrid
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    copyTargetGrid
+ * Signature: ([B)V
+ */
+JNIEXPORT void JNICALL Java_BattleshipJNI_copyTargetGrid
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    exportStateNative
+ * Signature: ([B)I
+ */
+JNIEXPORT jint JNICALL Java_BattleshipJNI_exportStateNative
+  (JNIEnv *, jobject, jbyteArray);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    importStateNative
+ * Signature: ([BI)Z
+ */
+JNIEXPORT jboolean JNICALL Java_BattleshipJNI_importStateNative
+  (JNIEnv *, jobject, jbyteArray, jint);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    initializePlayer
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_BattleshipJNI_initializePlayer
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    resetPlayer
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_BattleshipJNI_resetPlayer
+  (JNIEnv *, jobject);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    cleanupPlayer
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_BattleshipJNI_cleanupPlayer
+  (JNIEnv *, jclass, jlong);
+
+/*
+ * Class:     BattleshipJNI
+ * Method:    livePlayerCount
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_BattleshipJNI_livePlayerCount
+  (JNIEnv *, jclass);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
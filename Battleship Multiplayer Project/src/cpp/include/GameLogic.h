@@ -1,85 +1,127 @@
-#ifndef GAMELOGIC2_H
-#define GAMELOGIC2_H
-
-#include <iostream>
-#include <iomanip>
-#include <vector>
-#include <unordered_map>
-#include <string>
-#include <algorithm>
-
-using namespace std;
-
-constexpr int GRID_SIZE = 10;
-constexpr int NUM_SHIPS = 5;
-
-enum State {
-    unoccupied = 0,
-    occupied = 1,
-    missed = 2,
-    hit = 3
-};
-
-enum Type {
-    carrier,
-    battleship,
-    cruiser,
-    submarine,
-    destroyer
-};
-
-// Utility function to map ship type string to enum
-Type stringToEnum(const std::string& typeStr);
-
-extern std::unordered_map<Type, int> ship_sizes;
-
-class GRID {
-public:
-    std::vector<std::vector<int>> self_grid;
-    std::vector<std::vector<int>> target_grid;
-
-    // Constructor to initialize grids
-    GRID();
-
-    // Methods to print grids
-    string printSelfGrid() const;
-    string printTargetGrid() const;
-    string printGridsSideBySide() const;
-
-    // Utility method to print a single grid
-    string printGrid(const std::vector<std::vector<int>>& grid) const;
-};
-
-struct Ship {
-    int orientation; // 0 for horizontal, 1 for vertical
-    std::pair<int, int> start;
-    Type type;
-
-    bool operator==(const Ship& other) const;
-};
-
-class Player {
-public:
-    std::vector<Ship> ships;
-    int num_ships;
-    GRID PlayerGrid;
-
-    // Constructor
-    Player();
-
-    // Method to place a ship on the player's grid
-    int PlaceShip(const std::string& type, std::pair<int, int> start, int orientation);
-
-    // Method to check if a ship is sunk
-    bool ShipSunk(Ship& ship);
-
-    // Method to perform an attack on another player
-    string Attack(std::vector<int> coord, Player& other);
-
-    // Method to check if the player has lost
-    bool HasLost() const;
-};
-
-#endif // GAMELOGIC2_H
-
-
+#ifndef GAMELOGIC2_H
+#define GAMELOGIC2_H
+
+#include <iostream>
+#include <iomanip>
+#include <vector>
+#include <unordered_map>
+#include <string>
+#include <algorithm>
+
+using namespace std;
+
+constexpr int GRID_SIZE = 10;
+constexpr int NUM_SHIPS = 5;
+
+enum State {
+    unoccupied = 0,
+    occupied = 1,
+    missed = 2,
+    hit = 3
+};
+
+enum Type {
+    carrier,
+    battleship,
+    cruiser,
+    submarine,
+    destroyer
+};
+
+// Attack result codes, packed with the sunk ship and a game-over flag as in AttackResult.java
+enum AttackCode {
+    result_miss = 0,
+    result_hit = 1,
+    result_sunk = 2,
+    result_out_of_bounds = 3,
+    result_already_attacked = 4,
+    result_empty = 0xFE,
+    result_error = 0xFF
+};
+constexpr int SUNK_SHIP_SHIFT = 8;
+constexpr int GAME_OVER_FLAG = 1 << 16;
+
+// Largest player snapshot, as PlayerSnapshot.MAX_SIZE: ship count, two bytes for each of up to
+// 50 ships, and the target grid in 20 bytes
+constexpr int MAX_SNAPSHOT_SIZE = 1 + 2 * (GRID_SIZE * GRID_SIZE / 2) + GRID_SIZE * GRID_SIZE / 5;
+
+// Utility function to map ship type string to enum
+Type stringToEnum(const std::string& typeStr);
+
+extern std::unordered_map<Type, int> ship_sizes;
+
+class GRID {
+public:
+    std::vector<std::vector<int>> self_grid;
+    std::vector<std::vector<int>> target_grid;
+
+    // Constructor to initialize grids
+    GRID();
+
+    // Methods to mark rows whose cells changed, so only they are printed again
+    void markSelfRow(int row);
+    void markTargetRow(int row);
+    void markAllRows();
+
+    // Methods to print grids from the row cache; the text is valid until the next print
+    const string& printSelfGrid() const;
+    const string& printTargetGrid() const;
+    const string& printGridsSideBySide() const;
+
+    // Utility method to print a single grid from scratch
+    string printGrid(const std::vector<std::vector<int>>& grid) const;
+
+private:
+    mutable std::vector<string> self_rows, target_rows;
+    mutable unsigned self_dirty, target_dirty;
+    mutable string text;
+};
+
+struct Ship {
+    int orientation; // 0 for horizontal, 1 for vertical
+    std::pair<int, int> start;
+    Type type;
+
+    bool operator==(const Ship& other) const;
+};
+
+class Player {
+public:
+    std::vector<Ship> ships;
+    std::vector<Ship> sunk_ships;
+    int num_ships;
+    GRID PlayerGrid;
+
+    // Constructor
+    Player();
+
+    // Method to place a ship on the player's grid
+    int PlaceShip(const std::string& type, std::pair<int, int> start, int orientation);
+
+    // Method to place a ship given its Type instead of its name
+    int PlaceShipType(Type t, std::pair<int, int> start, int orientation);
+
+    // Method to check if a ship is sunk
+    bool ShipSunk(Ship& ship);
+
+    // Method to perform an attack on another player
+    string Attack(std::vector<int> coord, Player& other);
+
+    // Method to attack a cell and return a packed AttackCode instead of a result string
+    int AttackCell(int row, int col, Player& other);
+
+    // Method to check if the player has lost
+    bool HasLost() const;
+
+    // Method to return the player to its freshly constructed state, keeping its allocations
+    void Reset();
+
+    // Methods to write the player's state as a snapshot (returns its length, or -1 if it has
+    // too many ships) and to replace it with one (returns false and changes nothing if malformed)
+    int ExportState(unsigned char* out);
+    bool ImportState(const unsigned char* in, int length);
+};
+
+#endif // GAMELOGIC2_H
+
+
@@ -1,200 +1,296 @@
-#include <jni.h>
-#include "../include/BattleshipJNI.h" // Header file for the JNI class
-#include "../include/GameLogic.h"     // Header file containing game logic and Player class
-#include <iostream>
-#include <vector>
-
-using namespace std;
-
-// Global reference to the Java field ID for accessing the native Player object
-jfieldID fieldID;
-
-// Helper function to retrieve the Player object from a Java object
-Player* getPlayer(JNIEnv* env, jobject playerObj) {
-    if (playerObj == nullptr) {
-        cerr << "Error: Player object is null." << endl;
-        return nullptr;
-    }
-    // Get the long value from the player field and cast it to a Player pointer
-    return reinterpret_cast<Player*>(env->GetLongField(playerObj, fieldID));
-}
-
-// JNI method to initialize the Player object and associate it with a Java instance
-JNIEXPORT jlong JNICALL Java_BattleshipJNI_initializePlayer(JNIEnv* env, jobject obj) {
-    // Allocate a new Player object
-    Player* newPlayer = new Player();
-    if (newPlayer == nullptr) {
-        cerr << "Error: Failed to allocate memory for Player object." << endl;
-        return 0;
-    }
-    // Store the pointer in the Java object's player field
-    env->SetLongField(obj, fieldID, reinterpret_cast<jlong>(newPlayer));
-    return reinterpret_cast<jlong>(newPlayer);
-}
-
-// JNI method to place a ship on the player's grid
-JNIEXPORT jint JNICALL Java_BattleshipJNI_PlaceShip(JNIEnv* env, jobject obj, jstring shipType, jintArray coords, jint orientation) {
-    Player* player = getPlayer(env, obj); // Retrieve the native Player object
-    if (player == nullptr) return -1;
-
-    // Validate the coordinates array length
-    jsize len = env->GetArrayLength(coords);
-    if (len != 2) {
-        cerr << "Error: Invalid coordinates length for ship placement." << endl;
-        return -1;
-    }
-
-    // Retrieve the coordinates array elements
-    jint* coordsArray = env->GetIntArrayElements(coords, nullptr);
-    if (coordsArray == nullptr) {
-        cerr << "Error: Failed to retrieve coordinates array elements." << endl;
-        return -1;
-    }
-    pair<int, int> start = {coordsArray[0], coordsArray[1]}; // Convert to a pair
-    env->ReleaseIntArrayElements(coords, coordsArray, JNI_ABORT); // Release array memory
-
-    // Convert ship type from Java string to C++ string
-    const char* typeChars = env->GetStringUTFChars(shipType, nullptr);
-    if (typeChars == nullptr) {
-        cerr << "Error: Failed to retrieve ship type string." << endl;
-        return -1;
-    }
-    string type(typeChars);
-    env->ReleaseStringUTFChars(shipType, typeChars); // Release memory for string
-
-    // Call the C++ PlaceShip method and handle the result
-    int result = player->PlaceShip(type, start, orientation);
-    if (result == -1) {
-        cerr << "Error: Ship placement failed for type " << type << " at (" 
-             << start.first << ", " << start.second << ") with orientation " << orientation << endl;
-    }
-    return result;
-}
-
-// JNI method to perform an attack on the opponent's grid
-JNIEXPORT jstring JNICALL Java_BattleshipJNI_Attack(JNIEnv* env, jobject obj, jintArray coord, jobject opponent) {
-    // Validate the opponent object
-    if (opponent == nullptr) {
-        cerr << "Error: Opponent object is null." << endl;
-        return env->NewStringUTF("Error: Opponent object is null.");
-    }
-
-    // Retrieve the opponent's Player object using the field ID
-    jclass opponentClass = env->GetObjectClass(opponent);
-    jfieldID playerField = env->GetFieldID(opponentClass, "player", "J");
-    if (playerField == nullptr) {
-        cerr << "Error: Could not find 'player' field in BattleshipJNI class." << endl;
-        return env->NewStringUTF("Error: Opponent's player field not found.");
-    }
-    jlong playerPointer = env->GetLongField(opponent, playerField);
-    Player* opponentPlayer = reinterpret_cast<Player*>(playerPointer);
-    if (opponentPlayer == nullptr) {
-        cerr << "Error: Opponent's player is null." << endl;
-        return env->NewStringUTF("Error: Opponent's player is null.");
-    }
-
-    // Retrieve the attack coordinates array
-    jint* coordArray = env->GetIntArrayElements(coord, nullptr);
-    if (coordArray == nullptr) {
-        cerr << "Error: Failed to get attack coordinates." << endl;
-        return env->NewStringUTF("Error: Failed to get attack coordinates.");
-    }
-    vector<int> coordinates = {coordArray[0], coordArray[1]}; // Convert to vector
-    env->ReleaseIntArrayElements(coord, coordArray, JNI_ABORT); // Release array memory
-
-    // Validate the attack coordinates
-    if (coordinates[0] < 0 || coordinates[0] >= GRID_SIZE || coordinates[1] < 0 || coordinates[1] >= GRID_SIZE) {
-        cerr << "Error: Attack coordinates out of bounds." << endl;
-        return env->NewStringUTF("Error: Attack coordinates out of bounds.");
-    }
-
-    // Get the Player pointer for the current object
-    Player* player = getPlayer(env, obj);
-    if (player == nullptr) {
-        cerr << "Error: Current player is null." << endl;
-        return env->NewStringUTF("Error: Current player is null.");
-    }
-
-    // Perform the attack and capture the result
-    try {
-        std::string result = player->Attack(coordinates, *opponentPlayer);
-        cerr << "Attack executed at coordinates: (" << coordinates[0] << ", " << coordinates[1] << ") with result: " << result << endl;
-        return env->NewStringUTF(result.c_str()); // Return result as a Java string
-    } catch (const exception& e) {
-        cerr << "Error during attack: " << e.what() << endl;
-        return env->NewStringUTF(("Error during attack: " + std::string(e.what())).c_str());
-    }
-}
-
-// JNI method to check if the player has lost
-JNIEXPORT jboolean JNICALL Java_BattleshipJNI_HasLost(JNIEnv* env, jobject obj) {
-    Player* player = getPlayer(env, obj);
-    if (player == nullptr) return JNI_FALSE;
-    return player->HasLost() ? JNI_TRUE : JNI_FALSE;
-}
-
-// --- GRID Methods ---
-// These methods allow grids to be printed via JNI
-
-// JNI method to print the player's self grid
-JNIEXPORT jstring JNICALL Java_BattleshipJNI_printSelfGrid(JNIEnv* env, jobject obj) {
-    Player* player = getPlayer(env, obj);
-    if (player != nullptr) {
-        string result = player->PlayerGrid.printSelfGrid();
-        return env->NewStringUTF(result.c_str());
-    } else {
-        cerr << "Error: Current player is null." << endl;
-        return env->NewStringUTF("Error: Current player is null.");
-    }
-}
-
-// JNI method to print the player's target grid
-JNIEXPORT jstring JNICALL Java_BattleshipJNI_printTargetGrid(JNIEnv* env, jobject obj) {
-    Player* player = getPlayer(env, obj);
-    if (player != nullptr) {
-        string result = player->PlayerGrid.printTargetGrid();
-        return env->NewStringUTF(result.c_str());
-    } else {
-        cerr << "Error: Current player is null." << endl;
-        return env->NewStringUTF("Error: Current player is null.");
-    }
-}
-
-// JNI method to print both grids side by side
-JNIEXPORT jstring JNICALL Java_BattleshipJNI_printGridsSideBySide(JNIEnv* env, jobject obj) {
-    Player* player = getPlayer(env, obj);
-    if (player != nullptr) {
-        string result = player->PlayerGrid.printGridsSideBySide();
-        return env->NewStringUTF(result.c_str());
-    } else {
-        cerr << "Error: Current player is null." << endl;
-        return env->NewStringUTF("Error: Current player is null.");
-    }
-}
-
-// Cleanup function to delete the Player object
-JNIEXPORT void JNICALL Java_BattleshipJNI_cleanupPlayer(JNIEnv* env, jobject obj) {
-    Player* player = getPlayer(env, obj);
-    if (player != nullptr) {
-        delete player; // Properly delete the player object to avoid memory leaks
-    }
-}
-
-// JNI initialization function (called when the JNI library is loaded)
-JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM* vm, void* reserved) {
-    JNIEnv* env = nullptr;
-    if (vm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) != JNI_OK) {
-        return JNI_ERR;
-    }
-
-    // Find the BattleshipJNI class and the 'player' field
-    jclass clazz = env->FindClass("BattleshipJNI");
-    if (clazz == nullptr) return JNI_ERR;
-
-    fieldID = env->GetFieldID(clazz, "player", "J");
-    if (fieldID == nullptr) return JNI_ERR;
-
-    return JNI_VERSION_1_6; // Return JNI version on successful initialization
-}
-
-
+#include <jni.h>
+#include "../include/BattleshipJNI.h" // Header file for the JNI class
+#include "../include/GameLogic.h"     // Header file containing game logic and Player class
+#include <atomic>
+#include <cstring>
+#include <iostream>
+#include <vector>
+
+using namespace std;
+
+// Global reference to the Java field ID for accessing the native Player object
+jfieldID fieldID;
+
+// Number of Player objects allocated and not yet deleted, for leak checks
+static std::atomic<jlong> livePlayers{0};
+
+// Helper function to retrieve the Player object from a Java object
+Player* getPlayer(JNIEnv* env, jobject playerObj) {
+    if (playerObj == nullptr) {
+        cerr << "Error: Player object is null." << endl;
+        return nullptr;
+    }
+    // Get the long value from the player field and cast it to a Player pointer
+    return reinterpret_cast<Player*>(env->GetLongField(playerObj, fieldID));
+}
+
+// JNI method to initialize the Player object and associate it with a Java instance
+JNIEXPORT jlong JNICALL Java_BattleshipJNI_initializePlayer(JNIEnv* env, jobject obj) {
+    // Allocate a new Player object
+    Player* newPlayer = new Player();
+    if (newPlayer == nullptr) {
+        cerr << "Error: Failed to allocate memory for Player object." << endl;
+        return 0;
+    }
+    livePlayers++;
+    // Store the pointer in the Java object's player field
+    env->SetLongField(obj, fieldID, reinterpret_cast<jlong>(newPlayer));
+    return reinterpret_cast<jlong>(newPlayer);
+}
+
+// JNI method to place a ship on the player's grid
+JNIEXPORT jint JNICALL Java_BattleshipJNI_PlaceShip(JNIEnv* env, jobject obj, jstring shipType, jintArray coords, jint orientation) {
+    Player* player = getPlayer(env, obj); // Retrieve the native Player object
+    if (player == nullptr) return -1;
+
+    // Validate the coordinates array length
+    jsize len = env->GetArrayLength(coords);
+    if (len != 2) {
+        cerr << "Error: Invalid coordinates length for ship placement." << endl;
+        return -1;
+    }
+
+    // Retrieve the coordinates array elements
+    jint* coordsArray = env->GetIntArrayElements(coords, nullptr);
+    if (coordsArray == nullptr) {
+        cerr << "Error: Failed to retrieve coordinates array elements." << endl;
+        return -1;
+    }
+    pair<int, int> start = {coordsArray[0], coordsArray[1]}; // Convert to a pair
+    env->ReleaseIntArrayElements(coords, coordsArray, JNI_ABORT); // Release array memory
+
+    // Convert ship type from Java string to C++ string
+    const char* typeChars = env->GetStringUTFChars(shipType, nullptr);
+    if (typeChars == nullptr) {
+        cerr << "Error: Failed to retrieve ship type string." << endl;
+        return -1;
+    }
+    string type(typeChars);
+    env->ReleaseStringUTFChars(shipType, typeChars); // Release memory for string
+
+    // Call the C++ PlaceShip method and handle the result
+    int result = player->PlaceShip(type, start, orientation);
+    if (result == -1) {
+        cerr << "Error: Ship placement failed for type " << type << " at (" 
+             << start.first << ", " << start.second << ") with orientation " << orientation << endl;
+    }
+    return result;
+}
+
+// JNI method to perform an attack on the opponent's grid. Takes the cell as two ints and returns
+// a packed AttackCode, so nothing is allocated or pinned; both Player pointers are read through
+// the field ID cached in JNI_OnLoad.
+JNIEXPORT jint JNICALL Java_BattleshipJNI_attackCell(JNIEnv* env, jobject obj, jint row, jint col, jobject opponent) {
+    Player* opponentPlayer = getPlayer(env, opponent);
+    if (opponentPlayer == nullptr) {
+        cerr << "Error: Opponent's player is null." << endl;
+        return result_error;
+    }
+    Player* player = getPlayer(env, obj);
+    if (player == nullptr) {
+        cerr << "Error: Current player is null." << endl;
+        return result_error;
+    }
+    return player->AttackCell(row, col, *opponentPlayer);
+}
+
+// JNI method to place a whole fleet in one call. Each ship is a FLEET_RECORD_SIZE record in a
+// direct buffer: ship type, row, column and orientation as signed bytes. Returns a mask with bit i
+// set for each ship that was placed; unknown types are rejected instead of exiting the process.
+constexpr int FLEET_RECORD_SIZE = 4;
+
+JNIEXPORT jint JNICALL Java_BattleshipJNI_placeFleetNative(JNIEnv* env, jobject obj, jobject ships, jint count) {
+    Player* player = getPlayer(env, obj);
+    if (player == nullptr) return 0;
+    const jbyte* records = static_cast<const jbyte*>(env->GetDirectBufferAddress(ships));
+    if (records == nullptr || count < 0 || count > 31 || env->GetDirectBufferCapacity(ships) < (jlong) count * FLEET_RECORD_SIZE) {
+        cerr << "Error: Invalid fleet buffer." << endl;
+        return 0;
+    }
+
+    jint placed = 0;
+    for (int i = 0; i < count; i++) {
+        const jbyte* record = records + i * FLEET_RECORD_SIZE;
+        if (record[0] < 0 || record[0] >= NUM_SHIPS) continue;
+        if (player->PlaceShipType(static_cast<Type>(record[0]), {record[1], record[2]}, record[3]) == 1) {
+            placed |= 1 << i;
+        }
+    }
+    return placed;
+}
+
+// JNI method to apply a batch of attacks across any number of player pairs in one call. Each
+// request is ATTACK_REQUEST_SIZE bytes in native byte order: the attacker's and the defender's
+// Player pointers, then row and column as 32-bit ints. One packed AttackCode per request is
+// written to the results buffer.
+constexpr int ATTACK_REQUEST_SIZE = 24;
+
+JNIEXPORT void JNICALL Java_BattleshipJNI_attackBatch(JNIEnv* env, jclass clazz, jobject requests, jobject results, jint count) {
+    const char* in = static_cast<const char*>(env->GetDirectBufferAddress(requests));
+    char* out = static_cast<char*>(env->GetDirectBufferAddress(results));
+    if (in == nullptr || out == nullptr || count < 0
+            || env->GetDirectBufferCapacity(requests) < (jlong) count * ATTACK_REQUEST_SIZE
+            || env->GetDirectBufferCapacity(results) < (jlong) count * (jlong) sizeof(jint)) {
+        cerr << "Error: Invalid attack batch buffers." << endl;
+        return;
+    }
+
+    for (int i = 0; i < count; i++) {
+        const char* request = in + i * ATTACK_REQUEST_SIZE;
+        jlong attacker, defender;
+        jint row, col;
+        memcpy(&attacker, request, sizeof attacker); // memcpy, since the buffer need not be aligned
+        memcpy(&defender, request + 8, sizeof defender);
+        memcpy(&row, request + 16, sizeof row);
+        memcpy(&col, request + 20, sizeof col);
+
+        jint result = result_error;
+        if (attacker != 0 && defender != 0) {
+            result = reinterpret_cast<Player*>(attacker)->AttackCell(row, col, *reinterpret_cast<Player*>(defender));
+        }
+        memcpy(out + i * sizeof(jint), &result, sizeof result);
+    }
+}
+
+// JNI method to check if the player has lost
+JNIEXPORT jboolean JNICALL Java_BattleshipJNI_HasLost(JNIEnv* env, jobject obj) {
+    Player* player = getPlayer(env, obj);
+    if (player == nullptr) return JNI_FALSE;
+    return player->HasLost() ? JNI_TRUE : JNI_FALSE;
+}
+
+// --- GRID Methods ---
+// These methods allow grids to be printed via JNI. The text comes from the grid's row cache, and
+// NewStringUTF copies it straight into the Java string.
+
+// JNI method to print the player's self grid
+JNIEXPORT jstring JNICALL Java_BattleshipJNI_printSelfGrid(JNIEnv* env, jobject obj) {
+    Player* player = getPlayer(env, obj);
+    if (player != nullptr) {
+        const string& result = player->PlayerGrid.printSelfGrid();
+        return env->NewStringUTF(result.c_str());
+    } else {
+        cerr << "Error: Current player is null." << endl;
+        return env->NewStringUTF("Error: Current player is null.");
+    }
+}
+
+// JNI method to print the player's target grid
+JNIEXPORT jstring JNICALL Java_BattleshipJNI_printTargetGrid(JNIEnv* env, jobject obj) {
+    Player* player = getPlayer(env, obj);
+    if (player != nullptr) {
+        const string& result = player->PlayerGrid.printTargetGrid();
+        return env->NewStringUTF(result.c_str());
+    } else {
+        cerr << "Error: Current player is null." << endl;
+        return env->NewStringUTF("Error: Current player is null.");
+    }
+}
+
+// JNI method to print both grids side by side
+JNIEXPORT jstring JNICALL Java_BattleshipJNI_printGridsSideBySide(JNIEnv* env, jobject obj) {
+    Player* player = getPlayer(env, obj);
+    if (player != nullptr) {
+        const string& result = player->PlayerGrid.printGridsSideBySide();
+        return env->NewStringUTF(result.c_str());
+    } else {
+        cerr << "Error: Current player is null." << endl;
+        return env->NewStringUTF("Error: Current player is null.");
+    }
+}
+
+// Helper to copy a 10x10 grid into a Java byte array in row-major order
+static void copyGrid(JNIEnv* env, const vector<vector<int>>& grid, jbyteArray out) {
+    if (env->GetArrayLength(out) < GRID_SIZE * GRID_SIZE) {
+        cerr << "Error: Grid buffer too small." << endl;
+        return;
+    }
+    jbyte cells[GRID_SIZE * GRID_SIZE];
+    for (int row = 0; row < GRID_SIZE; ++row) {
+        for (int col = 0; col < GRID_SIZE; ++col) {
+            cells[row * GRID_SIZE + col] = static_cast<jbyte>(grid[row][col]);
+        }
+    }
+    env->SetByteArrayRegion(out, 0, GRID_SIZE * GRID_SIZE, cells); // Single copy, no Java allocation
+}
+
+// JNI method to copy the raw cell states of the player's self grid
+JNIEXPORT void JNICALL Java_BattleshipJNI_copySelfGrid(JNIEnv* env, jobject obj, jbyteArray out) {
+    Player* player = getPlayer(env, obj);
+    if (player == nullptr) return;
+    copyGrid(env, player->PlayerGrid.self_grid, out);
+}
+
+// JNI method to copy the raw cell states of the player's target grid
+JNIEXPORT void JNICALL Java_BattleshipJNI_copyTargetGrid(JNIEnv* env, jobject obj, jbyteArray out) {
+    Player* player = getPlayer(env, obj);
+    if (player == nullptr) return;
+    copyGrid(env, player->PlayerGrid.target_grid, out);
+}
+
+// JNI method to write the player's snapshot into a Java byte array; returns its length, or -1
+JNIEXPORT jint JNICALL Java_BattleshipJNI_exportStateNative(JNIEnv* env, jobject obj, jbyteArray out) {
+    Player* player = getPlayer(env, obj);
+    if (player == nullptr) return -1;
+    if (env->GetArrayLength(out) < MAX_SNAPSHOT_SIZE) {
+        cerr << "Error: Snapshot buffer too small." << endl;
+        return -1;
+    }
+    unsigned char snapshot[MAX_SNAPSHOT_SIZE];
+    int length = player->ExportState(snapshot);
+    if (length > 0) {
+        env->SetByteArrayRegion(out, 0, length, reinterpret_cast<jbyte*>(snapshot)); // Single copy of the bytes written
+    }
+    return length;
+}
+
+// JNI method to replace the player's state with a snapshot from a Java byte array
+JNIEXPORT jboolean JNICALL Java_BattleshipJNI_importStateNative(JNIEnv* env, jobject obj, jbyteArray in, jint length) {
+    Player* player = getPlayer(env, obj);
+    if (player == nullptr || length < 0 || length > MAX_SNAPSHOT_SIZE || length > env->GetArrayLength(in)) return JNI_FALSE;
+    unsigned char snapshot[MAX_SNAPSHOT_SIZE];
+    env->GetByteArrayRegion(in, 0, length, reinterpret_cast<jbyte*>(snapshot));
+    return player->ImportState(snapshot, length) ? JNI_TRUE : JNI_FALSE;
+}
+
+// JNI method to reset a pooled Player for its next match
+JNIEXPORT void JNICALL Java_BattleshipJNI_resetPlayer(JNIEnv* env, jobject obj) {
+    Player* player = getPlayer(env, obj);
+    if (player != nullptr) {
+        player->Reset();
+    }
+}
+
+// Cleanup function to delete the Player object. Static and given the pointer itself, so the
+// Java Cleaner can call it after the BattleshipJNI object is gone.
+JNIEXPORT void JNICALL Java_BattleshipJNI_cleanupPlayer(JNIEnv* env, jclass clazz, jlong pointer) {
+    Player* player = reinterpret_cast<Player*>(pointer);
+    if (player != nullptr) {
+        delete player; // Properly delete the player object to avoid memory leaks
+        livePlayers--;
+    }
+}
+
+// JNI method to report how many Player objects are currently allocated
+JNIEXPORT jlong JNICALL Java_BattleshipJNI_livePlayerCount(JNIEnv* env, jclass clazz) {
+    return livePlayers.load();
+}
+
+// JNI initialization function (called when the JNI library is loaded)
+JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM* vm, void* reserved) {
+    JNIEnv* env = nullptr;
+    if (vm->GetEnv(reinterpret_cast<void**>(&env), JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+
+    // Find the BattleshipJNI class and the 'player' field
+    jclass clazz = env->FindClass("BattleshipJNI");
+    if (clazz == nullptr) return JNI_ERR;
+
+    fieldID = env->GetFieldID(clazz, "player", "J");
+    if (fieldID == nullptr) return JNI_ERR;
+
+    return JNI_VERSION_1_6; // Return JNI version on successful initialization
+}
+
+
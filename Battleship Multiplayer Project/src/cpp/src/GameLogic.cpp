@@ -1,256 +1,456 @@
-#include <bits/stdc++.h>
-using namespace std;
-
-// Define the size of the grid and number of ships
-constexpr int GRID_SIZE = 10;
-constexpr int NUM_SHIPS = 5;
-
-// Enum to represent the state of each grid cell
-enum State {
-    unoccupied = 0,  // Cell is empty
-    occupied = 1,    // Cell is occupied by a ship
-    missed = 2,      // Cell was attacked but no ship was hit
-    hit = 3          // Cell was attacked, and a ship was hit
-};
-
-// Enum to represent different types of ships
-enum Type {
-    carrier,
-    battleship,
-    cruiser,
-    submarine,
-    destroyer
-};
-
-// Function to convert a string to the corresponding ship Type enum
-Type stringToEnum(const std::string& typeStr) {
-    static std::unordered_map<std::string, Type> strToTypeMap = {
-        {"carrier", carrier},
-        {"battleship", battleship},
-        {"cruiser", cruiser},
-        {"submarine", submarine},
-        {"destroyer", destroyer}
-    };
-
-    auto it = strToTypeMap.find(typeStr);
-    if (it != strToTypeMap.end()) {
-        return it->second; // Return corresponding enum value
-    }
-
-    cerr << "Error: Invalid type string '" << typeStr << "'" << endl;
-    exit(EXIT_FAILURE); // Exit if the string doesn't match any type
-}
-
-// Map to associate ship types with their lengths
-unordered_map<Type, int> ship_sizes = {
-    {carrier, 5}, {battleship, 4}, {cruiser, 3}, {submarine, 3}, {destroyer, 2}
-};
-
-// Structure to represent a ship
-struct Ship {
-    int orientation; // 0 for horizontal, 1 for vertical
-    pair<int, int> start; // Starting position of the ship
-    Type type; // Type of the ship
-
-    // Comparison operator to check if two ships are the same
-    bool operator==(const Ship& other) const {
-        return orientation == other.orientation && start == other.start && type == other.type;
-    }
-};
-
-// Class to represent a player's grid
-class GRID {
-public:
-    vector<vector<int>> self_grid;    // Grid for player's own ships
-    vector<vector<int>> target_grid;  // Grid to track attacks on the opponent
-
-    // Constructor initializes both grids with unoccupied cells
-    GRID() {
-        self_grid = vector<vector<int>>(10, vector<int>(10, unoccupied));
-        target_grid = vector<vector<int>>(10, vector<int>(10, unoccupied));
-    }
-
-    // Method to print the player's self grid
-    string printSelfGrid() const {
-        ostringstream buffer;                 
-        buffer << "Self Grid:" << endl;
-        buffer << printGrid(self_grid);                 
-        return buffer.str();                 
-    }
-
-    // Method to print the target grid
-    string printTargetGrid() const {
-        ostringstream buffer;
-        buffer << "Target Grid:" << endl;
-        buffer << printGrid(target_grid);
-        return buffer.str();
-    }
-
-    // Utility method to print a grid (self or target)
-    string printGrid(const vector<vector<int>>& grid) const {
-        ostringstream buffer;
-        for (int row = 0; row < 10; ++row) {
-            for (int col = 0; col < 10; ++col) {
-                buffer << setw(2) << grid[row][col] << " ";
-            }
-            buffer << endl;
-        }
-        return buffer.str();
-    }
-
-    // Method to print self and target grids side by side
-    string printGridsSideBySide() const {
-        ostringstream buffer;
-        buffer << "   Self Grid" << setw(39) << "Target Grid" << endl;
-
-        for (int row = 0; row < 10; ++row) {
-            // Print a row of the self grid
-            for (int col = 0; col < 10; ++col) {
-                buffer << setw(2) << self_grid[row][col] << " ";
-            }
-
-            // Separator between grids
-            buffer << setw(10) << "   ";
-
-            // Print the corresponding row of the target grid
-            for (int col = 0; col < 10; ++col) {
-                buffer << setw(2) << target_grid[row][col] << " ";
-            }
-
-            buffer << endl;
-        }
-        return buffer.str();
-    }
-};
-
-// Class to represent a player in the game
-class Player {
-public:
-    vector<Ship> ships;  // List of ships placed by the player
-    int num_ships = NUM_SHIPS; // Number of ships remaining
-    GRID PlayerGrid; // The player's grid
-
-    Player() = default;
-
-    // Method to place a ship on the player's grid
-    int PlaceShip(const string& type, pair<int, int> start, int orientation) {
-        // Validate starting position
-        if (start.first < 0 || start.first >= GRID_SIZE || start.second < 0 || start.second >= GRID_SIZE) {
-            cout << "Cannot place ship: start position out of bounds" << endl;
-            return -1;
-        }
-        // Validate orientation
-        if (orientation != 0 && orientation != 1) {
-            cout << "Cannot place ship: invalid orientation" << endl;
-            return -1;
-        }
-
-        Type t = stringToEnum(type); // Convert string to Type enum
-        int length = ship_sizes[t]; // Get ship length
-
-        // Check if the ship can be placed without overlapping or going out of bounds
-        for (int i = 0; i < length; i++) {
-            int row = start.first + (orientation == 1 ? i : 0);
-            int col = start.second + (orientation == 0 ? i : 0);
-
-            if (row >= GRID_SIZE || col >= GRID_SIZE || PlayerGrid.self_grid[row][col] == occupied) {
-                cout << "Cannot place ship: out of bounds or overlapping" << endl;
-                return -1;
-            }
-        }
-
-        // Place the ship on the grid
-        for (int i = 0; i < length; i++) {
-            int row = start.first + (orientation == 1 ? i : 0);
-            int col = start.second + (orientation == 0 ? i : 0);
-            PlayerGrid.self_grid[row][col] = occupied;
-        }
-
-        ships.push_back({orientation, start, t}); // Add ship to player's list
-        return 1;
-    }
-
-    // Method to check if a specific ship is sunk
-    bool ShipSunk(Ship& ship) {
-        int len = ship_sizes[ship.type];
-        for (int i = 0; i < len; ++i) {
-            int row = ship.start.first + (ship.orientation == 1 ? i : 0);
-            int col = ship.start.second + (ship.orientation == 0 ? i : 0);
-            if (PlayerGrid.self_grid[row][col] != hit) {
-                return false;
-            }
-        }
-
-        ships.erase(remove(ships.begin(), ships.end(), ship), ships.end()); // Remove the sunk ship
-        return true;
-    }
-
-    // Method to attack a cell on the opponent's grid
-    string Attack(vector<int> coord, Player& other) {
-        // cout << "Attacking coordinates: (" << coord[0] << ", " << coord[1] << ")" << endl;
-
-        // Validate the attack coordinates
-        if (coord[0] < 0 || coord[0] >= GRID_SIZE || coord[1] < 0 || coord[1] >= GRID_SIZE) {
-            return "Error: Coordinates out of bounds.";
-        }
-        if (PlayerGrid.target_grid[coord[0]][coord[1]] != unoccupied) {
-            return "Error: Cannot attack this cell <Already attacked>";
-        }
-
-        // Perform the attack
-        if (other.PlayerGrid.self_grid[coord[0]][coord[1]] == unoccupied) {
-            PlayerGrid.target_grid[coord[0]][coord[1]] = missed;
-            return "Miss!";
-        } else if (other.PlayerGrid.self_grid[coord[0]][coord[1]] == occupied) {
-            PlayerGrid.target_grid[coord[0]][coord[1]] = hit;
-            other.PlayerGrid.self_grid[coord[0]][coord[1]] = hit;
-
-            for (auto& ship : other.ships) {
-                if (other.ShipSunk(ship)) {
-                    other.num_ships--;
-                    return "Enemy ship has been taken down!";
-                }
-            }
-            return "Hit!";
-        }
-        return "Empty";
-    }
-
-    // Method to check if the player has lost all ships
-    bool HasLost() const {
-        return num_ships == 0;
-    }
-};
-
-// Uncomment this section to test directly
-#ifdef INCLUDE_MAIN
-int main() {
-    // Initialize two players for testing
-    Player player1;
-    Player player2;
-
-    // Place some ships for testing
-    player1.PlaceShip("carrier", {4, 4}, 0);  // Horizontal placement at (4, 4)
-    player2.PlaceShip("battleship", {1, 1}, 1);  // Vertical placement at (1, 1)
-
-    // Print initial grids
-    cout << "Player 1 grid:" << endl;
-    player1.PlayerGrid.printSelfGrid();
-    cout << "Player 2 grid:" << endl;
-    player2.PlayerGrid.printSelfGrid();
-
-    // Perform an attack
-    player1.Attack({4, 4}, player2); // Attack Player 2 at (4,4)
-    player2.PlayerGrid.printTargetGrid();
-    player2.PlayerGrid.printGridsSideBySide();
-
-    // Check if player1 has lost
-    if (player1.HasLost()) {
-        cout << "Player 1 has lost!" << endl;
-    } else {
-        cout << "Player 1 is still in the game!" << endl;
-    }
-
-    return 0;
-}
-#endif
+#include <bits/stdc++.h>
+using namespace std;
+
+// Define the size of the grid and number of ships
+constexpr int GRID_SIZE = 10;
+constexpr int NUM_SHIPS = 5;
+
+// Enum to represent the state of each grid cell
+enum State {
+    unoccupied = 0,  // Cell is empty
+    occupied = 1,    // Cell is occupied by a ship
+    missed = 2,      // Cell was attacked but no ship was hit
+    hit = 3          // Cell was attacked, and a ship was hit
+};
+
+// Enum to represent different types of ships
+enum Type {
+    carrier,
+    battleship,
+    cruiser,
+    submarine,
+    destroyer
+};
+
+// Attack result codes, packed with the sunk ship and a game-over flag as in AttackResult.java
+enum AttackCode {
+    result_miss = 0,
+    result_hit = 1,
+    result_sunk = 2,
+    result_out_of_bounds = 3,
+    result_already_attacked = 4,
+    result_empty = 0xFE,  // Cell was already hit; unreachable through the game rules
+    result_error = 0xFF   // No player to attack with or against
+};
+constexpr int SUNK_SHIP_SHIFT = 8;       // Bits 8-15: sunk ship Type plus one
+constexpr int GAME_OVER_FLAG = 1 << 16;  // Set when the attack sank the last ship
+
+// Function to convert a string to the corresponding ship Type enum
+Type stringToEnum(const std::string& typeStr) {
+    static std::unordered_map<std::string, Type> strToTypeMap = {
+        {"carrier", carrier},
+        {"battleship", battleship},
+        {"cruiser", cruiser},
+        {"submarine", submarine},
+        {"destroyer", destroyer}
+    };
+
+    auto it = strToTypeMap.find(typeStr);
+    if (it != strToTypeMap.end()) {
+        return it->second; // Return corresponding enum value
+    }
+
+    cerr << "Error: Invalid type string '" << typeStr << "'" << endl;
+    exit(EXIT_FAILURE); // Exit if the string doesn't match any type
+}
+
+// Map to associate ship types with their lengths
+unordered_map<Type, int> ship_sizes = {
+    {carrier, 5}, {battleship, 4}, {cruiser, 3}, {submarine, 3}, {destroyer, 2}
+};
+
+// Structure to represent a ship
+struct Ship {
+    int orientation; // 0 for horizontal, 1 for vertical
+    pair<int, int> start; // Starting position of the ship
+    Type type; // Type of the ship
+
+    // Comparison operator to check if two ships are the same
+    bool operator==(const Ship& other) const {
+        return orientation == other.orientation && start == other.start && type == other.type;
+    }
+};
+
+// Class to represent a player's grid. The printed text is cached a row at a time: every change
+// to a cell marks its row dirty, and printing rebuilds only the dirty rows before joining them.
+class GRID {
+public:
+    vector<vector<int>> self_grid;    // Grid for player's own ships
+    vector<vector<int>> target_grid;  // Grid to track attacks on the opponent
+
+    // Constructor initializes both grids with unoccupied cells, and every printed row as dirty
+    GRID() {
+        self_grid = vector<vector<int>>(10, vector<int>(10, unoccupied));
+        target_grid = vector<vector<int>>(10, vector<int>(10, unoccupied));
+        self_rows = vector<string>(GRID_SIZE);
+        target_rows = vector<string>(GRID_SIZE);
+    }
+
+    // Methods to mark a row whose cells changed, or every row after the grids are replaced
+    void markSelfRow(int row) { self_dirty |= 1u << row; }
+    void markTargetRow(int row) { target_dirty |= 1u << row; }
+    void markAllRows() { self_dirty = target_dirty = ALL_ROWS; }
+
+    // Methods to print the player's self grid, the target grid, or both side by side. The text
+    // is valid until the next print.
+    const string& printSelfGrid() const;
+    const string& printTargetGrid() const;
+    const string& printGridsSideBySide() const;
+
+    // Utility method to print a grid (self or target) from scratch
+    string printGrid(const vector<vector<int>>& grid) const {
+        ostringstream buffer;
+        for (int row = 0; row < 10; ++row) {
+            for (int col = 0; col < 10; ++col) {
+                buffer << setw(2) << grid[row][col] << " ";
+            }
+            buffer << endl;
+        }
+        return buffer.str();
+    }
+
+private:
+    static constexpr unsigned ALL_ROWS = (1u << GRID_SIZE) - 1;
+
+    mutable vector<string> self_rows, target_rows;  // Printed rows, without the newline
+    mutable unsigned self_dirty = ALL_ROWS, target_dirty = ALL_ROWS;  // Bit r set: row r must be rebuilt
+    mutable string text;  // The last text printed, reused so printing does not allocate
+
+    // Rebuilds the dirty rows of one grid as printGrid would print them
+    static void refresh(const vector<vector<int>>& grid, vector<string>& rows, unsigned& dirty) {
+        for (int row = 0; dirty != 0; ++row, dirty >>= 1) {
+            if (!(dirty & 1)) continue;
+            string& line = rows[row];
+            line.clear();
+            for (int col = 0; col < GRID_SIZE; ++col) {
+                int value = grid[row][col];
+                if (value < 10) line += ' ';
+                line += to_string(value);
+                line += ' ';
+            }
+        }
+    }
+};
+
+// Defined out of class so the JNI library gets a copy
+const string& GRID::printSelfGrid() const {
+    refresh(self_grid, self_rows, self_dirty);
+    text = "Self Grid:\n";
+    for (const string& line : self_rows) (text += line) += '\n';
+    return text;
+}
+
+const string& GRID::printTargetGrid() const {
+    refresh(target_grid, target_rows, target_dirty);
+    text = "Target Grid:\n";
+    for (const string& line : target_rows) (text += line) += '\n';
+    return text;
+}
+
+// The same layout as printing each row with setw, with ten spaces between the grids
+const string& GRID::printGridsSideBySide() const {
+    refresh(self_grid, self_rows, self_dirty);
+    refresh(target_grid, target_rows, target_dirty);
+    text = "   Self Grid                            Target Grid\n";
+    for (int row = 0; row < GRID_SIZE; ++row) {
+        ((((text += self_rows[row]) += "          ") += target_rows[row]) += '\n');
+    }
+    return text;
+}
+
+// Class to represent a player in the game
+class Player {
+public:
+    vector<Ship> ships;  // List of ships placed by the player
+    vector<Ship> sunk_ships;  // Ships taken down, in the order they sank; kept for snapshots
+    int num_ships = NUM_SHIPS; // Number of ships remaining
+    GRID PlayerGrid; // The player's grid
+
+    Player();
+
+    // Method to place a ship on the player's grid
+    int PlaceShip(const string& type, pair<int, int> start, int orientation);
+
+    // Method to place a ship given its Type, for callers that never had the name as a string
+    int PlaceShipType(Type t, pair<int, int> start, int orientation);
+
+    // Method to check if a specific ship is sunk
+    bool ShipSunk(Ship& ship) {
+        int len = ship_sizes[ship.type];
+        for (int i = 0; i < len; ++i) {
+            int row = ship.start.first + (ship.orientation == 1 ? i : 0);
+            int col = ship.start.second + (ship.orientation == 0 ? i : 0);
+            if (PlayerGrid.self_grid[row][col] != hit) {
+                return false;
+            }
+        }
+
+        sunk_ships.push_back(ship);
+        ships.erase(remove(ships.begin(), ships.end(), ship), ships.end()); // Remove the sunk ship
+        return true;
+    }
+
+    // Method to attack a cell on the opponent's grid
+    string Attack(vector<int> coord, Player& other) {
+        // cout << "Attacking coordinates: (" << coord[0] << ", " << coord[1] << ")" << endl;
+
+        // Validate the attack coordinates
+        if (coord[0] < 0 || coord[0] >= GRID_SIZE || coord[1] < 0 || coord[1] >= GRID_SIZE) {
+            return "Error: Coordinates out of bounds.";
+        }
+        if (PlayerGrid.target_grid[coord[0]][coord[1]] != unoccupied) {
+            return "Error: Cannot attack this cell <Already attacked>";
+        }
+
+        // Perform the attack
+        if (other.PlayerGrid.self_grid[coord[0]][coord[1]] == unoccupied) {
+            PlayerGrid.target_grid[coord[0]][coord[1]] = missed;
+            PlayerGrid.markTargetRow(coord[0]);
+            return "Miss!";
+        } else if (other.PlayerGrid.self_grid[coord[0]][coord[1]] == occupied) {
+            PlayerGrid.target_grid[coord[0]][coord[1]] = hit;
+            other.PlayerGrid.self_grid[coord[0]][coord[1]] = hit;
+            PlayerGrid.markTargetRow(coord[0]);
+            other.PlayerGrid.markSelfRow(coord[0]);
+
+            for (auto& ship : other.ships) {
+                if (other.ShipSunk(ship)) {
+                    other.num_ships--;
+                    return "Enemy ship has been taken down!";
+                }
+            }
+            return "Hit!";
+        }
+        return "Empty";
+    }
+
+    // Method to attack a cell and return a packed AttackCode instead of a result string
+    int AttackCell(int row, int col, Player& other);
+
+    // Method to check if the player has lost all ships
+    bool HasLost() const;
+
+    // Method to return the player to its freshly constructed state, keeping its allocations
+    void Reset();
+
+    // Methods to save the player's state as a compact snapshot and to load one
+    int ExportState(unsigned char* out);
+    bool ImportState(const unsigned char* in, int length);
+};
+
+// Defined out of class, as are PlaceShip and HasLost below, so the JNI library gets a copy at any
+// optimization level instead of relying on an inline one being emitted
+Player::Player() = default;
+
+// Defined out of class so the JNI library always gets a copy; pooled players are reset between matches
+void Player::Reset() {
+    ships.clear();
+    sunk_ships.clear();
+    num_ships = NUM_SHIPS;
+    for (auto& row : PlayerGrid.self_grid) fill(row.begin(), row.end(), unoccupied);
+    for (auto& row : PlayerGrid.target_grid) fill(row.begin(), row.end(), unoccupied);
+    PlayerGrid.markAllRows();
+}
+
+int Player::PlaceShip(const string& type, pair<int, int> start, int orientation) {
+    return PlaceShipType(stringToEnum(type), start, orientation); // Convert string to Type enum
+}
+
+// Defined out of class so the JNI library gets a copy; fleet placement batches call it directly.
+// Returns -1 without printing anything on a rejected ship, and the caller reports it if it wants to
+int Player::PlaceShipType(Type t, pair<int, int> start, int orientation) {
+    // Validate starting position and orientation
+    if (start.first < 0 || start.first >= GRID_SIZE || start.second < 0 || start.second >= GRID_SIZE) {
+        return -1;
+    }
+    if (orientation != 0 && orientation != 1) {
+        return -1;
+    }
+
+    int length = ship_sizes[t]; // Get ship length
+
+    // Check if the ship can be placed without overlapping or going out of bounds
+    for (int i = 0; i < length; i++) {
+        int row = start.first + (orientation == 1 ? i : 0);
+        int col = start.second + (orientation == 0 ? i : 0);
+
+        if (row >= GRID_SIZE || col >= GRID_SIZE || PlayerGrid.self_grid[row][col] == occupied) {
+            return -1;
+        }
+    }
+
+    // Place the ship on the grid
+    for (int i = 0; i < length; i++) {
+        int row = start.first + (orientation == 1 ? i : 0);
+        int col = start.second + (orientation == 0 ? i : 0);
+        PlayerGrid.self_grid[row][col] = occupied;
+        PlayerGrid.markSelfRow(row);
+    }
+
+    ships.push_back({orientation, start, t}); // Add ship to player's list
+    return 1;
+}
+
+// Same rules as Attack, without building a string; defined out of class so the JNI library gets a copy
+int Player::AttackCell(int row, int col, Player& other) {
+    if (row < 0 || row >= GRID_SIZE || col < 0 || col >= GRID_SIZE) {
+        return result_out_of_bounds;
+    }
+    if (PlayerGrid.target_grid[row][col] != unoccupied) {
+        return result_already_attacked;
+    }
+
+    if (other.PlayerGrid.self_grid[row][col] == unoccupied) {
+        PlayerGrid.target_grid[row][col] = missed;
+        PlayerGrid.markTargetRow(row);
+        return result_miss;
+    } else if (other.PlayerGrid.self_grid[row][col] == occupied) {
+        PlayerGrid.target_grid[row][col] = hit;
+        other.PlayerGrid.self_grid[row][col] = hit;
+        PlayerGrid.markTargetRow(row);
+        other.PlayerGrid.markSelfRow(row);
+
+        for (auto& ship : other.ships) {
+            Type type = ship.type; // ShipSunk erases the ship, so read its type first
+            if (other.ShipSunk(ship)) {
+                other.num_ships--;
+                return result_sunk | ((type + 1) << SUNK_SHIP_SHIFT) | (other.HasLost() ? GAME_OVER_FLAG : 0);
+            }
+        }
+        return result_hit;
+    }
+    return result_empty;
+}
+
+bool Player::HasLost() const {
+    return num_ships == 0;
+}
+
+// Player snapshots, in the layout PlayerSnapshot.java describes: the ship count, then a big-endian
+// u16 per ship (bits 0-6 start cell, 7-9 Type, 10 orientation, 11-15 hit mask from the start
+// cell on), ships afloat first and then sunk ones, then the target grid in base 3, five cells per
+// byte with the first cell least significant (0 not attacked, 1 missed, 2 hit). A ship with every
+// cell hit is a sunk one, so the self grid and num_ships follow from the ships.
+constexpr int MAX_SNAPSHOT_SHIPS = GRID_SIZE * GRID_SIZE / 2;  // Every ship covers at least two cells
+constexpr int SNAPSHOT_CELLS_PER_BYTE = 5;                    // 3^5 = 243 fits a byte
+constexpr int SNAPSHOT_TARGET_BYTES = GRID_SIZE * GRID_SIZE / SNAPSHOT_CELLS_PER_BYTE;
+
+// Defined out of class so the JNI library gets a copy; `out` needs room for the largest snapshot
+int Player::ExportState(unsigned char* out) {
+    int count = ships.size() + sunk_ships.size();
+    if (count > MAX_SNAPSHOT_SHIPS) return -1;
+    out[0] = count;
+
+    int pos = 1;
+    for (int list = 0; list < 2; ++list) {
+        for (const Ship& ship : list == 0 ? ships : sunk_ships) {
+            int hits = 0;
+            for (int i = 0; i < ship_sizes[ship.type]; ++i) {
+                int row = ship.start.first + (ship.orientation == 1 ? i : 0);
+                int col = ship.start.second + (ship.orientation == 0 ? i : 0);
+                if (PlayerGrid.self_grid[row][col] == hit) hits |= 1 << i;
+            }
+            int packed = (ship.start.first * GRID_SIZE + ship.start.second) | (ship.type << 7)
+                    | (ship.orientation << 10) | (hits << 11);
+            out[pos++] = packed >> 8;
+            out[pos++] = packed & 0xFF;
+        }
+    }
+
+    for (int first = 0; first < GRID_SIZE * GRID_SIZE; first += SNAPSHOT_CELLS_PER_BYTE) {
+        int value = 0;
+        for (int cell = first + SNAPSHOT_CELLS_PER_BYTE - 1; cell >= first; --cell) {
+            int state = PlayerGrid.target_grid[cell / GRID_SIZE][cell % GRID_SIZE];
+            value = value * 3 + (state == hit ? 2 : state == missed ? 1 : 0);
+        }
+        out[pos++] = value;
+    }
+    return pos;
+}
+
+// Defined out of class so the JNI library gets a copy. Decodes into local grids first, so a
+// malformed snapshot leaves the player untouched.
+bool Player::ImportState(const unsigned char* in, int length) {
+    if (length < 1) return false;
+    int count = in[0];
+    if (count > MAX_SNAPSHOT_SHIPS || length != 1 + 2 * count + SNAPSHOT_TARGET_BYTES) return false;
+
+    int self[GRID_SIZE][GRID_SIZE] = {};
+    int target[GRID_SIZE][GRID_SIZE] = {};
+    Ship decoded[MAX_SNAPSHOT_SHIPS];
+    bool sunk[MAX_SNAPSHOT_SHIPS];
+    int sunkCount = 0;
+    for (int s = 0; s < count; ++s) {
+        int packed = (in[1 + 2 * s] << 8) | in[2 + 2 * s];
+        int start = packed & 0x7F, type = (packed >> 7) & 0x7, orientation = (packed >> 10) & 1, hits = packed >> 11;
+        if (start >= GRID_SIZE * GRID_SIZE || type >= NUM_SHIPS) return false;
+        int size = ship_sizes[static_cast<Type>(type)];
+        if (hits >= 1 << size) return false;
+
+        for (int i = 0; i < size; ++i) {
+            int row = start / GRID_SIZE + (orientation == 1 ? i : 0);
+            int col = start % GRID_SIZE + (orientation == 0 ? i : 0);
+            if (row >= GRID_SIZE || col >= GRID_SIZE || self[row][col] != unoccupied) return false;
+            self[row][col] = (hits & (1 << i)) ? hit : occupied;
+        }
+        decoded[s] = {orientation, {start / GRID_SIZE, start % GRID_SIZE}, static_cast<Type>(type)};
+        sunk[s] = hits == (1 << size) - 1;
+        if (sunk[s]) sunkCount++;
+    }
+    if (sunkCount > NUM_SHIPS) return false;
+
+    const unsigned char* targets = in + 1 + 2 * count;
+    for (int b = 0; b < SNAPSHOT_TARGET_BYTES; ++b) {
+        int value = targets[b];
+        if (value >= 243) return false;
+        for (int i = 0; i < SNAPSHOT_CELLS_PER_BYTE; ++i, value /= 3) {
+            int cell = b * SNAPSHOT_CELLS_PER_BYTE + i;
+            int state = value % 3;
+            target[cell / GRID_SIZE][cell % GRID_SIZE] = state == 2 ? hit : state == 1 ? missed : unoccupied;
+        }
+    }
+
+    ships.clear();
+    sunk_ships.clear();
+    for (int s = 0; s < count; ++s) (sunk[s] ? sunk_ships : ships).push_back(decoded[s]);
+    num_ships = NUM_SHIPS - sunkCount;
+    for (int row = 0; row < GRID_SIZE; ++row) {
+        copy(self[row], self[row] + GRID_SIZE, PlayerGrid.self_grid[row].begin());
+        copy(target[row], target[row] + GRID_SIZE, PlayerGrid.target_grid[row].begin());
+    }
+    PlayerGrid.markAllRows();
+    return true;
+}
+
+// Uncomment this section to test directly
+#ifdef INCLUDE_MAIN
+int main() {
+    // Initialize two players for testing
+    Player player1;
+    Player player2;
+
+    // Place some ships for testing
+    player1.PlaceShip("carrier", {4, 4}, 0);  // Horizontal placement at (4, 4)
+    player2.PlaceShip("battleship", {1, 1}, 1);  // Vertical placement at (1, 1)
+
+    // Print initial grids
+    cout << "Player 1 grid:" << endl;
+    player1.PlayerGrid.printSelfGrid();
+    cout << "Player 2 grid:" << endl;
+    player2.PlayerGrid.printSelfGrid();
+
+    // Perform an attack
+    player1.Attack({4, 4}, player2); // Attack Player 2 at (4,4)
+    player2.PlayerGrid.printTargetGrid();
+    player2.PlayerGrid.printGridsSideBySide();
+
+    // Check if player1 has lost
+    if (player1.HasLost()) {
+        cout << "Player 1 has lost!" << endl;
+    } else {
+        cout << "Player 1 is still in the game!" << endl;
+    }
+
+    return 0;
+}
+#endif
@@ -0,0 +1,52 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs match actors on a fixed set of worker threads, one per core by default. An actor is queued
+// here when its mailbox goes from empty to not empty, and whichever worker takes it drains a batch
+// of commands, so the threads a server needs do not grow with its matches. The pool is a
+// ForkJoinPool in FIFO mode: workers keep their own queues and steal from each other when idle.
+public final class ActorScheduler {
+    private final ForkJoinPool pool;
+
+    public ActorScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ActorScheduler(int workers) {
+        AtomicInteger created = new AtomicInteger();  // The pool index is not assigned until the worker registers
+        this.pool = new ForkJoinPool(workers, pool -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("match-worker-" + created.getAndIncrement());
+            return worker;
+        }, (thread, e) -> Log.error("Match worker failed: " + e), true);
+    }
+
+    // The scheduler matches use when none is given; started on first use
+    public static ActorScheduler shared() {
+        return Shared.INSTANCE;
+    }
+
+    private static final class Shared {
+        static final ActorScheduler INSTANCE = new ActorScheduler();
+    }
+
+    void execute(Runnable actor) {
+        pool.execute(actor);
+    }
+
+    public int getWorkerCount() {
+        return pool.getParallelism();
+    }
+
+    // Lets queued actors finish their batch, then stops the workers
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// A batch of attacks across many player pairs, applied with one execute(). Requests and results
+// live in reusable direct buffers in native byte order: a request is the attacker's and the
+// defender's native Player pointers followed by row and column as ints (REQUEST_SIZE bytes), a
+// result is one packed AttackResult int. When every player is native, execute() is a single JNI
+// call for the whole batch; otherwise it attacks one by one, so callers need not care which
+// engine they run on.
+public final class AttackBatch {
+    static final int REQUEST_SIZE = 24;  // Matches ATTACK_REQUEST_SIZE in BattleshipJNI.cpp
+
+    private final ByteBuffer requests;
+    private final ByteBuffer results;
+    private final BattleshipPlayer[] attackers, defenders;  // Keep the players reachable until execute()
+    private final int[] rows, cols;  // For the one-by-one path
+    private int size = 0;
+    private boolean allNative = true;
+
+    public AttackBatch(int capacity) {
+        requests = ByteBuffer.allocateDirect(capacity * REQUEST_SIZE).order(ByteOrder.nativeOrder());
+        results = ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder());
+        attackers = new BattleshipPlayer[capacity];
+        defenders = new BattleshipPlayer[capacity];
+        rows = new int[capacity];
+        cols = new int[capacity];
+    }
+
+    // Queues an attack and returns its index in the batch
+    public int add(BattleshipPlayer attacker, int row, int col, BattleshipPlayer defender) {
+        if (size == attackers.length) throw new IllegalStateException("Attack batch is full");
+        int index = size++;
+        attackers[index] = attacker;
+        defenders[index] = defender;
+        if (attacker instanceof BattleshipJNI nativeAttacker && defender instanceof BattleshipJNI nativeDefender) {
+            int offset = index * REQUEST_SIZE;
+            requests.putLong(offset, nativeAttacker.pointer());
+            requests.putLong(offset + 8, nativeDefender.pointer());
+            requests.putInt(offset + 16, row);
+            requests.putInt(offset + 20, col);
+        } else {
+            allNative = false;
+        }
+        rows[index] = row;
+        cols[index] = col;
+        return index;
+    }
+
+    // Runs every queued attack in order; results are then available from result()
+    public void execute() {
+        if (size == 0) return;
+        if (allNative) {
+            BattleshipJNI.attackBatch(requests, results, size);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            results.putInt(i * Integer.BYTES, attackers[i].attack(rows[i], cols[i], defenders[i]));
+        }
+    }
+
+    public int result(int index) {
+        return results.getInt(index * Integer.BYTES);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return attackers.length;
+    }
+
+    // Empties the batch for reuse, dropping its references to the players
+    public void clear() {
+        Arrays.fill(attackers, 0, size, null);
+        Arrays.fill(defenders, 0, size, null);
+        size = 0;
+        allNative = true;
+    }
+}
@@ -0,0 +1,46 @@
+// Attack outcomes packed into one int, so an attack crosses JNI and reaches the server without
+// allocating. Bits 0-7 hold a Protocol RESULT_* code (or EMPTY/ERROR), bits 8-15 the sunk
+// ship's Protocol ship code plus one (0 if no ship sank), and bit 16 is set when the attack sank
+// the defender's last ship. GameLogic.cpp builds the same layout in Player::AttackCell.
+public final class AttackResult {
+    public static final int EMPTY = 0xFE;  // Attacked a cell already hit; unreachable through the game rules
+    public static final int ERROR = 0xFF;  // No native player to attack with or against
+
+    private static final int CODE_MASK = 0xFF;
+    private static final int SHIP_SHIFT = 8;
+    private static final int GAME_OVER = 1 << 16;
+
+    private AttackResult() {
+    }
+
+    static int pack(int code, int sunkShip, boolean gameOver) {
+        return code | ((sunkShip + 1) << SHIP_SHIFT) | (gameOver ? GAME_OVER : 0);
+    }
+
+    public static int code(int result) {
+        return result & CODE_MASK;
+    }
+
+    // Protocol ship code of the ship this attack sank, or -1
+    public static int sunkShip(int result) {
+        return ((result >>> SHIP_SHIFT) & CODE_MASK) - 1;
+    }
+
+    public static boolean isGameOver(int result) {
+        return (result & GAME_OVER) != 0;
+    }
+
+    // The native result text for a packed result, for the String Attack API
+    public static String text(int result) {
+        switch (code(result)) {
+            case Protocol.RESULT_MISS: return "Miss!";
+            case Protocol.RESULT_HIT: return "Hit!";
+            case Protocol.RESULT_SUNK: return "Enemy ship has been taken down!";
+            case Protocol.RESULT_OUT_OF_BOUNDS: return "Error: Attack coordinates out of bounds.";
+            case Protocol.RESULT_ALREADY_ATTACKED: return "Error: Cannot attack this cell <Already attacked>";
+            case Protocol.RESULT_BAD_TARGET: return "Error: No such opponent.";
+            case EMPTY: return "Empty";
+            default: return "Error: Current player is null.";
+        }
+    }
+}
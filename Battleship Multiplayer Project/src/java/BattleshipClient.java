@@ -1,149 +1,764 @@
-import java.io.*;
-import java.net.*;
-import java.util.Scanner;
-
-public class BattleshipClient {
-    // Server address and port to connect to
-    private static final String SERVER_ADDRESS = "localhost";
-    private static final int SERVER_PORT = 12345;
-
-    // Socket and streams for communication with the server
-    private Socket socket;
-    private ObjectOutputStream objectOut;           // Output stream for sending objects to the server
-    private ObjectInputStream objectIn;            // Input stream for receiving objects from the server
-    private Scanner scanner;                       // Scanner for user input
-
-    // Entry point for the Battleship client
-    public static void main(String[] args) {
-        new BattleshipClient().startGame();        // Start the game by creating an instance and calling startGame()
-    }
-
-    // Main method to handle the game flow
-    public void startGame() {
-        try {
-            // Connect to the server and initialize input/output streams
-            socket = new Socket(SERVER_ADDRESS, SERVER_PORT);
-            objectOut = new ObjectOutputStream(socket.getOutputStream());
-            objectIn = new ObjectInputStream(socket.getInputStream());
-
-            // Initialize scanner for user input
-            scanner = new Scanner(System.in);
-
-            // Receive and display the player's role from the server
-            String role = (String) objectIn.readObject(); // "You are Player 1." or "You are Player 2."
-            System.out.println(role);
-
-            // Handle the sequence of game phases
-            welcomeAndPlaceShips();  // Ship placement phase
-            waitForGameStart();      // Wait for game start signal
-            playTurns();             // Main gameplay loop
-
-        } catch (IOException | ClassNotFoundException e) {
-            // Handle connection errors or invalid responses
-            System.err.println("Error: Unable to connect to the server.");
-            e.printStackTrace();
-        } finally {
-            // Ensure connections are properly closed
-            closeConnections();
-            if (scanner != null) scanner.close(); // Close scanner resource
-        }
-    }
-
-    // Handles the welcome message and ship placement phase
-    private void welcomeAndPlaceShips() throws IOException, ClassNotFoundException {
-        System.out.println((String) objectIn.readObject()); // Welcome message from the server
-
-        int shipsPlaced = 0; // Counter for successfully placed ships
-
-        // Loop until all 5 ships are placed
-        while (shipsPlaced < 5) {
-            System.out.println("Enter ship type, startX, startY, and orientation (0: horizontal, 1: vertical):");
-            String type = scanner.next();             // Read ship type (e.g., "Battleship")
-            int startX = scanner.nextInt();           // Read starting X-coordinate
-            int startY = scanner.nextInt();           // Read starting Y-coordinate
-            int orientation = scanner.nextInt();      // Read orientation (0 for horizontal, 1 for vertical)
-
-            // Send placement command to the server
-            objectOut.writeObject(type + " " + startX + " " + startY + " " + orientation);
-            objectOut.flush(); // Ensure the data is sent immediately
-
-            // Receive server's response and print it
-            String response = (String) objectIn.readObject();
-            System.out.println(response);
-
-            // Check if the placement was successful
-            if (response.contains("Ship placed successfully. Your updated self grid:\n")) {
-                shipsPlaced++; // Increment the counter for each successful placement
-            } else if (response.equals("Invalid placement. Try again.")) {
-                System.out.println("Placement failed. Retrying...");
-            } else {
-                System.out.println("Unexpected server response: " + response); // Handle unexpected messages
-            }
-        }
-    }
-
-    // Wait for the game start signal from the server
-    private void waitForGameStart() throws IOException, ClassNotFoundException {
-        String message = (String) objectIn.readObject(); // Receive "Game is starting!" message
-        System.out.println(message);
-    }
-
-    // Main gameplay loop where turns are taken
-    private void playTurns() throws IOException, ClassNotFoundException {
-        String message; // Variable to hold messages from the server
-        scanner.nextLine(); // Clear any leftover input from the scanner
-
-        // Loop until the server signals the end of the game
-        while ((message = (String) objectIn.readObject()) != null) {
-            System.out.println("Server: " + message); // Display server's message
-
-            // If it's the player's turn, process their attack input
-            if (message.contains("Your turn")) {
-                int row = -1, col = -1;
-                boolean validInput = false;
-
-                // Loop until valid coordinates are provided
-                while (!validInput) {
-                    String input = scanner.nextLine().trim(); // Read and trim input
-
-                    // Validate input format (two integers separated by space)
-                    if (input.matches("\\d+ \\d+")) {
-                        String[] parts = input.split(" ");   // Split input into row and column
-                        row = Integer.parseInt(parts[0]);
-                        col = Integer.parseInt(parts[1]);
-                        validInput = true; // Mark input as valid
-                    } else {
-                        System.out.println("Invalid format. Please enter coordinates in the format row column.");
-                    }
-                }
-
-                // Send attack coordinates to the server
-                objectOut.writeObject(row + " " + col);
-                objectOut.flush(); // Ensure the data is sent immediately
-
-                // Receive and display the result of the attack
-                String attackResult = (String) objectIn.readObject();
-                System.out.println("Server: " + attackResult);
-            }
-
-            // If the server signals game over, display the final message and exit loop
-            if (message.contains("Game Over")) {
-                System.out.println((String) objectIn.readObject()); // Read and display the winner message
-                break;
-            }
-        }
-    }
-
-    // Closes all connections and resources
-    private void closeConnections() {
-        try {
-            if (objectOut != null) objectOut.close(); // Close output stream
-            if (objectIn != null) objectIn.close();   // Close input stream
-            if (socket != null) socket.close();       // Close socket connection
-        } catch (IOException e) {
-            System.err.println("Error closing connections.");
-            e.printStackTrace(); // Print stack trace for debugging
-        }
-    }
-}
-
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Scanner;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+public class BattleshipClient {
+    // Server address and port to connect to unless --host or --port say otherwise
+    private static final String DEFAULT_ADDRESS = "localhost";
+    private static final int DEFAULT_PORT = 12345;
+    private static final String USAGE = "Usage: java -cp bin BattleshipClient [--host=localhost] [--port=12345] [--name=NAME] [--vs-bot | --watch[=MATCH] | --leaderboard | --resume=MATCH:TOKEN]\n"
+            + "       java -cp bin BattleshipClient --load=CLIENTS [--host=localhost] [--port=12345] [--vs-bot] [--duration=60] [--think-ms=0] [--bot=density|random] [--seed=1]\n"
+            + "       java -cp bin BattleshipClient --script=FILE [--host=localhost] [--port=12345] [--name=NAME] [--vs-bot] [--pipeline=4]";
+
+    // Socket and streams for communication with the server
+    private Socket socket;
+    private OutputStream out;                      // Output stream for sending frames to the server
+    private DataInputStream in;                    // Input stream for receiving frames from the server
+    private Scanner scanner;                       // Scanner for user input
+
+    // Protocol buffers, reused for every frame
+    private final ByteBuffer outBuffer = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE + Protocol.MAX_NAME_BYTES);  // Room for a named HELLO
+    private final ByteBuffer readScratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+    private final Frame frame = new Frame();
+
+    private final String serverAddress;
+    private final int serverPort;
+    private final boolean vsBot;                   // Ask the server for a bot opponent
+    private final int watchMatch;                  // Match to watch as a spectator (0: newest), or -1 to play
+    private final String name;                     // Sent in HELLO so the server rates our games, or null to play unrated
+    private int playerNumber;                      // Our seat, assigned by the server
+    private int players = 2;                       // Seats in the match; more than two is a free-for-all
+    private BoardRules rules = BoardRules.STANDARD; // Board size and fleet, from the server's RULES frame
+    private ClientBoard board = new ClientBoard(rules); // Local copy patched from deltas
+    private boolean resyncRequested = false; // Asked for full grids that have not arrived yet
+    private int sessionMatch;                      // Match and seat token from SESSION, or from --resume;
+    private long sessionToken;                     // a token of 0 means the seat cannot be resumed
+
+    // Entry point for the Battleship client
+    public static void main(String[] args) {
+        String address = DEFAULT_ADDRESS;
+        int port = DEFAULT_PORT;
+        boolean vsBot = false;
+        int watchMatch = -1;
+        String name = null;
+        boolean leaderboard = false;
+        String resume = null;                      // MATCH:TOKEN of a seat to take back
+        int loadClients = 0;                       // Simulated clients; 0 plays interactively
+        String script = null;                      // Plays one game from this file instead of the keyboard
+        int pipeline = 4;                          // Scripted attacks kept queued at the server ahead of our turn
+        long duration = 60, thinkMillis = 0, seed = 1;
+        Function<SplittableRandom, Bot> bot = Bot.named("density");
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) {
+                address = arg.substring("--host=".length());
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.equals("--vs-bot")) {
+                vsBot = true;
+            } else if (arg.equals("--watch")) {
+                watchMatch = 0;                    // The newest match being played
+            } else if (arg.startsWith("--watch=")) {
+                watchMatch = Integer.parseInt(arg.substring("--watch=".length()));
+            } else if (arg.startsWith("--name=")) {
+                name = arg.substring("--name=".length());
+            } else if (arg.equals("--leaderboard")) {
+                leaderboard = true;
+            } else if (arg.startsWith("--resume=")) {
+                resume = arg.substring("--resume=".length());
+            } else if (arg.startsWith("--load=")) {
+                loadClients = Integer.parseInt(arg.substring("--load=".length()));
+            } else if (arg.startsWith("--duration=")) {
+                duration = Long.parseLong(arg.substring("--duration=".length()));
+            } else if (arg.startsWith("--think-ms=")) {
+                thinkMillis = Long.parseLong(arg.substring("--think-ms=".length()));
+            } else if (arg.startsWith("--bot=")) {
+                bot = Bot.named(arg.substring("--bot=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--script=")) {
+                script = arg.substring("--script=".length());
+            } else if (arg.startsWith("--pipeline=")) {
+                pipeline = Integer.parseInt(arg.substring("--pipeline=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.err.println(USAGE);
+                return;
+            }
+        }
+
+        if (name != null && (name.isBlank() || Protocol.utf8(name).length > Protocol.MAX_NAME_BYTES)) {
+            System.err.println("--name must be 1 to " + Protocol.MAX_NAME_BYTES + " bytes of UTF-8");
+            return;
+        }
+
+        if (leaderboard) {
+            new BattleshipClient(address, port, false, -1).showLeaderboard();
+            return;
+        }
+        if (loadClients > 0) {
+            // Headless load test: many scripted clients instead of one player at the keyboard
+            try {
+                new LoadGenerator(address, port, loadClients, thinkMillis, vsBot, bot, seed).run(duration);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        if (script != null) {
+            playScript(Path.of(script), address, port, vsBot, name, pipeline);
+            return;
+        }
+        BattleshipClient client = new BattleshipClient(address, port, vsBot, watchMatch, name);
+        if (resume != null) {
+            int colon = resume.indexOf(':');
+            try {
+                client.resumeSeat(Integer.parseInt(resume.substring(0, Math.max(colon, 0))), Long.parseUnsignedLong(resume.substring(colon + 1), 16));
+            } catch (NumberFormatException e) {
+                System.err.println("--resume takes the MATCH:TOKEN printed when the match started");
+                return;
+            }
+        }
+        client.startGame();   // Start the game by calling startGame()
+    }
+
+    // Plays one game from a script file and prints how it went
+    private static void playScript(Path file, String address, int port, boolean vsBot, String name, int pipeline) {
+        if (pipeline < 0 || pipeline > Protocol.MAX_QUEUED_ATTACKS) {
+            System.err.println("--pipeline must be 0 to " + Protocol.MAX_QUEUED_ATTACKS);
+            return;
+        }
+        ScriptedClient.Script parsed;
+        try {
+            parsed = ScriptedClient.Script.load(file);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Cannot use script " + file + ": " + e.getMessage());
+            return;
+        }
+        try {
+            ScriptedClient.Result result = new ScriptedClient(parsed, pipeline, vsBot, name).play(address, port);
+            System.out.println("Player " + result.winner + (result.winner == result.me ? " (us) wins" : " wins; we were Player " + result.me));
+            System.out.printf("Shots: %d, hits: %d, game: %.1f ms, %.2f ms per shot (pipeline %d)%n", result.shots, result.hits,
+                    result.nanos / 1e6, result.nanos / 1e6 / Math.max(1, result.shots), pipeline);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    public BattleshipClient(boolean vsBot) {
+        this(vsBot, -1);
+    }
+
+    public BattleshipClient(boolean vsBot, int watchMatch) {
+        this(DEFAULT_ADDRESS, DEFAULT_PORT, vsBot, watchMatch);
+    }
+
+    public BattleshipClient(String serverAddress, int serverPort, boolean vsBot, int watchMatch) {
+        this(serverAddress, serverPort, vsBot, watchMatch, null);
+    }
+
+    public BattleshipClient(String serverAddress, int serverPort, boolean vsBot, int watchMatch, String name) {
+        this.serverAddress = serverAddress;
+        this.serverPort = serverPort;
+        this.vsBot = vsBot;
+        this.watchMatch = watchMatch;
+        this.name = name;
+    }
+
+    // Makes startGame() take back a seat in a match already under way instead of queueing
+    public void resumeSeat(int matchId, long token) {
+        this.sessionMatch = matchId;
+        this.sessionToken = token;
+    }
+
+    // Asks the server for its best rated players and prints them
+    public void showLeaderboard() {
+        try (Socket leaderboard = new Socket(serverAddress, serverPort)) {
+            socket = leaderboard;
+            out = socket.getOutputStream();
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            Protocol.writeHello(outBuffer, Protocol.HELLO_LEADERBOARD);
+            sendFrame();
+            readFrame();
+            if (frame.type == Protocol.TEXT) {
+                System.out.print(frame.text());
+            } else {
+                System.err.println("Error: The server does not support this client's protocol version.");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not fetch the leaderboard: " + e.getMessage());
+        }
+    }
+
+    // Main method to handle the game flow
+    public void startGame() {
+        try {
+            // Connect to the server and initialize input/output streams
+            socket = new Socket(serverAddress, serverPort);
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            if (watchMatch >= 0) {
+                watchGame();  // Spectators only listen
+                return;
+            }
+
+            // Initialize scanner for user input
+            scanner = new Scanner(System.in);
+
+            if (sessionToken != 0) {
+                resumeGame();  // Back into a match we lost the connection to
+                return;
+            }
+
+            // Announce our protocol version, asking for a seat token, then receive and display the player's role
+            int flags = Protocol.HELLO_SESSION | (vsBot ? Protocol.HELLO_VS_BOT : 0);
+            if (name != null) {
+                Protocol.writeHello(outBuffer, flags, Protocol.utf8(name));
+            } else {
+                Protocol.writeHello(outBuffer, flags);
+            }
+            sendFrame();
+            System.out.println(vsBot ? "Starting a game against the computer..." : "Waiting for an opponent...");
+            readFrame();
+            if (frame.type == Protocol.ERROR) {
+                System.err.println(frame.a == Protocol.ERROR_NO_BOT ? "Error: This server's bots only play the standard board; play without --vs-bot."
+                                                                    : "Error: The server does not support this client's protocol version.");
+                return;
+            }
+            playerNumber = frame.a;
+            System.out.println("You are Player " + playerNumber + ".");
+            readRules();
+            readFrame();
+            readSession();
+            startHeartbeats();       // The server drops players it has not heard from while waiting on them
+
+            // Handle the sequence of game phases
+            welcomeAndPlaceShips(0); // Ship placement phase
+            if (waitForGameStart()) {
+                playTurns();         // Main gameplay loop
+            }
+
+        } catch (EOFException e) {
+            // The server ended the game: we ran out of time, or it went away
+            System.out.println(e.getMessage() != null ? e.getMessage() : "The server closed the connection.");
+            if (e.getMessage() == null) printResumeHint();
+        } catch (IOException e) {
+            // Handle connection errors or invalid responses
+            System.err.println("Error: Unable to connect to the server.");
+            e.printStackTrace();
+            printResumeHint();
+        } finally {
+            // Ensure connections are properly closed
+            closeConnections();
+            if (scanner != null) scanner.close(); // Close scanner resource
+        }
+    }
+
+    // Takes our seat back with the token from --resume, then plays on from wherever the match is:
+    // placing, waiting for the opponent's fleet, or taking turns
+    private void resumeGame() throws IOException {
+        Protocol.writeHello(outBuffer, Protocol.HELLO_RESUME);
+        Protocol.writeResume(outBuffer, sessionMatch, sessionToken);
+        sendFrame();
+        readFrame();
+        if (frame.type == Protocol.ERROR) {
+            System.err.println(frame.a == Protocol.ERROR_NO_SUCH_SEAT ? "Error: Match " + sessionMatch + " has no seat for that token; it may be over."
+                                                                      : "Error: The server does not support this client's protocol version.");
+            return;
+        }
+        playerNumber = frame.a;
+        System.out.println("Resumed match " + sessionMatch + " as Player " + playerNumber + ".");
+        readRules();
+        readFrame();
+        if (frame.type != Protocol.SESSION) throw new StreamCorruptedException("Expected the seat token, got type " + frame.type);
+        int shipsPlaced = frame.b;
+        readSession();
+        startHeartbeats();
+
+        // Both grids as the server has them
+        while (frame.type == Protocol.GRID || frame.type == Protocol.CELLS) {
+            applyFullGrid();
+            readFrame();
+        }
+        System.out.println("Your self grid:\n" + board.renderSelfGrid() + "\nYour target grid:\n" + board.renderTargetGrid());
+        if (frame.type == Protocol.TEXT) {
+            welcomeAndPlaceShips(shipsPlaced);  // The banner again: our fleet is not all placed
+            if (!waitForGameStart()) return;
+        } else if (frame.type == Protocol.GAME_OVER) {
+            announceGameOver();  // The opponent left while we were placed and waiting
+            return;
+        } else {
+            System.out.println("The game is under way.");
+        }
+        playTurns();
+    }
+
+    // Keeps the seat token if `frame` is a SESSION, and moves on to the next frame. Servers only
+    // send one to clients that ask, and not through a gateway.
+    private void readSession() throws IOException {
+        if (frame.type != Protocol.SESSION) return;
+        sessionMatch = frame.a;
+        sessionToken = frame.token;
+        readFrame();
+    }
+
+    // After a lost connection, tells the player how to take their seat back
+    private void printResumeHint() {
+        if (sessionToken == 0) return;
+        System.out.println("To rejoin match " + sessionMatch + " before the server gives up your seat, run:\n"
+                + "  java -cp bin BattleshipClient --host=" + serverAddress + " --port=" + serverPort
+                + " --resume=" + sessionMatch + ":" + Long.toUnsignedString(sessionToken, 16));
+    }
+
+    // Handles the welcome message, already read into `frame`, and the ship placement phase.
+    // `shipsPlaced` ships of the fleet are already on the board when we resume a seat.
+    private void welcomeAndPlaceShips(int shipsPlaced) throws IOException {
+        if (frame.type == Protocol.PLAYERS) {
+            // Free-for-all servers say how many are seated before the banner
+            players = frame.a;
+            board.setPlayers(players);
+            System.out.println("This is a " + players + "-player free-for-all.");
+            readFrame();
+        }
+        System.out.println(frame.text()); // Welcome message from the server
+
+        if (shipsPlaced == 0 && rules.getShipCount() <= Protocol.MAX_FLEET_SHIPS) {
+            placeFleet();
+        } else {
+            placeShipByShip(shipsPlaced);  // Too many ships for one FLEET frame, or some already placed
+        }
+        scanner.nextLine(); // Clear what is left of the last placement line
+    }
+
+    // Reads the whole fleet, then sends it in one FLEET frame. A rejected fleet names the ship at
+    // fault; only that ship is entered again before the fleet goes back.
+    private void placeFleet() throws IOException {
+        int count = rules.getShipCount();
+        int[][] ships = new int[count][];  // {ship, row, col, orientation} in the order entered
+        int[] placedOfType = new int[BoardRules.SHIP_TYPES];
+        int entered = 0;
+        ByteBuffer fleet = ByteBuffer.allocate(Protocol.fleetFrameSize(count));
+
+        while (true) {
+            while (entered < count) {
+                if (!rules.isStandard()) System.out.println("Still to place:" + fleetLeft(placedOfType));
+                System.out.println("Ship " + (entered + 1) + " of " + count + ": enter ship type, startX, startY, and orientation (0: horizontal, 1: vertical):");
+                String type = scanner.next();
+                int startX = scanner.nextInt();
+                int startY = scanner.nextInt();
+                int orientation = scanner.nextInt();
+
+                // Unknown ship names are caught here; the server checks everything else
+                int ship = Protocol.shipCode(type);
+                if (ship < 0 || startX < 0 || startY < 0 || startX > 0xFFFF || startY > 0xFFFF) {
+                    System.out.println("Invalid placement. Try again.");
+                    continue;
+                }
+                ships[entered++] = new int[]{ship, startX, startY, orientation};
+                placedOfType[ship]++;
+            }
+
+            int start = Protocol.startFleet(fleet);
+            for (int[] ship : ships) Protocol.addFleetShip(fleet, ship[0], ship[1], ship[2], ship[3]);
+            Protocol.finishFleet(fleet, start);
+            synchronized (out) {  // Heartbeats are written from their own thread
+                out.write(fleet.array(), 0, fleet.position());
+                out.flush();
+            }
+            fleet.clear();
+
+            readFrame();
+            while (frame.type == Protocol.GRID || frame.type == Protocol.CELLS) {
+                applyFullGrid(); // Full grids only arrive after a resync request
+                readFrame();
+            }
+            if (frame.type != Protocol.FLEET_RESULT) {
+                System.out.println("Unexpected server response (type " + frame.type + ")");
+                continue;
+            }
+            if (frame.a == Protocol.PLACE_OK) {
+                if (!board.applyFleet(ships, count, frame.seq)) requestResync();
+                System.out.println("Fleet placed successfully. Your self grid:\n" + board.renderSelfGrid());
+                return;
+            }
+
+            // Drop the ship at fault and ask for it again; the others stand
+            int index = Math.min(frame.b, count - 1);
+            int[] rejected = ships[index];
+            System.out.println("Fleet rejected: " + describePlacement(frame.a, rejected) + " Enter that ship again.");
+            System.arraycopy(ships, index + 1, ships, index, count - index - 1);
+            placedOfType[rejected[0]]--;
+            entered = count - 1;
+        }
+    }
+
+    // Why the server rejected a ship of our fleet
+    private String describePlacement(int status, int[] ship) {
+        String name = "the " + Protocol.shipName(ship[0]) + " at (" + ship[1] + ", " + ship[2] + ")";
+        return switch (status) {
+            case Protocol.PLACE_NOT_IN_FLEET -> "your fleet has no room for " + name + ".";
+            case Protocol.PLACE_OUT_OF_BOUNDS -> name + " does not fit on the board.";
+            case Protocol.PLACE_OVERLAP -> name + " overlaps another ship.";
+            case Protocol.PLACE_BAD_ORIENTATION -> name + " has an orientation other than 0 or 1.";
+            default -> name + " cannot be placed.";
+        };
+    }
+
+    // Places one ship per PLACE frame, for fleets too large to send whole
+    private void placeShipByShip(int shipsPlaced) throws IOException {
+        // shipsPlaced counts successful placements, including any made before we resumed
+        int[] placedOfType = new int[BoardRules.SHIP_TYPES];
+
+        // Loop until the whole fleet is placed
+        while (shipsPlaced < rules.getShipCount()) {
+            if (!rules.isStandard()) System.out.println("Still to place:" + fleetLeft(placedOfType));
+            System.out.println("Enter ship type, startX, startY, and orientation (0: horizontal, 1: vertical):");
+            String type = scanner.next();             // Read ship type (e.g., "Battleship")
+            int startX = scanner.nextInt();           // Read starting X-coordinate
+            int startY = scanner.nextInt();           // Read starting Y-coordinate
+            int orientation = scanner.nextInt();      // Read orientation (0 for horizontal, 1 for vertical)
+
+            // Unknown ship names are caught here instead of being sent to the server
+            int ship = Protocol.shipCode(type);
+            if (ship < 0 || startX < 0 || startY < 0 || startX > 0xFFFF || startY > 0xFFFF) {
+                System.out.println("Invalid placement. Try again.");
+                continue;
+            }
+
+            // Send placement command to the server
+            Protocol.writePlace(outBuffer, ship, startX, startY, orientation);
+            sendFrame();
+
+            // Receive server's response and print it
+            readFrame();
+            while (frame.type == Protocol.GRID || frame.type == Protocol.CELLS) {
+                applyFullGrid(); // Full grids only arrive after a resync request
+                readFrame();
+            }
+            if (frame.type == Protocol.PLACE_RESULT && frame.a == Protocol.PLACE_OK) {
+                if (!board.applyPlacement(frame.b, frame.c, frame.d, frame.e, frame.seq)) requestResync();
+                System.out.println("Ship placed successfully. Your updated self grid:\n" + board.renderSelfGrid());
+                shipsPlaced++; // Increment the counter for each successful placement
+                placedOfType[frame.b]++;
+            } else if (frame.type == Protocol.PLACE_RESULT && frame.a == Protocol.PLACE_NOT_IN_FLEET) {
+                System.out.println("Your fleet has no more ships of that type. Try again.");
+            } else if (frame.type == Protocol.PLACE_RESULT) {
+                System.out.println("Invalid placement. Try again.");
+                System.out.println("Placement failed. Retrying...");
+            } else {
+                System.out.println("Unexpected server response (type " + frame.type + ")"); // Handle unexpected messages
+            }
+        }
+    }
+
+    // Wait for the game start signal from the server; false if the opponent forfeited instead
+    private boolean waitForGameStart() throws IOException {
+        readFrame(); // Receive the game start frame
+        while (frame.type == Protocol.PLAYER_OUT) {
+            announcePlayerOut(); // Free-for-all players who failed to place their fleet
+            readFrame();
+        }
+        if (frame.type == Protocol.GAME_OVER) {
+            announceGameOver();
+            return false;
+        }
+        System.out.println("Ships placed successfully. Game starts now!");
+        return true;
+    }
+
+    // Main gameplay loop where turns are taken
+    private void playTurns() throws IOException {
+        // Loop until the server signals the end of the game
+        while (true) {
+            readFrame();
+
+            switch (frame.type) {
+                case Protocol.TURN -> {
+                    if (frame.a != playerNumber) {
+                        System.out.println("Server: Waiting for Player " + frame.a + " to attack...");
+                        continue;
+                    }
+
+                    // It's the player's turn, process their attack input
+                    boolean freeForAll = players > 2;
+                    System.out.println(freeForAll ? "Server: Your turn to attack! Enter attack coordinates and target (row column player):"
+                                                  : "Server: Your turn to attack! Enter attack coordinates (row column):");
+                    int row = -1, col = -1, target = 0;
+                    boolean validInput = false;
+
+                    // Loop until valid coordinates are provided
+                    while (!validInput) {
+                        String input = scanner.nextLine().trim(); // Read and trim input
+
+                        // Validate input format (two integers separated by space, then the target in a free-for-all)
+                        if (input.matches(freeForAll ? "\\d{1,5} \\d{1,5} \\d{1,2}" : "\\d{1,5} \\d{1,5}")) {
+                            String[] parts = input.split(" ");   // Split input into row, column and target
+                            row = Integer.parseInt(parts[0]);
+                            col = Integer.parseInt(parts[1]);
+                            target = freeForAll ? Integer.parseInt(parts[2]) : 0;
+                            validInput = row <= 0xFFFF && col <= 0xFFFF; // Must fit the protocol's u16 fields
+                        }
+                        if (!validInput) {
+                            System.out.println(freeForAll ? "Invalid format. Please enter coordinates and target in the format row column player."
+                                                          : "Invalid format. Please enter coordinates in the format row column.");
+                        }
+                    }
+
+                    // Send attack coordinates to the server
+                    if (freeForAll) {
+                        Protocol.writeAttack(outBuffer, row, col, target);
+                    } else {
+                        Protocol.writeAttack(outBuffer, row, col);
+                    }
+                    sendFrame();
+                }
+                case Protocol.ATTACK_RESULT -> {
+                    System.out.println("Server: " + describeAttack(frame));
+
+                    // Patch the one changed cell locally and redraw the affected grid
+                    boolean ourAttack = frame.a == playerNumber;
+                    if (!board.applyAttack(ourAttack, frame.e, frame.b, frame.c, frame.d, frame.seq)) {
+                        requestResync();
+                    } else if (frame.b <= Protocol.RESULT_SUNK) {
+                        System.out.println(!ourAttack ? "Your self grid:\n" + board.renderSelfGrid()
+                                : players > 2 ? "Your target grid against Player " + frame.e + ":\n" + board.renderTargetGrid(frame.e)
+                                : "Your target grid:\n" + board.renderTargetGrid());
+                    }
+                }
+                case Protocol.GRID, Protocol.CELLS -> {
+                    applyFullGrid(); // Full grid sent after a resync request
+                    int kind = frame.a;
+                    System.out.println(kind == Protocol.GRID_SELF ? "Your self grid:\n" + board.renderSelfGrid()
+                            : kind >= Protocol.GRID_OPPONENT ? "Your target grid against Player " + (kind - Protocol.GRID_OPPONENT) + ":\n"
+                                                               + board.renderTargetGrid(kind - Protocol.GRID_OPPONENT)
+                            : "Your target grid:\n" + board.renderTargetGrid());
+                }
+                case Protocol.PLAYER_OUT -> {
+                    announcePlayerOut();
+                    if (frame.a == playerNumber) return; // The server disconnects us next
+                }
+                case Protocol.ERROR -> {
+                    if (frame.a == Protocol.ERROR_RESYNC_REFUSED) {
+                        resyncRequested = false; // Our grids are already current
+                    } else {
+                        System.out.println("Server: Invalid input. Skipping your turn.");
+                    }
+                }
+                case Protocol.GAME_OVER -> {
+                    // The server signals game over; display the final message and exit loop
+                    announceGameOver();
+                    return;
+                }
+                default -> System.out.println("Unexpected server message (type " + frame.type + ")");
+            }
+        }
+    }
+
+    // Shows the GAME_OVER frame in `frame`; a player who times out or leaves is disconnected instead
+    private void announceGameOver() {
+        String opponent = (players > 2) ? "Your last opponent" : "Your opponent";
+        if (frame.a != playerNumber) {
+            System.out.println("Game Over!\nYou have lost all ships! You Lose...");
+        } else if (frame.b == Protocol.OVER_TIMED_OUT) {
+            System.out.println("Game Over!\n" + opponent + " ran out of time. You Win!");
+        } else if (frame.b == Protocol.OVER_LEFT) {
+            System.out.println("Game Over!\n" + opponent + " left the game. You Win!");
+        } else {
+            System.out.println("Game Over!\nYou have taken down all opponent ships! You Win!");
+        }
+    }
+
+    // Free-for-all: shows the PLAYER_OUT frame in `frame`, for us or for an opponent
+    private void announcePlayerOut() {
+        String reason = switch (frame.b) {
+            case Protocol.OVER_TIMED_OUT -> " ran out of time";
+            case Protocol.OVER_LEFT -> " left the game";
+            default -> frame.a == playerNumber ? " have lost all ships" : " has lost all ships";
+        };
+        if (frame.a == playerNumber) {
+            System.out.println("Game Over!\nYou" + reason + ". You are out...");
+        } else {
+            System.out.println("Server: Player " + frame.a + reason + " and is out.");
+        }
+    }
+
+    // Follows a match as a spectator: a snapshot of both boards first, then every move as it happens
+    private void watchGame() throws IOException {
+        Protocol.writeHello(outBuffer, Protocol.HELLO_SPECTATE);
+        Protocol.writeWatch(outBuffer, watchMatch);
+        sendFrame();
+        readFrame();
+        if (frame.type == Protocol.ERROR) {
+            System.err.println(frame.a == Protocol.ERROR_NO_SUCH_MATCH ? "Error: No such match is being played."
+                                                                       : "Error: The server does not support this client's protocol version.");
+            return;
+        }
+        System.out.println("Watching " + (watchMatch == 0 ? "the newest match" : "match " + watchMatch) + ".");
+        readRules();
+
+        try {
+            while (true) {
+                readFrame();
+                switch (frame.type) {
+                    case Protocol.GRID, Protocol.CELLS -> {
+                        applyFullGrid();  // Snapshots send player 1's board, then player 2's
+                        if (frame.a == Protocol.GRID_PLAYER2) {
+                            System.out.println(board.renderPlayerBoard(1) + "\n" + board.renderPlayerBoard(2));
+                        }
+                    }
+                    case Protocol.SHIP_PLACED -> {
+                        if (!board.applyShipPlaced(frame.a, frame.b, frame.c, frame.d, frame.e, frame.seq)) warnOutOfSync();
+                        System.out.println("Player " + frame.a + " placed a " + Protocol.shipName(frame.b) + ".");
+                    }
+                    case Protocol.GAME_START -> System.out.println("Both fleets are placed. The game starts now!\n"
+                            + board.renderPlayerBoard(1) + "\n" + board.renderPlayerBoard(2));
+                    case Protocol.TURN -> System.out.println("Player " + frame.a + " to attack...");
+                    case Protocol.ATTACK_RESULT -> {
+                        if (!board.applyBoardAttack(frame.a, frame.b, frame.c, frame.d, frame.seq)) warnOutOfSync();
+                        String outcome = switch (frame.b) {
+                            case Protocol.RESULT_MISS -> "missed";
+                            case Protocol.RESULT_HIT -> "hit a ship";
+                            default -> "sank a ship";
+                        };
+                        System.out.println("Player " + frame.a + " attacked (" + frame.c + ", " + frame.d + ") and " + outcome + ".\n"
+                                + board.renderPlayerBoard(3 - frame.a));
+                    }
+                    case Protocol.GAME_OVER -> {
+                        String reason = switch (frame.b) {
+                            case Protocol.OVER_TIMED_OUT -> " Player " + (3 - frame.a) + " ran out of time.";
+                            case Protocol.OVER_LEFT -> " Player " + (3 - frame.a) + " left the game.";
+                            default -> "";
+                        };
+                        System.out.println("Game Over!\nPlayer " + frame.a + " wins!" + reason);
+                        return;
+                    }
+                    default -> System.out.println("Unexpected server message (type " + frame.type + ")");
+                }
+            }
+        } catch (EOFException e) {
+            System.out.println("The match has ended.");  // A player left before the game finished
+        }
+    }
+
+    // Reads the RULES frame that follows ROLE and sizes the local board for it
+    private void readRules() throws IOException {
+        readFrame();
+        if (frame.type != Protocol.RULES) throw new StreamCorruptedException("Expected the board rules, got type " + frame.type);
+        try {
+            rules = frame.rules();
+        } catch (IllegalArgumentException e) {
+            throw new StreamCorruptedException("Unplayable board rules: " + e.getMessage());
+        }
+        board = new ClientBoard(rules);
+        if (!rules.isStandard()) System.out.println("This server plays a " + rules.describe() + ".");
+    }
+
+    // Ships of each type not placed yet, e.g. " 2 carriers, 40 destroyers"
+    private String fleetLeft(int[] placedOfType) {
+        StringBuilder text = new StringBuilder();
+        for (int ship = 0; ship < BoardRules.SHIP_TYPES; ship++) {
+            int left = rules.getFleet(ship) - placedOfType[ship];
+            if (left > 0) text.append(text.length() > 0 ? ", " : " ").append(left).append(' ').append(Protocol.shipName(ship)).append(left > 1 ? "s" : "");
+        }
+        return text.toString();
+    }
+
+    // A full grid in `frame`: GRID on boards small enough, CELLS on larger ones
+    private void applyFullGrid() {
+        resyncRequested = false;
+        if (frame.type == Protocol.GRID) {
+            board.applyGrid(frame);
+        } else {
+            board.applyCells(frame);
+        }
+    }
+
+    // The server sends spectators every change or a fresh snapshot, so this should never happen
+    private void warnOutOfSync() {
+        System.out.println("Warning: missed an update; the boards shown may be incomplete.");
+    }
+
+    // Turns an attack result into the message shown to this player
+    private String describeAttack(Frame result) {
+        int row = result.c, col = result.d;
+        if (result.a == playerNumber) {
+            return switch (result.b) {
+                case Protocol.RESULT_MISS -> "Attack performed at (" + row + ", " + col + "). You missed!";
+                case Protocol.RESULT_HIT -> "Attack performed at (" + row + ", " + col + "). You have hit a ship!";
+                case Protocol.RESULT_SUNK -> "Attack performed at (" + row + ", " + col + "). You have taken down an enemy ship!";
+                case Protocol.RESULT_OUT_OF_BOUNDS -> "Error: Coordinates out of bounds.";
+                case Protocol.RESULT_ALREADY_ATTACKED -> "Error: Cannot attack this cell <Already attacked>";
+                case Protocol.RESULT_BAD_TARGET -> "Error: Player " + result.e + " is not an opponent still in the game.";
+                default -> "Unknown attack result " + result.b;
+            };
+        }
+        String attacker = (players > 2) ? "Player " + result.a : "Opponent";
+        return switch (result.b) {
+            case Protocol.RESULT_MISS -> attacker + " attacked your grid at (" + row + ", " + col + "). " + attacker + " missed!";
+            case Protocol.RESULT_HIT -> attacker + " attacked your grid at (" + row + ", " + col + "). " + attacker + " has hit your ship!";
+            case Protocol.RESULT_SUNK -> attacker + " attacked your grid at (" + row + ", " + col + "). Your ship has been taken down!";
+            default -> "Unknown attack result " + result.b;
+        };
+    }
+
+    // Asks the server for full grids after a missed update; they arrive as GRID or CELLS frames
+    private void requestResync() throws IOException {
+        if (resyncRequested) return; // The grids are on their way; later deltas are covered by them
+        resyncRequested = true;
+        System.out.println("Board out of sync, requesting a full update...");
+        Protocol.writeResync(outBuffer);
+        sendFrame();
+    }
+
+    // Writes the frame encoded in outBuffer and sends it immediately
+    private void sendFrame() throws IOException {
+        synchronized (out) {  // Heartbeats are written from their own thread
+            out.write(outBuffer.array(), 0, outBuffer.position());
+            out.flush();
+        }
+        outBuffer.clear();
+    }
+
+    // Sends HEARTBEAT every few seconds until the connection closes, so the server can tell a
+    // player who is thinking from one whose connection has died
+    private void startHeartbeats() {
+        Thread.ofVirtual().name("heartbeat").start(() -> {
+            ByteBuffer heartbeat = ByteBuffer.allocate(Protocol.HEADER_SIZE);
+            Protocol.writeHeartbeat(heartbeat);
+            try {
+                while (!socket.isClosed()) {
+                    Thread.sleep(Protocol.HEARTBEAT_INTERVAL_MILLIS);
+                    synchronized (out) {
+                        out.write(heartbeat.array(), 0, heartbeat.position());
+                        out.flush();
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // The connection is closed; the game is over
+            }
+        });
+    }
+
+    // Blocks until the next frame arrives and decodes it into `frame`
+    private void readFrame() throws IOException {
+        Protocol.readFrame(in, readScratch, frame);
+        if (frame.type == Protocol.ERROR && frame.a == Protocol.ERROR_TIMED_OUT) {
+            throw new EOFException("You ran out of time and forfeit the game.");  // The server disconnects us next
+        }
+    }
+
+    // Closes all connections and resources
+    private void closeConnections() {
+        try {
+            if (socket != null) socket.close();       // Close socket connection and its streams
+        } catch (IOException e) {
+            System.err.println("Error closing connections.");
+            e.printStackTrace(); // Print stack trace for debugging
+        }
+    }
+}
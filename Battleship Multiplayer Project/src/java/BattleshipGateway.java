@@ -0,0 +1,385 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Spreads matches over several BattleshipServer processes. Clients connect to the gateway as if it
+// were a server. It reads their HELLO, groups players for a match the way the server's lobby would,
+// gives the match an id and sends the whole group to the backend that owns that id on a
+// ConsistentHashRing. From then on the gateway only copies bytes between each client and its
+// backend, so the backends run the matches, their engines and their heaps as before.
+//
+// A group is handed over under the backend's handoff lock, and the lock is held until the backend
+// has answered every player with ROLE. The backend's lobby is empty again by then, so it seats
+// exactly the players the gateway grouped. Players who ask for a bot or for the leaderboard need
+// no group and go straight through. Spectators and resuming players are refused, and players are
+// not offered seat tokens: the gateway's match ids are not the backends' own.
+//
+// A health check asks every backend for its leaderboard each interval. A backend that answers
+// joins the ring; one that fails FAILURES_TO_LEAVE checks in a row, or refuses a handoff, leaves
+// it. Either way only the match ids on that backend's arcs of the ring move. Matches already on a
+// backend that leaves are lost with it, since their players could only resume them on that backend.
+public class BattleshipGateway {
+    private static final int GATEWAY_PORT = 12345;
+    private static final int ACCEPT_BACKLOG = 1024;  // Pending connections the OS may queue while we accept
+    private static final int CONNECT_TIMEOUT_MILLIS = 1_000;
+    private static final int HANDOFF_TIMEOUT_MILLIS = 10_000;  // For a backend to seat a group it was sent
+    private static final int HELLO_TIMEOUT_MILLIS = 10_000;  // For a client's HELLO to arrive
+    private static final int HEALTH_TIMEOUT_MILLIS = 1_000;
+    private static final int FAILURES_TO_LEAVE = 2;  // Failed health checks in a row before a backend leaves the ring
+    public static final long DEFAULT_HEALTH_INTERVAL_MILLIS = 1_000;
+    private static final String USAGE = "Usage: java -cp bin BattleshipGateway --backends=HOST:PORT,... [--port=12345] [--players=2] [--health-interval-ms=1000] [--log=info|error|off]";
+
+    // One backend server process
+    public static final class Backend {
+        private final String host;
+        private final int port;
+        private final ReentrantLock handoff = new ReentrantLock();  // Held while a group is seated; never held by two groups
+        private final AtomicInteger matchesRouted = new AtomicInteger();
+        private volatile boolean up = false;  // On the ring
+        private int failures = 0;  // Failed health checks in a row
+
+        Backend(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        public boolean isUp() {
+            return up;
+        }
+
+        public int getMatchesRouted() {
+            return matchesRouted.get();
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+
+    // A connected client and its HELLO frame, as sent
+    private static final class Client {
+        final Socket socket;
+        final byte[] hello;
+
+        Client(Socket socket, byte[] hello) {
+            this.socket = socket;
+            this.hello = hello;
+        }
+    }
+
+    private final int port;
+    private final int groupSize;  // Players per match; must match the backends' --players
+    private final List<Backend> backends;
+    private final ConsistentHashRing<Backend> ring = new ConsistentHashRing<>();
+    private long healthIntervalMillis = DEFAULT_HEALTH_INTERVAL_MILLIS;
+    private final List<Client> lobby = new ArrayList<>();  // Players waiting for a full group, in arrival order
+    private final AtomicInteger nextMatchId = new AtomicInteger(1);
+    private ServerSocket serverSocket;
+    private Thread healthThread;
+    private volatile boolean running;
+
+    public BattleshipGateway(int port, List<String> backendAddresses, int groupSize) {
+        this.port = port;
+        this.groupSize = groupSize;
+        this.backends = new ArrayList<>();
+        for (String address : backendAddresses) {
+            int colon = address.lastIndexOf(':');
+            if (colon <= 0) throw new IllegalArgumentException("Backend must be HOST:PORT: " + address);
+            backends.add(new Backend(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))));
+        }
+    }
+
+    public static void main(String[] args) {
+        int port = GATEWAY_PORT;
+        List<String> backends = List.of();
+        int players = 2;
+        long healthInterval = DEFAULT_HEALTH_INTERVAL_MILLIS;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--backends=")) {
+                backends = Arrays.asList(arg.substring("--backends=".length()).split(","));
+            } else if (arg.startsWith("--players=")) {
+                players = Integer.parseInt(arg.substring("--players=".length()));
+            } else if (arg.startsWith("--health-interval-ms=")) {
+                healthInterval = Long.parseLong(arg.substring("--health-interval-ms=".length()));
+            } else if (arg.startsWith("--log=")) {
+                Log.setLevel(Log.parseLevel(arg.substring("--log=".length())));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.err.println(USAGE);
+                return;
+            }
+        }
+        if (backends.isEmpty()) {
+            System.err.println("Name at least one backend with --backends");
+            System.err.println(USAGE);
+            return;
+        }
+        if (players < 2 || players > GameEngine.MAX_PLAYERS) {
+            System.err.println("--players must be between 2 and " + GameEngine.MAX_PLAYERS);
+            System.err.println(USAGE);
+            return;
+        }
+
+        BattleshipGateway gateway = new BattleshipGateway(port, backends, players);
+        gateway.setHealthInterval(healthInterval);
+        gateway.start();
+    }
+
+    // Checks the backends once, starts the health checks, then accepts clients until stop()
+    public void start() {
+        try {
+            running = true;
+            serverSocket = new ServerSocket(port, ACCEPT_BACKLOG);
+            checkHealth();
+            healthThread = Thread.ofPlatform().daemon().name("health-check").start(this::runHealthChecks);
+            Log.info("Gateway started on port " + port + " with " + ring.size() + " of " + backends.size() + " backends up. Waiting for players...");
+            while (running) {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("gateway-" + socket.getPort()).start(() -> onClientConnected(socket));
+            }
+        } catch (IOException e) {
+            if (running) e.printStackTrace();
+        } finally {
+            stop();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (healthThread != null) healthThread.interrupt();
+    }
+
+    // How often every backend is checked; set before start()
+    public void setHealthInterval(long millis) {
+        this.healthIntervalMillis = millis;
+    }
+
+    public List<Backend> getBackends() {
+        return backends;
+    }
+
+    // Backends on the ring, which new matches go to
+    public int getBackendsUp() {
+        return ring.size();
+    }
+
+    // The backend new matches with this id go to, or null if none is up
+    public Backend route(int matchId) {
+        return ring.get(matchId);
+    }
+
+    private void onClientConnected(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            // Unbuffered, so nothing the client sends after HELLO is read here instead of by its backend
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_CLIENT_FRAME_SIZE);
+            Frame hello = new Frame();
+            socket.setSoTimeout(HELLO_TIMEOUT_MILLIS);  // A client that never says HELLO does not keep its thread
+            Protocol.readFrame(in, scratch, hello);
+            socket.setSoTimeout(0);  // From here on its backend decides how long it may be silent
+            if (hello.type != Protocol.HELLO || hello.a != Protocol.VERSION) {
+                refuse(socket, Protocol.ERROR_VERSION_MISMATCH);
+                return;
+            }
+            if ((hello.b & Protocol.HELLO_SPECTATE) != 0) {
+                refuse(socket, Protocol.ERROR_NO_SUCH_MATCH);
+                return;
+            }
+            if ((hello.b & Protocol.HELLO_RESUME) != 0) {
+                refuse(socket, Protocol.ERROR_NO_SUCH_SEAT);
+                return;
+            }
+            Client client = new Client(socket, Arrays.copyOf(scratch.array(), scratch.limit()));
+            client.hello[Protocol.HEADER_SIZE + 1] &= (byte) ~Protocol.HELLO_SESSION;  // The flags byte, after the version
+            if ((hello.b & (Protocol.HELLO_VS_BOT | Protocol.HELLO_LEADERBOARD)) != 0) {
+                startMatch(new Client[]{client}, false);
+                return;
+            }
+            Client[] group = null;
+            synchronized (lobby) {
+                lobby.add(client);
+                if (lobby.size() >= groupSize) {
+                    List<Client> seated = lobby.subList(0, groupSize);
+                    group = seated.toArray(new Client[0]);
+                    seated.clear();
+                }
+            }
+            if (group != null) startMatch(group, true);
+        } catch (IOException e) {
+            Log.error("Error during handshake with " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+            closeQuietly(socket);
+        }
+    }
+
+    // Sends a group to the backend that owns its match id, trying the next owner if that backend
+    // fails before anyone is seated. Lobby groups wait for the backend to seat every player.
+    private void startMatch(Client[] group, boolean lobbyGroup) {
+        int matchId = nextMatchId.getAndIncrement();
+        for (int attempt = 0; attempt < backends.size(); attempt++) {
+            Backend backend = ring.get(matchId);
+            if (backend == null) break;
+            try {
+                handOff(backend, group, lobbyGroup);
+                backend.matchesRouted.incrementAndGet();
+                if (Log.isInfoEnabled()) Log.info("[Gateway] Match " + matchId + ": " + group.length + (group.length == 1 ? " player" : " players") + " to " + backend);
+                return;
+            } catch (IOException e) {
+                leave(backend, "handoff failed: " + e.getMessage());
+            }
+        }
+        Log.error("[Gateway] Match " + matchId + ": no backend is up; dropping " + group.length + (group.length == 1 ? " player" : " players"));
+        for (Client client : group) closeQuietly(client.socket);
+    }
+
+    // Opens a backend connection per player and replays their HELLO. For a lobby group, holds the
+    // backend's handoff lock until every player has their first frame (ROLE), which is then passed
+    // on. Nothing reaches the clients until every player is seated, so a failure can be retried.
+    private void handOff(Backend backend, Client[] group, boolean lobbyGroup) throws IOException {
+        Socket[] links = new Socket[group.length];
+        byte[][] first = new byte[group.length][];
+        boolean seated = false;
+        if (lobbyGroup) backend.handoff.lock();
+        try {
+            for (int i = 0; i < group.length; i++) {
+                links[i] = connect(backend, CONNECT_TIMEOUT_MILLIS);
+                links[i].getOutputStream().write(group[i].hello);
+            }
+            if (lobbyGroup) {
+                ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+                Frame frame = new Frame();
+                for (int i = 0; i < group.length; i++) {
+                    links[i].setSoTimeout(HANDOFF_TIMEOUT_MILLIS);
+                    Protocol.readFrame(new DataInputStream(links[i].getInputStream()), scratch, frame);
+                    links[i].setSoTimeout(0);
+                    first[i] = Arrays.copyOf(scratch.array(), scratch.limit());
+                }
+            }
+            seated = true;
+        } finally {
+            if (lobbyGroup) backend.handoff.unlock();
+            if (!seated) {
+                for (Socket link : links) {
+                    if (link != null) closeQuietly(link);
+                }
+            }
+        }
+        for (int i = 0; i < group.length; i++) {
+            try {
+                if (first[i] != null) group[i].socket.getOutputStream().write(first[i]);
+            } catch (IOException e) {
+                // The client is gone; closing its link tells the backend, which handles it like any leaver
+            }
+            pipe(group[i].socket, links[i]);
+        }
+    }
+
+    // Copies bytes both ways until either side closes, then closes both
+    private static void pipe(Socket client, Socket link) {
+        Thread.ofVirtual().name("gateway-up").start(() -> copy(client, link));
+        Thread.ofVirtual().name("gateway-down").start(() -> copy(link, client));
+    }
+
+    private static void copy(Socket from, Socket to) {
+        try {
+            from.getInputStream().transferTo(to.getOutputStream());
+        } catch (IOException e) {
+            // One side closed or failed; both are closed below
+        }
+        closeQuietly(from);
+        closeQuietly(to);
+    }
+
+    private void runHealthChecks() {
+        try {
+            while (running) {
+                Thread.sleep(healthIntervalMillis);
+                checkHealth();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // Gateway is shutting down
+        }
+    }
+
+    // Probes every backend; the ring changes only when one joins or leaves
+    private void checkHealth() {
+        for (Backend backend : backends) {
+            boolean healthy = probe(backend);
+            synchronized (this) {
+                if (healthy) {
+                    backend.failures = 0;
+                    if (!backend.up) {
+                        backend.up = true;
+                        ring.add(backend, backend.toString());
+                        Log.info("[Gateway] Backend " + backend + " joined. Backends up: " + ring.size());
+                    }
+                } else if (++backend.failures >= FAILURES_TO_LEAVE) {
+                    leave(backend, "failed " + backend.failures + " health checks");
+                }
+            }
+        }
+    }
+
+    // Takes a backend off the ring; its match ids go to the next backends along
+    private synchronized void leave(Backend backend, String reason) {
+        if (!backend.up) return;
+        backend.up = false;
+        ring.remove(backend);
+        Log.error("[Gateway] Backend " + backend + " left (" + reason + "). Backends up: " + ring.size());
+    }
+
+    // A backend is healthy if it answers a leaderboard request, a full handshake that seats nobody
+    private static boolean probe(Backend backend) {
+        try (Socket socket = connect(backend, HEALTH_TIMEOUT_MILLIS)) {
+            socket.setSoTimeout(HEALTH_TIMEOUT_MILLIS);
+            ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+            Protocol.writeHello(out, Protocol.HELLO_LEADERBOARD);
+            socket.getOutputStream().write(out.array(), 0, out.position());
+            Frame frame = new Frame();
+            Protocol.readFrame(new DataInputStream(new BufferedInputStream(socket.getInputStream())), ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE), frame);
+            return frame.type == Protocol.TEXT;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Socket connect(Backend backend, int timeoutMillis) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(backend.host, backend.port), timeoutMillis);
+            return socket;
+        } catch (IOException e) {
+            closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    private static void refuse(Socket socket, int error) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+        Protocol.writeError(out, error);
+        socket.getOutputStream().write(out.array(), 0, out.position());
+        closeQuietly(socket);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Nothing else to release
+        }
+    }
+}
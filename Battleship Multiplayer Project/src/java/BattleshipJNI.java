@@ -1,50 +1,142 @@
-public class BattleshipJNI {
-    // Load the shared library
-    static {
-        try {
-            // Get the absolute path of the DLL file in the bin folder
-            String libraryPath = System.getProperty("user.dir") + "/bin/BattleshipGame.dll";
-            System.load(libraryPath); // Load the DLL directly
-        } catch (UnsatisfiedLinkError e) {
-            System.err.println("Failed to load BattleshipGame.dll");
-            e.printStackTrace();
-        } catch (SecurityException e) {
-            System.err.println("Permission denied while loading BattleshipGame.dll");
-            e.printStackTrace();
-        }
-    }     
-
-    // Declare native methods for Player functionality
-    public native int PlaceShip(String type, int[] coords, int orientation);
-    public native String Attack(int[] coord, BattleshipJNI other);
-    public native boolean HasLost();
-
-    // Declare native methods for GRID functionality
-    public native String printSelfGrid();
-    public native String printTargetGrid();
-    public native String printGridsSideBySide();
-
-    // Native method to initialize the player
-    private native long initializePlayer();
-
-    // A field that stores the native Player object (this will hold a pointer to the C++ Player object)
-    private long player;
-
-    // Constructor to initialize the player on the C++ side
-    public BattleshipJNI() {
-        this.player = initializePlayer();
-    }
-
-    // Getter for the native Player object
-    public long getPlayer() {
-        return this.player;
-    }
-}
-
-
-
-
-
-
-
-
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+
+public final class BattleshipJNI implements BattleshipPlayer {
+    // Frees native players that were never closed once they become unreachable
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    // Load the shared library
+    static {
+        try {
+            // Get the absolute path of the DLL file in the bin folder
+            String libraryPath = System.getProperty("user.dir") + "/bin/BattleshipGame.dll";
+            System.load(libraryPath); // Load the DLL directly
+        } catch (UnsatisfiedLinkError e) {
+            System.err.println("Failed to load BattleshipGame.dll");
+            e.printStackTrace();
+        } catch (SecurityException e) {
+            System.err.println("Permission denied while loading BattleshipGame.dll");
+            e.printStackTrace();
+        }
+    }     
+
+    // Declare native methods for Player functionality
+    public native int PlaceShip(String type, int[] coords, int orientation);
+    private native int attackCell(int row, int col, BattleshipJNI other);
+    public native boolean HasLost();
+
+    // Bulk entry points: a whole fleet, or a batch of attacks across many pairs, per JNI call
+    private native int placeFleetNative(ByteBuffer ships, int count);
+    static native void attackBatch(ByteBuffer requests, ByteBuffer results, int count);
+
+    // One JNI call for the whole fleet; `ships` must be a direct buffer
+    @Override
+    public int placeFleet(ByteBuffer ships, int count) {
+        if (!ships.isDirect()) return BattleshipPlayer.super.placeFleet(ships, count);
+        return placeFleetNative(ships, count);
+    }
+
+    // The native side reads the opponent's Player pointer, so the opponent must be native too
+    @Override
+    public int attack(int row, int col, BattleshipPlayer other) {
+        return attackCell(row, col, (BattleshipJNI) other);
+    }
+
+    // Declare native methods for GRID functionality
+    public native String printSelfGrid();
+    public native String printTargetGrid();
+    public native String printGridsSideBySide();
+
+    // Copy raw cell states (row-major, GRID_SIZE * GRID_SIZE bytes) into a caller-owned array
+    public native void copySelfGrid(byte[] cells);
+    public native void copyTargetGrid(byte[] cells);
+
+    // Player snapshots (see PlayerSnapshot), encoded and decoded on the native side in one call each
+    private native int exportStateNative(byte[] out);
+    private native boolean importStateNative(byte[] snapshot, int length);
+
+    @Override
+    public int exportState(byte[] out) {
+        if (out.length < PlayerSnapshot.MAX_SIZE) throw new IllegalArgumentException("Snapshot buffer too small: " + out.length);
+        return exportStateNative(out);
+    }
+
+    @Override
+    public boolean importState(byte[] snapshot, int length) {
+        if (length < 0 || length > snapshot.length) return false;
+        return importStateNative(snapshot, length);
+    }
+
+    // Native method to initialize the player
+    private native long initializePlayer();
+
+    // Native methods for the player's lifecycle
+    private native void resetPlayer();
+    private static native void cleanupPlayer(long player);
+    public static native long livePlayerCount();  // Native Player objects currently allocated
+
+    // A field that stores the native Player object (this will hold a pointer to the C++ Player object)
+    private long player;
+
+    private final Cleaner.Cleanable cleanable;  // Deletes the native Player exactly once
+    private final NativePlayerPool pool;  // Pool this player goes back to on close(), or null
+    boolean idle;  // True while the player sits in its pool; guarded by the pool
+
+    // Constructor to initialize the player on the C++ side
+    public BattleshipJNI() {
+        this(null);
+    }
+
+    BattleshipJNI(NativePlayerPool pool) {
+        this.player = initializePlayer();
+        this.pool = pool;
+        this.cleanable = CLEANER.register(this, new Release(player));
+    }
+
+    // Returns the player to its pool, or deletes the native Player if it has no pool or the pool is full
+    @Override
+    public void close() {
+        if (player == 0) return;
+        if (pool != null && pool.release(this)) return;
+        cleanable.clean();
+        player = 0;
+    }
+
+    // Clears ships and grids so a pooled player can start a new match
+    void reset() {
+        resetPlayer();
+    }
+
+    // The native Player pointer, for AttackBatch requests
+    long pointer() {
+        if (player == 0) throw new IllegalStateException("Native player has been closed");
+        return player;
+    }
+
+    // Cleanup action; holds only the pointer so it never keeps the BattleshipJNI object reachable
+    private static class Release implements Runnable {
+        private final long player;
+
+        Release(long player) {
+            this.player = player;
+        }
+
+        @Override
+        public void run() {
+            cleanupPlayer(player);
+        }
+    }
+
+    // Getter for the native Player object
+    public long getPlayer() {
+        return this.player;
+    }
+}
+
+
+
+
+
+
+
+
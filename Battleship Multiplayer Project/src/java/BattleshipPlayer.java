@@ -0,0 +1,98 @@
+import java.nio.ByteBuffer;
+
+// One player's fleet and grids. BattleshipJNI keeps the state in the native C++ Player;
+// BitboardPlayer keeps it in Java. Both return the same values and results, so the server can
+// run on either (see --engine in BattleshipServer). Both play the standard 10x10 board; boards of
+// any other size or fleet are played on SparsePlayer.
+public interface BattleshipPlayer extends AutoCloseable {
+    int GRID_SIZE = 10;  // Matches GRID_SIZE in GameLogic.h
+    int FLEET_RECORD_SIZE = 4;  // Ship code, row, column, orientation; matches BattleshipJNI.cpp
+
+    // Places a ship; returns 1 on success and -1 if it is out of bounds, overlapping or badly oriented
+    int PlaceShip(String type, int[] coords, int orientation);
+
+    // Places `count` ships given as FLEET_RECORD_SIZE-byte records from the start of `ships`
+    // (absolute reads; position and limit are ignored). Returns a mask with bit i set for each
+    // ship that was placed. The native engine does this in one JNI call.
+    default int placeFleet(ByteBuffer ships, int count) {
+        int placed = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = i * FLEET_RECORD_SIZE;
+            String type = Protocol.shipName(ships.get(offset));
+            if (type == null) continue;
+            int[] coords = {ships.get(offset + 1), ships.get(offset + 2)};
+            if (PlaceShip(type, coords, ships.get(offset + 3)) == 1) placed |= 1 << i;
+        }
+        return placed;
+    }
+
+    // Attacks the opponent's cell and returns the outcome packed as in AttackResult.
+    // Both players of a match must come from the same backend.
+    int attack(int row, int col, BattleshipPlayer other);
+
+    // Attacks and returns the native result text, e.g. "Hit!"; kept for callers of the String API
+    default String Attack(int[] coord, BattleshipPlayer other) {
+        return AttackResult.text(attack(coord[0], coord[1], other));
+    }
+
+    boolean HasLost();
+
+    // Grid text in the format of GRID::printGrid
+    String printSelfGrid();
+    String printTargetGrid();
+    String printGridsSideBySide();
+
+    // Copy raw cell states (row-major, one byte per cell of the board: GRID_SIZE * GRID_SIZE on the
+    // standard board) into a caller-owned array
+    void copySelfGrid(byte[] cells);
+    void copyTargetGrid(byte[] cells);
+
+    // Put the cells that are not empty into `cells`, keyed by row * columns + col, for boards too
+    // large to copy whole. The standard engines go through a dense copy; SparsePlayer copies its maps.
+    default void copySelfCells(CellMap cells) {
+        byte[] grid = new byte[GRID_SIZE * GRID_SIZE];
+        copySelfGrid(grid);
+        putCells(grid, cells);
+    }
+
+    default void copyTargetCells(CellMap cells) {
+        byte[] grid = new byte[GRID_SIZE * GRID_SIZE];
+        copyTargetGrid(grid);
+        putCells(grid, cells);
+    }
+
+    // Writes the player's whole state as a PlayerSnapshot at the start of `out`, which needs room
+    // for PlayerSnapshot.MAX_SIZE bytes, and returns its length. Both backends write the same bytes
+    // for the same state, so a snapshot from one loads into the other. Snapshots only describe the
+    // standard board; SparsePlayer returns -1.
+    int exportState(byte[] out);
+
+    // Replaces the player's state with the first `length` bytes of `snapshot`. Returns false and
+    // leaves the player as it was if the snapshot is malformed (see PlayerSnapshot.isValid).
+    boolean importState(byte[] snapshot, int length);
+
+    // Releases the player once its match is over; the Java engine holds nothing to release
+    @Override
+    default void close() {
+    }
+
+    private static void putCells(byte[] grid, CellMap cells) {
+        for (int cell = 0; cell < grid.length; cell++) {
+            if (grid[cell] != 0) cells.put(cell, grid[cell]);
+        }
+    }
+
+    // Maps an Attack result text to its Protocol RESULT_* code, or -1 if the text is not a result.
+    // Only needed with the String API; attack() already returns the code.
+    static int resultCode(String result) {
+        switch (result) {
+            case "Miss!": return Protocol.RESULT_MISS;
+            case "Hit!": return Protocol.RESULT_HIT;
+            case "Enemy ship has been taken down!": return Protocol.RESULT_SUNK;
+            case "Error: Coordinates out of bounds.":
+            case "Error: Attack coordinates out of bounds.": return Protocol.RESULT_OUT_OF_BOUNDS;
+            case "Error: Cannot attack this cell <Already attacked>": return Protocol.RESULT_ALREADY_ATTACKED;
+            default: return -1;
+        }
+    }
+}
@@ -1,316 +1,572 @@
-import java.io.*;
-import java.net.*;
-
-public class BattleshipServer {
-    private static final int SERVER_PORT = 12345;  // Port number for the server
-    private ServerSocket serverSocket;  // ServerSocket to listen for connections
-    private Socket player1Socket, player2Socket;  // Sockets for Player 1 and Player 2
-    private ObjectOutputStream player1Out, player2Out;  // Output streams for sending data to players
-    private ObjectInputStream player1In, player2In;  // Input streams for receiving data from players
-
-    private BattleshipJNI player1, player2;  // BattleshipJNI objects representing the game state for each player
-    private GameEngine gameEngine;  // Game engine to manage game logic
-
-    public static void main(String[] args) {
-        // Start the server by creating an instance and calling startServer()
-        new BattleshipServer().startServer();
-    }
-
-    public void startServer() {
-        try {
-            // Initialize the server socket
-            serverSocket = new ServerSocket(SERVER_PORT);
-            System.out.println("Server started. Waiting for players...");
-
-            // Accept connections from players
-            acceptPlayers();
-
-            // Handle the ship placement phase
-            handleShipPlacement();
-
-            // Start the gameplay phase
-            startGame();
-
-        } catch (IOException | ClassNotFoundException e) {
-            // Handle exceptions during server operations
-            e.printStackTrace();
-        } finally {
-            // Ensure all resources are properly closed
-            closeConnections();
-        }
-    }
-
-    private void acceptPlayers() throws IOException {
-        // Accept Player 1 connection
-        player1Socket = serverSocket.accept();
-        player1Out = new ObjectOutputStream(player1Socket.getOutputStream());
-        player1In = new ObjectInputStream(player1Socket.getInputStream());
-        player1Out.writeObject("You are Player 1.");  // Inform Player 1 of their role
-        player1Out.flush();
-        System.out.println("Player 1 connected.");
-
-        // Accept Player 2 connection
-        player2Socket = serverSocket.accept();
-        player2Out = new ObjectOutputStream(player2Socket.getOutputStream());
-        player2In = new ObjectInputStream(player2Socket.getInputStream());
-        player2Out.writeObject("You are Player 2.");  // Inform Player 2 of their role
-        player2Out.flush();
-        System.out.println("Player 2 connected.");
-
-        // Initialize game state for both players and the game engine
-        player1 = new BattleshipJNI();
-        player2 = new BattleshipJNI();
-        gameEngine = new GameEngine(player1, player2);
-    }
-
-    private void handleShipPlacement() throws IOException {
-        // Notify both players to begin ship placement
-        String welcomeMessage = """
-============================================================
-   ____        _   _   _           _     _       
-  |  _ \\     | | | | | |         | |   (_)      
-  | |_) | __ _| |_| |_| | ___  ___| |__  _ _ __  
-  |  _ < / _` | __| __| |/ _ \\/ __| '_ \\| | '_ \\ 
-  | |_) | (_| | |_| |_| |  __/\\__ \\ | | | | |_) |
-  |____/ \\__,_|\\__|\\__|_|\\___||___/_| |_|_| .__/ 
-                                          | |    
-  B A T T L E S H I P   M U L T I P L A Y E R   |___|    
-============================================================
-
-            Welcome to Battleship Multiplayer!
-Engage in a thrilling game of strategy and naval combat! 
-Prepare to outwit your opponent and sink their fleet.
-
-------------------------------------------------------------
-                       INSTRUCTIONS
-------------------------------------------------------------
-1) **Each Player Has 2 Grids**:
-   - **Self Grid**: Displays your ships and their positions.
-   - **Target Grid**: Tracks your attacks on the opponent's ships.
-
-2) **Ships**:
-   - Players place 5 ships on the self grid.
-   - Ship Types:
-     - `carrier`
-     - `battleship`
-     - `cruiser`
-     - `submarine`
-     - `destroyer`
-
-3) **Grid Cell States**:
-   Each cell in the grid represents the following:
-   - `unoccupied = 0`: Empty cell.
-   - `occupied = 1`: Cell contains part of a ship.
-   - `missed = 2`: Attack missed (no ship in cell).
-   - `hit = 3`: Attack hit a ship.
-
-4) **Gameplay**:
-   - Players take turns attacking cells on the target grid.
-   - If all cells of a ship are hit, it sinks.
-
-5) **Win Condition**:
-   - The first player to lose all ships **loses** the game.
-
-6) **Good Luck**:
-   - Strategize, attack wisely, and may the best captain win!
-
-============================================================
-""";
-
-        sendToBoth(welcomeMessage + "\n");
-
-        // Threads for simultaneous ship placement by both players
-        Thread player1PlacementThread = new Thread(() -> {
-            try {
-                placeShips(player1In, player1Out, player1, 5, 1);  // Player 1 places 5 ships
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error during Player 1 ship placement: " + e.getMessage());
-            }
-        });
-
-        Thread player2PlacementThread = new Thread(() -> {
-            try {
-                placeShips(player2In, player2Out, player2, 5, 2);  // Player 2 places 5 ships
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error during Player 2 ship placement: " + e.getMessage());
-            }
-        });
-
-        // Start ship placement threads
-        player1PlacementThread.start();
-        player2PlacementThread.start();
-
-        // Wait for both players to finish placing ships
-        try {
-            player1PlacementThread.join();
-            player2PlacementThread.join();
-        } catch (InterruptedException e) {
-            System.err.println("Error waiting for ship placement threads to finish: " + e.getMessage());
-        }
-
-        // Notify both players that ship placement is complete
-        sendToBoth("Ships placed successfully. Game starts now!");
-    }
-
-    private void placeShips(ObjectInputStream in, ObjectOutputStream out, BattleshipJNI player, int shipCount, int playerNumber)
-            throws IOException, ClassNotFoundException {
-        int shipsPlaced = 0;  // Counter for placed ships
-
-        // Loop until the required number of ships is placed
-        while (shipsPlaced < shipCount) {
-            String command = (String) in.readObject();  // Read the command from the player
-
-            if (command == null || command.trim().isEmpty()) {
-                out.writeObject("Invalid input. Try again.");  // Handle invalid input
-                out.flush();
-                continue;
-            }
-
-            String[] parts = command.split(" ");  // Parse the command
-            if (parts.length != 4) {
-                out.writeObject("Invalid format. Provide: type startX startY orientation.");  // Enforce input format
-                out.flush();
-                continue;
-            }
-
-            try {
-                // Extract ship details from input
-                String type = parts[0];
-                int x = Integer.parseInt(parts[1]);
-                int y = Integer.parseInt(parts[2]);
-                int orientation = Integer.parseInt(parts[3]);
-                String strOrientation = (orientation == 0) ? "Horizontal" : "Vertical";
-
-                // Attempt to place the ship using the BattleshipJNI API
-                int result = player.PlaceShip(type, new int[]{x, y}, orientation);
-
-                if (result == -1) {
-                    out.writeObject("Invalid placement. Try again.");  // Invalid placement
-                } else {
-                    shipsPlaced++;  // Increment the counter for successful placement
-                    System.out.println("Player " + playerNumber + " Placed Ship: " + type + ", Starting at: " + "[" + x + "," + y + "]" + ", With Orientation: " + strOrientation);
-                    out.writeObject("Ship placed successfully. Your updated self grid:\n" + player.printSelfGrid());  // Show the updated grid
-                }
-            } catch (NumberFormatException e) {
-                out.writeObject("Invalid coordinates or orientation. Please try again.");  // Handle invalid numerical input
-            }
-            out.flush();
-        }
-    }
-
-    private void startGame() throws IOException, ClassNotFoundException {
-        // Randomly choose the first attacker
-        gameEngine.chooseFirstAttacker();
-        int currentPlayer = gameEngine.getCurrentPlayer();  // Determine the starting player
-
-        // Main game loop
-        while (!player1.HasLost() && !player2.HasLost()) {
-            if (currentPlayer == 1) {
-                handlePlayerTurn(currentPlayer, player1, player2);  // Handle Player 1's turn
-            } else {
-                handlePlayerTurn(currentPlayer, player2, player1);  // Handle Player 2's turn
-            }
-            gameEngine.nextTurn();  // Switch to the next player's turn
-            currentPlayer = gameEngine.getCurrentPlayer();  // Update the current player
-        }
-
-        // Notify both players that the game is over
-        if(player1.HasLost()){
-            player2Out.writeObject("Game Over!\nYou have taken down all opponent ships! You Win!");
-            player1Out.writeObject("Game Over!\nYou have lost all ships! You Lose...");
-            player2Out.flush();
-            player1Out.flush();
-        }
-        else{
-            player1Out.writeObject("Game over!\nYou have taken down all opponent ships! You Win!");
-            player2Out.writeObject("Game Over!\nYou have lost all ships! You Lose...");
-            player1Out.flush();
-            player2Out.flush();
-        }
-    }
-
-    private boolean handlePlayerTurn(int playerNumber, BattleshipJNI currentPlayer, BattleshipJNI opponentPlayer)
-            throws IOException, ClassNotFoundException {
-        // Determine the input/output streams for the current player and opponent
-        ObjectOutputStream playerOut = (playerNumber == 1) ? player1Out : player2Out;
-        ObjectInputStream playerIn = (playerNumber == 1) ? player1In : player2In;
-        ObjectOutputStream opponentOut = (playerNumber == 1) ? player2Out : player1Out;
-
-        // Prompt the current player to attack
-        playerOut.writeObject("Your turn to attack! Enter attack coordinates (row column):");
-        playerOut.flush();
-
-        // Notify the opponent that they are waiting
-        opponentOut.writeObject("Waiting for Player " + playerNumber + " to attack...");
-        opponentOut.flush();
-
-        String attackMessage = (String) playerIn.readObject();  // Read the attack command
-
-        if (attackMessage == null || !attackMessage.matches("\\d+ \\d+")) {
-            playerOut.writeObject("Invalid input. Skipping your turn.");  // Handle invalid input
-            playerOut.flush();
-            return true;  // Skip the turn and continue
-        }
-
-        // Parse attack coordinates
-        String[] coords = attackMessage.split(" ");
-        int x = Integer.parseInt(coords[0]);
-        int y = Integer.parseInt(coords[1]);
-
-        System.out.println("Player " + playerNumber + " attacking (" + x + ", " + y + ")");
-
-        // Perform the attack and process the result
-        String result = currentPlayer.Attack(new int[]{x, y}, opponentPlayer);
-
-        if (result.equals("Error: Coordinates out of bounds.")) {
-            playerOut.writeObject("Error: Coordinates out of bounds.");
-        }
-        else if (result.equals("Error: Cannot attack this cell <Already attacked>")) {
-            playerOut.writeObject("Error: Cannot attack this cell <Already attacked>");
-        }
-        else {
-            sendToBoth("Attack performed at (" + x + ", " + y + ").");
-            opponentOut.writeObject("Opponent attacked your grid at (" + x + ", " + y + ")." + opponentPlayer.printSelfGrid());
-
-            if (result.equals("Miss!")) {
-                opponentOut.writeObject("Opponent missed! Your self grid: \n" + opponentPlayer.printSelfGrid());
-                playerOut.writeObject("You missed! Your target grid: \n" + currentPlayer.printTargetGrid());
-
-            } else if (result.equals("Hit!")) {
-                opponentOut.writeObject("Opponent has hit your ship! Your self grid: \n" + opponentPlayer.printSelfGrid());
-                playerOut.writeObject("You have hit a ship! Your target grid: \n" + currentPlayer.printTargetGrid());
-
-            } else if (result.equals("Enemy ship has been taken down!")) {
-                opponentOut.writeObject("Your ship has been taken down!");
-                playerOut.writeObject("You have taken down an enemy ship!");
-            }
-        }
-        playerOut.flush();
-        opponentOut.flush();
-        return true;
-    }
-
-    private void sendToBoth(String message) throws IOException {
-        // Send a message to both players
-        player1Out.writeObject(message);
-        player2Out.writeObject(message);
-        player1Out.flush();
-        player2Out.flush();
-    }
-
-    private void closeConnections() {
-        // Close all connections and resources
-        try {
-            if (player1Out != null) player1Out.close();
-            if (player2Out != null) player2Out.close();
-            if (player1In != null) player1In.close();
-            if (player2In != null) player2In.close();
-            if (player1Socket != null) player1Socket.close();
-            if (player2Socket != null) player2Socket.close();
-            if (serverSocket != null) serverSocket.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-}
-
+import java.io.*;
+import java.net.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class BattleshipServer {
+    private static final int SERVER_PORT = 12345;  // Default port number for the server
+    private static final int ACCEPT_BACKLOG = 1024;  // Pending connections the OS may queue while we accept
+    private static final int LEADERBOARD_SIZE = 10;  // Players listed for a HELLO_LEADERBOARD
+    public static final long DEFAULT_HANDSHAKE_MILLIS = 10_000;  // For HELLO, and a spectator's WATCH, to arrive
+    private static final String USAGE = "Usage: java -cp bin BattleshipServer [--port=12345] [--transport=blocking|nio] [--event-loops=N] [--match-workers=N] [--engine=jni|java] [--player-pool=256] [--bot=density|random] [--journal=DIR] [--journal-sync-ms=10] [--log=info|error|off] [--metrics-interval=60] [--placement-timeout=120] [--turn-timeout=30] [--heartbeat-timeout=15] [--handshake-timeout=10] [--reconnect-timeout=60] [--board=ROWSxCOLS] [--fleet=standard|TYPE:COUNT,...] [--players=2] [--ratings=FILE]";
+
+    private final int port;  // Port this server listens on
+    private final boolean useNio;  // Selector-based transport instead of one blocking socket per player
+    private final int eventLoopCount;  // Event-loop threads used by the NIO transport
+    private int matchWorkerCount;  // Threads running every match's commands; 0 means one per core
+    private ActorScheduler scheduler;  // Runs the matches; created by startServer()
+    private final Supplier<? extends BattleshipPlayer> playerFactory;  // Game backend for new matches
+    private BoardRules rules = BoardRules.STANDARD;  // Board size and fleet of every match
+    private Supplier<? extends BattleshipPlayer> matchPlayers;  // playerFactory, or SparsePlayers for other rules
+    private Function<SplittableRandom, Bot> botFactory = DensityBot::new;  // Strategy for players who ask for a bot
+    private MatchJournal journal;  // Records every match's moves, or null when journaling is off
+    private final List<MatchReplayer.ReplayedMatch> recovered = new ArrayList<>();  // Cut off by the last run; resumed by startServer()
+    private Ratings ratings;  // Elo ratings of named players, or null when ratings are off
+    private final ServerMetrics metrics = new ServerMetrics();  // Latencies, traffic and gauges, also over JMX
+    private long placementTimeoutMillis = MatchTimeouts.DEFAULT_PLACEMENT_MILLIS;  // 0 waits forever
+    private long turnTimeoutMillis = MatchTimeouts.DEFAULT_TURN_MILLIS;
+    private long heartbeatTimeoutMillis = MatchTimeouts.DEFAULT_HEARTBEAT_MILLIS;
+    private long handshakeTimeoutMillis = DEFAULT_HANDSHAKE_MILLIS;  // 0 waits forever
+    private long reconnectTimeoutMillis = MatchTimeouts.DEFAULT_RECONNECT_MILLIS;  // 0 never holds a seat
+    private TimingWheel timingWheel;  // Every match deadline, on one thread; created by startServer()
+    private MatchTimeouts timeouts;
+    private ServerSocket serverSocket;  // ServerSocket to listen for connections (blocking transport)
+    private NioTransport nioTransport;  // Selector-based transport (NIO transport)
+    private volatile boolean running;  // Cleared by stopServer() to end the accept loop
+
+    // Pairs connected players and hands each pair to startMatch(), or groups them for startFreeForAll()
+    private int playersPerMatch = 2;
+    private MatchmakingQueue matchmakingQueue = new MatchmakingQueue(this::startMatch);
+    private Thread matchmakerThread;
+
+    private final AtomicInteger nextMatchId = new AtomicInteger(1);  // Source of match identifiers
+    private final AtomicInteger activeMatches = new AtomicInteger();  // Matches currently in progress
+    private final AtomicInteger connectedPlayers = new AtomicInteger();  // Player connections currently open
+    private final ConcurrentSkipListMap<Integer, Match> liveMatches = new ConcurrentSkipListMap<>();  // By id, for spectators
+    // Names players gave in their HELLO, until their match starts; weak, so players who leave the queue drop out
+    private final Map<PlayerConnection, String> playerNames = Collections.synchronizedMap(new WeakHashMap<>());
+    // Players who sent HELLO_SESSION, until their match starts and gives them a seat token
+    private final Set<PlayerConnection> resumable = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+    public BattleshipServer(int port) {
+        this(port, false, 0);
+    }
+
+    public BattleshipServer(int port, boolean useNio, int eventLoopCount) {
+        this(port, useNio, eventLoopCount, BattleshipJNI::new);
+    }
+
+    public BattleshipServer(int port, boolean useNio, int eventLoopCount, Supplier<? extends BattleshipPlayer> playerFactory) {
+        this.port = port;
+        this.useNio = useNio;
+        this.eventLoopCount = eventLoopCount > 0 ? eventLoopCount : Runtime.getRuntime().availableProcessors();
+        this.playerFactory = TimedPlayer.timed(playerFactory, metrics);  // Every engine call is timed
+        this.matchPlayers = this.playerFactory;
+    }
+
+    public static void main(String[] args) {
+        int port = SERVER_PORT;
+        boolean useNio = false;
+        int eventLoops = 0;  // 0 means one per available core
+        int matchWorkers = 0;  // 0 means one per available core
+        boolean javaEngine = false;
+        int playerPool = 256;  // Idle native players kept for reuse; 0 deletes each one after its match
+        String bot = "density";
+        String journalDir = null;
+        long journalSyncMillis = MatchJournal.DEFAULT_SYNC_MILLIS;
+        long metricsInterval = 60;  // Seconds between metrics dumps in the log; 0 turns them off
+        long placementTimeout = MatchTimeouts.DEFAULT_PLACEMENT_MILLIS / 1000;  // Seconds; 0 waits forever
+        long turnTimeout = MatchTimeouts.DEFAULT_TURN_MILLIS / 1000;
+        long heartbeatTimeout = MatchTimeouts.DEFAULT_HEARTBEAT_MILLIS / 1000;
+        long handshakeTimeout = DEFAULT_HANDSHAKE_MILLIS / 1000;
+        long reconnectTimeout = MatchTimeouts.DEFAULT_RECONNECT_MILLIS / 1000;  // Seconds; 0 forfeits players who leave at once
+        String board = "10", fleet = "standard";
+        int players = 2;  // More than two plays free-for-all matches
+        String ratingsFile = null;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.equals("--transport=nio")) {
+                useNio = true;
+            } else if (arg.equals("--transport=blocking")) {
+                useNio = false;
+            } else if (arg.startsWith("--event-loops=")) {
+                eventLoops = Integer.parseInt(arg.substring("--event-loops=".length()));
+            } else if (arg.startsWith("--match-workers=")) {
+                matchWorkers = Integer.parseInt(arg.substring("--match-workers=".length()));
+            } else if (arg.equals("--engine=jni")) {
+                javaEngine = false;
+            } else if (arg.equals("--engine=java")) {
+                javaEngine = true;  // Pure Java; the native library is never loaded
+            } else if (arg.startsWith("--player-pool=")) {
+                playerPool = Integer.parseInt(arg.substring("--player-pool=".length()));
+            } else if (arg.startsWith("--bot=")) {
+                bot = arg.substring("--bot=".length());
+            } else if (arg.startsWith("--journal=")) {
+                journalDir = arg.substring("--journal=".length());
+            } else if (arg.startsWith("--journal-sync-ms=")) {
+                journalSyncMillis = Long.parseLong(arg.substring("--journal-sync-ms=".length()));
+            } else if (arg.startsWith("--log=")) {
+                Log.setLevel(Log.parseLevel(arg.substring("--log=".length())));
+            } else if (arg.startsWith("--metrics-interval=")) {
+                metricsInterval = Long.parseLong(arg.substring("--metrics-interval=".length()));
+            } else if (arg.startsWith("--placement-timeout=")) {
+                placementTimeout = Long.parseLong(arg.substring("--placement-timeout=".length()));
+            } else if (arg.startsWith("--turn-timeout=")) {
+                turnTimeout = Long.parseLong(arg.substring("--turn-timeout=".length()));
+            } else if (arg.startsWith("--heartbeat-timeout=")) {
+                heartbeatTimeout = Long.parseLong(arg.substring("--heartbeat-timeout=".length()));
+            } else if (arg.startsWith("--handshake-timeout=")) {
+                handshakeTimeout = Long.parseLong(arg.substring("--handshake-timeout=".length()));
+            } else if (arg.startsWith("--reconnect-timeout=")) {
+                reconnectTimeout = Long.parseLong(arg.substring("--reconnect-timeout=".length()));
+            } else if (arg.startsWith("--board=")) {
+                board = arg.substring("--board=".length());
+            } else if (arg.startsWith("--fleet=")) {
+                fleet = arg.substring("--fleet=".length());
+            } else if (arg.startsWith("--players=")) {
+                players = Integer.parseInt(arg.substring("--players=".length()));
+            } else if (arg.startsWith("--ratings=")) {
+                ratingsFile = arg.substring("--ratings=".length());
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.err.println(USAGE);
+                return;
+            }
+        }
+        BoardRules rules;
+        try {
+            rules = BoardRules.parse(board, fleet);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Bad --board or --fleet: " + e.getMessage());
+            System.err.println(USAGE);
+            return;
+        }
+        if (players < 2 || players > GameEngine.MAX_PLAYERS) {
+            System.err.println("--players must be between 2 and " + GameEngine.MAX_PLAYERS);
+            System.err.println(USAGE);
+            return;
+        }
+
+        Supplier<? extends BattleshipPlayer> playerFactory = javaEngine ? BitboardPlayer::new
+                : playerPool > 0 ? new NativePlayerPool(playerPool)::acquire : BattleshipJNI::new;
+
+        // Start the server by creating an instance and calling startServer()
+        BattleshipServer server = new BattleshipServer(port, useNio, eventLoops, playerFactory);
+        server.setBotFactory(Bot.named(bot));
+        server.setRules(rules);
+        server.setPlayersPerMatch(players);
+        server.setMatchWorkers(matchWorkers);
+        server.setTimeouts(placementTimeout * 1000, turnTimeout * 1000, heartbeatTimeout * 1000);
+        server.setHandshakeTimeout(handshakeTimeout * 1000);
+        server.setReconnectTimeout(reconnectTimeout * 1000);
+        if (journalDir != null) {
+            try {
+                server.openJournal(Path.of(journalDir), journalSyncMillis);
+            } catch (IOException e) {
+                System.err.println("Cannot open the match journal in " + journalDir + ": " + e.getMessage());
+                return;
+            }
+        }
+        if (ratingsFile != null) {
+            try {
+                server.openRatings(Path.of(ratingsFile));
+            } catch (IOException e) {
+                System.err.println("Cannot open the ratings in " + ratingsFile + ": " + e.getMessage());
+                return;
+            }
+        }
+        if (metricsInterval > 0) server.getMetrics().startReporting(metricsInterval);
+        server.startServer();
+    }
+
+    public void startServer() {
+        try {
+            running = true;
+            metrics.setGauges(this::getActiveMatches, this::getConnectedPlayers, this::getWaitingPlayers);
+            metrics.registerMBeans(port);
+            timingWheel = new TimingWheel();
+            timeouts = new MatchTimeouts(timingWheel, placementTimeoutMillis, turnTimeoutMillis, heartbeatTimeoutMillis,
+                    reconnectTimeoutMillis);
+            scheduler = new ActorScheduler(matchWorkerCount > 0 ? matchWorkerCount : Runtime.getRuntime().availableProcessors());
+            resumeRecoveredMatches();
+
+            // Pair waiting players in the background
+            matchmakerThread = Thread.ofVirtual().name("matchmaker").start(matchmakingQueue);
+
+            if (useNio) {
+                // Multiplex every player socket over a fixed set of event-loop threads
+                nioTransport = new NioTransport(port, ACCEPT_BACKLOG, eventLoopCount,
+                        player -> Thread.ofVirtual().name("handshake").start(() -> onPlayerConnected(player)), metrics);
+                Log.info("Server started on port " + port + " (NIO transport, " + eventLoopCount + " event loops). Waiting for players...");
+                nioTransport.run();
+            } else {
+                // Initialize the server socket
+                serverSocket = new ServerSocket(port, ACCEPT_BACKLOG);
+                Log.info("Server started on port " + port + " (blocking transport). Waiting for players...");
+
+                // Accept connections from players until the server is stopped
+                acceptPlayers();
+            }
+
+        } catch (IOException e) {
+            // Handle exceptions during server operations
+            if (running) e.printStackTrace();
+        } finally {
+            // Ensure all resources are properly closed
+            stopServer();
+        }
+    }
+
+    private void acceptPlayers() throws IOException {
+        while (running) {
+            Socket socket = serverSocket.accept();
+
+            // Each connection gets its own virtual thread, so a slow handshake never stalls the accept loop
+            Thread.ofVirtual().name("player-" + socket.getPort()).start(() -> registerPlayer(socket));
+        }
+    }
+
+    private void registerPlayer(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);  // Turns are small messages; do not let Nagle delay them
+            onPlayerConnected(new SocketConnection(socket, metrics));
+        } catch (IOException e) {
+            Log.error("Error accepting player: " + e.getMessage());
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing else to release
+            }
+        }
+    }
+
+    // Both transports hand new players here; they join the queue once their HELLO checks out. A
+    // client that has not finished its handshake in time is closed by the timing wheel, which
+    // fails the read waiting on it, so a silent connection cannot hold a thread.
+    private void onPlayerConnected(PlayerConnection player) {
+        boolean vsBot;
+        TimingWheel.Timeout handshake = (handshakeTimeoutMillis <= 0) ? null : timingWheel.schedule(() -> {
+            Log.error("Disconnecting " + player.getRemoteAddress() + ": no handshake within " + handshakeTimeoutMillis + " ms");
+            player.close();
+        }, handshakeTimeoutMillis);
+        try {
+            Frame hello = player.readFrame();
+            if (hello.type != Protocol.HELLO || hello.a != Protocol.VERSION) {
+                Log.error("Rejected " + player.getRemoteAddress() + ": unsupported protocol version");
+                Protocol.writeError(player.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), Protocol.ERROR_VERSION_MISMATCH);
+                player.flush();
+                player.close();
+                return;
+            }
+            if ((hello.b & Protocol.HELLO_SPECTATE) != 0) {
+                watchMatch(player);
+                return;
+            }
+            if ((hello.b & Protocol.HELLO_LEADERBOARD) != 0) {
+                sendLeaderboard(player);
+                return;
+            }
+            if ((hello.b & Protocol.HELLO_RESUME) != 0) {
+                resumeMatch(player);
+                return;
+            }
+            if ((hello.b & Protocol.HELLO_SESSION) != 0) resumable.add(player);
+            if (hello.payloadLength > 0) {
+                // Names that do not survive decoding, or are blank, play unrated
+                String name = hello.text().strip();
+                if (!name.isEmpty() && Protocol.utf8(name).length <= Protocol.MAX_NAME_BYTES) playerNames.put(player, name);
+            }
+            vsBot = (hello.b & Protocol.HELLO_VS_BOT) != 0;
+            if (vsBot && !rules.isStandard()) {
+                // Bots aim at the standard board only
+                Log.error("Rejected " + player.getRemoteAddress() + ": bots do not play " + rules.describe());
+                Protocol.writeError(player.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), Protocol.ERROR_NO_BOT);
+                player.flush();
+                player.close();
+                return;
+            }
+        } catch (IOException e) {
+            Log.error("Error during handshake with " + player.getRemoteAddress() + ": " + e.getMessage());
+            player.close();
+            return;
+        } finally {
+            if (handshake != null) handshake.cancel();  // Queued, watching or turned away; matches keep their own deadlines
+        }
+
+        connectedPlayers.incrementAndGet();
+        if (vsBot) {
+            // Seat a server-side bot across from the player instead of queueing them
+            connectedPlayers.incrementAndGet();  // The bot's seat counts until the match ends
+            Log.info("Player connected from " + player.getRemoteAddress() + ". Starting a match against a bot...");
+            startMatch(player, new BotConnection(botFactory.apply(new SplittableRandom()), "bot"));
+            return;
+        }
+        matchmakingQueue.enqueue(player);
+        Log.info("Player connected from " + player.getRemoteAddress() + (playersPerMatch == 2 ? ". Waiting for an opponent..." : ". Waiting for opponents..."));
+    }
+
+    // Subscribes a spectator to the match named in its WATCH frame, or to the newest one for id 0
+    private void watchMatch(PlayerConnection spectator) throws IOException {
+        Frame watch = spectator.readFrame();
+        Match match = null;
+        if (watch.type == Protocol.WATCH) {
+            Map.Entry<Integer, Match> newest = liveMatches.lastEntry();
+            match = (watch.a != 0) ? liveMatches.get(watch.a) : (newest != null) ? newest.getValue() : null;
+        }
+        if (match == null) {
+            Protocol.writeError(spectator.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), Protocol.ERROR_NO_SUCH_MATCH);
+            spectator.flush();
+            spectator.close();
+            return;
+        }
+        match.getSpectators().subscribe(spectator);
+        Log.info("[Match " + match.getMatchId() + "] Spectator joined from " + spectator.getRemoteAddress()
+                + ". Watching: " + match.getSpectators().getSpectatorCount());
+    }
+
+    // Hands a returning player to the match named in its RESUME frame, which seats it if the token
+    // is right. Only two-player matches are listed, so free-for-all seats cannot be resumed.
+    private void resumeMatch(PlayerConnection player) throws IOException {
+        Frame resume = player.readFrame();
+        Match match = (resume.type == Protocol.RESUME) ? liveMatches.get(resume.a) : null;
+        if (match == null) {
+            Log.error("Rejected " + player.getRemoteAddress() + ": no live match to resume");
+            Protocol.writeError(player.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), Protocol.ERROR_NO_SUCH_SEAT);
+            player.flush();
+            player.close();
+            return;
+        }
+        match.resume(player, resume.token);
+    }
+
+    // The best rated players as one TEXT frame, then the connection is closed
+    private void sendLeaderboard(PlayerConnection client) throws IOException {
+        StringBuilder text = new StringBuilder();
+        if (ratings == null) {
+            text.append("Ratings are off on this server.\n");
+        } else {
+            List<Ratings.Profile> top = ratings.top(LEADERBOARD_SIZE);
+            text.append(String.format("Top %d of %,d rated players%n", top.size(), ratings.getPlayerCount()));
+            for (int i = 0; i < top.size(); i++) {
+                Ratings.Profile profile = top.get(i);
+                text.append(String.format("%3d. %-32s %6.0f  %d games, %d wins%n", i + 1, profile.name, profile.rating, profile.games, profile.wins));
+            }
+        }
+        byte[] utf8 = Protocol.utf8(text.toString());
+        Protocol.writeText(client.writeBuffer(Protocol.textFrameSize(utf8)), utf8);
+        client.flush();
+        client.close();
+    }
+
+    private void startMatch(PlayerConnection player1Conn, PlayerConnection player2Conn) {
+        Match match = new Match(nextMatchId.getAndIncrement(), player1Conn, player2Conn, matchPlayers, journal, metrics, timeouts, rules,
+                scheduler);
+        String[] names = {null, playerNames.remove(player1Conn), playerNames.remove(player2Conn)};
+        if (resumable.remove(player1Conn)) match.allowResume(1);
+        if (resumable.remove(player2Conn)) match.allowResume(2);
+
+        // Each match runs on the shared scheduler and releases its slot when it ends
+        int active = activeMatches.incrementAndGet();
+        liveMatches.put(match.getMatchId(), match);
+        Log.info("[Match " + match.getMatchId() + "] Started. Active matches: " + active);
+        match.start(() -> {
+            liveMatches.remove(match.getMatchId());
+            activeMatches.decrementAndGet();
+            connectedPlayers.addAndGet(-2);
+            int winner = match.getWinner();
+            if (winner != 0) rate(match.getMatchId(), names, new int[]{winner, 3 - winner});
+        });
+    }
+
+    // Free-for-all matches run like two-player ones, but are neither journaled nor listed for spectators
+    private void startFreeForAll(PlayerConnection[] playerConns) {
+        FreeForAllMatch match = new FreeForAllMatch(nextMatchId.getAndIncrement(), playerConns, matchPlayers, metrics, timeouts, rules,
+                scheduler);
+        String[] names = new String[playerConns.length + 1];
+        for (int player = 1; player < names.length; player++) names[player] = playerNames.remove(playerConns[player - 1]);
+
+        int active = activeMatches.incrementAndGet();
+        Log.info("[Match " + match.getMatchId() + "] Started, " + playerConns.length + " players free-for-all. Active matches: " + active);
+        match.start(() -> {
+            activeMatches.decrementAndGet();
+            connectedPlayers.addAndGet(-playerConns.length);
+            int[] standings = match.getStandings();
+            if (standings != null) rate(match.getMatchId(), names, standings);
+        });
+    }
+
+    // Updates the ratings from a won match's standings, player numbers from first place to last.
+    // Only matches between distinct named players count, so bots and anonymous players are unrated.
+    private void rate(int matchId, String[] names, int[] standings) {
+        if (ratings == null) return;
+        String[] ranked = new String[standings.length];
+        for (int i = 0; i < standings.length; i++) {
+            ranked[i] = names[standings[i]];
+            if (ranked[i] == null) return;
+        }
+        if (Arrays.stream(ranked).distinct().count() != ranked.length) return;
+        try {
+            Ratings.Profile[] rated = ratings.recordMatch(ranked);
+            if (Log.isInfoEnabled()) {
+                StringBuilder line = new StringBuilder("[Match " + matchId + "] Ratings:");
+                for (Ratings.Profile profile : rated) line.append(String.format(" %s %.0f", profile.name, profile.rating));
+                Log.info(line.toString());
+            }
+        } catch (IOException e) {
+            Log.error("[Match " + matchId + "] Could not update the ratings: " + e.getMessage());
+        }
+    }
+
+    // Starts journaling matches to `directory`, after recovering what the previous run left there.
+    // Matches the journal shows unfinished were cut off when that server stopped. Their boards are
+    // rebuilt by replaying their moves, and startServer() carries them on with both seats held, so
+    // players whose clients kept their seat tokens resume them (see Match.recover()). A match whose
+    // last moves decided it already is recorded as ended instead. Match ids continue after the
+    // highest one in the journal, so replays never mix two matches. Call before startServer().
+    public void openJournal(Path directory, long syncMillis) throws IOException {
+        long start = System.nanoTime();
+        MatchReplayer replayer = new MatchReplayer(playerFactory, match -> {
+            if (match.mismatches > 0) {
+                Log.error("[Journal] Match " + match.matchId + " replays differently from its record (" + match.mismatches + " mismatches)");
+            }
+        });
+        journal = MatchJournal.open(directory, MatchJournal.DEFAULT_SEGMENT_SIZE, syncMillis, replayer);
+
+        for (MatchReplayer.ReplayedMatch match : replayer.getUnfinished()) {
+            Log.info("[Journal] Recovered match " + match.matchId + ": " + match.placements + " ships placed, "
+                    + match.attacks + " attacks made, player 1 " + (match.player1.HasLost() ? "sunk" : "afloat")
+                    + ", player 2 " + (match.player2.HasLost() ? "sunk" : "afloat"));
+            // Cut off between its last move and its END record
+            int winner = (match.forfeitedBy != 0) ? 3 - match.forfeitedBy : match.replayedWinner();
+            if (winner != 0) {
+                journal.matchEnded(match.matchId, winner);
+                match.player1.close();
+                match.player2.close();
+            } else {
+                recovered.add(match);
+            }
+        }
+        nextMatchId.set(replayer.getMaxMatchId() + 1);
+        Log.info(String.format("[Journal] Replayed %,d records in %.1f ms; journaling to %s", journal.getRecoveredCount(),
+                (System.nanoTime() - start) / 1e6, directory));
+    }
+
+    // Carries on the matches openJournal() recovered, each waiting for its players to resume
+    private void resumeRecoveredMatches() {
+        for (MatchReplayer.ReplayedMatch replayed : recovered) {
+            Match match = Match.recover(replayed, journal, metrics, timeouts, scheduler);
+            activeMatches.incrementAndGet();
+            connectedPlayers.addAndGet(2);  // Seats count while they are held, as for any match
+            liveMatches.put(match.getMatchId(), match);
+            match.start(() -> {
+                liveMatches.remove(match.getMatchId());
+                activeMatches.decrementAndGet();
+                connectedPlayers.addAndGet(-2);
+            });
+        }
+        recovered.clear();
+    }
+
+    // Keeps Elo ratings of named players in `file`, creating it if needed. The file holds every
+    // player's current rating, so opening it reads the players once and replays nothing. Call
+    // before startServer().
+    public void openRatings(Path file) throws IOException {
+        long start = System.nanoTime();
+        ratings = Ratings.open(file, Ratings.DEFAULT_CACHE_SIZE);
+        Log.info(String.format("[Ratings] Loaded %,d players in %.1f ms from %s", ratings.getPlayerCount(), (System.nanoTime() - start) / 1e6, file));
+    }
+
+    // Chooses the strategy of bots seated for players who ask for one; set before startServer()
+    public void setBotFactory(Function<SplittableRandom, Bot> botFactory) {
+        this.botFactory = botFactory;
+    }
+
+    // Board size and fleet for every match. The native and bitboard engines only play the standard
+    // board, so other rules are played on SparsePlayers whatever --engine says. Set before startServer().
+    public void setRules(BoardRules rules) {
+        this.rules = rules;
+        this.matchPlayers = rules.isStandard() ? playerFactory : TimedPlayer.timed(() -> new SparsePlayer(rules), metrics);
+        if (!rules.isStandard()) Log.info("Playing " + rules.describe() + " on the sparse engine");
+    }
+
+    // Players seated in each match; more than two plays free-for-all, everyone against everyone.
+    // Players who ask for a bot still get a two-player match. Set before startServer().
+    public void setPlayersPerMatch(int players) {
+        if (players < 2 || players > GameEngine.MAX_PLAYERS) throw new IllegalArgumentException("Matches seat 2 to " + GameEngine.MAX_PLAYERS + " players: " + players);
+        this.playersPerMatch = players;
+        this.matchmakingQueue = (players == 2) ? new MatchmakingQueue(this::startMatch) : new MatchmakingQueue(players, this::startFreeForAll);
+    }
+
+    // Threads that run the matches' commands; 0 means one per core. Takes effect when the server starts.
+    public void setMatchWorkers(int workers) {
+        this.matchWorkerCount = workers;
+    }
+
+    // How long players get to place their fleet, to make each attack, and to stay silent while the
+    // server waits on them; 0 turns a limit off. Takes effect when the server starts.
+    public void setTimeouts(long placementMillis, long turnMillis, long heartbeatMillis) {
+        this.placementTimeoutMillis = placementMillis;
+        this.turnTimeoutMillis = turnMillis;
+        this.heartbeatTimeoutMillis = heartbeatMillis;
+    }
+
+    // How long a player who can resume their seat has to come back after losing their connection;
+    // 0 forfeits them as soon as they leave. Set before startServer().
+    public void setReconnectTimeout(long millis) {
+        this.reconnectTimeoutMillis = millis;
+    }
+
+    // How long a new connection gets to send HELLO (and a spectator its WATCH); 0 waits forever
+    public void setHandshakeTimeout(long millis) {
+        this.handshakeTimeoutMillis = millis;
+    }
+
+    // Deadlines currently waiting on the timing wheel, about one per match
+    public long getPendingDeadlines() {
+        return (timingWheel != null) ? timingWheel.getPendingCount() : 0;
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getActiveMatches() {
+        return activeMatches.get();
+    }
+
+    public int getConnectedPlayers() {
+        return connectedPlayers.get();
+    }
+
+    public int getWaitingPlayers() {
+        return matchmakingQueue.waitingCount();
+    }
+
+    public void stopServer() {
+        // Stop accepting players and shut down the matchmaker; running matches finish on their own
+        running = false;
+        try {
+            if (serverSocket != null) serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (nioTransport != null) nioTransport.stop();
+        if (matchmakerThread != null) matchmakerThread.interrupt();
+        if (timingWheel != null) timingWheel.stop();  // Matches still running wait without deadlines
+        // The scheduler keeps running, like the matches on it; its workers are daemons and retire when idle
+        if (journal != null) journal.sync();  // Running matches keep appending until they end
+        if (ratings != null) ratings.sync();
+    }
+}
@@ -0,0 +1,289 @@
+import java.nio.ByteBuffer;
+
+// Pure-Java game backend. Each 10x10 grid is a bitboard of two longs: cells 0-63 (row-major)
+// in the low word and cells 64-99 in the high word. Attacks, sinks and losses are decided with
+// mask tests, and results are the same packed codes the native Player returns, so no call
+// allocates once the ships are placed.
+public class BitboardPlayer implements BattleshipPlayer {
+    private static final int GRID_CELLS = GRID_SIZE * GRID_SIZE;
+    private static final int NUM_SHIPS = 5;  // Same starting count as Player::num_ships
+    private static final int MAX_SHIPS = GRID_CELLS / 2;  // Every ship covers at least two cells
+
+    // Self grid: cells holding a ship, and the subset of those that were hit
+    private long shipLo, shipHi;
+    private long hitLo, hitHi;
+
+    // Target grid: our attacks on the opponent that missed or hit
+    private long targetMissLo, targetMissHi;
+    private long targetHitLo, targetHitHi;
+
+    // Cell masks and ship codes of ships still afloat, in placement order
+    private final long[] fleetLo = new long[MAX_SHIPS];
+    private final long[] fleetHi = new long[MAX_SHIPS];
+    private final int[] fleetShip = new int[MAX_SHIPS];
+    private int fleetSize = 0;
+
+    // Ships sunk so far, in the order they sank; only snapshots need them
+    private final long[] sunkLo = new long[MAX_SHIPS];
+    private final long[] sunkHi = new long[MAX_SHIPS];
+    private final int[] sunkShip = new int[MAX_SHIPS];
+    private int sunkSize = 0;
+
+    private int numShips = NUM_SHIPS;  // Ships remaining; the player loses at zero
+
+    @Override
+    public int PlaceShip(String type, int[] coords, int orientation) {
+        return placeShip(Protocol.shipCode(type), coords[0], coords[1], orientation);
+    }
+
+    @Override
+    public int placeFleet(ByteBuffer ships, int count) {
+        int placed = 0;
+        for (int i = 0; i < count; i++) {
+            int offset = i * FLEET_RECORD_SIZE;
+            if (placeShip(ships.get(offset), ships.get(offset + 1), ships.get(offset + 2), ships.get(offset + 3)) == 1) placed |= 1 << i;
+        }
+        return placed;
+    }
+
+    private int placeShip(int ship, int startRow, int startCol, int orientation) {
+        if (startRow < 0 || startRow >= GRID_SIZE || startCol < 0 || startCol >= GRID_SIZE) return -1;
+        if (orientation != 0 && orientation != 1) return -1;
+        int length = Protocol.shipSize(ship);
+        if (length == 0) return -1;  // The native side exits the process on an unknown type
+
+        // Build the ship's mask, rejecting it if it leaves the grid or overlaps an intact ship cell
+        long maskLo = 0, maskHi = 0;
+        for (int i = 0; i < length; i++) {
+            int row = startRow + (orientation == 1 ? i : 0);
+            int col = startCol + (orientation == 0 ? i : 0);
+            if (row >= GRID_SIZE || col >= GRID_SIZE) return -1;
+            int cell = row * GRID_SIZE + col;
+            maskLo |= lowBit(cell);
+            maskHi |= highBit(cell);
+        }
+        if (((shipLo & ~hitLo & maskLo) | (shipHi & ~hitHi & maskHi)) != 0) return -1;
+
+        // Placing over a hit cell makes it occupied again, as in the native grid
+        shipLo |= maskLo;
+        shipHi |= maskHi;
+        hitLo &= ~maskLo;
+        hitHi &= ~maskHi;
+        fleetLo[fleetSize] = maskLo;
+        fleetHi[fleetSize] = maskHi;
+        fleetShip[fleetSize] = ship;
+        fleetSize++;
+        return 1;
+    }
+
+    @Override
+    public int attack(int row, int col, BattleshipPlayer opponent) {
+        BitboardPlayer other = (BitboardPlayer) opponent;
+        if (row < 0 || row >= GRID_SIZE || col < 0 || col >= GRID_SIZE) return Protocol.RESULT_OUT_OF_BOUNDS;
+        int cell = row * GRID_SIZE + col;
+        long lo = lowBit(cell), hi = highBit(cell);
+
+        if ((((targetMissLo | targetHitLo) & lo) | ((targetMissHi | targetHitHi) & hi)) != 0) return Protocol.RESULT_ALREADY_ATTACKED;
+        if (((other.shipLo & lo) | (other.shipHi & hi)) == 0) {
+            targetMissLo |= lo;
+            targetMissHi |= hi;
+            return Protocol.RESULT_MISS;
+        }
+        if (((other.hitLo & lo) | (other.hitHi & hi)) != 0) return AttackResult.EMPTY;  // Unreachable through the game rules
+
+        targetHitLo |= lo;
+        targetHitHi |= hi;
+        other.hitLo |= lo;
+        other.hitHi |= hi;
+        int sunk = other.sinkHitShip();
+        if (sunk < 0) return Protocol.RESULT_HIT;
+        return AttackResult.pack(Protocol.RESULT_SUNK, sunk, other.numShips == 0);
+    }
+
+    // Removes the first ship whose cells are all hit and counts it as lost; returns its ship code, or -1 if none is
+    private int sinkHitShip() {
+        for (int i = 0; i < fleetSize; i++) {
+            if ((fleetLo[i] & ~hitLo) == 0 && (fleetHi[i] & ~hitHi) == 0) {
+                int ship = fleetShip[i];
+                sunkLo[sunkSize] = fleetLo[i];
+                sunkHi[sunkSize] = fleetHi[i];
+                sunkShip[sunkSize] = ship;
+                sunkSize++;
+                // Keep placement order, like vector::erase on the native side
+                System.arraycopy(fleetLo, i + 1, fleetLo, i, fleetSize - i - 1);
+                System.arraycopy(fleetHi, i + 1, fleetHi, i, fleetSize - i - 1);
+                System.arraycopy(fleetShip, i + 1, fleetShip, i, fleetSize - i - 1);
+                fleetSize--;
+                numShips--;
+                return ship;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean HasLost() {
+        return numShips == 0;
+    }
+
+    @Override
+    public String printSelfGrid() {
+        StringBuilder buffer = new StringBuilder(320);
+        buffer.append("Self Grid:\n");
+        for (int row = 0; row < GRID_SIZE; row++) appendSelfRow(buffer, row);
+        return buffer.toString();
+    }
+
+    @Override
+    public String printTargetGrid() {
+        StringBuilder buffer = new StringBuilder(320);
+        buffer.append("Target Grid:\n");
+        for (int row = 0; row < GRID_SIZE; row++) appendTargetRow(buffer, row);
+        return buffer.toString();
+    }
+
+    @Override
+    public String printGridsSideBySide() {
+        StringBuilder buffer = new StringBuilder(720);
+        buffer.append("   Self Grid").append(" ".repeat(39 - "Target Grid".length())).append("Target Grid\n");
+        for (int row = 0; row < GRID_SIZE; row++) {
+            appendSelfRow(buffer, row);
+            buffer.setLength(buffer.length() - 1);  // Continue the line with the target row
+            buffer.append("          ");  // setw(10) << "   "
+            appendTargetRow(buffer, row);
+        }
+        return buffer.toString();
+    }
+
+    @Override
+    public void copySelfGrid(byte[] cells) {
+        for (int cell = 0; cell < GRID_CELLS; cell++) cells[cell] = (byte) selfState(cell);
+    }
+
+    @Override
+    public void copyTargetGrid(byte[] cells) {
+        for (int cell = 0; cell < GRID_CELLS; cell++) cells[cell] = (byte) targetState(cell);
+    }
+
+    @Override
+    public int exportState(byte[] out) {
+        int count = fleetSize + sunkSize;
+        out[0] = (byte) count;
+        for (int i = 0; i < fleetSize; i++) PlayerSnapshot.writeShip(out, i, packShip(fleetLo[i], fleetHi[i], fleetShip[i]));
+        for (int i = 0; i < sunkSize; i++) PlayerSnapshot.writeShip(out, fleetSize + i, packShip(sunkLo[i], sunkHi[i], sunkShip[i]));
+
+        int position = 1 + 2 * count;
+        for (int first = 0; first < GRID_CELLS; first += PlayerSnapshot.CELLS_PER_BYTE) {
+            int value = 0;
+            for (int cell = first + PlayerSnapshot.CELLS_PER_BYTE - 1; cell >= first; cell--) {
+                value = value * 3 + (isSet(targetHitLo, targetHitHi, cell) ? PlayerSnapshot.TARGET_HIT
+                        : isSet(targetMissLo, targetMissHi, cell) ? PlayerSnapshot.TARGET_MISS : PlayerSnapshot.TARGET_NONE);
+            }
+            out[position++] = (byte) value;
+        }
+        return position;
+    }
+
+    // A ship's snapshot record, recovered from its cell mask: the lowest cell is its start, and the
+    // next cell along tells the orientation (every ship is at least two cells long)
+    private int packShip(long maskLo, long maskHi, int ship) {
+        int start = maskLo != 0 ? Long.numberOfTrailingZeros(maskLo) : 64 + Long.numberOfTrailingZeros(maskHi);
+        int orientation = isSet(maskLo, maskHi, start + 1) ? 0 : 1;
+        int step = orientation == 0 ? 1 : GRID_SIZE;
+        int hits = 0;
+        for (int i = 0; i < Protocol.shipSize(ship); i++) {
+            if (isSet(hitLo, hitHi, start + i * step)) hits |= 1 << i;
+        }
+        return PlayerSnapshot.packShip(start, ship, orientation, hits);
+    }
+
+    @Override
+    public boolean importState(byte[] snapshot, int length) {
+        if (!PlayerSnapshot.isValid(snapshot, length)) return false;
+        shipLo = shipHi = hitLo = hitHi = 0;
+        targetMissLo = targetMissHi = targetHitLo = targetHitHi = 0;
+        fleetSize = sunkSize = 0;
+
+        int count = PlayerSnapshot.shipCount(snapshot);
+        for (int i = 0; i < count; i++) {
+            int record = PlayerSnapshot.ship(snapshot, i);
+            int ship = PlayerSnapshot.shipCode(record), hits = PlayerSnapshot.hits(record);
+            int start = PlayerSnapshot.startCell(record);
+            int step = PlayerSnapshot.orientation(record) == 0 ? 1 : GRID_SIZE;
+            long maskLo = 0, maskHi = 0;
+            for (int j = 0; j < Protocol.shipSize(ship); j++) {
+                int cell = start + j * step;
+                maskLo |= lowBit(cell);
+                maskHi |= highBit(cell);
+                if ((hits & 1 << j) != 0) {
+                    hitLo |= lowBit(cell);
+                    hitHi |= highBit(cell);
+                }
+            }
+            shipLo |= maskLo;
+            shipHi |= maskHi;
+            if (PlayerSnapshot.isSunk(record)) {
+                sunkLo[sunkSize] = maskLo;
+                sunkHi[sunkSize] = maskHi;
+                sunkShip[sunkSize] = ship;
+                sunkSize++;
+            } else {
+                fleetLo[fleetSize] = maskLo;
+                fleetHi[fleetSize] = maskHi;
+                fleetShip[fleetSize] = ship;
+                fleetSize++;
+            }
+        }
+        numShips = NUM_SHIPS - sunkSize;
+
+        for (int cell = 0; cell < GRID_CELLS; cell++) {
+            int target = PlayerSnapshot.target(snapshot, cell);
+            if (target == PlayerSnapshot.TARGET_HIT) {
+                targetHitLo |= lowBit(cell);
+                targetHitHi |= highBit(cell);
+            } else if (target == PlayerSnapshot.TARGET_MISS) {
+                targetMissLo |= lowBit(cell);
+                targetMissHi |= highBit(cell);
+            }
+        }
+        return true;
+    }
+
+    // Cell states use the native State values: 0 unoccupied, 1 occupied, 2 missed, 3 hit
+    private int selfState(int cell) {
+        if (isSet(hitLo, hitHi, cell)) return 3;
+        return isSet(shipLo, shipHi, cell) ? 1 : 0;
+    }
+
+    private int targetState(int cell) {
+        if (isSet(targetHitLo, targetHitHi, cell)) return 3;
+        return isSet(targetMissLo, targetMissHi, cell) ? 2 : 0;
+    }
+
+    private void appendSelfRow(StringBuilder buffer, int row) {
+        for (int col = 0; col < GRID_SIZE; col++) {
+            buffer.append(' ').append((char) ('0' + selfState(row * GRID_SIZE + col))).append(' ');
+        }
+        buffer.append('\n');
+    }
+
+    private void appendTargetRow(StringBuilder buffer, int row) {
+        for (int col = 0; col < GRID_SIZE; col++) {
+            buffer.append(' ').append((char) ('0' + targetState(row * GRID_SIZE + col))).append(' ');
+        }
+        buffer.append('\n');
+    }
+
+    private static boolean isSet(long lo, long hi, int cell) {
+        return ((lo & lowBit(cell)) | (hi & highBit(cell))) != 0;
+    }
+
+    // Mask of a cell in the low word, or 0 if the cell lives in the high word
+    private static long lowBit(int cell) {
+        return cell < 64 ? 1L << cell : 0;
+    }
+
+    private static long highBit(int cell) {
+        return cell >= 64 ? 1L << (cell - 64) : 0;
+    }
+}
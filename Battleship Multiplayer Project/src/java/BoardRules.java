@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+// Board size and fleet for the matches a server runs. The standard game is a 10x10 board with
+// one ship of each type; any other board or fleet is played on SparsePlayer, whose memory grows
+// with the ships placed and shots fired rather than with the board's area. Players learn the
+// rules from the RULES frame sent right after their ROLE.
+public final class BoardRules {
+    public static final int MAX_DIMENSION = 4096;  // Rows or columns; row * cols + col still fits an int
+    public static final int MAX_SHIPS_PER_TYPE = 0xFFFF;  // Counts are u16 on the wire
+    public static final int SHIP_TYPES = 5;  // Protocol ship codes 0-4
+
+    public static final BoardRules STANDARD = new BoardRules(BattleshipPlayer.GRID_SIZE, BattleshipPlayer.GRID_SIZE, new int[]{1, 1, 1, 1, 1});
+
+    private final int rows, cols;
+    private final int[] fleet;  // Ships of each type, by Protocol ship code
+    private final int shipCount;
+
+    public BoardRules(int rows, int cols, int[] fleet) {
+        if (rows < 1 || cols < 1 || rows > MAX_DIMENSION || cols > MAX_DIMENSION) {
+            throw new IllegalArgumentException("Board must be between 1x1 and " + MAX_DIMENSION + "x" + MAX_DIMENSION + ": " + rows + "x" + cols);
+        }
+        if (fleet.length != SHIP_TYPES) throw new IllegalArgumentException("Fleet needs a count for each of the " + SHIP_TYPES + " ship types");
+        long cells = 0;
+        int ships = 0;
+        for (int ship = 0; ship < SHIP_TYPES; ship++) {
+            if (fleet[ship] < 0 || fleet[ship] > MAX_SHIPS_PER_TYPE) throw new IllegalArgumentException("Bad count for " + Protocol.shipName(ship) + ": " + fleet[ship]);
+            if (fleet[ship] > 0 && Protocol.shipSize(ship) > Math.max(rows, cols)) {
+                throw new IllegalArgumentException("A " + Protocol.shipName(ship) + " does not fit on a " + rows + "x" + cols + " board");
+            }
+            cells += (long) fleet[ship] * Protocol.shipSize(ship);
+            ships += fleet[ship];
+        }
+        if (ships == 0) throw new IllegalArgumentException("The fleet has no ships");
+        if (cells > (long) rows * cols) throw new IllegalArgumentException("The fleet needs " + cells + " cells but the board has " + (long) rows * cols);
+        this.rows = rows;
+        this.cols = cols;
+        this.fleet = fleet.clone();
+        this.shipCount = ships;
+    }
+
+    // Parses --board and --fleet values: "ROWSxCOLS" (or one number for a square board) and
+    // "standard" or "type:count,..." naming every ship type the fleet has, e.g. "carrier:2,destroyer:40"
+    public static BoardRules parse(String board, String fleet) {
+        int rows, cols;
+        int x = board.indexOf('x');
+        if (x < 0) {
+            rows = cols = Integer.parseInt(board);
+        } else {
+            rows = Integer.parseInt(board.substring(0, x));
+            cols = Integer.parseInt(board.substring(x + 1));
+        }
+        int[] counts = new int[SHIP_TYPES];
+        if (fleet.equals("standard")) {
+            counts = STANDARD.fleet.clone();
+        } else {
+            for (String entry : fleet.split(",")) {
+                int colon = entry.indexOf(':');
+                int ship = Protocol.shipCode(colon < 0 ? entry : entry.substring(0, colon));
+                if (colon < 0 || ship < 0) throw new IllegalArgumentException("Expected type:count in the fleet, got " + entry);
+                counts[ship] += Integer.parseInt(entry.substring(colon + 1));
+            }
+        }
+        BoardRules rules = new BoardRules(rows, cols, counts);
+        return rules.equals(STANDARD) ? STANDARD : rules;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    // Ships of one type in the fleet
+    public int getFleet(int ship) {
+        return (ship >= 0 && ship < SHIP_TYPES) ? fleet[ship] : 0;
+    }
+
+    // Ships each player places, of all types
+    public int getShipCount() {
+        return shipCount;
+    }
+
+    // True for the 10x10 board with one ship of each type, the only one the native and bitboard engines play
+    public boolean isStandard() {
+        return equals(STANDARD);
+    }
+
+    // Small boards are resynced with dense GRID frames; larger ones with sparse CELLS frames
+    public boolean fitsGridFrame() {
+        return rows * cols <= Protocol.MAX_GRID_CELLS;
+    }
+
+    // One line for logs and the client, e.g. "1000x1000, 2 carriers, 40 destroyers"
+    public String describe() {
+        StringBuilder text = new StringBuilder().append(rows).append('x').append(cols);
+        for (int ship = 0; ship < SHIP_TYPES; ship++) {
+            if (fleet[ship] > 0) text.append(", ").append(fleet[ship]).append(' ').append(Protocol.shipName(ship)).append(fleet[ship] > 1 ? "s" : "");
+        }
+        return text.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BoardRules)) return false;
+        BoardRules rules = (BoardRules) other;
+        return rows == rules.rows && cols == rules.cols && Arrays.equals(fleet, rules.fleet);
+    }
+
+    @Override
+    public int hashCode() {
+        return (rows * 31 + cols) * 31 + Arrays.hashCode(fleet);
+    }
+}
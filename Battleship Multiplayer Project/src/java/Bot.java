@@ -0,0 +1,29 @@
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+// A computer player's strategy: where to put the fleet and where to shoot next.
+// One instance plays one game. Cells are row-major indexes, row * GRID_SIZE + col.
+public interface Bot {
+    // Receives the bot's ship placements; ship is a Protocol ship code
+    interface Fleet {
+        void place(int ship, int row, int col, int orientation);
+    }
+
+    // Places all five ships, each at a valid non-overlapping position
+    void placeFleet(Fleet fleet);
+
+    // Returns the next cell to attack
+    int nextShot();
+
+    // Reports the Protocol RESULT_* code of the last shot
+    void onAttackResult(int cell, int result);
+
+    // Looks up a strategy by name; each game gets a new bot seeded from its own random source
+    static Function<SplittableRandom, Bot> named(String name) {
+        switch (name) {
+            case "random": return RandomBot::new;
+            case "density": return DensityBot::new;
+            default: throw new IllegalArgumentException("Unknown bot: " + name);
+        }
+    }
+}
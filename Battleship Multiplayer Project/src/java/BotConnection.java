@@ -0,0 +1,157 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// A computer opponent seated in a Match like any other connection. Frames the match writes are
+// decoded on flush() and answered right away on the flushing thread: the welcome text starts
+// fleet placement, our TURN asks the bot for a shot, and our ATTACK_RESULT feeds its map. Once the
+// match listens, replies go straight to its mailbox instead of a queue.
+public final class BotConnection implements PlayerConnection {
+    private static final Frame END_OF_STREAM = new Frame();
+
+    private final Bot bot;
+    private final String name;  // Shown where a remote address would be
+    private final ByteBuffer outbound = ByteBuffer.allocate(8 * 1024);  // Frames from the match, decoded on flush
+    private final Frame frame = new Frame();  // Reused for decoding the match's frames
+    private final BlockingQueue<Frame> inbound = new LinkedBlockingQueue<>();  // The bot's replies, until a listener is set
+    private Listener listener;  // Takes the bot's replies once set (guarded by this)
+    private volatile boolean closed;
+    private int playerNumber;
+    private boolean fleetPlaced;
+
+    public BotConnection(Bot bot, String name) {
+        this.bot = bot;
+        this.name = name;
+    }
+
+    @Override
+    public synchronized ByteBuffer writeBuffer(int size) throws IOException {
+        if (closed) throw new EOFException(name + " has left the match");
+        if (outbound.remaining() < size) flush();
+        if (outbound.remaining() < size) {
+            throw new IOException("Frame of " + size + " bytes exceeds the " + outbound.capacity() + " byte buffer");
+        }
+        return outbound;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        outbound.flip();
+        try {
+            while (Protocol.decode(outbound, frame, Protocol.MAX_FRAME_SIZE)) {
+                onFrame(frame);
+            }
+        } finally {
+            outbound.compact();
+        }
+    }
+
+    private void onFrame(Frame frame) throws IOException {
+        switch (frame.type) {
+            case Protocol.ROLE -> playerNumber = frame.a;
+            case Protocol.TEXT -> {
+                // The welcome banner opens placement; a bot only places valid ships, so it places once
+                if (fleetPlaced) return;
+                fleetPlaced = true;
+                replyFleet();
+            }
+            case Protocol.FLEET_RESULT -> {
+                if (frame.a != Protocol.PLACE_OK) throw new StreamCorruptedException(name + " placed a fleet the server rejected");
+            }
+            case Protocol.TURN -> {
+                if (frame.a != playerNumber) return;
+                int cell = bot.nextShot();
+                reply(Protocol.ATTACK, cell / BattleshipPlayer.GRID_SIZE, cell % BattleshipPlayer.GRID_SIZE, 0, 0);
+            }
+            case Protocol.ATTACK_RESULT -> {
+                if (frame.a == playerNumber) bot.onAttackResult(frame.c * BattleshipPlayer.GRID_SIZE + frame.d, frame.b);
+            }
+            default -> {
+                // GAME_START, GRID, GAME_OVER and ERROR need no answer
+            }
+        }
+    }
+
+    // Queues the bot's whole fleet as one FLEET frame, encoded and decoded as if it came over the wire
+    private void replyFleet() throws IOException {
+        ByteBuffer fleet = ByteBuffer.allocate(Protocol.fleetFrameSize(BoardRules.STANDARD.getShipCount()));
+        int start = Protocol.startFleet(fleet);
+        bot.placeFleet((ship, row, col, orientation) -> Protocol.addFleetShip(fleet, ship, row, col, orientation));
+        Protocol.finishFleet(fleet, start);
+        Frame reply = new Frame();
+        Protocol.decode(fleet.flip(), reply, Protocol.MAX_CLIENT_FRAME_SIZE);
+        deliver(reply);
+    }
+
+    // Queues a frame for the match to read, with fields in the same order Protocol.decode fills them
+    private void reply(int type, int a, int b, int c, int d) {
+        Frame reply = new Frame();
+        reply.type = type;
+        reply.a = a;
+        reply.b = b;
+        reply.c = c;
+        reply.d = d;
+        deliver(reply);
+    }
+
+    private synchronized void deliver(Frame reply) {
+        if (listener != null) {
+            listener.onFrame(reply);
+        } else {
+            inbound.add(reply);
+        }
+    }
+
+    @Override
+    public synchronized void listen(Listener listener) {
+        Frame queued;
+        while ((queued = inbound.poll()) != null) {
+            if (queued == END_OF_STREAM) {
+                listener.onClosed();
+                return;
+            }
+            listener.onFrame(queued);
+        }
+        this.listener = listener;
+    }
+
+    @Override
+    public Frame readFrame() throws IOException {
+        try {
+            Frame next = inbound.take();
+            if (next == END_OF_STREAM) {
+                inbound.add(END_OF_STREAM);  // Keep later reads failing too
+                throw new EOFException(name + " has left the match");
+            }
+            return next;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + name);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return name;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (listener != null) {
+            listener.onClosed();
+        } else {
+            inbound.add(END_OF_STREAM);
+        }
+    }
+}
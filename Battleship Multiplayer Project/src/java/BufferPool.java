@@ -0,0 +1,47 @@
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Recycles fixed-size direct buffers so the NIO transport does not allocate per read or write
+public class BufferPool {
+    private final int bufferSize;  // Capacity of every buffer handed out
+    private final int maxPooled;  // Upper bound on idle buffers kept for reuse
+
+    private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+    private final AtomicInteger allocated = new AtomicInteger();  // Buffers ever created by this pool
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    // Returns a cleared buffer, reusing an idle one when available
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        freeCount.decrementAndGet();
+        return buffer.clear();
+    }
+
+    // Hands a buffer back; beyond the idle limit it is left for the garbage collector
+    public void release(ByteBuffer buffer) {
+        if (freeCount.incrementAndGet() <= maxPooled) {
+            freeBuffers.add(buffer);
+        } else {
+            freeCount.decrementAndGet();
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getAllocatedCount() {
+        return allocated.get();
+    }
+}
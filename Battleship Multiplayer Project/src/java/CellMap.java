@@ -0,0 +1,98 @@
+import java.util.Arrays;
+
+// Map from a cell index (row * cols + col) to an int, for boards too large to keep as arrays.
+// Open addressing with linear probing over two parallel int arrays, so an entry costs eight bytes
+// plus slack, nothing is boxed and a lookup touches one or two cache lines. Memory grows with
+// the entries put, never with the board. No removal: cells only ever gain state in a game.
+public final class CellMap {
+    public static final int ABSENT = -1;  // get() for a cell that has no entry
+
+    private static final int MIN_CAPACITY = 16;  // Power of two
+
+    private int[] keys;  // cell + 1, so 0 marks a free slot
+    private int[] values;
+    private int mask;
+    private int size = 0;
+
+    public CellMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    // Sized so `expected` entries fit without a resize
+    public CellMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) capacity <<= 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public int get(int cell) {
+        int key = cell + 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return values[slot];
+            if (keys[slot] == 0) return ABSENT;
+        }
+    }
+
+    // Sets the cell's value, adding the cell if it has none yet; values must not be ABSENT
+    public void put(int cell, int value) {
+        int key = cell + 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    // Entries are visited by slot, in no particular order:
+    //   for (int slot = 0; slot < map.slots(); slot++) { int cell = map.cellAt(slot); if (cell != ABSENT) ... }
+    public int slots() {
+        return keys.length;
+    }
+
+    // The cell held in a slot, or ABSENT if the slot is free
+    public int cellAt(int slot) {
+        return keys[slot] - 1;
+    }
+
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    // Doubles the table; keeps the load at or below one half
+    private void grow() {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    // Fibonacci hashing; neighbouring cells land far apart, so ship runs do not cluster
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
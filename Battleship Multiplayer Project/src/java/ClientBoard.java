@@ -0,0 +1,205 @@
+import java.util.BitSet;
+
+// The client's local copy of its self and target grids. The server sends only the cell that
+// changed plus a board sequence number, and this class patches and renders the grids itself.
+// A spectator sees both players' whole boards instead; it keeps player 1's in the self grid and
+// player 2's in the target grid. Grids are CellMaps holding only the cells that are not empty, so
+// a large board costs what is on it; boards too large to draw are shown as a count of each state.
+// In a free-for-all match there is a target grid for each opponent, chosen by the defender number
+// the server appends to our ATTACK_RESULTs. Each grid keeps its drawn text between renders, and a
+// change to a cell marks only its row to be drawn again.
+public class ClientBoard {
+    // Cell states, same values as the State enum in GameLogic.h
+    private static final byte OCCUPIED = 1;
+    private static final byte MISSED = 2;
+    private static final byte HIT = 3;
+
+    private int rows, cols;
+    private final Grid selfGrid = new Grid(), targetGrid = new Grid();
+    private Grid[] opponentGrids;  // Free-for-all: our target grid against each player, by number; null otherwise
+    private int seq = 0;  // Board sequence number of the last change applied
+
+    public ClientBoard(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public ClientBoard(BoardRules rules) {
+        this(rules.getRows(), rules.getCols());
+    }
+
+    // Free-for-all: keeps a target grid for each of the `players` seats
+    public void setPlayers(int players) {
+        opponentGrids = new Grid[players + 1];
+        for (int player = 1; player <= players; player++) opponentGrids[player] = new Grid();
+    }
+
+    // Marks a placed ship's cells as occupied. Returns false if a change was missed.
+    public boolean applyPlacement(int ship, int row, int col, int orientation, int frameSeq) {
+        if (frameSeq == seq) return true;  // Rejected placement, nothing changed
+        if (frameSeq != seq + 1) return false;
+        markShip(selfGrid, ship, row, col, orientation);
+        seq = frameSeq;
+        return true;
+    }
+
+    // Marks a whole fleet accepted with one FLEET_RESULT; ships[i] is {ship, row, col, orientation}.
+    // Returns false if a change was missed.
+    public boolean applyFleet(int[][] ships, int count, int frameSeq) {
+        if (frameSeq == seq) return true;  // Rejected fleet, nothing changed
+        if (frameSeq != seq + 1) return false;
+        for (int i = 0; i < count; i++) markShip(selfGrid, ships[i][0], ships[i][1], ships[i][2], ships[i][3]);
+        seq = frameSeq;
+        return true;
+    }
+
+    // Spectators: marks a ship placed by either player. Returns false if a change was missed.
+    public boolean applyShipPlaced(int player, int ship, int row, int col, int orientation, int frameSeq) {
+        if (frameSeq != seq + 1) return false;
+        markShip((player == 1) ? selfGrid : targetGrid, ship, row, col, orientation);
+        seq = frameSeq;
+        return true;
+    }
+
+    private void markShip(Grid grid, int ship, int row, int col, int orientation) {
+        for (int i = 0; i < Protocol.shipSize(ship); i++) {
+            int r = row + (orientation == 1 ? i : 0);
+            int c = col + (orientation == 0 ? i : 0);
+            grid.put(r * cols + c, OCCUPIED);
+        }
+    }
+
+    // Applies an attack result to the target grid (our attack) or self grid (opponent's attack).
+    // Returns false if a change was missed.
+    public boolean applyAttack(boolean ourAttack, int result, int row, int col, int frameSeq) {
+        return applyAttack(ourAttack, 0, result, row, col, frameSeq);
+    }
+
+    // Free-for-all: our attacks land on the target grid against `defender`
+    public boolean applyAttack(boolean ourAttack, int defender, int result, int row, int col, int frameSeq) {
+        if (frameSeq == seq) return true;  // Rejected attack, nothing changed
+        if (frameSeq != seq + 1) return false;
+        if (ourAttack) {
+            targetGridOf(defender).put(row * cols + col, (result == Protocol.RESULT_MISS) ? MISSED : HIT);
+        } else if (result != Protocol.RESULT_MISS) {
+            selfGrid.put(row * cols + col, HIT);  // A miss leaves the self grid unchanged, as on the server
+        }
+        seq = frameSeq;
+        return true;
+    }
+
+    // Spectators: marks an attack on the defender's board. Returns false if a change was missed.
+    public boolean applyBoardAttack(int attacker, int result, int row, int col, int frameSeq) {
+        if (frameSeq != seq + 1) return false;
+        Grid defender = (attacker == 1) ? targetGrid : selfGrid;
+        defender.put(row * cols + col, (result == Protocol.RESULT_MISS) ? MISSED : HIT);
+        seq = frameSeq;
+        return true;
+    }
+
+    // Replaces one grid with a full copy sent in answer to RESYNC, or in a spectator snapshot
+    public void applyGrid(Frame grid) {
+        if (grid.b != rows || grid.c != cols) {
+            rows = grid.b;
+            cols = grid.c;
+            selfGrid.clear();
+            targetGrid.clear();
+            if (opponentGrids != null) setPlayers(opponentGrids.length - 1);
+        }
+        Grid cells = gridOf(grid.a);
+        cells.clear();
+        for (int cell = 0; cell < rows * cols; cell++) {
+            if (grid.payload[cell] != 0) cells.put(cell, grid.payload[cell]);
+        }
+        seq = grid.seq;
+    }
+
+    // Applies a CELLS frame, the large-board form of GRID; a grid may take several
+    public void applyCells(Frame frame) {
+        Grid cells = gridOf(frame.a);
+        if ((frame.b & Protocol.CELLS_FIRST) != 0) cells.clear();
+        for (int i = 0; i < frame.c; i++) cells.put(frame.cellRow(i) * cols + frame.cellCol(i), frame.cellState(i));
+        seq = frame.seq;
+    }
+
+    private Grid gridOf(int kind) {
+        if (kind >= Protocol.GRID_OPPONENT) return targetGridOf(kind - Protocol.GRID_OPPONENT);
+        return (kind == Protocol.GRID_SELF || kind == Protocol.GRID_PLAYER1) ? selfGrid : targetGrid;
+    }
+
+    private Grid targetGridOf(int defender) {
+        return (opponentGrids != null && defender > 0 && defender < opponentGrids.length) ? opponentGrids[defender] : targetGrid;
+    }
+
+    public String renderSelfGrid() {
+        return render("Self Grid:", selfGrid);
+    }
+
+    public String renderTargetGrid() {
+        return render("Target Grid:", targetGrid);
+    }
+
+    public String renderTargetGrid(int opponent) {
+        return render("Target Grid, Player " + opponent + ":", targetGridOf(opponent));
+    }
+
+    public String renderPlayerBoard(int player) {
+        return render("Player " + player + "'s Board:", (player == 1) ? selfGrid : targetGrid);
+    }
+
+    // Renders a grid the same way the native GRID::printGrid does, or counts its cells if it is too large to draw
+    private String render(String title, Grid grid) {
+        if (rows * cols > Protocol.MAX_GRID_CELLS) return summarize(title, grid.cells);
+        return grid.render(title);
+    }
+
+    private String summarize(String title, CellMap cells) {
+        int[] counts = new int[HIT + 1];
+        for (int slot = 0; slot < cells.slots(); slot++) {
+            if (cells.cellAt(slot) != CellMap.ABSENT && cells.valueAt(slot) >= 0 && cells.valueAt(slot) <= HIT) counts[cells.valueAt(slot)]++;
+        }
+        return title + " " + rows + "x" + cols + ", " + counts[OCCUPIED] + " occupied, " + counts[MISSED] + " missed, " + counts[HIT] + " hit\n";
+    }
+
+    // One grid's cell states by row * cols + col, and its rows as last drawn
+    private final class Grid {
+        final CellMap cells = new CellMap();
+        private final BitSet dirty = new BitSet();  // Rows changed since they were last drawn
+        private char[] text = new char[0];  // Every row, each cols * 3 characters and a newline
+        private String rendered, renderedTitle;  // The last render, returned again while nothing changed
+
+        void put(int cell, int state) {
+            cells.put(cell, state);
+            dirty.set(cell / cols);
+        }
+
+        void clear() {
+            cells.clear();
+            dirty.set(0, rows);
+        }
+
+        // Draws the dirty rows again, or every row if the board changed size, under the title
+        String render(String title) {
+            int width = cols * 3 + 1;
+            if (text.length != rows * width) {
+                text = new char[rows * width];
+                dirty.set(0, rows);
+            }
+            if (dirty.isEmpty() && title.equals(renderedTitle)) return rendered;
+            for (int row = dirty.nextSetBit(0); row >= 0 && row < rows; row = dirty.nextSetBit(row + 1)) {
+                int at = row * width;
+                for (int col = 0; col < cols; col++) {
+                    int value = Math.max(0, cells.get(row * cols + col));
+                    text[at++] = (value < 10) ? ' ' : (char) ('0' + value / 10);
+                    text[at++] = (char) ('0' + value % 10);
+                    text[at++] = ' ';
+                }
+                text[at] = '\n';
+            }
+            dirty.clear();
+            rendered = new StringBuilder(title.length() + 1 + text.length).append(title).append('\n').append(text).toString();
+            renderedTitle = title;
+            return rendered;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Maps keys to nodes by consistent hashing. Every node owns VIRTUAL_NODES points on a 64-bit ring,
+// and a key belongs to the first point at or after its own hash, wrapping around. A node joining
+// takes over only the keys that now land on its points, and a node leaving hands only its own keys
+// to the next points along, about 1/n of all keys either way, while every other key stays where it
+// was. Spreading each node over many points keeps the share of each within a few percent.
+//
+// Lookups read an immutable snapshot and take no lock; add() and remove() build a new snapshot.
+public final class ConsistentHashRing<T> {
+    public static final int VIRTUAL_NODES = 128;
+
+    // Points sorted by hash, and the node owning each
+    private static final class Snapshot<T> {
+        final long[] points;
+        final List<T> owners;
+        final List<T> nodes;
+
+        Snapshot(long[] points, List<T> owners, List<T> nodes) {
+            this.points = points;
+            this.owners = owners;
+            this.nodes = nodes;
+        }
+    }
+
+    private volatile Snapshot<T> snapshot = new Snapshot<>(new long[0], List.of(), List.of());
+
+    // Adds a node; `name` places its points, so a node that comes back gets the same keys as before
+    public synchronized void add(T node, String name) {
+        if (snapshot.nodes.contains(node)) return;
+        List<T> nodes = new ArrayList<>(snapshot.nodes);
+        nodes.add(node);
+        long[] added = new long[VIRTUAL_NODES];
+        for (int i = 0; i < VIRTUAL_NODES; i++) added[i] = hash(name + "#" + i);
+        rebuild(nodes, node, added);
+    }
+
+    public synchronized void remove(T node) {
+        if (!snapshot.nodes.contains(node)) return;
+        List<T> nodes = new ArrayList<>(snapshot.nodes);
+        nodes.remove(node);
+        rebuild(nodes, null, null);
+    }
+
+    // The node that owns `key`, or null if the ring is empty
+    public T get(long key) {
+        Snapshot<T> ring = snapshot;
+        if (ring.points.length == 0) return null;
+        int at = Arrays.binarySearch(ring.points, mix(key));
+        if (at < 0) at = -at - 1;  // The first point after the key
+        return ring.owners.get(at == ring.points.length ? 0 : at);
+    }
+
+    // The nodes on the ring, in the order they were added
+    public List<T> nodes() {
+        return snapshot.nodes;
+    }
+
+    public int size() {
+        return snapshot.nodes.size();
+    }
+
+    // Merges the points of the nodes that stay with those of `added`, if any, in hash order
+    private void rebuild(List<T> nodes, T added, long[] addedPoints) {
+        Snapshot<T> old = snapshot;
+        int addedCount = (added != null) ? addedPoints.length : 0;
+        if (added != null) Arrays.sort(addedPoints);
+        long[] points = new long[old.points.length + addedCount];
+        List<T> owners = new ArrayList<>(points.length);
+        int n = 0, next = 0;
+        for (int i = 0; i <= old.points.length; i++) {
+            // Added points that come before old point i, or all those left once past the end
+            while (next < addedCount && (i == old.points.length || addedPoints[next] < old.points[i])) {
+                points[n++] = addedPoints[next++];
+                owners.add(added);
+            }
+            if (i < old.points.length && nodes.contains(old.owners.get(i))) {
+                points[n++] = old.points[i];
+                owners.add(old.owners.get(i));
+            }
+        }
+        snapshot = new Snapshot<>(Arrays.copyOf(points, n), List.copyOf(owners), List.copyOf(nodes));
+    }
+
+    private static long hash(String name) {
+        long hash = 0xCBF29CE484222325L;  // FNV-1a, then mixed so similar names land far apart
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    // SplittableRandom's finalizer: spreads consecutive keys, such as match ids, around the ring
+    private static long mix(long key) {
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Shoots the cell the most remaining ship placements could cover.
+//
+// Every way a ship of each length can lie on the grid is one placement. A placement stays possible
+// until a miss or a sunk ship blocks one of its cells; placements that cover unsunk hits weigh
+// HIT_WEIGHT more per hit, which turns hunting into finishing off a wounded ship. score[cell] is
+// the weighted count of possible placements over each cell, times the ships of that length still
+// afloat. Each result only touches the placements through the shot cell, so a decision is one
+// scan of the 100 scores rather than a rebuild of the map.
+public class DensityBot implements Bot {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int CELLS = SIZE * SIZE;
+    private static final int HIT_WEIGHT = 50;  // Extra weight per unsunk hit a placement covers
+
+    // Distinct ship lengths and how many ships of each a fleet has (cruiser and submarine are both 3)
+    private static final int[] LENGTHS = {5, 4, 3, 2};
+    private static final int[] FLEET_COUNTS = {1, 1, 2, 1};
+
+    // Placement tables shared by every bot: placement p covers PLACEMENT_CELLS[p] and is of length
+    // LENGTHS[PLACEMENT_LENGTH[p]]; placements of length index k are FIRST_PLACEMENT[k] up to
+    // FIRST_PLACEMENT[k + 1]; COVERING[cell] lists the placements over a cell
+    private static final int[][] PLACEMENT_CELLS;
+    private static final int[] PLACEMENT_LENGTH;
+    private static final int[] FIRST_PLACEMENT = new int[LENGTHS.length + 1];
+    private static final int[][] COVERING = new int[CELLS][];
+    private static final int[] INITIAL_SCORE = new int[CELLS];
+
+    static {
+        List<int[]> cells = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        for (int k = 0; k < LENGTHS.length; k++) {
+            FIRST_PLACEMENT[k] = cells.size();
+            int length = LENGTHS[k];
+            for (int orientation = 0; orientation < 2; orientation++) {
+                for (int row = 0; row < (orientation == 1 ? SIZE - length + 1 : SIZE); row++) {
+                    for (int col = 0; col < (orientation == 0 ? SIZE - length + 1 : SIZE); col++) {
+                        int[] placement = new int[length];
+                        for (int i = 0; i < length; i++) {
+                            placement[i] = (row + (orientation == 1 ? i : 0)) * SIZE + col + (orientation == 0 ? i : 0);
+                        }
+                        cells.add(placement);
+                        lengths.add(k);
+                    }
+                }
+            }
+        }
+        FIRST_PLACEMENT[LENGTHS.length] = cells.size();
+        PLACEMENT_CELLS = cells.toArray(new int[0][]);
+        PLACEMENT_LENGTH = new int[PLACEMENT_CELLS.length];
+        for (int p = 0; p < PLACEMENT_LENGTH.length; p++) PLACEMENT_LENGTH[p] = lengths.get(p);
+
+        int[] coverCount = new int[CELLS];
+        for (int[] placement : PLACEMENT_CELLS) {
+            for (int cell : placement) coverCount[cell]++;
+        }
+        for (int cell = 0; cell < CELLS; cell++) COVERING[cell] = new int[coverCount[cell]];
+        int[] filled = new int[CELLS];
+        for (int p = 0; p < PLACEMENT_CELLS.length; p++) {
+            for (int cell : PLACEMENT_CELLS[p]) {
+                COVERING[cell][filled[cell]++] = p;
+                INITIAL_SCORE[cell] += FLEET_COUNTS[PLACEMENT_LENGTH[p]];
+            }
+        }
+    }
+
+    private final SplittableRandom random;  // Breaks ties between equally likely cells
+    private final int[] score = INITIAL_SCORE.clone();
+    private final boolean[] blocked = new boolean[PLACEMENT_CELLS.length];  // Placement ruled out
+    private final int[] hits = new int[PLACEMENT_CELLS.length];  // Unsunk hits a placement covers
+    private final int[] afloat = FLEET_COUNTS.clone();  // Ships of each length not yet sunk
+    private final boolean[] shot = new boolean[CELLS];
+
+    public DensityBot(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public void placeFleet(Fleet fleet) {
+        RandomBot.placeRandomFleet(fleet, random);
+    }
+
+    @Override
+    public int nextShot() {
+        int best = -1, bestScore = Integer.MIN_VALUE, ties = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (shot[cell]) continue;
+            if (score[cell] > bestScore) {
+                best = cell;
+                bestScore = score[cell];
+                ties = 1;
+            } else if (score[cell] == bestScore && random.nextInt(++ties) == 0) {
+                best = cell;  // Each tied cell ends up chosen with equal chance
+            }
+        }
+        shot[best] = true;
+        return best;
+    }
+
+    @Override
+    public void onAttackResult(int cell, int result) {
+        switch (result) {
+            case Protocol.RESULT_MISS -> {
+                for (int p : COVERING[cell]) block(p);
+            }
+            case Protocol.RESULT_HIT -> addHit(cell);
+            case Protocol.RESULT_SUNK -> {
+                addHit(cell);
+                sink(cell);
+            }
+            default -> {
+                // Rejected shots change nothing
+            }
+        }
+    }
+
+    private void addHit(int cell) {
+        for (int p : COVERING[cell]) {
+            if (blocked[p]) continue;
+            hits[p]++;
+            int weight = afloat[PLACEMENT_LENGTH[p]] * HIT_WEIGHT;
+            for (int covered : PLACEMENT_CELLS[p]) score[covered] += weight;
+        }
+    }
+
+    // The result does not say which ship sank, only that it covers this cell and is fully hit.
+    // Take the longest such placement whose length is still afloat, remove one ship of that length
+    // and block its cells like misses.
+    private void sink(int cell) {
+        int sunk = -1;
+        for (int p : COVERING[cell]) {
+            int k = PLACEMENT_LENGTH[p];
+            if (!blocked[p] && afloat[k] > 0 && hits[p] == LENGTHS[k]
+                    && (sunk < 0 || LENGTHS[k] > LENGTHS[PLACEMENT_LENGTH[sunk]])) {
+                sunk = p;
+            }
+        }
+        if (sunk < 0) return;  // Inconsistent with earlier guesses; keep shooting on the scores we have
+
+        // One fewer ship of this length: take one copy of each open placement's weight back out
+        int k = PLACEMENT_LENGTH[sunk];
+        for (int p = FIRST_PLACEMENT[k]; p < FIRST_PLACEMENT[k + 1]; p++) {
+            if (blocked[p]) continue;
+            int weight = 1 + HIT_WEIGHT * hits[p];
+            for (int covered : PLACEMENT_CELLS[p]) score[covered] -= weight;
+        }
+        afloat[k]--;
+
+        for (int sunkCell : PLACEMENT_CELLS[sunk]) {
+            for (int p : COVERING[sunkCell]) block(p);
+        }
+    }
+
+    private void block(int p) {
+        if (blocked[p]) return;
+        blocked[p] = true;
+        int weight = afloat[PLACEMENT_LENGTH[p]] * (1 + HIT_WEIGHT * hits[p]);
+        for (int covered : PLACEMENT_CELLS[p]) score[covered] -= weight;
+    }
+}
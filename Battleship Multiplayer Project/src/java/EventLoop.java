@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// One selector thread multiplexing many player channels. Other threads never touch the
+// channels directly; they hand work to the loop through execute().
+public class EventLoop implements Runnable {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();  // Work submitted from other threads
+    private volatile boolean running = true;
+
+    public EventLoop() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    // Runs a task on the loop thread and wakes the selector so it is picked up promptly
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    // Registers a freshly accepted connection for reads on this loop
+    public void register(NioConnection connection, SocketChannel channel) {
+        execute(() -> {
+            try {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.attach(key);
+            } catch (IOException e) {
+                Log.error("Error registering " + connection.getRemoteAddress() + ": " + e.getMessage());
+                connection.closeNow();
+            }
+        });
+    }
+
+    public int getConnectionCount() {
+        return selector.keys().size();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+
+                // Run work handed over by match workers (flushes, closes, registrations, listeners)
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                // Service every channel that is ready
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (key.isValid() && key.isReadable()) connection.handleRead();
+                    if (key.isValid() && key.isWritable()) connection.handleWrite();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) e.printStackTrace();
+        } finally {
+            // Drop every remaining connection so their matches end
+            for (SelectionKey key : selector.keys()) {
+                ((NioConnection) key.attachment()).closeNow();
+            }
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
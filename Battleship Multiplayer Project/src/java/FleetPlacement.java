@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Places a whole fleet sent in one FLEET frame. The fleet is checked against the board rules in
+// a single pass before any ship reaches the backend, so it is either placed whole or rejected
+// with the first ship at fault and why, and a rejected fleet leaves the board untouched.
+public final class FleetPlacement {
+    private FleetPlacement() {
+    }
+
+    // Checks every ship in order: a known type the fleet still has room for, a valid orientation,
+    // inside the board and clear of the ships before it; then that no ship of the fleet is
+    // missing. Returns Protocol.PLACE_OK, or a rejection status in the low byte and the index of
+    // the ship at fault above it (see status() and index()).
+    public static int check(BoardRules rules, Frame fleet) {
+        int count = fleet.a;
+        int rows = rules.getRows(), cols = rules.getCols();
+        int[] ofType = new int[BoardRules.SHIP_TYPES];
+        // Cells taken so far: a bitset on boards small enough for GRID frames, a CellMap on larger ones
+        long[] taken = rules.fitsGridFrame() ? new long[(rows * cols + 63) >>> 6] : null;
+        CellMap occupied = (taken == null) ? new CellMap(Math.min(count, Protocol.MAX_FLEET_SHIPS) * Protocol.shipSize(0)) : null;
+        for (int i = 0; i < count; i++) {
+            int ship = fleet.fleetShip(i);
+            int row = fleet.fleetRow(i), col = fleet.fleetCol(i);
+            int orientation = fleet.fleetOrientation(i);
+            int length = Protocol.shipSize(ship);
+            if (length == 0) return reject(Protocol.PLACE_UNKNOWN_SHIP, i);
+            if (++ofType[ship] > rules.getFleet(ship)) return reject(Protocol.PLACE_NOT_IN_FLEET, i);
+            if (orientation != 0 && orientation != 1) return reject(Protocol.PLACE_BAD_ORIENTATION, i);
+            int lastRow = row + (orientation == 1 ? length - 1 : 0);
+            int lastCol = col + (orientation == 0 ? length - 1 : 0);
+            if (lastRow >= rows || lastCol >= cols) return reject(Protocol.PLACE_OUT_OF_BOUNDS, i);
+
+            int step = (orientation == 1) ? cols : 1;
+            for (int cell = row * cols + col, k = 0; k < length; cell += step, k++) {
+                if (taken != null) {
+                    if ((taken[cell >>> 6] & 1L << cell) != 0) return reject(Protocol.PLACE_OVERLAP, i);
+                    taken[cell >>> 6] |= 1L << cell;
+                } else {
+                    if (occupied.get(cell) != CellMap.ABSENT) return reject(Protocol.PLACE_OVERLAP, i);
+                    occupied.put(cell, i);
+                }
+            }
+        }
+        // No type went over its count, so fewer ships than the fleet means some are missing
+        if (count < rules.getShipCount()) return reject(Protocol.PLACE_FLEET_INCOMPLETE, count);
+        return Protocol.PLACE_OK;
+    }
+
+    public static int status(int check) {
+        return check & 0xFF;
+    }
+
+    public static int index(int check) {
+        return check >>> 8;
+    }
+
+    // Places a fleet that passed check(). The standard fleet goes to the backend in one placeFleet
+    // call, a single JNI crossing on the native engine; other boards place ship by ship. The
+    // backend checks each ship again, so a refusal means it disagrees with the rules.
+    public static void place(BattleshipPlayer player, BoardRules rules, Frame fleet) throws IOException {
+        int count = fleet.a;
+        if (rules.isStandard()) {
+            ByteBuffer records = ByteBuffer.allocateDirect(count * BattleshipPlayer.FLEET_RECORD_SIZE);
+            for (int i = 0; i < count; i++) {
+                records.put((byte) fleet.fleetShip(i)).put((byte) fleet.fleetRow(i)).put((byte) fleet.fleetCol(i)).put((byte) fleet.fleetOrientation(i));
+            }
+            if (player.placeFleet(records, count) != (1 << count) - 1) throw new IOException("The game engine refused a fleet the rules allow");
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            int[] coords = {fleet.fleetRow(i), fleet.fleetCol(i)};
+            if (player.PlaceShip(Protocol.shipName(fleet.fleetShip(i)), coords, fleet.fleetOrientation(i)) == -1) {
+                throw new IOException("The game engine refused a fleet the rules allow");
+            }
+        }
+    }
+
+    private static int reject(int status, int index) {
+        return status | index << 8;
+    }
+}
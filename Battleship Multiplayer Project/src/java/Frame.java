@@ -0,0 +1,81 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// One decoded protocol message. The meaning of the numeric fields depends on the type;
+// see the frame layouts in Protocol. Readers may reuse a Frame, so do not keep one
+// after asking the connection for the next.
+public final class Frame {
+    public int type;  // One of the Protocol message types
+    public int a, b, c, d, e;  // Fixed-size fields, in wire order
+    public int seq;  // Board sequence number carried by PLACE_RESULT, FLEET_RESULT, ATTACK_RESULT, GRID and CELLS
+    public long token;  // Seat token carried by SESSION and RESUME
+    public byte[] payload = new byte[0];  // Variable-length bytes for TEXT, GRID, CELLS, RULES and FLEET frames, and HELLO names
+    public int payloadLength;
+
+    // Decodes a TEXT payload
+    public String text() {
+        return new String(payload, 0, payloadLength, StandardCharsets.UTF_8);
+    }
+
+    // Decodes a RULES frame; throws IllegalArgumentException if the server sent rules no board can hold
+    public BoardRules rules() {
+        int[] fleet = new int[BoardRules.SHIP_TYPES];
+        for (int ship = 0; ship < fleet.length; ship++) fleet[ship] = ((payload[2 * ship] & 0xFF) << 8) | (payload[2 * ship + 1] & 0xFF);
+        BoardRules rules = new BoardRules(a, b, fleet);
+        return rules.isStandard() ? BoardRules.STANDARD : rules;
+    }
+
+    // CELLS frames: the row, column and state of the i-th cell in the payload
+    public int cellRow(int i) {
+        return ((payload[5 * i] & 0xFF) << 8) | (payload[5 * i + 1] & 0xFF);
+    }
+
+    public int cellCol(int i) {
+        return ((payload[5 * i + 2] & 0xFF) << 8) | (payload[5 * i + 3] & 0xFF);
+    }
+
+    public int cellState(int i) {
+        return payload[5 * i + 4];
+    }
+
+    // FLEET frames: the ship code, row, column and orientation of the i-th ship in the payload
+    public int fleetShip(int i) {
+        return payload[6 * i] & 0xFF;
+    }
+
+    public int fleetRow(int i) {
+        return ((payload[6 * i + 1] & 0xFF) << 8) | (payload[6 * i + 2] & 0xFF);
+    }
+
+    public int fleetCol(int i) {
+        return ((payload[6 * i + 3] & 0xFF) << 8) | (payload[6 * i + 4] & 0xFF);
+    }
+
+    public int fleetOrientation(int i) {
+        return payload[6 * i + 5] & 0xFF;
+    }
+
+    // A copy with a payload of its own, for keeping a frame past the next read
+    public Frame copy() {
+        Frame copy = new Frame();
+        copy.type = type;
+        copy.a = a;
+        copy.b = b;
+        copy.c = c;
+        copy.d = d;
+        copy.e = e;
+        copy.seq = seq;
+        copy.token = token;
+        copy.payload = Arrays.copyOf(payload, payloadLength);
+        copy.payloadLength = payloadLength;
+        return copy;
+    }
+
+    // Makes sure the payload array can hold `length` bytes, reusing it when it already can
+    void ensurePayload(int length) {
+        if (payload.length < length) {
+            payload = new byte[length];
+        }
+        payloadLength = length;
+    }
+}
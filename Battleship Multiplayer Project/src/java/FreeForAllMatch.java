@@ -0,0 +1,445 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// A match of 3 to GameEngine.MAX_PLAYERS players, each against all, run as a MatchActor like
+// Match. Fleets are placed at the same time; then the players take turns in seat order and
+// every attack names its target. Everyone still in the game is told whose turn it is, but a result
+// goes only to the attacker and the defender, so what a player receives per turn does not grow
+// with the table. A player whose fleet is sunk, or who times out or leaves, is announced with
+// PLAYER_OUT and disconnected; the GameEngine unlinks them from the turn order, and the last
+// player left wins. These matches are not journaled and cannot be watched: the journal and the
+// spectator feed only have room for two boards.
+public class FreeForAllMatch extends MatchActor {
+    private static final byte[] WELCOME_BYTES = Protocol.utf8(Match.WELCOME_MESSAGE + """
+            FREE-FOR-ALL: every fleet against all the others. Each attack names the
+            player it targets; a player whose ships are all sunk is out, and the
+            last captain afloat wins.
+
+            """);
+
+    private static final int PLACING = 0, PLAYING = 1, OVER = 2;  // Phases
+
+    private final BoardRules rules;  // Board size and fleet; the factory's players must play them
+    private final BattleshipPlayer[] players;  // Game state by player number, native or pure Java
+    private final GameEngine gameEngine;  // Turn order, targets and eliminations
+    private final ServerMetrics metrics;  // Turn latencies and placement counts, or null
+    private boolean ended = false;  // Set once a winner is decided
+    private int phase = PLACING;
+    private int lastOutReason = Protocol.OVER_FLEET_SUNK;  // Why the last opponent went out, for the winner's GAME_OVER
+    private final ByteBuffer discard = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);  // Frames for players already lost
+
+    // Board sequence numbers by player; each counts the changes sent to that player (see Protocol)
+    private final int[] seqs;
+    private final int[] resyncedAt;  // Sequence number each player's last resync answered; once per change, as in Match
+
+    // Placement by player: ships placed, of each type, whether the whole fleet is down, and a
+    // Protocol.OVER_* reason if the player failed to place or left before the first turn
+    private final int[] shipsPlaced;
+    private final int[][] placedOfType;
+    private final boolean[] placed;
+    private final int[] placementFailures;
+
+    // Players in the order they went out, for the standings
+    private final int[] knockedOut;
+    private int knockedOutCount = 0;
+
+    // scheduler is shared by the server's matches; null uses ActorScheduler.shared()
+    public FreeForAllMatch(int matchId, PlayerConnection[] playerConns, Supplier<? extends BattleshipPlayer> playerFactory,
+                           ServerMetrics metrics, MatchTimeouts timeouts, BoardRules rules, ActorScheduler scheduler) {
+        super(matchId, seated(playerConns), timeouts, scheduler);
+        int count = playerConns.length;
+        this.rules = rules;
+        this.metrics = metrics;
+        this.players = new BattleshipPlayer[count + 1];
+        BattleshipPlayer[] seated = new BattleshipPlayer[count];
+        for (int player = 1; player <= count; player++) {
+            players[player] = seated[player - 1] = playerFactory.get();
+        }
+        // Shooter boards come from the same factory, so attacks stay within one backend
+        this.gameEngine = new GameEngine(seated, playerFactory);
+        this.seqs = new int[count + 1];
+        this.resyncedAt = new int[count + 1];
+        Arrays.fill(resyncedAt, -1);
+        this.shipsPlaced = new int[count + 1];
+        this.placedOfType = new int[count + 1][BoardRules.SHIP_TYPES];
+        this.placed = new boolean[count + 1];
+        this.placementFailures = new int[count + 1];
+        this.knockedOut = new int[count];
+    }
+
+    // Player numbers from first place to last: the winner, then everyone else from the last out to
+    // the first. Null unless the match has been won.
+    public int[] getStandings() {
+        if (!ended) return null;
+        int[] standings = new int[knockedOutCount + 1];
+        standings[0] = gameEngine.getWinner();
+        for (int i = 0; i < knockedOutCount; i++) standings[i + 1] = knockedOut[knockedOutCount - 1 - i];
+        return standings;
+    }
+
+    // The connections by player number, with index 0 unused
+    private static PlayerConnection[] seated(PlayerConnection[] playerConns) {
+        PlayerConnection[] conns = new PlayerConnection[playerConns.length + 1];
+        System.arraycopy(playerConns, 0, conns, 1, playerConns.length);
+        return conns;
+    }
+
+    @Override
+    protected void started() {
+        int count = gameEngine.getPlayerCount();
+        // Seat every player, tell them the board and how many are playing, then send the banner
+        StringBuilder seating = new StringBuilder();
+        for (int player = 1; player <= count; player++) {
+            PlayerConnection conn = conns[player];
+            try {
+                Protocol.writeRole(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), player);
+                Protocol.writeRules(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), rules);
+                Protocol.writePlayers(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), count);
+                Protocol.writeText(conn.writeBuffer(Protocol.textFrameSize(WELCOME_BYTES)), WELCOME_BYTES);
+                conn.flush();
+            } catch (IOException e) {
+                lost(player, e);  // Fails placement once the close comes through
+            }
+            seating.append(player == 1 ? "" : ", ").append(conn.getRemoteAddress());
+        }
+        if (metrics != null) metrics.matchStarted();
+        Log.info("[Match " + matchId + "] Seated " + count + " players: " + seating
+                + (rules.isStandard() ? "" : " on " + rules.describe()));
+
+        // Every player shares one deadline for the whole fleet
+        long deadline = (timeouts != null) ? timeouts.placementDeadline() : MatchTimeouts.NO_DEADLINE;
+        for (int player = 1; player <= count; player++) {
+            listen(player);
+            await(player, deadline);
+        }
+    }
+
+    @Override
+    protected void received(int playerNumber, Frame frame) throws IOException {
+        if (frame.type == Protocol.RESYNC) {
+            if (resyncedAt[playerNumber] == seqs[playerNumber]) {
+                Protocol.writeError(frameFor(playerNumber), Protocol.ERROR_RESYNC_REFUSED);
+                flush(playerNumber);
+                return;
+            }
+            resyncedAt[playerNumber] = seqs[playerNumber];
+            sendFullGrids(playerNumber);
+        } else if (phase == PLACING && !placed[playerNumber]) {
+            placeShips(playerNumber, frame);
+        } else if (phase == PLAYING && playerNumber == gameEngine.getCurrentPlayer()) {
+            handlePlayerTurn(playerNumber, frame);
+        } else {
+            // Out of turn, or the fleet is already placed
+            Protocol.writeError(frameFor(playerNumber), Protocol.ERROR_UNEXPECTED_MESSAGE);
+            flush(playerNumber);
+        }
+    }
+
+    @Override
+    protected void left(int playerNumber) throws IOException {
+        if (phase == PLACING) {
+            placementFailed(playerNumber, Protocol.OVER_LEFT, "Disconnected");
+        } else if (gameEngine.isAlive(playerNumber)) {
+            // The game goes on without them
+            Log.error("[Match " + matchId + "] Player " + playerNumber + " left the game");
+            knockOut(playerNumber, Protocol.OVER_LEFT);
+            playOn(playerNumber);
+        }
+    }
+
+    @Override
+    protected void timedOut(int playerNumber, boolean silent) throws IOException {
+        if (metrics != null) metrics.playerTimedOut();
+        String why = silent ? "Stopped responding" : "Ran out of time";
+        if (phase == PLACING) {
+            placementFailed(playerNumber, Protocol.OVER_TIMED_OUT, why);
+        } else {
+            Log.error("[Match " + matchId + "] Player " + playerNumber + " did not attack: " + why);
+            knockOut(playerNumber, Protocol.OVER_TIMED_OUT);
+            playOn(playerNumber);
+        }
+    }
+
+    @Override
+    protected void finished() {
+        phase = OVER;
+        if (metrics != null) metrics.matchEnded(ended);
+        // Hand the game state back; native players are deleted or returned to their pool
+        gameEngine.close();
+        for (int player = 1; player <= gameEngine.getPlayerCount(); player++) players[player].close();
+    }
+
+    // A player who timed out or left before the first turn; they go out once every fleet is in
+    private void placementFailed(int playerNumber, int reason, String why) throws IOException {
+        Log.error("[Match " + matchId + "] Error during Player " + playerNumber + " ship placement: " + why);
+        placementFailures[playerNumber] = reason;
+        startGameOnceSettled();
+    }
+
+    // One placement command from a player still placing
+    private void placeShips(int playerNumber, Frame frame) throws IOException {
+        PlayerConnection conn = conns[playerNumber];
+        BattleshipPlayer player = players[playerNumber];
+
+        if (frame.type == Protocol.FLEET && shipsPlaced[playerNumber] == 0) {
+            // The whole fleet in one frame, as in Match
+            int check = FleetPlacement.check(rules, frame);
+            int status = FleetPlacement.status(check);
+            if (status == Protocol.PLACE_OK) {
+                FleetPlacement.place(player, rules, frame);
+                for (int i = 0; i < frame.a; i++) {
+                    shipPlaced(playerNumber, frame.fleetShip(i), frame.fleetRow(i), frame.fleetCol(i), frame.fleetOrientation(i));
+                }
+                shipsPlaced[playerNumber] = frame.a;
+            } else if (metrics != null) {
+                metrics.placement(false);
+            }
+            int seq = (status == Protocol.PLACE_OK) ? ++seqs[playerNumber] : seqs[playerNumber];
+            Protocol.writeFleetResult(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), status, FleetPlacement.index(check), seq);
+            conn.flush();
+        } else if (frame.type == Protocol.PLACE) {
+            int ship = frame.a;
+            int x = frame.b;
+            int y = frame.c;
+            int orientation = frame.d;
+            String type = Protocol.shipName(ship);
+
+            int status;
+            if (type == null) {
+                status = Protocol.PLACE_UNKNOWN_SHIP;  // Never pass an unknown name to the native side
+            } else if (placedOfType[playerNumber][ship] == rules.getFleet(ship)) {
+                status = Protocol.PLACE_NOT_IN_FLEET;  // The fleet has no more ships of this type
+            } else if (player.PlaceShip(type, new int[]{x, y}, orientation) == -1) {
+                status = Protocol.PLACE_INVALID;  // Out of bounds, overlapping or bad orientation
+            } else {
+                status = Protocol.PLACE_OK;
+                shipsPlaced[playerNumber]++;
+                placedOfType[playerNumber][ship]++;
+                shipPlaced(playerNumber, ship, x, y, orientation);
+            }
+            if (metrics != null && status != Protocol.PLACE_OK) metrics.placement(false);
+
+            // Each placement only touches its own player's sequence number
+            int seq = (status == Protocol.PLACE_OK) ? ++seqs[playerNumber] : seqs[playerNumber];
+            Protocol.writePlaceResult(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), status, ship, x, y, orientation, seq);
+            conn.flush();
+        } else {
+            Protocol.writeError(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), Protocol.ERROR_UNEXPECTED_MESSAGE);
+            conn.flush();
+            return;
+        }
+
+        if (shipsPlaced[playerNumber] < rules.getShipCount()) return;
+        placed[playerNumber] = true;
+        stopWaiting(playerNumber);
+        startGameOnceSettled();
+    }
+
+    private void shipPlaced(int playerNumber, int ship, int x, int y, int orientation) {
+        if (metrics != null) metrics.placement(true);
+        if (Log.isInfoEnabled()) {
+            Log.info("[Match " + matchId + "] Player " + playerNumber + " Placed Ship: " + Protocol.shipName(ship) + ", Starting at: [" + x + "," + y + "]"
+                    + ", With Orientation: " + ((orientation == 0) ? "Horizontal" : "Vertical"));
+        }
+    }
+
+    // Starts the game once every player has either placed or failed to. Players who failed are out
+    // before the first turn. If only one placed, they win by forfeit; if nobody did, the match is
+    // abandoned.
+    private void startGameOnceSettled() {
+        int count = gameEngine.getPlayerCount();
+        int ready = 0;
+        for (int player = 1; player <= count; player++) {
+            if (!placed[player] && placementFailures[player] == 0) return;  // Still placing
+            if (placementFailures[player] == 0) ready++;
+        }
+        if (ready == 0) {
+            Log.error("[Match " + matchId + "] Ended early: Nobody placed a fleet");
+            endMatch();
+            return;
+        }
+        for (int player = 1; player <= count; player++) {
+            if (placementFailures[player] != 0) knockOut(player, placementFailures[player]);
+        }
+        if (gameEngine.isGameOver()) {
+            declareWinner();
+            return;
+        }
+
+        // Notify everyone still in that ship placement is complete
+        phase = PLAYING;
+        for (int player = 1; player <= count; player++) {
+            if (gameEngine.isAlive(player)) Protocol.writeGameStart(frameFor(player));
+        }
+        gameEngine.chooseFirstAttacker();
+        startTurn();
+    }
+
+    // Everyone still in learns whose turn it is, walking the turn order from the attacker; then the
+    // match waits on the attacker
+    private void startTurn() {
+        int playerNumber = gameEngine.getCurrentPlayer();
+        for (int player = playerNumber, i = gameEngine.getAliveCount(); i > 0; player = gameEngine.nextAlive(player), i--) {
+            Protocol.writeTurn(frameFor(player), playerNumber);
+            flush(player);
+        }
+        await(playerNumber, (timeouts != null) ? timeouts.turnDeadline() : MatchTimeouts.NO_DEADLINE);
+    }
+
+    // The current player's command; anything but an attack skips their turn
+    private void handlePlayerTurn(int playerNumber, Frame frame) throws IOException {
+        stopWaiting(playerNumber);
+        if (frame.type != Protocol.ATTACK) {
+            Protocol.writeError(frameFor(playerNumber), Protocol.ERROR_UNEXPECTED_MESSAGE);
+            flush(playerNumber);
+            playOn(playerNumber);
+            return;
+        }
+
+        long received = System.nanoTime();
+        int x = frame.a;
+        int y = frame.b;
+        int target = frame.c;
+
+        if (Log.isInfoEnabled()) Log.info("[Match " + matchId + "] Player " + playerNumber + " attacking Player " + target + " at (" + x + ", " + y + ")");
+
+        int attack = gameEngine.attack(target, x, y);
+        int result = resultCode(attack);
+
+        if (result >= Protocol.RESULT_OUT_OF_BOUNDS) {
+            // Rejected attack: only the attacker hears about it and no board changes
+            if (metrics != null) metrics.attackRejected();
+            Protocol.writeAttackResult(frameFor(playerNumber), playerNumber, target, result, x, y, seqs[playerNumber]);
+            flush(playerNumber);
+        } else {
+            // Accepted: the attacker's target grid and the defender's self grid changed, nobody else's
+            Protocol.writeAttackResult(frameFor(playerNumber), playerNumber, target, result, x, y, ++seqs[playerNumber]);
+            Protocol.writeAttackResult(frameFor(target), playerNumber, target, result, x, y, ++seqs[target]);
+            flush(playerNumber);
+            flush(target);
+        }
+        if (metrics != null) metrics.recordTurn(System.nanoTime() - received);
+        if (AttackResult.isGameOver(attack)) knockOut(target, Protocol.OVER_FLEET_SUNK);
+        playOn(playerNumber);
+    }
+
+    // After `playerNumber`'s turn ended or they went out: the next turn, unless one player is left.
+    // A player knocked out while someone else attacks leaves that turn alone.
+    private void playOn(int playerNumber) {
+        if (gameEngine.isGameOver()) {
+            declareWinner();
+        } else if (playerNumber == gameEngine.getCurrentPlayer()) {
+            gameEngine.nextTurn();
+            startTurn();
+        }
+    }
+
+    // Takes a player out of the game: the engine drops them from the turn order, they and everyone
+    // still in get PLAYER_OUT, and their connection is closed
+    private void knockOut(int playerNumber, int reason) {
+        gameEngine.eliminate(playerNumber);
+        knockedOut[knockedOutCount++] = playerNumber;
+        lastOutReason = reason;
+        Log.info("[Match " + matchId + "] Player " + playerNumber + " is out"
+                + (reason == Protocol.OVER_TIMED_OUT ? " (timed out)" : reason == Protocol.OVER_LEFT ? " (left)" : "")
+                + ". Players left: " + gameEngine.getAliveCount());
+
+        Protocol.writePlayerOut(frameFor(playerNumber), playerNumber, reason);
+        flush(playerNumber);
+        disconnect(playerNumber);
+        for (int player = gameEngine.nextAlive(playerNumber), i = gameEngine.getAliveCount(); i > 0; player = gameEngine.nextAlive(player), i--) {
+            Protocol.writePlayerOut(frameFor(player), playerNumber, reason);
+            flush(player);
+        }
+    }
+
+    // The last player left wins; everyone else has already been told they are out
+    private void declareWinner() {
+        int winner = gameEngine.getWinner();
+        ended = true;
+        if (metrics != null && lastOutReason != Protocol.OVER_FLEET_SUNK) metrics.matchForfeited();
+        Log.info("[Match " + matchId + "] Player " + winner + " wins!");
+        try {
+            Protocol.writeGameOver(conns[winner].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), winner, lastOutReason);
+            conns[winner].flush();
+        } catch (IOException e) {
+            Log.error("[Match " + matchId + "] Could not tell Player " + winner + " they won: " + e.getMessage());
+        }
+        endMatch();
+    }
+
+    // Sends a player's self grid and their target grid against every opponent, stamped with their
+    // current board sequence number. Resyncs are rare, so the scratch grid is allocated per call.
+    private void sendFullGrids(int playerNumber) throws IOException {
+        PlayerConnection conn = conns[playerNumber];
+        int rows = rules.getRows(), cols = rules.getCols();
+        int seq = seqs[playerNumber];
+        if (!rules.fitsGridFrame()) {
+            // Large boards: only the cells that are not empty, as CELLS frames queued from one array
+            CellMap self = new CellMap();
+            CellMap[] targets = new CellMap[gameEngine.getPlayerCount() + 1];
+            players[playerNumber].copySelfCells(self);
+            int size = Protocol.cellsSize(self.size());
+            for (int opponent = 1; opponent < targets.length; opponent++) {
+                if (opponent == playerNumber) continue;
+                targets[opponent] = new CellMap();
+                gameEngine.copyTargetCells(playerNumber, opponent, cols, targets[opponent]);
+                size += Protocol.cellsSize(targets[opponent].size());
+            }
+            ByteBuffer out = ByteBuffer.allocate(size);
+            Protocol.writeCells(out, Protocol.GRID_SELF, seq, cols, self);
+            for (int opponent = 1; opponent < targets.length; opponent++) {
+                if (targets[opponent] != null) Protocol.writeCells(out, Protocol.GRID_OPPONENT + opponent, seq, cols, targets[opponent]);
+            }
+            conn.flush(out.array());
+            return;
+        }
+        byte[] cells = new byte[rows * cols];
+        players[playerNumber].copySelfGrid(cells);
+        Protocol.writeGrid(conn.writeBuffer(Protocol.gridFrameSize(rows, cols)), Protocol.GRID_SELF, seq, rows, cols, cells);
+        for (int opponent = 1; opponent <= gameEngine.getPlayerCount(); opponent++) {
+            if (opponent == playerNumber) continue;
+            gameEngine.copyTargetGrid(playerNumber, opponent, cols, cells);
+            Protocol.writeGrid(conn.writeBuffer(Protocol.gridFrameSize(rows, cols)), Protocol.GRID_OPPONENT + opponent, seq, rows, cols, cells);
+        }
+        conn.flush();
+    }
+
+    // Buffer for a player's next fixed-size frame; frames for a player already lost go nowhere
+    private ByteBuffer frameFor(int playerNumber) {
+        if (!conns[playerNumber].isClosed()) {
+            try {
+                return conns[playerNumber].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE);
+            } catch (IOException e) {
+                lost(playerNumber, e);
+            }
+        }
+        return discard.clear();
+    }
+
+    // Sends a player's buffered frames, unless they are already lost
+    private void flush(int playerNumber) {
+        if (conns[playerNumber].isClosed()) return;
+        try {
+            conns[playerNumber].flush();
+        } catch (IOException e) {
+            lost(playerNumber, e);
+        }
+    }
+
+    // A player who cannot be written to is disconnected, and goes out when the close reaches the
+    // match like any other, so one dead connection never ends the match for everyone else
+    private void lost(int playerNumber, IOException e) {
+        Log.error("[Match " + matchId + "] Lost Player " + playerNumber + ": " + e.getMessage());
+        conns[playerNumber].close();
+    }
+
+    // Unpacks the protocol code from an attack result
+    private static int resultCode(int result) throws IOException {
+        int code = AttackResult.code(result);
+        if (code > Protocol.RESULT_BAD_TARGET) throw new IOException("Unexpected attack result: " + AttackResult.text(result));
+        return code;
+    }
+}
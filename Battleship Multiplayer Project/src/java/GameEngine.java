@@ -1,113 +1,192 @@
-import java.util.Random;
-
-public class GameEngine {
-    // Flags to track if each player has placed their ships and is ready
-    private boolean player1Ready = false;  // Flag for Player 1 readiness
-    private boolean player2Ready = false;  // Flag for Player 2 readiness
-    private boolean gameStarted = false;  // Flag to indicate if the game has started
-    private int currentPlayer = 1;  // Variable to track the current player's turn (1 or 2)
-
-    // Object used as a lock for synchronizing readiness-related operations
-    private final Object readinessLock = new Object();
-
-    // BattleshipJNI objects to represent Player 1 and Player 2
-    private BattleshipJNI player1;
-    private BattleshipJNI player2;
-
-    // Constructor to initialize the game engine with two players
-    public GameEngine(BattleshipJNI player1, BattleshipJNI player2) {
-        this.player1 = player1;  // Assign Player 1's BattleshipJNI object
-        this.player2 = player2;  // Assign Player 2's BattleshipJNI object
-        this.currentPlayer = 1;  // Initialize with Player 1's turn
-    }
-
-    // Method to start the game; waits for both players to be ready
-    public void startGame() {
-        synchronized (readinessLock) {
-            try {
-                // Wait until both players have placed their ships
-                while (!player1Ready || !player2Ready) {
-                    readinessLock.wait();  // Release the lock and wait for a notification
-                }
-                gameStarted = true;  // Mark the game as started
-                System.out.println("Game has started!");
-
-                // Randomly decide which player attacks first
-                chooseFirstAttacker();
-            } catch (InterruptedException e) {
-                e.printStackTrace();  // Handle interruption while waiting
-            }
-        }
-    }
-
-    // Randomly chooses which player will attack first
-    public void chooseFirstAttacker() {
-        Random random = new Random();
-        currentPlayer = random.nextInt(2) + 1;  // Generate either 1 (Player 1) or 2 (Player 2)
-        System.out.println("Player " + currentPlayer + " will attack first.");
-    }
-
-    // Marks a player as ready and notifies waiting threads
-    public void playerReady(int playerNumber) {
-        synchronized (readinessLock) {
-            if (playerNumber == 1) {
-                player1Ready = true;  // Set Player 1 as ready
-                System.out.println("Player 1 is ready.");
-            } else if (playerNumber == 2) {
-                player2Ready = true;  // Set Player 2 as ready
-                System.out.println("Player 2 is ready.");
-            }
-            readinessLock.notifyAll();  // Notify all threads waiting on readinessLock
-        }
-    }
-
-    // Checks if the game has started
-    public boolean hasGameStarted() {
-        synchronized (readinessLock) {
-            return gameStarted;  // Return the gameStarted flag
-        }
-    }
-
-    // Moves to the next turn, switching the current player
-    public void nextTurn() {
-        synchronized (readinessLock) {
-            do {
-                // Toggle currentPlayer between 1 and 2
-                currentPlayer = (currentPlayer == 1) ? 2 : 1;
-            } while (getCurrentPlayerObject() == null || hasPlayerLost(getCurrentPlayerObject()));
-            // Skip turns for players who have lost, ensuring only active players take turns
-            readinessLock.notifyAll();  // Notify all threads waiting on readinessLock
-        }
-    }
-
-    // Returns the current player's number (1 or 2)
-    public int getCurrentPlayer() {
-        return currentPlayer;
-    }
-
-    // Checks if a specific player has lost the game
-    public boolean hasPlayerLost(BattleshipJNI player) {
-        return player.HasLost();  // Calls the HasLost() method from BattleshipJNI
-    }
-
-    // Returns the BattleshipJNI object for the current player
-    private BattleshipJNI getCurrentPlayerObject() {
-        return (currentPlayer == 1) ? player1 : player2;  // Return player1 or player2 based on currentPlayer
-    }
-
-    // Checks if the game has ended by verifying if either player has lost
-    public boolean checkGameEnd() {
-        if (player1.HasLost()) {
-            // If Player 1 has lost, Player 2 wins
-            System.out.println("Player 2 wins!");
-            return true;
-        }
-        if (player2.HasLost()) {
-            // If Player 2 has lost, Player 1 wins
-            System.out.println("Player 1 wins!");
-            return true;
-        }
-        return false;  // Return false if neither player has lost
-    }
-}
-
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Turn order, attacks and eliminations for one game. An engine belongs to the match that made it
+// and is only ever used by the one worker running that match at a time (see MatchActor), so none
+// of its state is locked; a caller sharing one across threads must do its own ordering.
+public class GameEngine {
+    public static final int MAX_PLAYERS = 16;  // Free-for-all matches seat up to this many
+    private static final byte HIT_CELL = 3;  // Cell state, as in GameLogic.h
+
+    private int currentPlayer = 1;  // Variable to track the current player's turn (1 to the player count)
+    private int winner = 0;  // Last player left once every other fleet is sunk, 0 while the game is on
+
+    // Game state of every player by player number, from either backend; index 0 is unused
+    private final BattleshipPlayer[] players;
+
+    // Players still in the game, linked in turn order: next[p] is the player after p. Eliminating a
+    // player unlinks it in O(1) and leaves its own links alone, so the turn can still move on from a
+    // player who was just knocked out. Turns never ask a backend whether anyone has lost.
+    private final int[] next, prev;
+    private final boolean[] alive;
+    private int aliveCount;
+
+    // With more than two players, an attacker needs a target grid for each opponent: shooters[a][d]
+    // is an empty board, made on a's first attack on d, whose target grid records a's shots at d.
+    // Two-player games attack with the players' own target grids.
+    private final Supplier<? extends BattleshipPlayer> shooterFactory;
+    private final BattleshipPlayer[][] shooters;
+
+    // Several attackers can hit the same ship cell. The backends answer a cell that is already hit
+    // with AttackResult.EMPTY and leave the attacker's grid alone, so the engine reports a hit and
+    // records the cell here, by [attacker][defender], keyed row << 12 | col.
+    private final CellMap[][] wrecks;
+
+    // Constructor to initialize the game engine with two players
+    public GameEngine(BattleshipPlayer player1, BattleshipPlayer player2) {
+        this(new BattleshipPlayer[]{player1, player2}, null);
+    }
+
+    // A game for 2 to MAX_PLAYERS players; players[0] is Player 1. Games of three or more need the
+    // factory that made the players, for the shooter boards.
+    public GameEngine(BattleshipPlayer[] players, Supplier<? extends BattleshipPlayer> shooterFactory) {
+        int count = players.length;
+        if (count < 2 || count > MAX_PLAYERS) throw new IllegalArgumentException("A game needs 2 to " + MAX_PLAYERS + " players: " + count);
+        if (count > 2 && shooterFactory == null) throw new IllegalArgumentException("Games of more than two players need a shooter factory");
+        this.players = new BattleshipPlayer[count + 1];
+        System.arraycopy(players, 0, this.players, 1, count);
+        this.next = new int[count + 1];
+        this.prev = new int[count + 1];
+        this.alive = new boolean[count + 1];
+        for (int player = 1; player <= count; player++) {
+            next[player] = (player == count) ? 1 : player + 1;
+            prev[player] = (player == 1) ? count : player - 1;
+            alive[player] = true;
+        }
+        this.aliveCount = count;
+        this.shooterFactory = shooterFactory;
+        this.shooters = (count > 2) ? new BattleshipPlayer[count + 1][count + 1] : null;
+        this.wrecks = (count > 2) ? new CellMap[count + 1][count + 1] : null;
+        this.currentPlayer = 1;  // Initialize with Player 1's turn
+    }
+
+    // Randomly chooses which of the players still in the game will attack first, from the calling
+    // thread's own generator rather than a new Random per game
+    public void chooseFirstAttacker() {
+        currentPlayer = ThreadLocalRandom.current().nextInt(getPlayerCount()) + 1;
+        while (!alive[currentPlayer]) currentPlayer = next[currentPlayer];
+        Log.info("Player " + currentPlayer + " will attack first.");
+    }
+
+    // Sets who attacks first, for callers that draw it from their own seeded random source
+    public void setFirstAttacker(int playerNumber) {
+        currentPlayer = playerNumber;
+    }
+
+    // Moves the turn to the next player still in the game
+    public void nextTurn() {
+        currentPlayer = next[currentPlayer];
+    }
+
+    // The current player attacks the next player in turn order, which in a two-player game is
+    // always the opponent; returns the packed AttackResult
+    public int attack(int row, int col) {
+        return attack(next[currentPlayer], row, col);
+    }
+
+    // The current player attacks a cell of `target`'s board. Returns the packed AttackResult, or
+    // Protocol.RESULT_BAD_TARGET if the target is not an opponent still in the game. An attack that
+    // sinks the target's last fleet eliminates it, and the last player left is the winner, so
+    // callers need no HasLost calls per turn.
+    public int attack(int target, int row, int col) {
+        if (target < 1 || target > getPlayerCount() || target == currentPlayer || !alive[target]) return Protocol.RESULT_BAD_TARGET;
+        CellMap wrecked = (wrecks != null) ? wrecks[currentPlayer][target] : null;
+        if (wrecked != null && col < BoardRules.MAX_DIMENSION && wrecked.get(row << 12 | col) != CellMap.ABSENT) return Protocol.RESULT_ALREADY_ATTACKED;
+        int result = shooter(currentPlayer, target).attack(row, col, players[target]);
+        if (AttackResult.code(result) == AttackResult.EMPTY && wrecks != null) {
+            // Someone else hit this cell first; it is still a hit for this attacker
+            if (wrecked == null) wrecked = wrecks[currentPlayer][target] = new CellMap();
+            wrecked.put(row << 12 | col, HIT_CELL);
+            return Protocol.RESULT_HIT;
+        }
+        if (AttackResult.isGameOver(result)) eliminate(target);
+        return result;
+    }
+
+    // Takes a player out of the turn order, for a sunk fleet or a forfeit
+    public void eliminate(int playerNumber) {
+        if (!alive[playerNumber] || isGameOver()) return;
+        alive[playerNumber] = false;
+        next[prev[playerNumber]] = next[playerNumber];
+        prev[next[playerNumber]] = prev[playerNumber];
+        if (--aliveCount == 1) winner = next[playerNumber];  // The only player still linked
+    }
+
+    // True once only one player is left in the game
+    public boolean isGameOver() {
+        return winner != 0;
+    }
+
+    // Returns the winner's number, or 0 if the game is not over
+    public int getWinner() {
+        return winner;
+    }
+
+    // Returns the current player's number
+    public int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    public int getPlayerCount() {
+        return players.length - 1;
+    }
+
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    public boolean isAlive(int playerNumber) {
+        return alive[playerNumber];
+    }
+
+    // The player after `playerNumber` in turn order, for walking the players still in the game
+    public int nextAlive(int playerNumber) {
+        return next[playerNumber];
+    }
+
+    // Copies `attacker`'s target grid against `defender` into a rows * cols array, for a resync
+    public void copyTargetGrid(int attacker, int defender, int cols, byte[] cells) {
+        BattleshipPlayer shooter = (shooters == null) ? players[attacker] : shooters[attacker][defender];
+        if (shooter != null) {
+            shooter.copyTargetGrid(cells);
+        } else {
+            Arrays.fill(cells, (byte) 0);  // No shots at this opponent yet
+        }
+        CellMap wrecked = (wrecks != null) ? wrecks[attacker][defender] : null;
+        if (wrecked == null) return;
+        for (int slot = 0; slot < wrecked.slots(); slot++) {
+            int key = wrecked.cellAt(slot);
+            if (key != CellMap.ABSENT) cells[(key >>> 12) * cols + (key & 0xFFF)] = HIT_CELL;
+        }
+    }
+
+    // The same for boards too large for an array: only the cells that are not empty
+    public void copyTargetCells(int attacker, int defender, int cols, CellMap cells) {
+        BattleshipPlayer shooter = (shooters == null) ? players[attacker] : shooters[attacker][defender];
+        if (shooter != null) shooter.copyTargetCells(cells);
+        CellMap wrecked = (wrecks != null) ? wrecks[attacker][defender] : null;
+        if (wrecked == null) return;
+        for (int slot = 0; slot < wrecked.slots(); slot++) {
+            int key = wrecked.cellAt(slot);
+            if (key != CellMap.ABSENT) cells.put((key >>> 12) * cols + (key & 0xFFF), HIT_CELL);
+        }
+    }
+
+    // Hands back the shooter boards; the players themselves belong to the caller
+    public void close() {
+        if (shooters == null) return;
+        for (BattleshipPlayer[] row : shooters) {
+            for (BattleshipPlayer shooter : row) {
+                if (shooter != null) shooter.close();
+            }
+        }
+    }
+
+    private BattleshipPlayer shooter(int attacker, int defender) {
+        if (shooters == null) return players[attacker];
+        BattleshipPlayer shooter = shooters[attacker][defender];
+        if (shooter == null) shooter = shooters[attacker][defender] = shooterFactory.get();
+        return shooter;
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+// Re-runs finished matches from a server's match journal. Each match is rebuilt from its recorded
+// placements and attacks on a fresh engine, and every attack result and the winner are checked
+// against what the server recorded. With --match=N only that match is replayed and its final
+// grids are printed. Only matches whose records are all still in the journal are replayed: the
+// server deletes segments once every match in them has ended.
+//
+// Usage: java -cp bin JournalReplay --journal=DIR [--match=N] [--engine=java|jni]
+public class JournalReplay {
+    public static void main(String[] args) throws IOException {
+        Path directory = null;
+        int onlyMatch = 0;
+        Supplier<? extends BattleshipPlayer> playerFactory = BitboardPlayer::new;
+        for (String arg : args) {
+            if (arg.startsWith("--journal=")) {
+                directory = Path.of(arg.substring("--journal=".length()));
+            } else if (arg.startsWith("--match=")) {
+                onlyMatch = Integer.parseInt(arg.substring("--match=".length()));
+            } else if (arg.equals("--engine=java")) {
+                playerFactory = BitboardPlayer::new;
+            } else if (arg.equals("--engine=jni")) {
+                playerFactory = BattleshipJNI::new;
+            } else {
+                directory = null;
+                System.err.println("Unknown option: " + arg);
+                break;
+            }
+        }
+        if (directory == null) {
+            System.err.println("Usage: java -cp bin JournalReplay --journal=DIR [--match=N] [--engine=java|jni]");
+            return;
+        }
+
+        long[] totals = new long[5];  // Matches replayed, abandoned, with mismatches, winner differs, forfeited
+        int match = onlyMatch;
+        MatchReplayer replayer = new MatchReplayer(playerFactory, replayed -> {
+            totals[0]++;
+            if (replayed.recordedWinner == 0) totals[1]++;
+            if (replayed.mismatches > 0) totals[2]++;
+            if (replayed.forfeitedBy != 0) totals[4]++;
+            // A forfeited match stops before a fleet is sunk, so its boards name no winner
+            boolean winnerDiffers = replayed.recordedWinner != 0 && replayed.forfeitedBy == 0
+                    && replayed.recordedWinner != replayed.replayedWinner();
+            if (winnerDiffers) totals[3]++;
+            if (replayed.mismatches > 0 || winnerDiffers) {
+                System.out.println("Match " + replayed.matchId + ": " + replayed.mismatches + " mismatches, recorded winner "
+                        + replayed.recordedWinner + ", replayed winner " + replayed.replayedWinner());
+            }
+            if (match != 0) printMatch(replayed);
+        });
+
+        long start = System.nanoTime();
+        long records = MatchJournal.read(directory, record -> {
+            if (match == 0 || record.matchId == match) replayer.record(record);
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Replayed %,d finished matches from %,d records in %.2f s%n", totals[0], records, seconds);
+        System.out.printf("Abandoned: %,d   Forfeited: %,d   With mismatches: %,d   Winner differs: %,d%n",
+                totals[1], totals[4], totals[2], totals[3]);
+        for (MatchReplayer.ReplayedMatch unfinished : replayer.getUnfinished()) {
+            System.out.println("Match " + unfinished.matchId + " has no end record (" + unfinished.attacks + " attacks)");
+            if (match != 0) printMatch(unfinished);
+            unfinished.player1.close();
+            unfinished.player2.close();
+        }
+        if (totals[2] > 0 || totals[3] > 0) System.exit(1);
+    }
+
+    private static void printMatch(MatchReplayer.ReplayedMatch match) {
+        System.out.println("Match " + match.matchId + ": " + match.placements + " placements, " + match.attacks
+                + " attacks, recorded winner " + match.recordedWinner + ", replayed winner " + match.replayedWinner()
+                + (match.forfeitedBy != 0 ? ", player " + match.forfeitedBy + " forfeited" : ""));
+        if (!match.rules.fitsGridFrame()) {
+            System.out.println("Board " + match.rules.describe() + " is too large to print");
+            return;
+        }
+        System.out.println("Player 1:");
+        System.out.println(match.player1.printGridsSideBySide());
+        System.out.println("Player 2:");
+        System.out.println(match.player2.printGridsSideBySide());
+    }
+}
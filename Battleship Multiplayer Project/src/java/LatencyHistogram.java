@@ -0,0 +1,119 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free latency histogram. Each duration goes into one of eight buckets per power of two,
+// so a percentile is exact to within 12.5% and recording takes a few atomic adds and no lock;
+// any number of threads can record while another reads.
+public final class LatencyHistogram implements LatencyHistogramMBean {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();  // Adders, so threads recording at once do not contend
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        count.increment();
+        sum.add(nanos);
+        long previous;
+        while (nanos > (previous = max.get()) && !max.compareAndSet(previous, nanos)) {
+            // Lost a race with a larger value; try again
+        }
+    }
+
+    // Values below SUB_BUCKETS have a bucket each; above that, the top SUB_BUCKET_BITS bits
+    // after the leading one pick one of SUB_BUCKETS buckets for the value's power of two
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that falls into a bucket
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    // Value at or below which fraction p of the recorded durations fall
+    public long percentile(double p) {
+        long total = count.sum();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) return Math.min(upperBound(bucket), max.get());
+        }
+        return max.get();  // Counts raced ahead of the total
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getMeanNanos() {
+        long total = count.sum();
+        return total == 0 ? 0 : sum.sum() / total;
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return percentile(0.999);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    // Not atomic with concurrent records; a few may land on either side of the reset
+    @Override
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) counts.set(bucket, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    // One line for the periodic dump, e.g. "turn n=1,234 p50=85us p99=1.2ms max=4.0ms"
+    public String summary() {
+        return String.format("%s n=%,d p50=%s p99=%s p999=%s max=%s", name, getCount(), format(getP50Nanos()),
+                format(getP99Nanos()), format(getP999Nanos()), format(getMaxNanos()));
+    }
+
+    static String format(long nanos) {
+        if (nanos < 1_000) return nanos + "ns";
+        if (nanos < 1_000_000) return String.format("%.1fus", nanos / 1e3);
+        return String.format("%.1fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,16 @@
+// JMX view of one LatencyHistogram; values are in nanoseconds
+public interface LatencyHistogramMBean {
+    long getCount();
+
+    long getMeanNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+
+    long getMaxNanos();
+
+    void reset();
+}
@@ -0,0 +1,217 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Headless load for a running server. Each simulated client is a virtual thread that speaks the
+// same binary protocol as BattleshipClient: it joins the lobby (or asks for a server bot), places
+// a bot's fleet in one write, fires the bot's shots with an optional think time and starts a new
+// game as soon as one ends. A client whose connection fails counts the error, backs off and
+// reconnects, so the run keeps its load while the server struggles. Prints progress every
+// REPORT_SECONDS and, at the end, games per second, turn round-trip percentiles and errors.
+//
+// Started with `BattleshipClient --load=N` (see its usage line).
+public class LoadGenerator {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int FLEET_SHIPS = 5;
+    private static final int REPORT_SECONDS = 5;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;  // A server this slow counts as failed
+    private static final long MIN_BACKOFF_MILLIS = 50, MAX_BACKOFF_MILLIS = 2_000;
+    private static final long STOP_GRACE_MILLIS = 10_000;  // Time games in flight get to finish after the run
+
+    private final String host;
+    private final int port;
+    private final int clients;
+    private final long thinkMillis;  // Pause before every shot
+    private final boolean vsBot;  // Each client plays a server bot instead of another client
+    private final Function<SplittableRandom, Bot> botFactory;
+    private final long seed;
+
+    private volatile boolean stopping = false;  // Past the deadline: finish the current game, then stop
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();  // Closed after the grace period
+
+    // Results
+    private final LatencyHistogram turnLatency = new LatencyHistogram("turn");  // Attack sent to its result received
+    private final LongAdder games = new LongAdder();  // Games a client played to the end; two per match between clients
+    private final LongAdder turns = new LongAdder();
+    private final LongAdder connectErrors = new LongAdder();  // Refused, or timed out while connecting
+    private final LongAdder droppedGames = new LongAdder();  // Connection lost or timed out during a game
+    private final LongAdder protocolErrors = new LongAdder();  // ERROR frames, refused admission, rejected placements or attacks
+
+    public LoadGenerator(String host, int port, int clients, long thinkMillis, boolean vsBot,
+                         Function<SplittableRandom, Bot> botFactory, long seed) {
+        this.host = host;
+        this.port = port;
+        this.clients = clients;
+        this.thinkMillis = thinkMillis;
+        this.vsBot = vsBot;
+        this.botFactory = botFactory;
+        this.seed = seed;
+    }
+
+    // Runs every client for `seconds`, printing progress, then prints the totals; returns matches per second
+    public double run(long seconds) throws InterruptedException {
+        System.out.println("Load: " + clients + " clients against " + host + ":" + port + (vsBot ? " (vs server bots)" : "")
+                + ", think time " + thinkMillis + " ms, " + seconds + " s");
+        SplittableRandom seeds = new SplittableRandom(seed);
+        Thread[] threads = new Thread[clients];
+        for (int i = 0; i < clients; i++) {
+            SplittableRandom random = seeds.split();
+            threads[i] = Thread.ofVirtual().name("load-" + i).start(() -> runClient(random));
+        }
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        long lastGames = 0;
+        long lastReport = start;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(REPORT_SECONDS * 1000L, Math.max(1, (end - System.nanoTime()) / 1_000_000)));
+            long now = System.nanoTime();
+            long played = games.sum();
+            System.out.printf("%6.0f s  games %,10d  (%,.0f/s)  turn p50 %s p99 %s  errors %,d%n", (now - start) / 1e9, played,
+                    (played - lastGames) / ((now - lastReport) / 1e9), LatencyHistogram.format(turnLatency.getP50Nanos()),
+                    LatencyHistogram.format(turnLatency.getP99Nanos()), errors());
+            lastGames = played;
+            lastReport = now;
+        }
+        // Rates cover the run itself; games finishing below only add to the latency figures
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long played = games.sum();
+        long turnsPlayed = turns.sum();
+
+        // Let games in flight finish, then cut off the rest (clients still waiting for an opponent)
+        stopping = true;
+        long graceEnd = System.currentTimeMillis() + STOP_GRACE_MILLIS;
+        for (Thread thread : threads) thread.join(Math.max(1, graceEnd - System.currentTimeMillis()));
+        for (Socket socket : open) closeQuietly(socket);
+        for (Thread thread : threads) thread.join();
+
+        long matches = vsBot ? played : played / 2;
+        System.out.printf("Matches: %,d in %.1f s (%,.1f matches/s), turns: %,d (%,.0f/s)%n",
+                matches, elapsed, matches / elapsed, turnsPlayed, turnsPlayed / elapsed);
+        System.out.println("Turn round trip: " + turnLatency.summary());
+        System.out.printf("Errors: %,d connect, %,d dropped games, %,d protocol%n",
+                connectErrors.sum(), droppedGames.sum(), protocolErrors.sum());
+        return matches / elapsed;
+    }
+
+    private long errors() {
+        return connectErrors.sum() + droppedGames.sum() + protocolErrors.sum();
+    }
+
+    // One simulated player: plays games back to back, reconnecting with backoff after a failure
+    private void runClient(SplittableRandom random) {
+        ByteBuffer outBuffer = ByteBuffer.allocate(Protocol.fleetFrameSize(FLEET_SHIPS));
+        ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+        Frame frame = new Frame();
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (!stopping) {
+            Socket socket = new Socket();
+            open.add(socket);
+            boolean connected = false;
+            try {
+                socket.connect(new InetSocketAddress(host, port), READ_TIMEOUT_MILLIS);
+                connected = true;
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                playGame(socket, botFactory.apply(random.split()), outBuffer, scratch, frame);
+                backoff = MIN_BACKOFF_MILLIS;
+            } catch (IOException e) {
+                if (stopping) break;  // Cut off at the end of the run, not a failure
+                if (!connected) {
+                    connectErrors.increment();
+                } else if (e instanceof ProtocolException) {
+                    protocolErrors.increment();
+                } else {
+                    droppedGames.increment();
+                }
+                try {
+                    Thread.sleep(backoff + random.nextLong(backoff));  // Jittered, so clients do not reconnect in lockstep
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                open.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    // Plays one game on a fresh connection, from HELLO to GAME_OVER
+    private void playGame(Socket socket, Bot bot, ByteBuffer outBuffer, ByteBuffer scratch, Frame frame)
+            throws IOException, InterruptedException {
+        OutputStream out = socket.getOutputStream();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        outBuffer.clear();
+
+        Protocol.writeHello(outBuffer, vsBot ? Protocol.HELLO_VS_BOT : 0);
+        send(out, outBuffer);
+        Protocol.readFrame(in, scratch, frame);  // Role, once an opponent is found
+        if (frame.type != Protocol.ROLE) throw new ProtocolException("Not admitted (type " + frame.type + ")");
+        int me = frame.a;
+        Protocol.readFrame(in, scratch, frame);  // Board rules; the bots only play the standard game
+        if (frame.type != Protocol.RULES || !frame.rules().isStandard()) throw new ProtocolException("Not the standard board");
+        Protocol.readFrame(in, scratch, frame);  // Welcome banner
+        if (frame.type == Protocol.PLAYERS) throw new ProtocolException("Seated free-for-all; the bots play two-player matches");
+
+        // The whole fleet goes out in one FLEET frame and comes back as one result
+        int fleet = Protocol.startFleet(outBuffer);
+        bot.placeFleet((ship, row, col, orientation) -> Protocol.addFleetShip(outBuffer, ship, row, col, orientation));
+        Protocol.finishFleet(outBuffer, fleet);
+        send(out, outBuffer);
+        Protocol.readFrame(in, scratch, frame);
+        if (frame.type != Protocol.FLEET_RESULT || frame.a != Protocol.PLACE_OK) throw new ProtocolException("Placement rejected");
+
+        long sentAt = 0;
+        int shot = -1;
+        while (true) {
+            Protocol.readFrame(in, scratch, frame);
+            switch (frame.type) {
+                case Protocol.TURN -> {
+                    if (frame.a != me) continue;
+                    if (thinkMillis > 0) Thread.sleep(thinkMillis);
+                    shot = bot.nextShot();
+                    Protocol.writeAttack(outBuffer, shot / SIZE, shot % SIZE);
+                    send(out, outBuffer);
+                    sentAt = System.nanoTime();
+                }
+                case Protocol.ATTACK_RESULT -> {
+                    if (frame.a != me) continue;
+                    turnLatency.record(System.nanoTime() - sentAt);
+                    turns.increment();
+                    if (frame.b > Protocol.RESULT_SUNK) protocolErrors.increment();  // The bot repeated a shot
+                    bot.onAttackResult(shot, frame.b);
+                }
+                case Protocol.ERROR -> protocolErrors.increment();
+                case Protocol.GAME_OVER -> {
+                    games.increment();
+                    return;
+                }
+                default -> {
+                    // Game start and anything newer than this client are not needed to play
+                }
+            }
+        }
+    }
+
+    private static void send(OutputStream out, ByteBuffer frames) throws IOException {
+        out.write(frames.array(), 0, frames.position());
+        out.flush();
+        frames.clear();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed or never connected
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Server log. Callers only put the line on a bounded queue; a daemon thread prints queued lines
+// in batches, so a match never waits on the console. When the queue is full, lines are dropped
+// and counted instead of blocking. Build expensive lines inside `if (Log.isInfoEnabled())`.
+//
+// Levels: INFO prints everything, ERROR only errors, OFF nothing (see --log in BattleshipServer).
+public final class Log {
+    public static final int OFF = 0;
+    public static final int ERROR = 1;
+    public static final int INFO = 2;
+
+    private static final int QUEUE_CAPACITY = 64 * 1024;
+    private static final int BATCH_SIZE = 1024;
+
+    // One queued line and the stream it goes to
+    private static final class Line {
+        final boolean error;
+        final String text;
+
+        Line(boolean error, String text) {
+            this.error = error;
+            this.text = text;
+        }
+    }
+
+    private static final BlockingQueue<Line> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong dropped = new AtomicLong();  // Lines lost to a full queue
+    private static volatile int level = INFO;
+
+    static {
+        Thread.ofPlatform().daemon().name("log-writer").start(Log::writeLoop);
+        // Print what is still queued when the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::drain, "log-drain"));
+    }
+
+    private Log() {
+    }
+
+    public static void setLevel(int newLevel) {
+        level = newLevel;
+    }
+
+    // Parses a --log value: info, error or off
+    public static int parseLevel(String name) {
+        return switch (name) {
+            case "info" -> INFO;
+            case "error" -> ERROR;
+            case "off" -> OFF;
+            default -> throw new IllegalArgumentException("Unknown log level: " + name);
+        };
+    }
+
+    public static boolean isInfoEnabled() {
+        return level >= INFO;
+    }
+
+    public static void info(String text) {
+        if (level >= INFO) enqueue(new Line(false, text));
+    }
+
+    public static void error(String text) {
+        if (level >= ERROR) enqueue(new Line(true, text));
+    }
+
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private static void enqueue(Line line) {
+        if (!queue.offer(line)) dropped.incrementAndGet();
+    }
+
+    private static void writeLoop() {
+        List<Line> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                print(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Daemon thread; the shutdown hook prints anything left
+        }
+    }
+
+    // Prints every queued line right away; also used at exit
+    public static synchronized void drain() {
+        List<Line> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        print(batch);
+    }
+
+    // One write per stream for the whole batch
+    private static synchronized void print(List<Line> batch) {
+        StringBuilder out = new StringBuilder(), err = new StringBuilder();
+        for (Line line : batch) (line.error ? err : out).append(line.text).append(System.lineSeparator());
+        write(System.out, out);
+        write(System.err, err);
+    }
+
+    private static void write(PrintStream stream, StringBuilder text) {
+        if (text.isEmpty()) return;
+        stream.print(text);
+        stream.flush();
+    }
+}
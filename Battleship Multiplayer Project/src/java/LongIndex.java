@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+// Sorted set of longs, smallest first, for an index that changes as often as it is read. Keys sit
+// in sorted chunks of at most CHUNK_SIZE, found by a binary search over each chunk's first key, so
+// adding or removing a key moves at most one chunk's worth of its neighbours and the first N keys
+// are one sequential read. Nothing is boxed and there is no node per key: a million keys take 8 to
+// 16 MB, depending on how full the chunks are, where a TreeSet<Long> needs about 60. Not thread-safe.
+public final class LongIndex {
+    private static final int CHUNK_SIZE = 512;
+    private static final int MERGE_BELOW = CHUNK_SIZE / 4;  // A chunk this small joins a neighbour that has room
+
+    private long[][] chunks = {new long[CHUNK_SIZE]};
+    private int[] lengths = new int[1];  // Keys used in each chunk
+    private int chunkCount = 1;  // Only the last chunk standing may be empty
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    // Returns false if the key was already present
+    public boolean add(long key) {
+        int c = chunkFor(key);
+        int at = Arrays.binarySearch(chunks[c], 0, lengths[c], key);
+        if (at >= 0) return false;
+        at = -at - 1;
+        if (lengths[c] == CHUNK_SIZE) {
+            split(c);
+            if (at > CHUNK_SIZE / 2) {
+                c++;
+                at -= CHUNK_SIZE / 2;
+            }
+        }
+        long[] chunk = chunks[c];
+        System.arraycopy(chunk, at, chunk, at + 1, lengths[c] - at);
+        chunk[at] = key;
+        lengths[c]++;
+        size++;
+        return true;
+    }
+
+    // Returns false if the key was not present
+    public boolean remove(long key) {
+        int c = chunkFor(key);
+        int at = Arrays.binarySearch(chunks[c], 0, lengths[c], key);
+        if (at < 0) return false;
+        long[] chunk = chunks[c];
+        System.arraycopy(chunk, at + 1, chunk, at, lengths[c] - at - 1);
+        lengths[c]--;
+        size--;
+        if (lengths[c] < MERGE_BELOW && chunkCount > 1) {
+            if (c + 1 < chunkCount && lengths[c] + lengths[c + 1] <= CHUNK_SIZE) {
+                merge(c);
+            } else if (c > 0 && lengths[c - 1] + lengths[c] <= CHUNK_SIZE) {
+                merge(c - 1);
+            }
+        }
+        return true;
+    }
+
+    // Copies the `count` smallest keys, or all of them if there are fewer, into `into`; returns
+    // how many were copied
+    public int first(long[] into, int count) {
+        int copied = 0;
+        for (int c = 0; c < chunkCount && copied < count; c++) {
+            int length = Math.min(lengths[c], count - copied);
+            System.arraycopy(chunks[c], 0, into, copied, length);
+            copied += length;
+        }
+        return copied;
+    }
+
+    // The chunk a key belongs in: the last one whose first key is not above it, else the first
+    private int chunkFor(long key) {
+        int low = 1, high = chunkCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (chunks[mid][0] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    // Moves the upper half of full chunk c into a new chunk right after it
+    private void split(int c) {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            lengths = Arrays.copyOf(lengths, chunkCount * 2);
+        }
+        System.arraycopy(chunks, c + 1, chunks, c + 2, chunkCount - c - 1);
+        System.arraycopy(lengths, c + 1, lengths, c + 2, chunkCount - c - 1);
+        long[] upper = new long[CHUNK_SIZE];
+        System.arraycopy(chunks[c], CHUNK_SIZE / 2, upper, 0, CHUNK_SIZE / 2);
+        chunks[c + 1] = upper;
+        lengths[c + 1] = CHUNK_SIZE / 2;
+        lengths[c] = CHUNK_SIZE / 2;
+        chunkCount++;
+    }
+
+    // Appends chunk c + 1 to chunk c and drops it
+    private void merge(int c) {
+        System.arraycopy(chunks[c + 1], 0, chunks[c], lengths[c], lengths[c + 1]);
+        lengths[c] += lengths[c + 1];
+        System.arraycopy(chunks, c + 2, chunks, c + 1, chunkCount - c - 2);
+        System.arraycopy(lengths, c + 2, lengths, c + 1, chunkCount - c - 2);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+// Lock-free queue for many producers and one consumer, after Dmitry Vyukov's intrusive MPSC
+// queue. offer() is a single atomic swap on the head, so connections, event loops and the timer
+// thread never wait on each other; poll() is only ever called by the actor that owns the mailbox
+// and needs no atomics at all.
+public final class Mailbox<T> {
+    private static final class Node<T> {
+        volatile Node<T> next;
+        T value;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    private final AtomicReference<Node<T>> head;  // Last node offered; producers swap themselves in here
+    private Node<T> tail;  // Consumer only: the node before the next one to poll, holding no value
+
+    public Mailbox() {
+        Node<T> stub = new Node<>(null);
+        head = new AtomicReference<>(stub);
+        tail = stub;
+    }
+
+    // Any thread
+    public void offer(T value) {
+        Node<T> node = new Node<>(value);
+        Node<T> previous = head.getAndSet(node);
+        previous.next = node;  // Until this lands the consumer sees the queue end at `previous`
+    }
+
+    // Consumer only: the oldest value, or null if there is none yet
+    public T poll() {
+        Node<T> next = tail.next;
+        if (next == null) return null;
+        T value = next.value;
+        next.value = null;  // The node becomes the new stub
+        tail = next;
+        return value;
+    }
+
+    // True only if nothing has been offered that poll() has not returned. A value whose offer is
+    // still linking in counts, so a consumer that goes idle on a false answer cannot strand it.
+    public boolean isEmpty() {
+        return head.get() == tail;
+    }
+}
@@ -0,0 +1,621 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+// A two-player match, run as a MatchActor: both players place at once, then take turns. Every
+// frame, close and deadline reaches the match as a command on its mailbox, and the phase it is in
+// decides what the command means, so nothing blocks waiting for either player.
+//
+// A player the server allowResume()s gets a token for their seat. If they lose their connection,
+// or stop responding, the seat is held for them instead of forfeited, and a new connection with
+// the token takes it back with the match exactly where it was (see Protocol). The tokens are
+// journaled, so a match a crash cut off can be recover()ed by the next server with both seats held.
+public class Match extends MatchActor {
+    // Banner and instructions sent to both players when the match begins
+    static final String WELCOME_MESSAGE = """
+============================================================
+   ____        _   _   _           _     _
+  |  _ \\     | | | | | |         | |   (_)
+  | |_) | __ _| |_| |_| | ___  ___| |__  _ _ __
+  |  _ < / _` | __| __| |/ _ \\/ __| '_ \\| | '_ \\
+  | |_) | (_| | |_| |_| |  __/\\__ \\ | | | | |_) |
+  |____/ \\__,_|\\__|\\__|_|\\___||___/_| |_|_| .__/
+                                          | |
+  B A T T L E S H I P   M U L T I P L A Y E R   |___|
+============================================================
+
+            Welcome to Battleship Multiplayer!
+Engage in a thrilling game of strategy and naval combat!
+Prepare to outwit your opponent and sink their fleet.
+
+------------------------------------------------------------
+                       INSTRUCTIONS
+------------------------------------------------------------
+1) **Each Player Has 2 Grids**:
+   - **Self Grid**: Displays your ships and their positions.
+   - **Target Grid**: Tracks your attacks on the opponent's ships.
+
+2) **Ships**:
+   - Players place 5 ships on the self grid.
+   - Ship Types:
+     - `carrier`
+     - `battleship`
+     - `cruiser`
+     - `submarine`
+     - `destroyer`
+
+3) **Grid Cell States**:
+   Each cell in the grid represents the following:
+   - `unoccupied = 0`: Empty cell.
+   - `occupied = 1`: Cell contains part of a ship.
+   - `missed = 2`: Attack missed (no ship in cell).
+   - `hit = 3`: Attack hit a ship.
+
+4) **Gameplay**:
+   - Players take turns attacking cells on the target grid.
+   - If all cells of a ship are hit, it sinks.
+
+5) **Win Condition**:
+   - The first player to lose all ships **loses** the game.
+
+6) **Good Luck**:
+   - Strategize, attack wisely, and may the best captain win!
+
+============================================================
+""";
+
+    // The banner is encoded once and copied as raw bytes into every match
+    private static final byte[] WELCOME_BYTES = Protocol.utf8(WELCOME_MESSAGE + "\n");
+
+    private static final int PLACING = 0, PLAYING = 1, OVER = 2;  // Phases
+
+    private static final SecureRandom TOKENS = new SecureRandom();  // Seat tokens must not be guessable
+
+    private final BoardRules rules;  // Board size and fleet; the factory's players must play them
+    private final BattleshipPlayer[] players;  // Game state by player number, native or pure Java; index 0 is unused
+    private final GameEngine gameEngine;  // Game engine to manage game logic
+    private final MatchJournal journal;  // Records accepted moves for recovery and replay, or null
+    private final ServerMetrics metrics;  // Turn latencies and placement counts, or null
+    private boolean ended = false;  // Set once the END record for a finished game is written
+    private int winner = 0;  // Player who won; 0 until the game is over, and for an abandoned match
+    private final SpectatorFeed spectators;  // Every event, encoded once for all watchers
+    private int phase = PLACING;
+    private boolean recovered = false;  // Rebuilt from the journal; its players have yet to resume
+
+    // Scratch array for resync grid frames. Empty on boards too large for GRID frames, which are
+    // resynced from a CellMap instead.
+    private final byte[] cells;
+
+    // Board sequence numbers by player; each counts the changes sent to that player (see Protocol)
+    private final int[] seqs = new int[3];
+    private final int[] resyncedAt = {-1, -1, -1};  // Sequence number each player's last resync answered
+
+    // Seat tokens by player; 0 for a player who cannot resume
+    private final long[] tokens = new long[3];
+    private final boolean[] resumable = new boolean[3];  // Set before the match starts
+    private long placementDeadline = MatchTimeouts.NO_DEADLINE;  // Kept for a player who resumes mid-placement
+    private long turnDeadline = MatchTimeouts.NO_DEADLINE;  // Of the current turn, for the same reason
+
+    // Placement progress by player (index 1 and 2): ships placed, of each type, and whether the
+    // whole fleet is down
+    private final int[] shipsPlaced = new int[3];
+    private final int[][] placedOfType = new int[3][BoardRules.SHIP_TYPES];
+    private final boolean[] placed = new boolean[3];
+
+    // Attacks each player sent ahead of their turn, played in order as their turns start
+    private final List<ArrayDeque<Frame>> queuedAttacks = List.of(new ArrayDeque<>(), new ArrayDeque<>(), new ArrayDeque<>());
+
+    public Match(int matchId, PlayerConnection player1Conn, PlayerConnection player2Conn) {
+        this(matchId, player1Conn, player2Conn, BattleshipJNI::new);
+    }
+
+    public Match(int matchId, PlayerConnection player1Conn, PlayerConnection player2Conn,
+                 Supplier<? extends BattleshipPlayer> playerFactory) {
+        this(matchId, player1Conn, player2Conn, playerFactory, null);
+    }
+
+    public Match(int matchId, PlayerConnection player1Conn, PlayerConnection player2Conn,
+                 Supplier<? extends BattleshipPlayer> playerFactory, MatchJournal journal) {
+        this(matchId, player1Conn, player2Conn, playerFactory, journal, null);
+    }
+
+    public Match(int matchId, PlayerConnection player1Conn, PlayerConnection player2Conn,
+                 Supplier<? extends BattleshipPlayer> playerFactory, MatchJournal journal, ServerMetrics metrics) {
+        this(matchId, player1Conn, player2Conn, playerFactory, journal, metrics, null);
+    }
+
+    public Match(int matchId, PlayerConnection player1Conn, PlayerConnection player2Conn,
+                 Supplier<? extends BattleshipPlayer> playerFactory, MatchJournal journal, ServerMetrics metrics,
+                 MatchTimeouts timeouts) {
+        this(matchId, player1Conn, player2Conn, playerFactory, journal, metrics, timeouts, BoardRules.STANDARD);
+    }
+
+    public Match(int matchId, PlayerConnection player1Conn, PlayerConnection player2Conn,
+                 Supplier<? extends BattleshipPlayer> playerFactory, MatchJournal journal, ServerMetrics metrics,
+                 MatchTimeouts timeouts, BoardRules rules) {
+        this(matchId, player1Conn, player2Conn, playerFactory, journal, metrics, timeouts, rules, null);
+    }
+
+    // scheduler is shared by the server's matches; null uses ActorScheduler.shared()
+    public Match(int matchId, PlayerConnection player1Conn, PlayerConnection player2Conn,
+                 Supplier<? extends BattleshipPlayer> playerFactory, MatchJournal journal, ServerMetrics metrics,
+                 MatchTimeouts timeouts, BoardRules rules, ActorScheduler scheduler) {
+        super(matchId, new PlayerConnection[]{null, player1Conn, player2Conn}, timeouts, scheduler);
+        this.rules = rules;
+        this.journal = journal;
+        this.metrics = metrics;
+        this.spectators = new SpectatorFeed(matchId, rules);
+
+        // Every match owns its own players, created by the server's chosen backend, and game engine
+        this.players = new BattleshipPlayer[]{null, playerFactory.get(), playerFactory.get()};
+        this.gameEngine = new GameEngine(players[1], players[2]);
+        this.cells = new byte[rules.fitsGridFrame() ? rules.getRows() * rules.getCols() : 0];
+    }
+
+    public SpectatorFeed getSpectators() {
+        return spectators;
+    }
+
+    // The player who won, by player number, or 0 if the match has not been won (yet)
+    public int getWinner() {
+        return winner;
+    }
+
+    // A match the journal shows a previous run of the server left unfinished, carried on from its
+    // replayed boards, which the match now owns. start() it like any other: it holds both seats for
+    // the players to resume with their tokens.
+    public static Match recover(MatchReplayer.ReplayedMatch replayed, MatchJournal journal, ServerMetrics metrics,
+                                MatchTimeouts timeouts, ActorScheduler scheduler) {
+        Iterator<BattleshipPlayer> boards = List.of(replayed.player1, replayed.player2).iterator();
+        Match match = new Match(replayed.matchId, vacantSeat("journal"), vacantSeat("journal"), boards::next, journal, metrics,
+                timeouts, replayed.rules, scheduler);
+        match.recovered = true;
+        for (int player = 1; player <= 2; player++) {
+            match.tokens[player] = replayed.tokens[player];
+            match.shipsPlaced[player] = replayed.shipsPlaced[player];
+            System.arraycopy(replayed.placedOfType[player], 0, match.placedOfType[player], 0, BoardRules.SHIP_TYPES);
+            match.placed[player] = replayed.shipsPlaced[player] == replayed.rules.getShipCount();
+        }
+        if (match.placed[1] && match.placed[2]) {
+            // Every attack that used a turn is journaled, so the turn is the other player's
+            match.phase = PLAYING;
+            if (replayed.lastAttacker != 0) {
+                match.gameEngine.setFirstAttacker(3 - replayed.lastAttacker);
+            } else {
+                match.gameEngine.chooseFirstAttacker();
+            }
+        }
+        match.spectators.restore(replayed.player1, replayed.player2, (match.phase == PLAYING) ? match.gameEngine.getCurrentPlayer() : 0);
+        return match;
+    }
+
+    // Gives the player a seat token when the match starts (they asked with HELLO_SESSION); call
+    // before start()
+    public void allowResume(int playerNumber) {
+        resumable[playerNumber] = true;
+    }
+
+    @Override
+    protected void started() throws IOException {
+        if (recovered) {
+            resumeRecovered();
+            return;
+        }
+        if (journal != null) {
+            journal.matchStarted(matchId);
+            if (!rules.isStandard()) journal.matchRules(matchId, rules);
+        }
+
+        // Tell each player which side they are on, what board and fleet they play and how to
+        // resume their seat, then send the banner that opens placement, all in one write per player
+        for (int player = 1; player <= 2; player++) {
+            Protocol.writeRole(conns[player].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), player);
+            Protocol.writeRules(conns[player].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), rules);
+            if (resumable[player]) {
+                while (tokens[player] == 0) tokens[player] = TOKENS.nextLong();
+                if (journal != null) journal.seatToken(matchId, player, tokens[player]);
+                Protocol.writeSession(conns[player].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), matchId, tokens[player], 0);
+            }
+            Protocol.writeText(conns[player].writeBuffer(Protocol.textFrameSize(WELCOME_BYTES)), WELCOME_BYTES);
+        }
+        if (metrics != null) metrics.matchStarted();
+        Log.info("[Match " + matchId + "] Paired " + conns[1].getRemoteAddress() + " with " + conns[2].getRemoteAddress()
+                + (rules.isStandard() ? "" : " on " + rules.describe()));
+        flushBoth();
+
+        // Both players place at the same time, against one deadline for the whole fleet
+        placementDeadline = (timeouts != null) ? timeouts.placementDeadline() : MatchTimeouts.NO_DEADLINE;
+        for (int player = 1; player <= 2; player++) {
+            listen(player);
+            await(player, placementDeadline);
+        }
+    }
+
+    // The previous server took the players' connections with it. Both seats are held, with fresh
+    // clocks, for the players to resume; a match with a player who never got a token cannot go on
+    // and is abandoned.
+    private void resumeRecovered() {
+        if (metrics != null) metrics.matchStarted();
+        placementDeadline = (timeouts != null) ? timeouts.placementDeadline() : MatchTimeouts.NO_DEADLINE;
+        turnDeadline = (timeouts != null) ? timeouts.turnDeadline() : MatchTimeouts.NO_DEADLINE;
+        if (tokens[1] == 0 || tokens[2] == 0 || !holdSeat(1) || !holdSeat(2)) {
+            Log.error("[Match " + matchId + "] Recovered, but its players cannot resume their seats; abandoning it");
+            endMatch();
+            return;
+        }
+        Log.info("[Match " + matchId + "] Recovered " + (phase == PLAYING ? "with Player " + gameEngine.getCurrentPlayer() + " to attack"
+                : "during placement") + "; holding both seats");
+    }
+
+    @Override
+    protected void received(int playerNumber, Frame frame) throws IOException {
+        if (frame.type == Protocol.RESYNC) {
+            // The client lost track of its boards; it gets them whole between two commands, never
+            // mid-turn, and at most once per change to them
+            if (resyncedAt[playerNumber] == seqs[playerNumber]) {
+                sendError(playerNumber, Protocol.ERROR_RESYNC_REFUSED);
+                return;
+            }
+            resyncedAt[playerNumber] = seqs[playerNumber];
+            sendFullGrids(playerNumber);
+        } else if (phase == PLACING && !placed[playerNumber]) {
+            placeShips(playerNumber, frame);
+        } else if (phase == PLAYING && playerNumber == gameEngine.getCurrentPlayer()) {
+            handlePlayerTurn(playerNumber, frame);
+        } else if (frame.type == Protocol.ATTACK && placed[playerNumber] && queuedAttacks.get(playerNumber).size() < Protocol.MAX_QUEUED_ATTACKS) {
+            queuedAttacks.get(playerNumber).add(frame);  // Sent ahead of the player's turn; it waits for it
+        } else {
+            // Out of turn, or the fleet is already placed: the match keeps the turn order, not the players
+            sendError(playerNumber, Protocol.ERROR_UNEXPECTED_MESSAGE);
+        }
+    }
+
+    @Override
+    protected void left(int playerNumber) throws IOException {
+        if (tokens[playerNumber] != 0 && holdSeat(playerNumber)) {
+            Log.error("[Match " + matchId + "] Player " + playerNumber + " lost their connection; holding their seat");
+            return;
+        }
+        playerGone(playerNumber);
+    }
+
+    @Override
+    protected void seatExpired(int playerNumber) throws IOException {
+        Log.error("[Match " + matchId + "] Player " + playerNumber + " did not come back in time");
+        if (isHeld(3 - playerNumber)) {
+            // Nobody is left to win it
+            Log.error("[Match " + matchId + "] Ended early: Neither player came back");
+            endMatch();
+            return;
+        }
+        playerGone(playerNumber);
+    }
+
+    // A player left for good
+    private void playerGone(int playerNumber) throws IOException {
+        if (phase == PLACING && !placed[playerNumber]) {
+            placementFailed(playerNumber, Protocol.OVER_LEFT, "Disconnected");
+        } else {
+            // Whether or not it was their turn, the opponent wins
+            Log.error("[Match " + matchId + "] Player " + playerNumber + " left the game");
+            forfeit(playerNumber, Protocol.OVER_LEFT);
+        }
+    }
+
+    @Override
+    protected void timedOut(int playerNumber, boolean silent) throws IOException {
+        if (silent && tokens[playerNumber] != 0 && holdSeat(playerNumber)) {
+            // Most likely a connection that died without closing; the player can still come back
+            Log.error("[Match " + matchId + "] Player " + playerNumber + " stopped responding; holding their seat");
+            return;
+        }
+        if (metrics != null) metrics.playerTimedOut();
+        String why = silent ? "Stopped responding" : "Ran out of time";
+        if (phase == PLACING) {
+            placementFailed(playerNumber, Protocol.OVER_TIMED_OUT, why);
+        } else {
+            Log.error("[Match " + matchId + "] Player " + playerNumber + " did not attack: " + why);
+            forfeit(playerNumber, Protocol.OVER_TIMED_OUT);
+        }
+    }
+
+    @Override
+    protected void resumed(PlayerConnection conn, long token) throws IOException {
+        int playerNumber = (token == 0) ? 0 : (token == tokens[1]) ? 1 : (token == tokens[2]) ? 2 : 0;
+        if (playerNumber == 0) {
+            refuse(conn);
+            return;
+        }
+        Log.info("[Match " + matchId + "] Player " + playerNumber + " resumed from " + conn.getRemoteAddress());
+        reseat(playerNumber, conn);
+
+        // The seat as a new player would get it, then both grids whole, then where the match is
+        Protocol.writeRole(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), playerNumber);
+        Protocol.writeRules(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), rules);
+        Protocol.writeSession(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), matchId, token, shipsPlaced[playerNumber]);
+        resyncedAt[playerNumber] = seqs[playerNumber];
+        sendFullGrids(playerNumber);
+        if (phase == PLACING && !placed[playerNumber]) {
+            Protocol.writeText(conn.writeBuffer(Protocol.textFrameSize(WELCOME_BYTES)), WELCOME_BYTES);
+            await(playerNumber, placementDeadline);
+        } else if (phase == PLAYING) {
+            int current = gameEngine.getCurrentPlayer();
+            Protocol.writeGameStart(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE));
+            Protocol.writeTurn(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), current);
+            if (current == playerNumber) await(playerNumber, turnDeadline);  // The clock kept running while they were away
+        }
+        conn.flush();
+    }
+
+    @Override
+    protected void finished() {
+        phase = OVER;
+        if (metrics != null) metrics.matchEnded(ended);
+        // A match that ended early is recorded as abandoned, so recovery does not pick it up
+        if (journal != null && !ended) {
+            try {
+                journal.matchEnded(matchId, 0);
+            } catch (IOException e) {
+                Log.error("[Match " + matchId + "] Could not journal the abandoned match: " + e.getMessage());
+            }
+        }
+        // Spectators get whatever is left of the feed, then are disconnected
+        spectators.finish();
+        // Hand the game state back; native players are deleted or returned to their pool
+        players[1].close();
+        players[2].close();
+    }
+
+    // A player could not finish placing. If the opponent already has, they win by forfeit;
+    // otherwise nobody can play, and the match is abandoned.
+    private void placementFailed(int playerNumber, int reason, String why) throws IOException {
+        Log.error("[Match " + matchId + "] Error during Player " + playerNumber + " ship placement: " + why);
+        if (placed[3 - playerNumber]) {
+            forfeit(playerNumber, reason);
+        } else {
+            Log.error("[Match " + matchId + "] Ended early: Neither player placed a fleet");
+            endMatch();
+        }
+    }
+
+    // One placement command from a player still placing
+    private void placeShips(int playerNumber, Frame frame) throws IOException {
+        PlayerConnection conn = conns[playerNumber];
+        BattleshipPlayer player = players[playerNumber];
+
+        if (frame.type == Protocol.FLEET && shipsPlaced[playerNumber] == 0) {
+            // The whole fleet in one frame: checked in one pass, then placed whole or not at all
+            int check = FleetPlacement.check(rules, frame);
+            int status = FleetPlacement.status(check);
+            if (status == Protocol.PLACE_OK) {
+                FleetPlacement.place(player, rules, frame);
+                for (int i = 0; i < frame.a; i++) {
+                    shipPlaced(playerNumber, frame.fleetShip(i), frame.fleetRow(i), frame.fleetCol(i), frame.fleetOrientation(i));
+                }
+                shipsPlaced[playerNumber] = frame.a;
+            } else if (metrics != null) {
+                metrics.placement(false);
+            }
+
+            // One board change for the whole fleet, which the client already has
+            int seq = (status == Protocol.PLACE_OK) ? ++seqs[playerNumber] : seqs[playerNumber];
+            Protocol.writeFleetResult(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), status, FleetPlacement.index(check), seq);
+        } else if (frame.type == Protocol.PLACE) {
+            // Extract ship details from the frame
+            int ship = frame.a;
+            int x = frame.b;
+            int y = frame.c;
+            int orientation = frame.d;
+            String type = Protocol.shipName(ship);
+
+            int status;
+            if (type == null) {
+                status = Protocol.PLACE_UNKNOWN_SHIP;  // Never pass an unknown name to the native side
+            } else if (placedOfType[playerNumber][ship] == rules.getFleet(ship)) {
+                status = Protocol.PLACE_NOT_IN_FLEET;  // The fleet has no more ships of this type
+            } else if (player.PlaceShip(type, new int[]{x, y}, orientation) == -1) {
+                status = Protocol.PLACE_INVALID;  // Out of bounds, overlapping or bad orientation
+            } else {
+                status = Protocol.PLACE_OK;
+                shipsPlaced[playerNumber]++;  // Increment the counter for successful placement
+                placedOfType[playerNumber][ship]++;
+                shipPlaced(playerNumber, ship, x, y, orientation);
+            }
+            if (metrics != null && status != Protocol.PLACE_OK) metrics.placement(false);
+
+            // The client draws the ship on its own board, so only the result goes back
+            int seq = (status == Protocol.PLACE_OK) ? ++seqs[playerNumber] : seqs[playerNumber];
+            Protocol.writePlaceResult(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), status, ship, x, y, orientation, seq);
+        } else {
+            sendError(playerNumber, Protocol.ERROR_UNEXPECTED_MESSAGE);
+            return;
+        }
+
+        if (shipsPlaced[playerNumber] < rules.getShipCount()) {
+            conn.flush();
+            return;
+        }
+        placed[playerNumber] = true;
+        stopWaiting(playerNumber);
+        if (placed[3 - playerNumber]) {
+            startGame();  // The second fleet is down; its result goes out with GAME_START
+        } else {
+            conn.flush();
+        }
+    }
+
+    // Records one ship the backend accepted, from a PLACE or a FLEET
+    private void shipPlaced(int playerNumber, int ship, int x, int y, int orientation) throws IOException {
+        if (journal != null) journal.shipPlaced(matchId, playerNumber, ship, x, y, orientation);
+        spectators.shipPlaced(playerNumber, ship, x, y, orientation);
+        if (metrics != null) metrics.placement(true);
+        if (Log.isInfoEnabled()) {
+            String strOrientation = (orientation == 0) ? "Horizontal" : "Vertical";
+            Log.info("[Match " + matchId + "] Player " + playerNumber + " Placed Ship: " + Protocol.shipName(ship) + ", Starting at: " + "[" + x + "," + y + "]" + ", With Orientation: " + strOrientation);
+        }
+    }
+
+    private void startGame() throws IOException {
+        // Notify both players that ship placement is complete
+        phase = PLAYING;
+        Protocol.writeGameStart(conns[1].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE));
+        Protocol.writeGameStart(conns[2].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE));
+        spectators.gameStarted();
+
+        // Randomly choose the first attacker
+        gameEngine.chooseFirstAttacker();
+        startTurn();
+    }
+
+    // Prompts the current player to attack, tells the opponent to wait, and waits on the attacker.
+    // An attack the player queued is played at once instead, and its result goes out in the same
+    // write as this TURN.
+    private void startTurn() throws IOException {
+        int playerNumber = gameEngine.getCurrentPlayer();
+        Protocol.writeTurn(conns[1].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), playerNumber);
+        Protocol.writeTurn(conns[2].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), playerNumber);
+        spectators.turn(playerNumber);
+        Frame queued = queuedAttacks.get(playerNumber).poll();
+        if (queued != null) {
+            handlePlayerTurn(playerNumber, queued);
+            return;
+        }
+        flushBoth();
+        turnDeadline = (timeouts != null) ? timeouts.turnDeadline() : MatchTimeouts.NO_DEADLINE;
+        await(playerNumber, turnDeadline);
+    }
+
+    // The current player's command; anything but an attack skips their turn
+    private void handlePlayerTurn(int playerNumber, Frame frame) throws IOException {
+        stopWaiting(playerNumber);
+        if (frame.type != Protocol.ATTACK) {
+            sendError(playerNumber, Protocol.ERROR_UNEXPECTED_MESSAGE);
+            gameEngine.nextTurn();
+            startTurn();
+            return;
+        }
+        PlayerConnection playerConn = conns[playerNumber];
+        PlayerConnection opponentConn = conns[3 - playerNumber];
+
+        // Attack coordinates come straight from the fixed-size frame
+        long received = System.nanoTime();
+        int x = frame.a;
+        int y = frame.b;
+
+        if (Log.isInfoEnabled()) Log.info("[Match " + matchId + "] Player " + playerNumber + " attacking (" + x + ", " + y + ")");
+
+        // Perform the attack and process the result
+        int attack = gameEngine.attack(x, y);
+        int result = resultCode(attack);
+
+        int opponentNumber = 3 - playerNumber;
+        // Journaled even when rejected, since it used up the turn; it replays to the same rejection
+        if (journal != null) journal.attacked(matchId, playerNumber, x, y, attack);
+        if (result == Protocol.RESULT_OUT_OF_BOUNDS || result == Protocol.RESULT_ALREADY_ATTACKED) {
+            // Rejected attack: only the attacker hears about it and no board changes
+            if (metrics != null) metrics.attackRejected();
+            Protocol.writeAttackResult(playerConn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), playerNumber, result, x, y, seqs[playerNumber]);
+        } else {
+            // Accepted: both players get the one changed cell and patch their own boards
+            Protocol.writeAttackResult(playerConn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), playerNumber, result, x, y, ++seqs[playerNumber]);
+            Protocol.writeAttackResult(opponentConn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), playerNumber, result, x, y, ++seqs[opponentNumber]);
+        }
+        if (result <= Protocol.RESULT_SUNK) spectators.attacked(playerNumber, result, x, y);
+
+        // The attack that sinks the last ship ends the game; otherwise the results and the next
+        // TURN go out in the same write, as do the results and GAME_OVER
+        if (gameEngine.isGameOver()) {
+            if (metrics != null) metrics.recordTurn(System.nanoTime() - received);
+            gameOver();
+            return;
+        }
+        gameEngine.nextTurn();
+        startTurn();
+        if (metrics != null) metrics.recordTurn(System.nanoTime() - received);
+    }
+
+    // Notifies both players that the game is over
+    private void gameOver() throws IOException {
+        winner = gameEngine.getWinner();
+        if (journal != null) journal.matchEnded(matchId, winner);
+        ended = true;
+        Protocol.writeGameOver(conns[1].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), winner);
+        Protocol.writeGameOver(conns[2].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), winner);
+        flushBoth();
+        spectators.gameOver(winner);
+        Log.info("[Match " + matchId + "] Player " + winner + " wins!");
+        endMatch();
+    }
+
+    // Ends the match in the opponent's favour; the loser has already been disconnected
+    private void forfeit(int loser, int reason) throws IOException {
+        winner = 3 - loser;
+        if (journal != null) {
+            journal.forfeited(matchId, loser, reason);
+            journal.matchEnded(matchId, winner);
+        }
+        ended = true;
+        if (metrics != null) metrics.matchForfeited();
+        spectators.gameOver(winner, reason);
+        Log.info("[Match " + matchId + "] Player " + winner + " wins, Player " + loser + (reason == Protocol.OVER_TIMED_OUT ? " timed out" : " left"));
+
+        PlayerConnection winnerConn = conns[winner];
+        try {
+            Protocol.writeGameOver(winnerConn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), winner, reason);
+            winnerConn.flush();
+        } catch (IOException e) {
+            Log.error("[Match " + matchId + "] Could not tell Player " + winner + " they won: " + e.getMessage());
+        }
+        endMatch();
+    }
+
+    // Sends both of a player's grids in full, stamped with their current board sequence number
+    private void sendFullGrids(int playerNumber) throws IOException {
+        PlayerConnection conn = conns[playerNumber];
+        BattleshipPlayer player = players[playerNumber];
+        if (!rules.fitsGridFrame()) {
+            sendGridCells(conn, player, playerNumber);
+            return;
+        }
+        int rows = rules.getRows(), cols = rules.getCols();
+        player.copySelfGrid(cells);
+        Protocol.writeGrid(conn.writeBuffer(Protocol.gridFrameSize(rows, cols)), Protocol.GRID_SELF, seqs[playerNumber], rows, cols, cells);
+        player.copyTargetGrid(cells);
+        Protocol.writeGrid(conn.writeBuffer(Protocol.gridFrameSize(rows, cols)), Protocol.GRID_TARGET, seqs[playerNumber], rows, cols, cells);
+        conn.flush();
+    }
+
+    // Large boards: only the cells that are not empty, as CELLS frames. They can be far larger than
+    // a connection's write buffer, so they are encoded into one array and queued from there.
+    private void sendGridCells(PlayerConnection conn, BattleshipPlayer player, int playerNumber) throws IOException {
+        CellMap self = new CellMap(), target = new CellMap();
+        player.copySelfCells(self);
+        player.copyTargetCells(target);
+        ByteBuffer out = ByteBuffer.allocate(Protocol.cellsSize(self.size()) + Protocol.cellsSize(target.size()));
+        Protocol.writeCells(out, Protocol.GRID_SELF, seqs[playerNumber], rules.getCols(), self);
+        Protocol.writeCells(out, Protocol.GRID_TARGET, seqs[playerNumber], rules.getCols(), target);
+        conn.flush(out.array());
+    }
+
+    private void sendError(int playerNumber, int code) throws IOException {
+        Protocol.writeError(conns[playerNumber].writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), code);
+        conns[playerNumber].flush();
+    }
+
+    // Unpacks the protocol code from an attack result
+    private static int resultCode(int result) throws IOException {
+        int code = AttackResult.code(result);
+        if (code > Protocol.RESULT_ALREADY_ATTACKED) throw new IOException("Unexpected attack result: " + AttackResult.text(result));
+        return code;
+    }
+
+    private void flushBoth() throws IOException {
+        // Send everything buffered for both players
+        conns[1].flush();
+        conns[2].flush();
+    }
+}
@@ -0,0 +1,383 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// A match run as a single-writer actor. Frames from every player's connection, closed connections
+// and deadline checks are posted as commands to one lock-free Mailbox, and the shared
+// ActorScheduler runs the match whenever its mailbox has something in it. Only the worker draining
+// the mailbox ever touches the match, so its game engine, sequence numbers and writes need no
+// locks, turn order is whatever the match decides rather than whichever thread got there first,
+// and a match waiting on its players holds no thread at all. Nothing a worker does blocks either:
+// connections queue what the match writes and send it from their own threads or event loops.
+//
+// A player may have at most MAX_QUEUED_FRAMES frames waiting in the mailbox; one who sends faster
+// than the match handles them is disconnected, so a flood cannot grow the mailbox without end.
+//
+// A match may hold the seat of a player whose connection was lost (holdSeat()) for the reconnect
+// grace in its timeouts. What it writes to them meanwhile goes nowhere, and a new connection that
+// resume()s the seat takes over where the old one left off; frames and the close still queued from
+// an earlier connection are ignored. A seat nobody resumes in time is reported to seatExpired().
+//
+// Subclasses react to commands in started(), received(), left(), timedOut() and resumed(). Any of them may
+// throw IOException, which ends the match early. endMatch() closes every connection, runs
+// finished() and tells whoever started the match; commands still queued after that are dropped.
+public abstract class MatchActor implements Runnable {
+    private static final int IDLE = 0, SCHEDULED = 1;
+    private static final int BATCH = 64;  // Commands handled per run before other matches get the worker
+    static final int MAX_QUEUED_FRAMES = Protocol.MAX_PIPELINED_FRAMES;  // Frames one player may have waiting
+
+    private static final int START = 0, FRAME = 1, CLOSED = 2, DEADLINE = 3, RESUME = 4, SEAT_EXPIRED = 5;
+
+    // One command for the match; a frame belongs to the match once posted
+    private static final class Command {
+        final int kind;
+        final int player;
+        final Frame frame;
+        final int generation;  // DEADLINE: the wait it was scheduled for; FRAME, CLOSED, SEAT_EXPIRED: the connection
+        final PlayerConnection conn;  // RESUME: the connection asking for a seat
+        final long token;  // RESUME: the token it gave
+
+        Command(int kind, int player, Frame frame, int generation) {
+            this(kind, player, frame, generation, null, 0);
+        }
+
+        Command(int kind, int player, Frame frame, int generation, PlayerConnection conn, long token) {
+            this.kind = kind;
+            this.player = player;
+            this.frame = frame;
+            this.generation = generation;
+            this.conn = conn;
+            this.token = token;
+        }
+    }
+
+    // Stands in for a player whose seat is held. What the match writes to them is dropped: a player
+    // who resumes gets their grids whole.
+    private static final class VacantSeat implements PlayerConnection {
+        private final String address;
+        private ByteBuffer discard = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+
+        VacantSeat(String address) {
+            this.address = address;
+        }
+
+        @Override
+        public ByteBuffer writeBuffer(int size) {
+            if (discard.capacity() < size) discard = ByteBuffer.allocate(size);
+            return discard.clear();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public Frame readFrame() throws IOException {
+            throw new EOFException("Seat is empty");
+        }
+
+        @Override
+        public void listen(Listener listener) {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return true;
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return address;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    protected final int matchId;  // Identifier used to tell matches apart in the server log
+    protected final PlayerConnection[] conns;  // By player number; index 0 is unused
+    protected final MatchTimeouts timeouts;  // Placement, turn and heartbeat deadlines, or null to wait forever
+
+    private final ActorScheduler scheduler;
+    private final Mailbox<Command> mailbox = new Mailbox<>();
+    private final AtomicInteger state = new AtomicInteger(IDLE);  // SCHEDULED while queued on or run by a worker
+    private Runnable whenDone;  // Told once the match has ended
+    private boolean done = false;
+
+    // What the match is waiting for from each player, by player number: whether it waits at all,
+    // until when, when the player was last heard from, and which wait a DEADLINE command belongs to
+    private final boolean[] waiting;
+    private final long[] deadlines, lastHeard;
+    private final int[] generations;
+    private final TimingWheel.Timeout[] timers;
+    private final boolean[] dropped;  // Disconnected by the match or gone; their commands are ignored
+    private final AtomicIntegerArray queuedFrames;  // FRAME commands posted and not yet handled, by player number
+    private final int[] epochs;  // Connections each seat has had; commands from an earlier one are ignored
+    private final boolean[] held;  // Seats kept for a player whose connection was lost
+    private final TimingWheel.Timeout[] seatTimers;
+
+    protected MatchActor(int matchId, PlayerConnection[] conns, MatchTimeouts timeouts, ActorScheduler scheduler) {
+        this.matchId = matchId;
+        this.conns = conns;
+        this.timeouts = timeouts;
+        this.scheduler = (scheduler != null) ? scheduler : ActorScheduler.shared();
+        this.waiting = new boolean[conns.length];
+        this.deadlines = new long[conns.length];
+        this.lastHeard = new long[conns.length];
+        this.generations = new int[conns.length];
+        this.timers = new TimingWheel.Timeout[conns.length];
+        this.dropped = new boolean[conns.length];
+        this.queuedFrames = new AtomicIntegerArray(conns.length);
+        this.epochs = new int[conns.length];
+        this.held = new boolean[conns.length];
+        this.seatTimers = new TimingWheel.Timeout[conns.length];
+    }
+
+    public int getMatchId() {
+        return matchId;
+    }
+
+    // Starts the match on the scheduler; `whenDone` runs on a worker once it has ended
+    public void start(Runnable whenDone) {
+        this.whenDone = whenDone;
+        post(new Command(START, 0, null, 0));
+    }
+
+    // Any thread: asks for the seat that `token` belongs to on behalf of `conn`, which has finished
+    // its handshake. The match answers on the connection: resumed() seats it, or it is refused.
+    public void resume(PlayerConnection conn, long token) {
+        post(new Command(RESUME, 0, null, 0, conn, token));
+    }
+
+    // The match begins: greet the players, then listen() to them
+    protected abstract void started() throws IOException;
+
+    // A frame from a player still in the match; heartbeats are handled here and never passed on
+    protected abstract void received(int playerNumber, Frame frame) throws IOException;
+
+    // A player's connection closed without the match closing it
+    protected abstract void left(int playerNumber) throws IOException;
+
+    // A player the match was waiting on missed the deadline or went silent, and has been sent
+    // ERROR_TIMED_OUT and disconnected
+    protected abstract void timedOut(int playerNumber, boolean silent) throws IOException;
+
+    // The match has ended and every connection is closed; hand back what it holds
+    protected abstract void finished();
+
+    // A connection asks for the seat of the player holding `token`. Matches that keep no tokens
+    // refuse every one; the others reseat() the player or refuse().
+    protected void resumed(PlayerConnection conn, long token) throws IOException {
+        refuse(conn);
+    }
+
+    // Nobody resumed a held seat in time; only matches that hold seats get this
+    protected void seatExpired(int playerNumber) throws IOException {
+    }
+
+    // Any thread: queues a command, and the match itself if it was idle
+    private void post(Command command) {
+        mailbox.offer(command);
+        if (state.compareAndSet(IDLE, SCHEDULED)) scheduler.execute(this);
+    }
+
+    // Worker: handles a batch of commands. Going idle and then checking the mailbox again catches a
+    // command posted while the last one was handled, whose poster saw the match still scheduled.
+    @Override
+    public final void run() {
+        Command command;
+        for (int i = 0; i < BATCH && (command = mailbox.poll()) != null; i++) handle(command);
+        state.set(IDLE);
+        if (!mailbox.isEmpty() && state.compareAndSet(IDLE, SCHEDULED)) scheduler.execute(this);
+    }
+
+    private void handle(Command command) {
+        if (done) {
+            if (command.kind == RESUME) refuse(command.conn);  // Nothing left to resume
+            return;  // Left over from a match that has ended
+        }
+        int player = command.player;
+        try {
+            switch (command.kind) {
+                case START -> started();
+                case FRAME -> {
+                    if (command.generation != epochs[player]) return;  // From a connection the seat has since replaced
+                    queuedFrames.decrementAndGet(player);
+                    if (dropped[player]) return;
+                    lastHeard[player] = System.nanoTime();
+                    if (command.frame.type != Protocol.HEARTBEAT) received(player, command.frame);
+                }
+                case CLOSED -> {
+                    if (command.generation != epochs[player] || dropped[player]) return;
+                    dropped[player] = true;
+                    stopWaiting(player);
+                    left(player);
+                }
+                case DEADLINE -> checkDeadline(player, command.generation);
+                case RESUME -> resumed(command.conn, command.token);
+                case SEAT_EXPIRED -> {
+                    if (!held[player] || command.generation != epochs[player]) return;  // Resumed in the meantime
+                    held[player] = false;
+                    seatTimers[player] = null;
+                    seatExpired(player);
+                }
+                default -> throw new IllegalStateException("Unknown command " + command.kind);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A player could not be written to, or the engine failed; the match cannot continue
+            Log.error("[Match " + matchId + "] Ended early: " + e.getMessage());
+            endMatch();
+        }
+    }
+
+    // Posts the player's frames and the close of their connection to this match from now on
+    protected void listen(int playerNumber) {
+        int epoch = epochs[playerNumber];
+        conns[playerNumber].listen(new PlayerConnection.Listener() {
+            @Override
+            public void onFrame(Frame frame) {
+                int queued = queuedFrames.incrementAndGet(playerNumber);
+                if (queued > MAX_QUEUED_FRAMES) {
+                    // Dropped and never counted back down, so the player is only disconnected once;
+                    // the close reaches the match like any other
+                    if (queued == MAX_QUEUED_FRAMES + 1) {
+                        Log.error("[Match " + matchId + "] Player " + playerNumber + " sent more than " + MAX_QUEUED_FRAMES
+                                + " frames ahead of the match; disconnecting");
+                        conns[playerNumber].close();
+                    }
+                    return;
+                }
+                post(new Command(FRAME, playerNumber, frame, epoch));
+            }
+
+            @Override
+            public void onClosed() {
+                post(new Command(CLOSED, playerNumber, null, epoch));
+            }
+        });
+    }
+
+    // Keeps the seat of a player who is gone, for the reconnect grace (for ever without timeouts).
+    // Returns false, holding nothing, if the timeouts say seats are not held.
+    protected boolean holdSeat(int playerNumber) {
+        if (timeouts != null && !timeouts.holdsSeats()) return false;
+        dropped[playerNumber] = true;
+        stopWaiting(playerNumber);
+        conns[playerNumber].close();
+        conns[playerNumber] = new VacantSeat(conns[playerNumber].getRemoteAddress());
+        held[playerNumber] = true;
+        int epoch = epochs[playerNumber];
+        if (timeouts != null) {
+            seatTimers[playerNumber] = timeouts.scheduleSeatExpiry(() -> post(new Command(SEAT_EXPIRED, playerNumber, null, epoch)));
+        }
+        return true;
+    }
+
+    // A connection for a seat whose player is not there yet, for matches that begin with their
+    // players away; started() holds such seats with holdSeat()
+    protected static PlayerConnection vacantSeat(String address) {
+        return new VacantSeat(address);
+    }
+
+    protected boolean isHeld(int playerNumber) {
+        return held[playerNumber];
+    }
+
+    // Seats `conn` in place of the player's connection, held or still open, and listens to it.
+    // Nothing the old connection sent and the match has not handled yet is played.
+    protected void reseat(int playerNumber, PlayerConnection conn) {
+        if (!held[playerNumber]) disconnect(playerNumber);
+        held[playerNumber] = false;
+        if (seatTimers[playerNumber] != null) seatTimers[playerNumber].cancel();
+        seatTimers[playerNumber] = null;
+        epochs[playerNumber]++;
+        conns[playerNumber] = conn;
+        dropped[playerNumber] = false;
+        queuedFrames.set(playerNumber, 0);
+        listen(playerNumber);
+    }
+
+    // Turns a connection away from a seat it asked for
+    protected void refuse(PlayerConnection conn) {
+        Log.error("[Match " + matchId + "] Refused to seat " + conn.getRemoteAddress() + ": no seat for its token");
+        try {
+            Protocol.writeError(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), Protocol.ERROR_NO_SUCH_SEAT);
+            conn.flush();
+        } catch (IOException e) {
+            // Already gone
+        }
+        conn.close();
+    }
+
+    // Starts waiting on a player until `deadline` (MatchTimeouts.NO_DEADLINE for none). Replaces
+    // any earlier wait on them; a frame from the player does not end it, stopWaiting() does.
+    protected void await(int playerNumber, long deadline) {
+        stopWaiting(playerNumber);
+        if (timeouts == null || dropped[playerNumber]) return;
+        waiting[playerNumber] = true;
+        deadlines[playerNumber] = deadline;
+        lastHeard[playerNumber] = System.nanoTime();
+        arm(playerNumber, lastHeard[playerNumber]);
+    }
+
+    protected void stopWaiting(int playerNumber) {
+        waiting[playerNumber] = false;
+        generations[playerNumber]++;  // A DEADLINE command already posted for the old wait is ignored
+        if (timers[playerNumber] != null) timers[playerNumber].cancel();
+        timers[playerNumber] = null;
+    }
+
+    // The timer only posts a command; the match decides whether the wait really expired
+    private void arm(int playerNumber, long now) {
+        int generation = generations[playerNumber];
+        timers[playerNumber] = timeouts.schedule(() -> post(new Command(DEADLINE, playerNumber, null, generation)),
+                deadlines[playerNumber], lastHeard[playerNumber], now);
+    }
+
+    private void checkDeadline(int playerNumber, int generation) throws IOException {
+        if (!waiting[playerNumber] || generation != generations[playerNumber]) return;
+        long now = System.nanoTime();
+        int expiry = timeouts.expiry(deadlines[playerNumber], lastHeard[playerNumber], now);
+        if (expiry == MatchTimeouts.NOT_EXPIRED) {
+            arm(playerNumber, now);  // Heard from the player since this was scheduled
+            return;
+        }
+        waiting[playerNumber] = false;
+        PlayerConnection conn = conns[playerNumber];
+        try {
+            Protocol.writeError(conn.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), Protocol.ERROR_TIMED_OUT);
+            conn.flush();
+        } catch (IOException e) {
+            // Already gone
+        }
+        disconnect(playerNumber);
+        timedOut(playerNumber, expiry == MatchTimeouts.SILENT);
+    }
+
+    // Closes a player's connection for the match's own reasons, so its close is not reported to left()
+    protected void disconnect(int playerNumber) {
+        dropped[playerNumber] = true;
+        stopWaiting(playerNumber);
+        conns[playerNumber].close();
+    }
+
+    // Ends the match: no more commands are handled, every connection is closed, then finished()
+    protected void endMatch() {
+        if (done) return;
+        done = true;
+        for (int player = 1; player < conns.length; player++) {
+            stopWaiting(player);
+            if (seatTimers[player] != null) seatTimers[player].cancel();
+            conns[player].close();
+        }
+        try {
+            finished();
+        } catch (RuntimeException e) {
+            Log.error("[Match " + matchId + "] Failed to clean up: " + e.getMessage());
+        }
+        if (whenDone != null) whenDone.run();
+    }
+}
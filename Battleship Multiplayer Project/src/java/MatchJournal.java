@@ -0,0 +1,471 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Append-only record of every match: its start, each accepted placement and attack, and its end.
+// Records are appended to a memory-mapped segment file, so an append is a few stores into memory
+// and never a system call; when a segment is full the journal rolls over to the next one. A
+// background thread forces written segments to disk every syncInterval (group commit), so turns
+// never wait for the disk. A process crash loses nothing already appended; a machine crash loses
+// at most the last syncInterval.
+//
+// Segments are retired as matches end. The journal knows which matches are still open, from the
+// records it read on open() and the STARTs and ENDs appended since, and the sync thread deletes
+// every segment older than the one the oldest open match started in. Recovery therefore reads
+// only what the matches still running need, however long the server has been up. Each segment
+// opens with a LAST_ID record, so match numbering survives the segments that held the ids.
+//
+// Record layout (big-endian):
+//   u8 type | u8 payload length | i32 match id | payload | i32 CRC32C of everything before it
+// A zero type byte marks the unwritten end of a segment. Reading stops a segment at the first
+// record whose checksum fails, which is how a torn tail from a crash is dropped.
+public final class MatchJournal implements Closeable {
+    // Record types and their payloads
+    public static final int START = 1;  // i64 start time (epoch millis)
+    public static final int PLACE = 2;  // u8 player, u8 ship, u8 row, u8 col, u8 orientation
+    public static final int ATTACK = 3;  // u8 player, u8 row, u8 col, i32 packed AttackResult
+    public static final int END = 4;  // u8 winner, 0 if the match was abandoned
+    public static final int FORFEIT = 5;  // u8 loser, u8 Protocol.OVER_* reason; an END naming the other player follows
+    public static final int RULES = 6;  // u16 rows, u16 cols, u16 ships of each type; follows START unless the board is standard
+    public static final int PLACE_WIDE = 7;  // As PLACE with u16 row and col, for cells past 127; read back as PLACE
+    public static final int ATTACK_WIDE = 8;  // As ATTACK with u16 row and col; read back as ATTACK
+    public static final int SEAT = 9;  // u8 player, i64 seat token of a player who may resume their seat
+    public static final int LAST_ID = 10;  // No payload; the match id is the highest appended before the segment began
+
+    private static final int MAX_NARROW_COORD = 127;  // Narrow records hold coordinates in a signed byte
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    public static final long DEFAULT_SYNC_MILLIS = 10;
+
+    private static final int HEADER_SIZE = 6;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = HEADER_SIZE + 4 + 2 * BoardRules.SHIP_TYPES + CHECKSUM_SIZE;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final CRC32C crc = new CRC32C();  // Guarded by this
+    private MappedByteBuffer segment;  // Segment being appended to; guarded by this
+    private int segmentIndex;
+    private int position = 0;  // Next free byte in the segment
+    private final List<MappedByteBuffer> retired = new ArrayList<>();  // Full segments not yet forced
+    private long records = 0;  // Records appended since open
+    private boolean dirty = false;  // Appends since the last sync
+    private boolean closed = false;
+    private int highestMatchId = 0;  // Highest match id appended or read
+    private final Map<Integer, Integer> openMatches = new HashMap<>();  // Segment each unended match started in, by id
+    private long recovered = 0;  // Records read on open
+
+    private int oldestSegment;  // Lowest segment index still on disk; only the sync thread changes it
+    private int failedSegment = -1;  // Last segment that could not be deleted, so it is only logged once
+    private volatile long segmentsDeleted = 0;
+
+    private final Thread syncThread;
+    private final Object syncLock = new Object();  // One sync at a time, without blocking appends
+    private volatile long syncs = 0;
+
+    private MatchJournal(Path directory, int segmentSize, long syncMillis, Visitor recovery) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        // Learn which matches are still open before anything is appended or retired
+        recovered = read(directory, record -> {
+            highestMatchId = Math.max(highestMatchId, record.matchId);
+            if (record.type == START) openMatches.put(record.matchId, record.segment);
+            if (record.type == END) openMatches.remove(record.matchId);
+            recovery.record(record);
+        });
+
+        // Never append after an existing tail that may be torn; start a fresh segment instead
+        List<Path> existing = segments(directory);
+        segmentIndex = existing.isEmpty() ? 0 : segmentIndex(existing.get(existing.size() - 1)) + 1;
+        oldestSegment = existing.isEmpty() ? segmentIndex : segmentIndex(existing.get(0));
+        segment = map(segmentIndex);
+        markSegment();
+
+        syncThread = Thread.ofPlatform().daemon().name("journal-sync").start(() -> syncLoop(syncMillis));
+    }
+
+    public static MatchJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_SYNC_MILLIS);
+    }
+
+    public static MatchJournal open(Path directory, int segmentSize, long syncMillis) throws IOException {
+        return open(directory, segmentSize, syncMillis, record -> { });
+    }
+
+    // Opens the journal after passing every record already in it to `recovery`, in order
+    public static MatchJournal open(Path directory, int segmentSize, long syncMillis, Visitor recovery) throws IOException {
+        return new MatchJournal(directory, segmentSize, syncMillis, recovery);
+    }
+
+    public void matchStarted(int matchId) throws IOException {
+        synchronized (this) {
+            int offset = begin(START, matchId, 8);
+            segment.putLong(offset, System.currentTimeMillis());
+            commit(8);
+            openMatches.put(matchId, segmentIndex);
+        }
+    }
+
+    public void seatToken(int matchId, int player, long token) throws IOException {
+        synchronized (this) {
+            int offset = begin(SEAT, matchId, 9);
+            segment.put(offset, (byte) player);
+            segment.putLong(offset + 1, token);
+            commit(9);
+        }
+    }
+
+    public void matchRules(int matchId, BoardRules rules) throws IOException {
+        synchronized (this) {
+            int length = 4 + 2 * BoardRules.SHIP_TYPES;
+            int offset = begin(RULES, matchId, length);
+            segment.putShort(offset, (short) rules.getRows());
+            segment.putShort(offset + 2, (short) rules.getCols());
+            for (int ship = 0; ship < BoardRules.SHIP_TYPES; ship++) segment.putShort(offset + 4 + 2 * ship, (short) rules.getFleet(ship));
+            commit(length);
+        }
+    }
+
+    public void shipPlaced(int matchId, int player, int ship, int row, int col, int orientation) throws IOException {
+        if (row > MAX_NARROW_COORD || col > MAX_NARROW_COORD) {
+            wideShipPlaced(matchId, player, ship, row, col, orientation);
+            return;
+        }
+        synchronized (this) {
+            int offset = begin(PLACE, matchId, 5);
+            segment.put(offset, (byte) player);
+            segment.put(offset + 1, (byte) ship);
+            segment.put(offset + 2, (byte) row);
+            segment.put(offset + 3, (byte) col);
+            segment.put(offset + 4, (byte) orientation);
+            commit(5);
+        }
+    }
+
+    private void wideShipPlaced(int matchId, int player, int ship, int row, int col, int orientation) throws IOException {
+        synchronized (this) {
+            int offset = begin(PLACE_WIDE, matchId, 7);
+            segment.put(offset, (byte) player);
+            segment.put(offset + 1, (byte) ship);
+            segment.putShort(offset + 2, (short) row);
+            segment.putShort(offset + 4, (short) col);
+            segment.put(offset + 6, (byte) orientation);
+            commit(7);
+        }
+    }
+
+    public void attacked(int matchId, int player, int row, int col, int result) throws IOException {
+        if (row > MAX_NARROW_COORD || col > MAX_NARROW_COORD) {
+            wideAttacked(matchId, player, row, col, result);
+            return;
+        }
+        synchronized (this) {
+            int offset = begin(ATTACK, matchId, 7);
+            segment.put(offset, (byte) player);
+            segment.put(offset + 1, (byte) row);
+            segment.put(offset + 2, (byte) col);
+            segment.putInt(offset + 3, result);
+            commit(7);
+        }
+    }
+
+    private void wideAttacked(int matchId, int player, int row, int col, int result) throws IOException {
+        synchronized (this) {
+            int offset = begin(ATTACK_WIDE, matchId, 9);
+            segment.put(offset, (byte) player);
+            segment.putShort(offset + 1, (short) row);
+            segment.putShort(offset + 3, (short) col);
+            segment.putInt(offset + 5, result);
+            commit(9);
+        }
+    }
+
+    public void forfeited(int matchId, int loser, int reason) throws IOException {
+        synchronized (this) {
+            int offset = begin(FORFEIT, matchId, 2);
+            segment.put(offset, (byte) loser);
+            segment.put(offset + 1, (byte) reason);
+            commit(2);
+        }
+    }
+
+    public void matchEnded(int matchId, int winner) throws IOException {
+        synchronized (this) {
+            int offset = begin(END, matchId, 1);
+            segment.put(offset, (byte) winner);
+            commit(1);
+            openMatches.remove(matchId);
+        }
+    }
+
+    // Writes the header at the current position, rolling to a new segment first if the record
+    // won't fit; returns where the payload goes
+    private int begin(int type, int matchId, int payloadLength) throws IOException {
+        if (closed) throw new IOException("Match journal is closed");
+        if (position + HEADER_SIZE + payloadLength + CHECKSUM_SIZE > segmentSize) roll();
+        highestMatchId = Math.max(highestMatchId, matchId);
+        return header(type, matchId, payloadLength);
+    }
+
+    private int header(int type, int matchId, int payloadLength) {
+        segment.put(position, (byte) type);
+        segment.put(position + 1, (byte) payloadLength);
+        segment.putInt(position + 2, matchId);
+        return position + HEADER_SIZE;
+    }
+
+    private void commit(int payloadLength) {
+        int length = HEADER_SIZE + payloadLength;
+        crc.reset();
+        segment.limit(position + length).position(position);  // Checksum in place, without a slice per record
+        crc.update(segment);
+        segment.limit(segmentSize);
+        segment.putInt(position + length, (int) crc.getValue());
+        position += length + CHECKSUM_SIZE;
+        records++;
+        dirty = true;
+    }
+
+    private void roll() throws IOException {
+        retired.add(segment);  // The rest of it stays zero, which readers take as its end
+        segmentIndex++;
+        segment = map(segmentIndex);
+        position = 0;
+        markSegment();
+    }
+
+    // Opens a fresh segment with the highest match id so far, so the ids outlive the segments that held them
+    private void markSegment() {
+        header(LAST_ID, highestMatchId, 0);
+        commit(0);
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);  // Grows the file to full size
+        }
+    }
+
+    // Group commit: one force covers every record appended since the last one
+    private void syncLoop(long syncMillis) {
+        while (true) {
+            try {
+                Thread.sleep(syncMillis);
+            } catch (InterruptedException e) {
+                return;  // Closing; close() does the final sync
+            }
+            sync();
+        }
+    }
+
+    // Forces everything appended so far to disk, then deletes the segments no open match needs
+    public void sync() {
+        synchronized (syncLock) {
+            List<MappedByteBuffer> toForce;
+            MappedByteBuffer current;
+            int keepFrom;  // Every segment before this one is full and holds no open match's records
+            synchronized (this) {
+                keepFrom = segmentIndex;
+                for (int first : openMatches.values()) keepFrom = Math.min(keepFrom, first);
+                if (!dirty && retired.isEmpty() && keepFrom <= oldestSegment) return;
+                toForce = new ArrayList<>(retired);
+                retired.clear();
+                current = segment;
+                dirty = false;
+            }
+            for (MappedByteBuffer full : toForce) full.force();
+            current.force();  // Safe alongside appends; at least everything appended before the swap is flushed
+            syncs++;
+            deleteSegments(keepFrom);
+        }
+    }
+
+    // Deletes segments from the oldest up to `keepFrom`; one that cannot be deleted yet (on some
+    // systems a file stays locked while mapped) and everything after it are tried again next sync
+    private void deleteSegments(int keepFrom) {
+        while (oldestSegment < keepFrom) {
+            Path path = segmentPath(oldestSegment);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                if (failedSegment != oldestSegment) Log.error("[Journal] Could not delete " + path.getFileName() + ": " + e.getMessage());
+                failedSegment = oldestSegment;
+                return;
+            }
+            oldestSegment++;
+            segmentsDeleted++;
+        }
+    }
+
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    public long getSyncCount() {
+        return syncs;
+    }
+
+    // Records read when the journal was opened
+    public long getRecoveredCount() {
+        return recovered;
+    }
+
+    public long getSegmentsDeleted() {
+        return segmentsDeleted;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        syncThread.interrupt();
+        synchronized (this) {
+            dirty = true;  // Force the last segment even if the sync thread just did
+        }
+        sync();
+    }
+
+    // --- Reading ---
+
+    // One decoded record, reused for every record a read visits
+    public static final class Record {
+        public int type, matchId;
+        public int player, ship, row, col, orientation, result, winner;
+        public long time;
+        public long token;  // SEAT records only
+        public BoardRules rules;  // RULES records only
+        public int segment;  // Index of the segment the record is in
+    }
+
+    public interface Visitor {
+        void record(Record record);
+    }
+
+    // Visits every valid record in segment order; returns how many were read
+    public static long read(Path directory, Visitor visitor) throws IOException {
+        Record record = new Record();
+        CRC32C crc = new CRC32C();
+        long count = 0;
+        for (Path path : segments(directory)) {
+            ByteBuffer segment;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            record.segment = segmentIndex(path);
+            int position = 0;
+            while (position + HEADER_SIZE <= segment.limit()) {
+                int type = segment.get(position);
+                if (type == 0) break;  // Unwritten remainder of the segment
+                int length = HEADER_SIZE + (segment.get(position + 1) & 0xFF);
+                if (length + CHECKSUM_SIZE > MAX_RECORD_SIZE || position + length + CHECKSUM_SIZE > segment.limit()) break;
+                crc.reset();
+                crc.update(segment.slice(position, length));
+                if (segment.getInt(position + length) != (int) crc.getValue()) {
+                    Log.error("[Journal] Dropping torn records from " + path.getFileName() + " at byte " + position);
+                    break;
+                }
+                if (decode(segment, position, type, record)) {
+                    visitor.record(record);
+                    count++;
+                }
+                position += length + CHECKSUM_SIZE;
+            }
+        }
+        return count;
+    }
+
+    private static boolean decode(ByteBuffer segment, int position, int type, Record record) {
+        int offset = position + HEADER_SIZE;
+        record.type = type;
+        record.matchId = segment.getInt(position + 2);
+        switch (type) {
+            case START -> record.time = segment.getLong(offset);
+            case PLACE -> {
+                record.player = segment.get(offset);
+                record.ship = segment.get(offset + 1);
+                record.row = segment.get(offset + 2);
+                record.col = segment.get(offset + 3);
+                record.orientation = segment.get(offset + 4);
+            }
+            case ATTACK -> {
+                record.player = segment.get(offset);
+                record.row = segment.get(offset + 1);
+                record.col = segment.get(offset + 2);
+                record.result = segment.getInt(offset + 3);
+            }
+            case PLACE_WIDE -> {
+                record.type = PLACE;
+                record.player = segment.get(offset);
+                record.ship = segment.get(offset + 1);
+                record.row = segment.getShort(offset + 2) & 0xFFFF;
+                record.col = segment.getShort(offset + 4) & 0xFFFF;
+                record.orientation = segment.get(offset + 6);
+            }
+            case ATTACK_WIDE -> {
+                record.type = ATTACK;
+                record.player = segment.get(offset);
+                record.row = segment.getShort(offset + 1) & 0xFFFF;
+                record.col = segment.getShort(offset + 3) & 0xFFFF;
+                record.result = segment.getInt(offset + 5);
+            }
+            case RULES -> {
+                int[] fleet = new int[BoardRules.SHIP_TYPES];
+                for (int ship = 0; ship < fleet.length; ship++) fleet[ship] = segment.getShort(offset + 4 + 2 * ship) & 0xFFFF;
+                try {
+                    record.rules = new BoardRules(segment.getShort(offset) & 0xFFFF, segment.getShort(offset + 2) & 0xFFFF, fleet);
+                } catch (IllegalArgumentException e) {
+                    return false;  // Checksummed but not rules any board can hold; skip it
+                }
+            }
+            case END -> record.winner = segment.get(offset);
+            case FORFEIT -> {
+                record.player = segment.get(offset);
+                record.result = segment.get(offset + 1);
+            }
+            case SEAT -> {
+                record.player = segment.get(offset);
+                record.token = segment.getLong(offset + 1);
+            }
+            case LAST_ID -> {
+            }
+            default -> {
+                return false;  // Written by a newer server; skip it
+            }
+        }
+        return true;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private static int segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Rebuilds matches from MatchJournal records. Every match gets fresh players; its placements and
+// attacks are applied in the order the server accepted them, and each recomputed attack result is
+// checked against the recorded one. Both engines are deterministic, so a finished match replays
+// to the same boards and winner; matches on a non-standard board replay on SparsePlayers. Finished
+// matches go to onFinished and are then released; matches still open when the records run out
+// are the ones a crash cut off (see getUnfinished), and carry what the server needs to resume them.
+// Records of a match whose START is in a segment the journal has retired are skipped.
+public final class MatchReplayer implements MatchJournal.Visitor {
+    // One match as rebuilt from the journal
+    public static final class ReplayedMatch {
+        public final int matchId;
+        public BattleshipPlayer player1, player2;  // Replaced by SparsePlayers if a RULES record follows START
+        public BoardRules rules = BoardRules.STANDARD;
+        public long startTime;  // Epoch millis from the START record
+        public int placements, attacks;
+        public int mismatches;  // Placements or attack results that came out differently on replay
+        public int recordedWinner;  // From the END record; 0 if the match was abandoned
+        public int forfeitedBy;  // Player who timed out or left, so the boards show no winner; 0 if none
+        public int forfeitReason;  // Protocol.OVER_* reason of the forfeit
+        public int firstSegment;  // Journal segment holding the START record
+        public final long[] tokens = new long[3];  // Seat tokens by player from SEAT records; 0 for none
+        public final int[] shipsPlaced = new int[3];  // Placements that replayed as accepted, by player
+        public final int[][] placedOfType = new int[3][BoardRules.SHIP_TYPES];
+        public int lastAttacker;  // Player who made the last attack, 0 before the first
+
+        ReplayedMatch(int matchId, BattleshipPlayer player1, BattleshipPlayer player2) {
+            this.matchId = matchId;
+            this.player1 = player1;
+            this.player2 = player2;
+        }
+
+        // Winner according to the rebuilt boards, 0 if neither fleet is sunk
+        public int replayedWinner() {
+            return player2.HasLost() ? 1 : player1.HasLost() ? 2 : 0;
+        }
+    }
+
+    private final Supplier<? extends BattleshipPlayer> playerFactory;
+    private final Consumer<ReplayedMatch> onFinished;
+    private final Map<Integer, ReplayedMatch> open = new HashMap<>();
+    private int maxMatchId = 0;
+
+    public MatchReplayer(Supplier<? extends BattleshipPlayer> playerFactory, Consumer<ReplayedMatch> onFinished) {
+        this.playerFactory = playerFactory;
+        this.onFinished = onFinished;
+    }
+
+    @Override
+    public void record(MatchJournal.Record record) {
+        maxMatchId = Math.max(maxMatchId, record.matchId);
+        ReplayedMatch match = open.get(record.matchId);
+        if (record.type == MatchJournal.START) {
+            if (match != null) release(match);  // Restarted under the same id; the journal was reset
+            match = new ReplayedMatch(record.matchId, playerFactory.get(), playerFactory.get());
+            match.startTime = record.time;
+            match.firstSegment = record.segment;
+            open.put(record.matchId, match);
+            return;
+        }
+        if (match == null) return;  // Its START is in a segment that no longer exists
+
+        switch (record.type) {
+            case MatchJournal.PLACE -> {
+                int seat = (record.player == 1) ? 1 : 2;
+                BattleshipPlayer player = (seat == 1) ? match.player1 : match.player2;
+                String type = Protocol.shipName(record.ship);
+                if (type == null || player.PlaceShip(type, new int[]{record.row, record.col}, record.orientation) != 1) {
+                    match.mismatches++;
+                } else {
+                    match.shipsPlaced[seat]++;
+                    match.placedOfType[seat][record.ship]++;
+                }
+                match.placements++;
+            }
+            case MatchJournal.ATTACK -> {
+                BattleshipPlayer attacker = (record.player == 1) ? match.player1 : match.player2;
+                BattleshipPlayer defender = (record.player == 1) ? match.player2 : match.player1;
+                if (attacker.attack(record.row, record.col, defender) != record.result) match.mismatches++;
+                match.attacks++;
+                match.lastAttacker = (record.player == 1) ? 1 : 2;
+            }
+            case MatchJournal.RULES -> {
+                // A board the factory's engine cannot play; nothing has been applied to its players yet
+                release(match);
+                match.rules = record.rules;
+                match.player1 = new SparsePlayer(record.rules);
+                match.player2 = new SparsePlayer(record.rules);
+            }
+            case MatchJournal.SEAT -> {
+                if (record.player == 1 || record.player == 2) match.tokens[record.player] = record.token;
+            }
+            case MatchJournal.FORFEIT -> {
+                match.forfeitedBy = record.player;
+                match.forfeitReason = record.result;
+            }
+            case MatchJournal.END -> {
+                match.recordedWinner = record.winner;
+                open.remove(record.matchId);
+                onFinished.accept(match);
+                release(match);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static void release(ReplayedMatch match) {
+        match.player1.close();
+        match.player2.close();
+    }
+
+    // Matches with no END record, oldest first; the caller closes their players
+    public List<ReplayedMatch> getUnfinished() {
+        List<ReplayedMatch> unfinished = new ArrayList<>(open.values());
+        unfinished.sort((a, b) -> Integer.compare(a.matchId, b.matchId));
+        return unfinished;
+    }
+
+    // Highest match id in the records read so far
+    public int getMaxMatchId() {
+        return maxMatchId;
+    }
+}
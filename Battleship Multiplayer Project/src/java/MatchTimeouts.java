@@ -0,0 +1,73 @@
+// Deadlines for the waits in a match, all kept on one shared TimingWheel rather than a thread or
+// socket timeout per connection. A player has placementMillis to place the whole fleet and
+// turnMillis for each attack. While the server waits on a player, the player must also send
+// something at least every heartbeatMillis (interactive clients send HEARTBEAT frames), so a dead
+// connection is noticed long before the turn runs out. A player who misses either is sent
+// ERROR_TIMED_OUT and disconnected, and the match treats it as a forfeit. 0 turns a limit off.
+// A player who can resume their seat (see Protocol) and loses their connection has reconnectMillis
+// to come back before the match goes on without them; there 0 means seats are never held.
+// The waits themselves belong to each MatchActor; this only times them.
+public final class MatchTimeouts {
+    public static final long DEFAULT_PLACEMENT_MILLIS = 120_000;
+    public static final long DEFAULT_TURN_MILLIS = 30_000;
+    public static final long DEFAULT_HEARTBEAT_MILLIS = 15_000;  // Three missed HEARTBEAT_INTERVAL_MILLIS
+    public static final long DEFAULT_RECONNECT_MILLIS = 60_000;
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    public static final int NOT_EXPIRED = 0, OUT_OF_TIME = 1, SILENT = 2;  // See expiry()
+
+    private final TimingWheel wheel;
+    private final long placementMillis, turnMillis, heartbeatMillis, reconnectMillis;
+
+    public MatchTimeouts(TimingWheel wheel, long placementMillis, long turnMillis, long heartbeatMillis) {
+        this(wheel, placementMillis, turnMillis, heartbeatMillis, DEFAULT_RECONNECT_MILLIS);
+    }
+
+    public MatchTimeouts(TimingWheel wheel, long placementMillis, long turnMillis, long heartbeatMillis, long reconnectMillis) {
+        this.wheel = wheel;
+        this.placementMillis = placementMillis;
+        this.turnMillis = turnMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.reconnectMillis = reconnectMillis;
+    }
+
+    public boolean holdsSeats() {
+        return reconnectMillis > 0;
+    }
+
+    // Schedules `expire` for when a seat held for a lost player runs out; like schedule(), it must
+    // only hand the work to the match
+    public TimingWheel.Timeout scheduleSeatExpiry(Runnable expire) {
+        return wheel.schedule(expire, reconnectMillis);
+    }
+
+    // Absolute deadlines in System.nanoTime() terms, or NO_DEADLINE
+    public long placementDeadline() {
+        return deadline(placementMillis);
+    }
+
+    public long turnDeadline() {
+        return deadline(turnMillis);
+    }
+
+    private static long deadline(long millis) {
+        return (millis > 0) ? System.nanoTime() + millis * 1_000_000 : NO_DEADLINE;
+    }
+
+    // Schedules `check` for the moment a wait that runs until `deadline`, on a player last heard
+    // from at `lastHeard`, could next have expired: the deadline, or heartbeatMillis of silence,
+    // whichever comes first. Returns null if the wait can never expire. The check runs on the
+    // wheel's thread, so it must only hand the work to the match.
+    public TimingWheel.Timeout schedule(Runnable check, long deadline, long lastHeard, long now) {
+        long due = deadline;
+        if (heartbeatMillis > 0) due = Math.min(due, lastHeard + heartbeatMillis * 1_000_000);
+        if (due == NO_DEADLINE) return null;
+        return wheel.schedule(check, (due - now + 999_999) / 1_000_000);
+    }
+
+    // Whether that wait has expired at `now`: NOT_EXPIRED, OUT_OF_TIME or SILENT
+    public int expiry(long deadline, long lastHeard, long now) {
+        if (deadline != NO_DEADLINE && now - deadline >= 0) return OUT_OF_TIME;
+        if (heartbeatMillis > 0 && now - lastHeard >= heartbeatMillis * 1_000_000) return SILENT;
+        return NOT_EXPIRED;
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+public class MatchmakingQueue implements Runnable {
+    // Players who have connected and are waiting for an opponent, in arrival order
+    private final BlockingQueue<PlayerConnection> waitingPlayers = new LinkedBlockingQueue<>();
+
+    // Players seated together in each match, and the callback that starts it once they are found
+    private final int groupSize;
+    private final Consumer<PlayerConnection[]> matchStarter;
+
+    public MatchmakingQueue(BiConsumer<PlayerConnection, PlayerConnection> matchStarter) {
+        this(2, players -> matchStarter.accept(players[0], players[1]));
+    }
+
+    // Free-for-all: groups of `groupSize` players, in arrival order
+    public MatchmakingQueue(int groupSize, Consumer<PlayerConnection[]> matchStarter) {
+        this.groupSize = groupSize;
+        this.matchStarter = matchStarter;
+    }
+
+    // Adds a newly connected player to the back of the queue
+    public void enqueue(PlayerConnection player) {
+        waitingPlayers.add(player);
+    }
+
+    // Number of players currently waiting for an opponent
+    public int waitingCount() {
+        return waitingPlayers.size();
+    }
+
+    // Groups waiting players first-come first-served until the thread is interrupted
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                PlayerConnection[] group = new PlayerConnection[groupSize];
+                int seated = 0;
+                while (seated < groupSize) {
+                    group[seated++] = takeOpenPlayer();
+                    // A large group can take a while to fill; drop anyone who left in the meantime
+                    int kept = 0;
+                    for (int i = 0; i < seated; i++) {
+                        if (!group[i].isClosed()) group[kept++] = group[i];
+                    }
+                    seated = kept;
+                }
+                matchStarter.accept(group);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();  // Server is shutting down
+        }
+    }
+
+    // Takes the next player, skipping anyone whose connection was closed while waiting
+    private PlayerConnection takeOpenPlayer() throws InterruptedException {
+        PlayerConnection player;
+        do {
+            player = waitingPlayers.take();
+        } while (player.isClosed());
+        return player;
+    }
+}
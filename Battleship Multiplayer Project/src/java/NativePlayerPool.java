@@ -0,0 +1,55 @@
+import java.util.ArrayDeque;
+
+// Bounded pool of native players. A match takes its players with acquire() and closing them
+// brings them back here, reset, instead of deleting the C++ Player. Players beyond the capacity
+// are deleted as usual, so the pool never holds more than `capacity` idle native objects.
+public class NativePlayerPool {
+    private final int capacity;  // Most idle players kept for reuse
+    private final ArrayDeque<BattleshipJNI> idle = new ArrayDeque<>();
+    private long created = 0;  // Native players this pool had to allocate
+    private long reused = 0;  // Acquires served from the pool
+
+    public NativePlayerPool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public BattleshipJNI acquire() {
+        synchronized (this) {
+            BattleshipJNI player = idle.pollFirst();
+            if (player != null) {
+                player.idle = false;
+                reused++;
+                return player;
+            }
+            created++;
+        }
+        return new BattleshipJNI(this);  // Allocate outside the lock
+    }
+
+    // Called from BattleshipJNI.close(); returns false if the player should be deleted instead
+    boolean release(BattleshipJNI player) {
+        synchronized (this) {
+            if (player.idle) return true;  // Already back in the pool
+            if (idle.size() >= capacity) return false;
+        }
+        player.reset();
+        synchronized (this) {
+            if (idle.size() >= capacity) return false;
+            player.idle = true;
+            idle.addFirst(player);  // Most recently used first, while its memory is still warm
+            return true;
+        }
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public synchronized long getCreatedCount() {
+        return created;
+    }
+
+    public synchronized long getReusedCount() {
+        return reused;
+    }
+}
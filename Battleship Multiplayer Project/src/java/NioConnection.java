@@ -0,0 +1,288 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Non-blocking transport: the socket is owned by an event loop, which decodes incoming
+// frames and drains outgoing buffers as the socket becomes writable. Frames go into a queue for
+// readFrame() until a match listens, then straight from the event loop into the match's mailbox,
+// so no thread at all blocks per player. A player who lets more than MAX_QUEUED_BYTES of flushed
+// frames pile up unread is disconnected rather than buffered without end.
+public final class NioConnection implements PlayerConnection {
+    static final int MAX_QUEUED_BYTES = 256 * 1024;  // Flushed but unwritten bytes a player may fall behind by, as for SocketConnection
+    static final long CLOSE_DRAIN_MILLIS = 2_000;  // How long close() lets flushed bytes drain before dropping them
+
+    // Queued after the last frame once the channel is closed; compared by identity
+    private static final Frame END_OF_STREAM = new Frame();
+
+    private final SocketChannel channel;
+    private final EventLoop eventLoop;  // Loop that owns this channel's reads and writes
+    private final BufferPool bufferPool;
+    private final String remoteAddress;
+    private final ServerMetrics metrics;  // Counts bytes in and out, or null
+    private SelectionKey key;  // Set once the event loop has registered the channel
+
+    private final ByteBuffer readBuffer;  // Holds bytes of a frame that has only partly arrived
+    private final BlockingQueue<Frame> inbound = new LinkedBlockingQueue<>();  // Decoded frames, until a listener is set
+    private Listener listener;  // Takes every decoded frame once set (event loop only)
+
+    // Staged buffers belong to the thread writing frames until it flushes them, even after the
+    // connection closes: that thread may still be encoding into the last one, so only it releases
+    // them, on its next call. The event loop only ever releases buffers from the outbound queue.
+    private final List<ByteBuffer> staged = new ArrayList<>();  // Encoded but not yet flushed (guarded by this)
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();  // Flushed, waiting for the socket
+    private final AtomicInteger unsent = new AtomicInteger();  // Bytes of flushed pooled buffers not yet written
+    private final Semaphore sharedWritten = new Semaphore(0);  // One permit per shared buffer fully written
+    private volatile boolean closing = false;  // close() was called or the player fell too far behind; no more writes
+    private volatile boolean closed = false;  // The channel is closed (set on the event loop)
+    private boolean closeRequested = false;  // Close once outbound drains (event loop only)
+
+    public NioConnection(SocketChannel channel, EventLoop eventLoop, BufferPool bufferPool) throws IOException {
+        this(channel, eventLoop, bufferPool, null);
+    }
+
+    public NioConnection(SocketChannel channel, EventLoop eventLoop, BufferPool bufferPool, ServerMetrics metrics) throws IOException {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.bufferPool = bufferPool;
+        this.metrics = metrics;
+        this.remoteAddress = String.valueOf(channel.getRemoteAddress());
+        this.readBuffer = bufferPool.acquire();
+    }
+
+    // Called on the event loop once the channel is registered with its selector
+    void attach(SelectionKey key) {
+        this.key = key;
+        handleWrite();  // Send anything written before registration finished
+    }
+
+    // Returns the last staged buffer, or a fresh one from the pool when it lacks room
+    @Override
+    public synchronized ByteBuffer writeBuffer(int size) throws IOException {
+        if (closing) refuseWrite();
+        if (size > bufferPool.getBufferSize()) {
+            throw new IOException("Frame of " + size + " bytes exceeds the " + bufferPool.getBufferSize() + " byte buffer");
+        }
+        ByteBuffer tail = staged.isEmpty() ? null : staged.get(staged.size() - 1);
+        if (tail == null || tail.remaining() < size) {
+            tail = bufferPool.acquire();
+            staged.add(tail);
+        }
+        return tail;
+    }
+
+    // Hands the staged buffers to the event loop; never waits for the socket
+    @Override
+    public void flush() throws IOException {
+        synchronized (this) {
+            if (closing) refuseWrite();
+            if (staged.isEmpty()) return;
+            int length = 0;
+            for (ByteBuffer buffer : staged) length += buffer.position();
+            if (unsent.addAndGet(length) > MAX_QUEUED_BYTES) {
+                Log.error("Disconnecting " + remoteAddress + ": more than " + MAX_QUEUED_BYTES + " bytes waiting to be written");
+                closing = true;
+                releaseStaged();
+                eventLoop.execute(this::closeNow);
+                throw new IOException("Connection to " + remoteAddress + " is not being read");
+            }
+            moveStagedToOutbound();
+        }
+        eventLoop.execute(this::handleWrite);
+    }
+
+    // Shared frames go out without a copy: each gets a read-only view, which is never pooled
+    @Override
+    public void sendShared(List<byte[]> frames) throws IOException {
+        synchronized (this) {
+            if (closing) refuseWrite();
+            for (ByteBuffer buffer : staged) unsent.addAndGet(buffer.position());
+            moveStagedToOutbound();
+            for (byte[] encoded : frames) outbound.add(ByteBuffer.wrap(encoded).asReadOnlyBuffer());
+        }
+        eventLoop.execute(this::handleWrite);
+
+        // Wait until the socket has taken them, so a slow reader backs up in the caller, not here
+        try {
+            sharedWritten.acquire(frames.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing to " + remoteAddress);
+        }
+        if (closed) throw new EOFException("Connection to " + remoteAddress + " closed");
+    }
+
+    // The connection is closing: the caller is done with the staged buffers, so they go back to
+    // the pool, and the write fails (caller holds the lock)
+    private void refuseWrite() throws EOFException {
+        releaseStaged();
+        throw new EOFException("Connection to " + remoteAddress + " is closed");
+    }
+
+    private void releaseStaged() {
+        for (ByteBuffer buffer : staged) bufferPool.release(buffer);
+        staged.clear();
+    }
+
+    // Hands every staged buffer to the event loop, ready for writing (caller holds the lock)
+    private void moveStagedToOutbound() {
+        for (ByteBuffer buffer : staged) {
+            outbound.add(buffer.flip());
+        }
+        staged.clear();
+    }
+
+    @Override
+    public Frame readFrame() throws IOException {
+        try {
+            Frame frame = inbound.take();
+            if (frame == END_OF_STREAM) {
+                inbound.add(END_OF_STREAM);  // Keep later reads failing too
+                throw new EOFException("Connection to " + remoteAddress + " closed");
+            }
+            return frame;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + remoteAddress);
+        }
+    }
+
+    // Hands over whatever readFrame() has not taken yet, then every frame as it is decoded
+    @Override
+    public void listen(Listener listener) {
+        eventLoop.execute(() -> {
+            Frame frame;
+            while ((frame = inbound.poll()) != null) {
+                if (frame == END_OF_STREAM) {
+                    listener.onClosed();
+                    return;
+                }
+                listener.onFrame(frame);
+            }
+            this.listener = listener;
+        });
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closing || closed;
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    // Lets anything already flushed reach the player, then closes on the event loop; a player who
+    // has not read it within CLOSE_DRAIN_MILLIS is cut off. Never blocks.
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closing) return;
+            closing = true;
+        }
+        eventLoop.execute(() -> {
+            closeRequested = true;
+            handleWrite();
+        });
+        CompletableFuture.delayedExecutor(CLOSE_DRAIN_MILLIS, TimeUnit.MILLISECONDS).execute(() -> eventLoop.execute(this::closeNow));
+    }
+
+    // Event loop: reads whatever has arrived and queues or hands over every complete frame
+    void handleRead() {
+        try {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                closeNow();
+                return;
+            }
+            if (metrics != null) metrics.addBytesIn(read);
+            readBuffer.flip();
+            Frame frame = new Frame();
+            while (Protocol.decode(readBuffer, frame, Protocol.MAX_CLIENT_FRAME_SIZE)) {
+                if (listener != null) {
+                    listener.onFrame(frame);
+                } else {
+                    inbound.add(frame);
+                }
+                frame = new Frame();
+            }
+            readBuffer.compact();
+        } catch (IOException e) {
+            Log.error("Error reading from " + remoteAddress + ": " + e.getMessage());
+            closeNow();
+        }
+    }
+
+    // Event loop: writes as much as the socket accepts and waits for OP_WRITE for the rest
+    void handleWrite() {
+        if (closed || key == null) return;
+        try {
+            ByteBuffer head;
+            while ((head = outbound.peek()) != null) {
+                int written = channel.write(head);
+                if (metrics != null) metrics.addBytesOut(written);
+                if (!head.isReadOnly()) unsent.addAndGet(-written);
+                if (head.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);  // Partial write
+                    return;
+                }
+                outbound.poll();
+                recycle(head);
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            if (closeRequested) closeNow();
+        } catch (IOException e) {
+            Log.error("Error writing to " + remoteAddress + ": " + e.getMessage());
+            closeNow();
+        }
+    }
+
+    // Event loop: releases the channel and flushed buffers and wakes up any reader or listener.
+    // Staged buffers are left to the writing thread (see `staged`).
+    void closeNow() {
+        if (closed) return;
+        synchronized (this) {
+            closing = true;  // A flush after this fails, so nothing reaches outbound once it is drained below
+        }
+        closed = true;
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.error("Error closing connection to " + remoteAddress + ": " + e.getMessage());
+        }
+        ByteBuffer buffer;
+        while ((buffer = outbound.poll()) != null) {
+            if (!buffer.isReadOnly()) bufferPool.release(buffer);
+        }
+        bufferPool.release(readBuffer);
+        if (listener != null) {
+            listener.onClosed();
+        } else {
+            inbound.add(END_OF_STREAM);
+        }
+        sharedWritten.release(Integer.MAX_VALUE / 2);  // Wake any sendShared; it sees the connection closed
+    }
+
+    // Event loop: returns a written buffer to the pool, or counts a shared one as sent
+    private void recycle(ByteBuffer buffer) {
+        if (buffer.isReadOnly()) {
+            sharedWritten.release();
+        } else {
+            bufferPool.release(buffer);
+        }
+    }
+}
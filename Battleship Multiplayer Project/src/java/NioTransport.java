@@ -0,0 +1,83 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.function.Consumer;
+
+// Selector-based transport: accepts players on the calling thread and spreads their
+// channels round-robin over a fixed set of event-loop threads.
+public class NioTransport {
+    private static final int BUFFER_SIZE = 8 * 1024;  // Large enough for the welcome banner in one buffer
+    private static final int MAX_POOLED_BUFFERS = 4096;  // Idle buffers kept for reuse
+
+    private final int port;
+    private final int backlog;
+    private final EventLoop[] eventLoops;
+    private final Consumer<PlayerConnection> onConnect;  // Receives every newly connected player
+    private final ServerMetrics metrics;  // Counts every connection's bytes, or null
+    private final BufferPool bufferPool = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+
+    public NioTransport(int port, int backlog, int eventLoopCount, Consumer<PlayerConnection> onConnect) throws IOException {
+        this(port, backlog, eventLoopCount, onConnect, null);
+    }
+
+    public NioTransport(int port, int backlog, int eventLoopCount, Consumer<PlayerConnection> onConnect, ServerMetrics metrics)
+            throws IOException {
+        this.port = port;
+        this.backlog = backlog;
+        this.onConnect = onConnect;
+        this.metrics = metrics;
+        this.eventLoops = new EventLoop[eventLoopCount];
+        for (int i = 0; i < eventLoopCount; i++) {
+            eventLoops[i] = new EventLoop();
+        }
+    }
+
+    // Starts the event loops and accepts players until stop() is called
+    public void run() throws IOException {
+        for (int i = 0; i < eventLoops.length; i++) {
+            Thread.ofPlatform().name("event-loop-" + i).daemon().start(eventLoops[i]);
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), backlog);
+        running = true;
+
+        int next = 0;
+        try {
+            while (running) {
+                SocketChannel channel = serverChannel.accept();  // The acceptor itself stays blocking
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                EventLoop eventLoop = eventLoops[next];
+                next = (next + 1) % eventLoops.length;
+
+                NioConnection connection = new NioConnection(channel, eventLoop, bufferPool, metrics);
+                eventLoop.register(connection, channel);
+                onConnect.accept(connection);
+            }
+        } catch (IOException e) {
+            if (running) throw e;
+        }
+    }
+
+    public int getConnectionCount() {
+        int count = 0;
+        for (EventLoop eventLoop : eventLoops) count += eventLoop.getConnectionCount();
+        return count;
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            if (serverChannel != null) serverChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (EventLoop eventLoop : eventLoops) eventLoop.shutdown();
+    }
+}
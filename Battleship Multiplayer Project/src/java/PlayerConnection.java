@@ -0,0 +1,69 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// A connected player, independent of the transport that carries their frames.
+// Frames are encoded with Protocol straight into the buffer returned by writeBuffer().
+// Only one thread writes to a connection at a time; in a match, the worker running it.
+public interface PlayerConnection {
+    // Returns a buffer with room for at least `size` more bytes; encode the next frame into it
+    ByteBuffer writeBuffer(int size) throws IOException;
+
+    // Pushes everything written since the last flush to the player in as few writes as possible.
+    // Never waits for the player to read: the bytes are queued, and a player who lets too many
+    // pile up is disconnected, which the next write reports.
+    void flush() throws IOException;
+
+    // Queues frames encoded elsewhere, which may be larger than the write buffer, such as a large
+    // board's CELLS frames, and flushes them. Never waits for the player, like flush().
+    default void flush(byte[] frames) throws IOException {
+        for (int offset = 0; offset < frames.length; ) {
+            ByteBuffer buffer = writeBuffer(1);
+            int length = Math.min(buffer.remaining(), frames.length - offset);
+            buffer.put(frames, offset, length);
+            offset += length;
+        }
+        flush();
+    }
+
+    // Sends frames that were encoded once and are shared with other connections, such as a
+    // spectator feed; the arrays are never modified. Blocks while the player is slow to read, so
+    // only spectator threads call it, never a match worker.
+    default void sendShared(List<byte[]> frames) throws IOException {
+        for (byte[] encoded : frames) writeBuffer(encoded.length).put(encoded);
+        flush();
+    }
+
+    // Blocks until the next frame from the player arrives. The returned Frame may be reused,
+    // so it is only valid until the next call.
+    Frame readFrame() throws IOException;
+
+    // Receives a player's frames as they arrive, for a match that does not block reading them
+    interface Listener {
+        // The frame is the listener's to keep
+        void onFrame(Frame frame);
+
+        // The connection closed; nothing follows
+        void onClosed();
+    }
+
+    // Hands every frame from now on to the listener instead of readFrame(), then the close. By
+    // default a virtual thread reads and forwards copies; event-driven transports deliver from
+    // their own thread. Call at most once, and stop calling readFrame() first.
+    default void listen(Listener listener) {
+        Thread.ofVirtual().name("reader").start(() -> {
+            try {
+                while (true) listener.onFrame(readFrame().copy());
+            } catch (IOException e) {
+                close();  // An unreadable frame ends the connection as surely as a closed socket
+                listener.onClosed();
+            }
+        });
+    }
+
+    boolean isClosed();
+
+    String getRemoteAddress();
+
+    void close();
+}
@@ -0,0 +1,118 @@
+// Layout of a player snapshot: one player's whole state (fleet, hits taken and shots fired) in a
+// few dozen bytes, so it can be stored, sent to another server process and loaded into a fresh
+// player of either backend (see exportState and importState in BattleshipPlayer):
+//
+//   u8   ship count, at most MAX_SHIPS
+//   u16  per ship, big-endian: bits 0-6 start cell (row * GRID_SIZE + col), bits 7-9 ship code,
+//        bit 10 orientation, bits 11-15 hit mask (bit i for the ship's i-th cell from the start).
+//        Ships still afloat come first in placement order, then sunk ships in the order they sank;
+//        a ship with every cell hit is sunk, so the self grid and the ship count follow.
+//   u8 x TARGET_BYTES  target grid in base 3, CELLS_PER_BYTE cells per byte, the first cell least
+//        significant: 0 not attacked, 1 missed, 2 hit
+//
+// A full fleet of five ships takes 31 bytes. GameLogic.cpp reads and writes the same layout in
+// Player::ExportState and Player::ImportState.
+public final class PlayerSnapshot {
+    private static final int NUM_SHIPS = 5;  // Same starting count as Player::num_ships
+
+    public static final int GRID_CELLS = BattleshipPlayer.GRID_SIZE * BattleshipPlayer.GRID_SIZE;
+    public static final int MAX_SHIPS = GRID_CELLS / 2;  // Every ship covers at least two cells
+    public static final int CELLS_PER_BYTE = 5;  // 3^5 = 243 fits a byte
+    public static final int TARGET_BYTES = GRID_CELLS / CELLS_PER_BYTE;
+    public static final int MAX_SIZE = 1 + 2 * MAX_SHIPS + TARGET_BYTES;
+    public static final int FLEET_SIZE = 1 + 2 * NUM_SHIPS + TARGET_BYTES;  // Size with the usual five ships
+
+    public static final int TARGET_NONE = 0, TARGET_MISS = 1, TARGET_HIT = 2;
+
+    private static final int CELL_MASK = 0x7F;
+    private static final int SHIP_SHIFT = 7, ORIENTATION_SHIFT = 10, HITS_SHIFT = 11;
+
+    private PlayerSnapshot() {
+    }
+
+    public static int size(int ships) {
+        return 1 + 2 * ships + TARGET_BYTES;
+    }
+
+    // --- Ship records ---
+
+    static int packShip(int startCell, int ship, int orientation, int hits) {
+        return startCell | (ship << SHIP_SHIFT) | (orientation << ORIENTATION_SHIFT) | (hits << HITS_SHIFT);
+    }
+
+    static void writeShip(byte[] out, int index, int packed) {
+        out[1 + 2 * index] = (byte) (packed >>> 8);
+        out[2 + 2 * index] = (byte) packed;
+    }
+
+    public static int shipCount(byte[] snapshot) {
+        return snapshot[0] & 0xFF;
+    }
+
+    public static int ship(byte[] snapshot, int index) {
+        return ((snapshot[1 + 2 * index] & 0xFF) << 8) | (snapshot[2 + 2 * index] & 0xFF);
+    }
+
+    public static int startCell(int ship) {
+        return ship & CELL_MASK;
+    }
+
+    public static int shipCode(int ship) {
+        return (ship >>> SHIP_SHIFT) & 0x7;
+    }
+
+    public static int orientation(int ship) {
+        return (ship >>> ORIENTATION_SHIFT) & 1;
+    }
+
+    public static int hits(int ship) {
+        return ship >>> HITS_SHIFT;
+    }
+
+    public static boolean isSunk(int ship) {
+        return hits(ship) == (1 << Protocol.shipSize(shipCode(ship))) - 1;
+    }
+
+    // --- Target grid ---
+
+    // The target grid's state for `cell`, one of the TARGET_* values
+    public static int target(byte[] snapshot, int cell) {
+        int value = snapshot[1 + 2 * shipCount(snapshot) + cell / CELLS_PER_BYTE] & 0xFF;
+        for (int i = cell % CELLS_PER_BYTE; i > 0; i--) value /= 3;
+        return value % 3;
+    }
+
+    // Checks the layout without building a player: exact length, ships inside the grid and
+    // apart from each other, hit masks within each ship, no more sunk ships than a fleet has,
+    // and target bytes in range
+    public static boolean isValid(byte[] snapshot, int length) {
+        if (length < 1 || length > snapshot.length) return false;
+        int count = shipCount(snapshot);
+        if (count > MAX_SHIPS || length != size(count)) return false;
+
+        long usedLo = 0, usedHi = 0;
+        int sunk = 0;
+        for (int i = 0; i < count; i++) {
+            int ship = ship(snapshot, i);
+            int start = startCell(ship), size = Protocol.shipSize(shipCode(ship));
+            if (start >= GRID_CELLS || size == 0 || hits(ship) >= 1 << size) return false;
+            int row = start / BattleshipPlayer.GRID_SIZE, col = start % BattleshipPlayer.GRID_SIZE;
+            if ((orientation(ship) == 0 ? col : row) + size > BattleshipPlayer.GRID_SIZE) return false;
+            int step = orientation(ship) == 0 ? 1 : BattleshipPlayer.GRID_SIZE;
+            for (int j = 0; j < size; j++) {
+                int cell = start + j * step;
+                long lo = cell < 64 ? 1L << cell : 0, hi = cell >= 64 ? 1L << (cell - 64) : 0;
+                if (((usedLo & lo) | (usedHi & hi)) != 0) return false;
+                usedLo |= lo;
+                usedHi |= hi;
+            }
+            if (isSunk(ship)) sunk++;
+        }
+        if (sunk > NUM_SHIPS) return false;
+
+        for (int i = 0; i < TARGET_BYTES; i++) {
+            if ((snapshot[1 + 2 * count + i] & 0xFF) >= 243) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,546 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Binary wire protocol shared by BattleshipClient and BattleshipServer.
+//
+// Every frame is [u16 length][u8 type][payload], where length counts the type byte and the payload.
+// Coordinates are u16 so out-of-range input can still be sent and rejected by the server.
+//
+//   Client -> Server                         Server -> Client
+//   HELLO   u8 version, u8 flags[, name]     ROLE          u8 player
+//                                            RULES         u16 rows, u16 cols, u16 ships of each of the 5 types
+//   PLACE   u8 ship, u16 row, u16 col,       TEXT          UTF-8 bytes
+//           u8 orientation                   PLACE_RESULT  u8 status, u8 ship, u16 row, u16 col, u8 orientation, u32 seq
+//   ATTACK  u16 row, u16 col[, u8 target]    GAME_START    (empty)
+//   RESYNC  (empty)                          TURN          u8 player
+//   WATCH   u32 match id                     ATTACK_RESULT u8 attacker, u8 result, u16 row, u16 col, u32 seq[, u8 defender]
+//   HEARTBEAT (empty)                        GRID          u8 kind, u32 seq, u16 rows, u16 cols, rows*cols cell bytes
+//   FLEET   u16 count, count x (u8 ship,     GAME_OVER     u8 winner, u8 reason
+//           u16 row, u16 col, u8 orientation)
+//   RESUME  u32 match id, u64 token          ERROR         u8 code
+//                                            SHIP_PLACED   u8 player, u8 ship, u16 row, u16 col, u8 orientation, u32 seq
+//                                            CELLS         u8 kind, u32 seq, u8 flags, u16 count,
+//                                                          count x (u16 row, u16 col, u8 cell)
+//                                            PLAYERS       u8 players
+//                                            PLAYER_OUT    u8 player, u8 reason
+//                                            FLEET_RESULT  u8 status, u16 index, u32 seq
+//                                            SESSION       u32 match id, u64 token, u16 ships placed
+//
+// Every player and spectator gets RULES right after ROLE: the board size and how many ships of
+// each type a fleet has. The standard game is 10x10 with one ship of each type; a server started
+// with --board and --fleet plays any size up to BoardRules.MAX_DIMENSION.
+//
+// A server started with --players=N seats N players per match, free-for-all. Each player gets
+// PLAYERS after RULES, and every ATTACK names its target. TURN goes to every player still in the
+// game, but an ATTACK_RESULT only to the attacker and the defender, with the defender's number
+// appended. A player whose fleet is sunk, or who times out or leaves, is announced to the rest
+// with PLAYER_OUT and disconnected; the last one left gets GAME_OVER. A player's target grid
+// against player p is resynced as kind GRID_OPPONENT + p. Two-player matches never send PLAYERS
+// or PLAYER_OUT, and their ATTACK and ATTACK_RESULT frames keep the shorter layout.
+//
+// A fleet is placed with one FLEET frame holding every ship, or ship by ship with PLACE frames.
+// The server checks a FLEET in one pass (ship types, bounds, orientation, overlaps and the fleet
+// in the rules) before any ship reaches the board, and answers with one FLEET_RESULT: PLACE_OK
+// and the whole fleet is placed, or the first rejection status and the index of the ship at
+// fault, with nothing placed. A fleet of more than MAX_FLEET_SHIPS ships does not fit a FLEET
+// frame and is placed ship by ship. FLEET is only accepted before the first PLACE.
+//
+// In a two-player match a client may send attacks ahead of its turn, from right after its fleet
+// (even before ROLE arrives). Up to MAX_QUEUED_ATTACKS wait in order, and each is played the
+// moment its player's turn starts, in the same write as the TURN that announces it; any more get
+// ERROR_UNEXPECTED_MESSAGE. A scripted client that keeps attacks queued never waits a round trip
+// for its turn. Free-for-all attacks name a target that may be out by then, so they are only
+// accepted on the player's turn.
+//
+// Any frames may be pipelined, but a client keeps at most MAX_PIPELINED_FRAMES of them sent ahead
+// of the replies it has read; a server that finds more waiting for the match disconnects it. A
+// fleet placed ship by ship is sent in windows of that many PLACE frames.
+//
+// Boards are kept in sync with deltas. Each player has a board sequence number; PLACE_RESULT,
+// FLEET_RESULT and ATTACK_RESULT carry the sequence number after the change they describe, so the client applies
+// the change when seq is one past its own, ignores it when seq is unchanged (a rejected move),
+// and sends RESYNC on any gap. Full GRID frames are only sent in answer to RESYNC, and only once
+// per board change: a RESYNC that finds the player's sequence number where the last answer left it
+// gets ERROR_RESYNC_REFUSED instead, since the grids already sent are current. Boards larger
+// than MAX_GRID_CELLS are resynced with CELLS frames instead, which list only the cells that are
+// not empty; the first frame of a grid has CELLS_FIRST set and clears it, and a grid with many
+// cells takes several frames.
+//
+// A player may name themselves with up to MAX_NAME_BYTES of UTF-8 after the HELLO flags. A server
+// keeping ratings rates every match whose players all have names; anonymous players and bots are
+// never rated. A client that sends HELLO_LEADERBOARD gets the best rated players as one TEXT frame,
+// and the server then closes the connection.
+//
+// A two-player match can be rejoined. A client that sends HELLO_SESSION gets SESSION right after
+// RULES: the match id and a token for its seat. If its connection drops, or it has to restart, it
+// sends HELLO with HELLO_RESUME, then RESUME with that match id and token, on a new connection.
+// The server keeps a lost player's seat for a while (--reconnect-timeout) before the match is
+// forfeited, and a RESUME also takes a seat over from a connection the server still thinks is
+// alive. The player gets ROLE, RULES and SESSION again (with the ships already placed), then its
+// full grids, then TEXT if it still has ships to place, or GAME_START and TURN once the game is
+// under way. A RESUME that names no seat for the token gets ERROR_NO_SUCH_SEAT, and the
+// connection is closed. Players who never send HELLO_SESSION forfeit the moment they leave.
+//
+// A spectator sends HELLO with HELLO_SPECTATE, then WATCH; match id 0 picks the newest live match.
+// It gets ROLE 0 and RULES, then a snapshot (GRID_PLAYER1 and GRID_PLAYER2 frames, plus TURN or GAME_OVER
+// once the game is under way) followed by SHIP_PLACED, GAME_START, TURN, ATTACK_RESULT and
+// GAME_OVER as they happen. Its seq counts board changes in the whole match. A spectator that
+// falls behind is sent a fresh snapshot instead of the changes it missed.
+//
+// While the server waits on a player it expects a frame at least every few seconds; a client that
+// may sit idle (a person thinking) sends HEARTBEAT every HEARTBEAT_INTERVAL_MILLIS. A player who
+// runs out of time gets ERROR_TIMED_OUT and is disconnected, and the opponent gets GAME_OVER
+// with a reason saying why they won.
+public final class Protocol {
+    public static final int VERSION = 9;  // Sent in HELLO; bump whenever a frame layout changes
+    public static final long HEARTBEAT_INTERVAL_MILLIS = 5_000;
+
+    // Message types, client to server
+    public static final int HELLO = 0x01;
+    public static final int PLACE = 0x02;
+    public static final int ATTACK = 0x03;
+    public static final int RESYNC = 0x04;
+    public static final int WATCH = 0x05;
+    public static final int HEARTBEAT = 0x06;
+    public static final int FLEET = 0x07;
+    public static final int RESUME = 0x08;
+
+    // Message types, server to client
+    public static final int ROLE = 0x10;
+    public static final int TEXT = 0x11;
+    public static final int PLACE_RESULT = 0x12;
+    public static final int GAME_START = 0x13;
+    public static final int TURN = 0x14;
+    public static final int ATTACK_RESULT = 0x15;
+    public static final int GRID = 0x16;
+    public static final int GAME_OVER = 0x17;
+    public static final int ERROR = 0x18;
+    public static final int SHIP_PLACED = 0x19;
+    public static final int RULES = 0x1A;
+    public static final int CELLS = 0x1B;
+    public static final int PLAYERS = 0x1C;
+    public static final int PLAYER_OUT = 0x1D;
+    public static final int FLEET_RESULT = 0x1E;
+    public static final int SESSION = 0x1F;
+
+    // HELLO flags
+    public static final int HELLO_VS_BOT = 0x01;  // Play against a server-side bot instead of waiting for a person
+    public static final int HELLO_SPECTATE = 0x02;  // Watch a match instead of playing; a WATCH frame follows
+    public static final int HELLO_LEADERBOARD = 0x04;  // Ask for the leaderboard instead of playing
+    public static final int HELLO_SESSION = 0x08;  // Send a SESSION, so the seat can be resumed later
+    public static final int HELLO_RESUME = 0x10;  // Rejoin a match instead of queueing; a RESUME frame follows
+    public static final int MAX_NAME_BYTES = 32;  // Longest player name HELLO may carry
+
+    // PLACE_RESULT and FLEET_RESULT status codes; only a FLEET is told which check failed
+    public static final int PLACE_OK = 0;
+    public static final int PLACE_INVALID = 1;  // Out of bounds, overlapping or bad orientation
+    public static final int PLACE_UNKNOWN_SHIP = 2;
+    public static final int PLACE_NOT_IN_FLEET = 3;  // Every ship of that type is already placed
+    public static final int PLACE_OUT_OF_BOUNDS = 4;
+    public static final int PLACE_OVERLAP = 5;  // Shares a cell with an earlier ship in the fleet
+    public static final int PLACE_BAD_ORIENTATION = 6;
+    public static final int PLACE_FLEET_INCOMPLETE = 7;  // Fewer ships than the fleet; the index is the count sent
+
+    // ATTACK_RESULT result codes
+    public static final int RESULT_MISS = 0;
+    public static final int RESULT_HIT = 1;
+    public static final int RESULT_SUNK = 2;
+    public static final int RESULT_OUT_OF_BOUNDS = 3;
+    public static final int RESULT_ALREADY_ATTACKED = 4;
+    public static final int RESULT_BAD_TARGET = 5;  // Free-for-all: the target is not an opponent still in the game
+
+    // GRID kinds
+    public static final int GRID_SELF = 0;
+    public static final int GRID_TARGET = 1;
+    public static final int GRID_PLAYER1 = 2;  // Spectators: a player's whole board with ships, misses and hits
+    public static final int GRID_PLAYER2 = 3;
+    public static final int GRID_OPPONENT = 0x10;  // Free-for-all: plus p, our target grid against player p
+
+    // CELLS flags
+    public static final int CELLS_FIRST = 0x01;  // First frame of a grid: clear it before applying the cells
+
+    // GAME_OVER reasons
+    public static final int OVER_FLEET_SUNK = 0;
+    public static final int OVER_TIMED_OUT = 1;  // The loser ran out of time or stopped responding
+    public static final int OVER_LEFT = 2;  // The loser disconnected
+
+    // ERROR codes
+    public static final int ERROR_VERSION_MISMATCH = 1;
+    public static final int ERROR_UNEXPECTED_MESSAGE = 2;
+    public static final int ERROR_NO_SUCH_MATCH = 3;
+    public static final int ERROR_TIMED_OUT = 4;  // Sent just before the server disconnects the player
+    public static final int ERROR_NO_BOT = 5;  // Bots only play the standard board; sent before disconnecting
+    public static final int ERROR_RESYNC_REFUSED = 6;  // The grids last sent for a RESYNC are still current
+    public static final int ERROR_NO_SUCH_SEAT = 7;  // RESUME named no seat held for that token; sent before disconnecting
+
+    // Ship type codes follow the C++ Type enum order
+    private static final String[] SHIP_NAMES = {"carrier", "battleship", "cruiser", "submarine", "destroyer"};
+    private static final int[] SHIP_SIZES = {5, 4, 3, 3, 2};  // Same lengths as ship_sizes in GameLogic.cpp
+
+    public static final int HEADER_SIZE = 3;  // u16 length + u8 type
+    public static final int MAX_FIXED_FRAME_SIZE = 24;  // Room for any frame without a variable payload
+    public static final int MAX_CLIENT_FRAME_SIZE = 1024;  // Largest frame a server accepts from a client
+    public static final int MAX_PIPELINED_FRAMES = 64;  // Frames a client may send ahead of the replies it has read
+    public static final int MAX_QUEUED_ATTACKS = 8;  // Attacks a two-player match holds for a player ahead of their turn
+    public static final int MAX_FLEET_SHIPS = (MAX_CLIENT_FRAME_SIZE - HEADER_SIZE - 2) / 6;  // Most ships one FLEET frame can carry
+    public static final int MAX_FRAME_SIZE = 2 + 0xFFFF;
+    public static final int MAX_GRID_CELLS = 4096;  // Largest board resynced with GRID frames
+    public static final int CELLS_PER_FRAME = (0xFFFF - 9) / 5;  // Most cells one CELLS frame can carry
+
+    private Protocol() {
+    }
+
+    // Returns the ship type code for a name, or -1 if the name is not a ship
+    public static int shipCode(String name) {
+        for (int i = 0; i < SHIP_NAMES.length; i++) {
+            if (SHIP_NAMES[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    // Returns the name the native game logic uses for a ship type code, or null if unknown
+    public static String shipName(int code) {
+        return (code >= 0 && code < SHIP_NAMES.length) ? SHIP_NAMES[code] : null;
+    }
+
+    // Returns the length of a ship type, or 0 if the code is unknown
+    public static int shipSize(int code) {
+        return (code >= 0 && code < SHIP_SIZES.length) ? SHIP_SIZES[code] : 0;
+    }
+
+    // --- Encoders: each writes one complete frame at the buffer's position ---
+
+    public static void writeHello(ByteBuffer out) {
+        writeHello(out, 0);
+    }
+
+    public static void writeHello(ByteBuffer out, int flags) {
+        out.putShort((short) 3).put((byte) HELLO).put((byte) VERSION).put((byte) flags);
+    }
+
+    // A named player; `name` must encode to at most MAX_NAME_BYTES
+    public static void writeHello(ByteBuffer out, int flags, byte[] name) {
+        out.putShort((short) (3 + name.length)).put((byte) HELLO).put((byte) VERSION).put((byte) flags).put(name);
+    }
+
+    public static void writePlace(ByteBuffer out, int ship, int row, int col, int orientation) {
+        out.putShort((short) 7).put((byte) PLACE).put((byte) ship).putShort((short) row).putShort((short) col).put((byte) orientation);
+    }
+
+    // FLEET is written a ship at a time, since callers produce their fleet that way: startFleet,
+    // then addFleetShip for every ship, then finishFleet with the position startFleet returned
+    public static int startFleet(ByteBuffer out) {
+        int start = out.position();
+        out.putShort((short) 0).put((byte) FLEET).putShort((short) 0);
+        return start;
+    }
+
+    public static void addFleetShip(ByteBuffer out, int ship, int row, int col, int orientation) {
+        out.put((byte) ship).putShort((short) row).putShort((short) col).put((byte) orientation);
+    }
+
+    public static void finishFleet(ByteBuffer out, int start) {
+        int length = out.position() - start - 2;
+        out.putShort(start, (short) length).putShort(start + HEADER_SIZE, (short) ((length - 3) / 6));
+    }
+
+    public static int fleetFrameSize(int ships) {
+        return HEADER_SIZE + 2 + 6 * ships;
+    }
+
+    public static void writeAttack(ByteBuffer out, int row, int col) {
+        out.putShort((short) 5).put((byte) ATTACK).putShort((short) row).putShort((short) col);
+    }
+
+    public static void writeAttack(ByteBuffer out, int row, int col, int target) {
+        out.putShort((short) 6).put((byte) ATTACK).putShort((short) row).putShort((short) col).put((byte) target);
+    }
+
+    public static void writeResync(ByteBuffer out) {
+        out.putShort((short) 1).put((byte) RESYNC);
+    }
+
+    public static void writeHeartbeat(ByteBuffer out) {
+        out.putShort((short) 1).put((byte) HEARTBEAT);
+    }
+
+    public static void writeWatch(ByteBuffer out, int matchId) {
+        out.putShort((short) 5).put((byte) WATCH).putInt(matchId);
+    }
+
+    public static void writeResume(ByteBuffer out, int matchId, long token) {
+        out.putShort((short) 13).put((byte) RESUME).putInt(matchId).putLong(token);
+    }
+
+    public static void writeRole(ByteBuffer out, int player) {
+        out.putShort((short) 2).put((byte) ROLE).put((byte) player);
+    }
+
+    public static void writeRules(ByteBuffer out, BoardRules rules) {
+        out.putShort((short) 15).put((byte) RULES).putShort((short) rules.getRows()).putShort((short) rules.getCols());
+        for (int ship = 0; ship < BoardRules.SHIP_TYPES; ship++) out.putShort((short) rules.getFleet(ship));
+    }
+
+    // TEXT frames carry pre-encoded UTF-8 so static messages are encoded only once
+    public static void writeText(ByteBuffer out, byte[] utf8) {
+        out.putShort((short) (1 + utf8.length)).put((byte) TEXT).put(utf8);
+    }
+
+    public static int textFrameSize(byte[] utf8) {
+        return HEADER_SIZE + utf8.length;
+    }
+
+    public static void writePlaceResult(ByteBuffer out, int status, int ship, int row, int col, int orientation, int seq) {
+        out.putShort((short) 12).put((byte) PLACE_RESULT).put((byte) status).put((byte) ship)
+                .putShort((short) row).putShort((short) col).put((byte) orientation).putInt(seq);
+    }
+
+    public static void writeFleetResult(ByteBuffer out, int status, int index, int seq) {
+        out.putShort((short) 8).put((byte) FLEET_RESULT).put((byte) status).putShort((short) index).putInt(seq);
+    }
+
+    public static void writeGameStart(ByteBuffer out) {
+        out.putShort((short) 1).put((byte) GAME_START);
+    }
+
+    public static void writeTurn(ByteBuffer out, int player) {
+        out.putShort((short) 2).put((byte) TURN).put((byte) player);
+    }
+
+    public static void writeAttackResult(ByteBuffer out, int attacker, int result, int row, int col, int seq) {
+        out.putShort((short) 11).put((byte) ATTACK_RESULT).put((byte) attacker).put((byte) result)
+                .putShort((short) row).putShort((short) col).putInt(seq);
+    }
+
+    public static void writeAttackResult(ByteBuffer out, int attacker, int defender, int result, int row, int col, int seq) {
+        out.putShort((short) 12).put((byte) ATTACK_RESULT).put((byte) attacker).put((byte) result)
+                .putShort((short) row).putShort((short) col).putInt(seq).put((byte) defender);
+    }
+
+    public static void writeGrid(ByteBuffer out, int kind, int seq, int rows, int cols, byte[] cells) {
+        out.putShort((short) (10 + rows * cols)).put((byte) GRID).put((byte) kind).putInt(seq)
+                .putShort((short) rows).putShort((short) cols).put(cells, 0, rows * cols);
+    }
+
+    public static int gridFrameSize(int rows, int cols) {
+        return HEADER_SIZE + 9 + rows * cols;
+    }
+
+    // Writes a grid held as a CellMap (row * cols + col -> cell state) as CELLS frames of at most
+    // CELLS_PER_FRAME cells; an empty grid is still one frame, so the client clears its copy
+    public static void writeCells(ByteBuffer out, int kind, int seq, int cols, CellMap cells) {
+        int remaining = cells.size();
+        int slot = 0;
+        int flags = CELLS_FIRST;
+        do {
+            int count = Math.min(remaining, CELLS_PER_FRAME);
+            out.putShort((short) (9 + 5 * count)).put((byte) CELLS).put((byte) kind).putInt(seq).put((byte) flags).putShort((short) count);
+            for (int written = 0; written < count; slot++) {
+                int cell = cells.cellAt(slot);
+                if (cell == CellMap.ABSENT) continue;
+                out.putShort((short) (cell / cols)).putShort((short) (cell % cols)).put((byte) cells.valueAt(slot));
+                written++;
+            }
+            remaining -= count;
+            flags = 0;
+        } while (remaining > 0);
+    }
+
+    // Bytes writeCells needs for a grid of `count` cells
+    public static int cellsSize(int count) {
+        int frames = Math.max(1, (count + CELLS_PER_FRAME - 1) / CELLS_PER_FRAME);
+        return frames * (HEADER_SIZE + 8) + 5 * count;
+    }
+
+    public static void writeGameOver(ByteBuffer out, int winner) {
+        writeGameOver(out, winner, OVER_FLEET_SUNK);
+    }
+
+    public static void writeGameOver(ByteBuffer out, int winner, int reason) {
+        out.putShort((short) 3).put((byte) GAME_OVER).put((byte) winner).put((byte) reason);
+    }
+
+    public static void writeShipPlaced(ByteBuffer out, int player, int ship, int row, int col, int orientation, int seq) {
+        out.putShort((short) 12).put((byte) SHIP_PLACED).put((byte) player).put((byte) ship)
+                .putShort((short) row).putShort((short) col).put((byte) orientation).putInt(seq);
+    }
+
+    public static void writePlayers(ByteBuffer out, int players) {
+        out.putShort((short) 2).put((byte) PLAYERS).put((byte) players);
+    }
+
+    public static void writePlayerOut(ByteBuffer out, int player, int reason) {
+        out.putShort((short) 3).put((byte) PLAYER_OUT).put((byte) player).put((byte) reason);
+    }
+
+    public static void writeSession(ByteBuffer out, int matchId, long token, int shipsPlaced) {
+        out.putShort((short) 15).put((byte) SESSION).putInt(matchId).putLong(token).putShort((short) shipsPlaced);
+    }
+
+    public static void writeError(ByteBuffer out, int code) {
+        out.putShort((short) 2).put((byte) ERROR).put((byte) code);
+    }
+
+    public static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // --- Decoders ---
+
+    // Decodes the next complete frame into `frame`. Returns false, leaving the buffer position
+    // untouched, when the frame has not fully arrived yet.
+    public static boolean decode(ByteBuffer in, Frame frame, int maxFrameSize) throws IOException {
+        if (in.remaining() < 2) return false;
+        int start = in.position();
+        int length = in.getShort(start) & 0xFFFF;
+        if (length < 1 || length + 2 > maxFrameSize) {
+            throw new StreamCorruptedException("Invalid frame length " + length);
+        }
+        if (in.remaining() < 2 + length) return false;
+
+        in.position(start + 2);
+        frame.type = in.get() & 0xFF;
+        int payload = length - 1;
+        switch (frame.type) {
+            case HELLO -> {
+                // Versions before 3 send no flags; accept them so they get a proper version error.
+                // A name, if any, follows the flags and stays in the payload.
+                if (payload < 1) expect(frame, payload, 2);
+                if (payload > 2 + MAX_NAME_BYTES) throw new StreamCorruptedException("Player name longer than " + MAX_NAME_BYTES + " bytes");
+                frame.a = in.get() & 0xFF;
+                frame.b = (payload >= 2) ? in.get() & 0xFF : 0;
+                frame.ensurePayload(Math.max(0, payload - 2));
+                in.get(frame.payload, 0, frame.payloadLength);
+            }
+            case ROLE, TURN, ERROR, PLAYERS -> {
+                expect(frame, payload, 1);
+                frame.a = in.get() & 0xFF;
+            }
+            case GAME_OVER, PLAYER_OUT -> {
+                expect(frame, payload, 2);
+                frame.a = in.get() & 0xFF;
+                frame.b = in.get() & 0xFF;
+            }
+            case PLACE -> {
+                expect(frame, payload, 6);
+                frame.a = in.get() & 0xFF;
+                frame.b = in.getShort() & 0xFFFF;
+                frame.c = in.getShort() & 0xFFFF;
+                frame.d = in.get() & 0xFF;
+            }
+            case ATTACK -> {
+                // Two-player matches send no target
+                if (payload != 4) expect(frame, payload, 5);
+                frame.a = in.getShort() & 0xFFFF;
+                frame.b = in.getShort() & 0xFFFF;
+                frame.c = (payload == 5) ? in.get() & 0xFF : 0;
+            }
+            case FLEET -> {
+                // The ship records stay in the payload; Frame.fleetShip() and friends read them
+                if (payload < 2) throw new StreamCorruptedException("Truncated FLEET frame");
+                frame.a = in.getShort() & 0xFFFF;
+                expect(frame, payload - 2, 6 * frame.a);
+                frame.ensurePayload(payload - 2);
+                in.get(frame.payload, 0, payload - 2);
+            }
+            case FLEET_RESULT -> {
+                expect(frame, payload, 7);
+                frame.a = in.get() & 0xFF;
+                frame.b = in.getShort() & 0xFFFF;
+                frame.seq = in.getInt();
+            }
+            case WATCH -> {
+                expect(frame, payload, 4);
+                frame.a = in.getInt();
+            }
+            case RESUME -> {
+                expect(frame, payload, 12);
+                frame.a = in.getInt();
+                frame.token = in.getLong();
+            }
+            case SESSION -> {
+                expect(frame, payload, 14);
+                frame.a = in.getInt();
+                frame.token = in.getLong();
+                frame.b = in.getShort() & 0xFFFF;
+            }
+            case PLACE_RESULT, SHIP_PLACED -> {
+                expect(frame, payload, 11);
+                frame.a = in.get() & 0xFF;
+                frame.b = in.get() & 0xFF;
+                frame.c = in.getShort() & 0xFFFF;
+                frame.d = in.getShort() & 0xFFFF;
+                frame.e = in.get() & 0xFF;
+                frame.seq = in.getInt();
+            }
+            case GAME_START, RESYNC, HEARTBEAT -> expect(frame, payload, 0);
+            case ATTACK_RESULT -> {
+                // Free-for-all results name the defender; two-player ones leave it implied
+                if (payload != 10) expect(frame, payload, 11);
+                frame.a = in.get() & 0xFF;
+                frame.b = in.get() & 0xFF;
+                frame.c = in.getShort() & 0xFFFF;
+                frame.d = in.getShort() & 0xFFFF;
+                frame.seq = in.getInt();
+                frame.e = (payload == 11) ? in.get() & 0xFF : 0;
+            }
+            case RULES -> {
+                // The fleet counts stay in the payload; Frame.rules() checks and decodes them
+                expect(frame, payload, 4 + 2 * BoardRules.SHIP_TYPES);
+                frame.a = in.getShort() & 0xFFFF;
+                frame.b = in.getShort() & 0xFFFF;
+                frame.ensurePayload(payload - 4);
+                in.get(frame.payload, 0, payload - 4);
+            }
+            case CELLS -> {
+                if (payload < 8) throw new StreamCorruptedException("Truncated CELLS frame");
+                frame.a = in.get() & 0xFF;
+                frame.seq = in.getInt();
+                frame.b = in.get() & 0xFF;
+                frame.c = in.getShort() & 0xFFFF;
+                expect(frame, payload - 8, 5 * frame.c);
+                frame.ensurePayload(payload - 8);
+                in.get(frame.payload, 0, payload - 8);
+            }
+            case TEXT -> {
+                frame.ensurePayload(payload);
+                in.get(frame.payload, 0, payload);
+            }
+            case GRID -> {
+                if (payload < 9) throw new StreamCorruptedException("Truncated GRID frame");
+                frame.a = in.get() & 0xFF;
+                frame.seq = in.getInt();
+                frame.b = in.getShort() & 0xFFFF;
+                frame.c = in.getShort() & 0xFFFF;
+                expect(frame, payload - 9, frame.b * frame.c);
+                frame.ensurePayload(payload - 9);
+                in.get(frame.payload, 0, payload - 9);
+            }
+            default -> throw new StreamCorruptedException(String.format("Unknown frame type 0x%02X", frame.type));
+        }
+        return true;
+    }
+
+    // Blocking read of one frame; `scratch` must be able to hold the largest frame the caller accepts
+    public static void readFrame(DataInputStream in, ByteBuffer scratch, Frame frame) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length + 2 > scratch.capacity()) {
+            throw new StreamCorruptedException("Frame of " + length + " bytes exceeds " + scratch.capacity());
+        }
+        scratch.clear();
+        scratch.putShort((short) length);
+        in.readFully(scratch.array(), 2, length);
+        scratch.position(0).limit(2 + length);
+        decode(scratch, frame, scratch.capacity());
+    }
+
+    private static void expect(Frame frame, int actual, int expected) throws StreamCorruptedException {
+        if (actual != expected) {
+            throw new StreamCorruptedException(String.format("Frame type 0x%02X has %d payload bytes, expected %d",
+                    frame.type, actual, expected));
+        }
+    }
+}
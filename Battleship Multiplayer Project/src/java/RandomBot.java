@@ -0,0 +1,65 @@
+import java.util.SplittableRandom;
+
+// Places its fleet at random and shoots every cell once, in random order
+public class RandomBot implements Bot {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int SHIP_COUNT = 5;
+
+    private final SplittableRandom random;
+    private final int[] shots = new int[SIZE * SIZE];  // Every cell, shuffled
+    private int nextShot = 0;
+
+    public RandomBot(SplittableRandom random) {
+        this.random = random;
+        for (int cell = 0; cell < shots.length; cell++) shots[cell] = cell;
+        for (int i = shots.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = shots[i];
+            shots[i] = shots[j];
+            shots[j] = swap;
+        }
+    }
+
+    @Override
+    public void placeFleet(Fleet fleet) {
+        placeRandomFleet(fleet, random);
+    }
+
+    @Override
+    public int nextShot() {
+        return shots[nextShot++];
+    }
+
+    @Override
+    public void onAttackResult(int cell, int result) {
+        // Random shooting ignores results
+    }
+
+    // Places the five ships at random non-overlapping positions. Positions are checked here first,
+    // so the backend only ever sees valid placements (the native one logs every rejection).
+    static void placeRandomFleet(Fleet fleet, SplittableRandom random) {
+        boolean[] occupied = new boolean[SIZE * SIZE];
+        for (int ship = 0; ship < SHIP_COUNT; ship++) {
+            int length = Protocol.shipSize(ship);
+            while (true) {
+                int orientation = random.nextInt(2);
+                int row = random.nextInt(orientation == 1 ? SIZE - length + 1 : SIZE);
+                int col = random.nextInt(orientation == 0 ? SIZE - length + 1 : SIZE);
+                if (fits(occupied, row, col, orientation, length)) {
+                    for (int i = 0; i < length; i++) {
+                        occupied[(row + (orientation == 1 ? i : 0)) * SIZE + col + (orientation == 0 ? i : 0)] = true;
+                    }
+                    fleet.place(ship, row, col, orientation);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean fits(boolean[] occupied, int row, int col, int orientation, int length) {
+        for (int i = 0; i < length; i++) {
+            if (occupied[(row + (orientation == 1 ? i : 0)) * SIZE + col + (orientation == 0 ? i : 0)]) return false;
+        }
+        return true;
+    }
+}
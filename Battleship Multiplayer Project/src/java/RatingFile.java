@@ -0,0 +1,118 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Every rated player's current rating, one fixed-size record each, in a memory-mapped file. A
+// record is rewritten in place whenever its player's rating changes, so the file always holds the
+// current ratings: opening it is one pass over the records, never a replay of matches. Writes are
+// stores into the page cache, which the OS writes back on its own, so a process crash loses
+// nothing; sync() forces them to disk against a machine crash.
+//
+// Layout (big-endian):
+//   header  i32 magic | i32 format | i32 record count | 52 spare bytes
+//   record  u8 name length | name, UTF-8, up to Protocol.MAX_NAME_BYTES | padding to byte 40 |
+//           f64 rating | i32 games | i32 wins | 16 spare bytes
+// Slots number the records from 0 in the order players were first rated.
+//
+// Not thread-safe; Ratings serializes every call.
+public final class RatingFile implements Closeable {
+    private static final int MAGIC = 0x42535254;  // "BSRT"
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 64;
+    private static final int RATING_OFFSET = 40, GAMES_OFFSET = 48, WINS_OFFSET = 52;
+    private static final int INITIAL_RECORDS = 4096;  // The mapping doubles whenever it fills up
+
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private int count;  // Records written
+
+    private RatingFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        if (size == 0) {
+            remap(INITIAL_RECORDS);
+            map.putInt(0, MAGIC).putInt(4, FORMAT).putInt(8, 0);
+            return;
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (size < HEADER_SIZE || map.getInt(0) != MAGIC) throw new StreamCorruptedException("Not a rating file");
+        if (map.getInt(4) != FORMAT) throw new StreamCorruptedException("Unsupported rating file format " + map.getInt(4));
+        count = map.getInt(8);
+        if (count < 0 || HEADER_SIZE + (long) count * RECORD_SIZE > size) throw new StreamCorruptedException("Rating file is truncated");
+    }
+
+    public static RatingFile open(Path file) throws IOException {
+        return new RatingFile(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    public int count() {
+        return count;
+    }
+
+    // Adds a record and returns its slot. The count in the header goes up only once the record is
+    // written, so a crash in between leaves the file as it was.
+    public int append(String name, double rating, int games, int wins) throws IOException {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length == 0 || encoded.length > Protocol.MAX_NAME_BYTES) throw new IllegalArgumentException("Bad player name: " + name);
+        if (HEADER_SIZE + (long) (count + 1) * RECORD_SIZE > map.capacity()) remap(Math.max(INITIAL_RECORDS, count * 2));
+        int slot = count;
+        int at = offset(slot);
+        map.put(at, (byte) encoded.length).put(at + 1, encoded);
+        write(slot, rating, games, wins);
+        map.putInt(8, ++count);
+        return slot;
+    }
+
+    public void write(int slot, double rating, int games, int wins) {
+        int at = offset(slot);
+        map.putDouble(at + RATING_OFFSET, rating).putInt(at + GAMES_OFFSET, games).putInt(at + WINS_OFFSET, wins);
+    }
+
+    public String name(int slot) {
+        int at = offset(slot);
+        byte[] encoded = new byte[map.get(at) & 0xFF];
+        map.get(at + 1, encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    public double rating(int slot) {
+        return map.getDouble(offset(slot) + RATING_OFFSET);
+    }
+
+    public int games(int slot) {
+        return map.getInt(offset(slot) + GAMES_OFFSET);
+    }
+
+    public int wins(int slot) {
+        return map.getInt(offset(slot) + WINS_OFFSET);
+    }
+
+    // Forces every written record to disk
+    public void sync() {
+        map.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    // Maps room for `records` records; the old mapping stays valid until it is collected
+    private void remap(int records) throws IOException {
+        long size = HEADER_SIZE + (long) records * RECORD_SIZE;
+        if (size > Integer.MAX_VALUE) throw new IOException("Rating file is full at " + count + " players");
+        if (map != null) map.force();
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
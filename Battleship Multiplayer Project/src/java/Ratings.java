@@ -0,0 +1,233 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Elo ratings of named players, updated as each rated match ends. Four structures sit over the
+// RatingFile that holds every rating:
+//   - a map from name to the player's slot in the file, for every player;
+//   - a cache of at most `cacheSize` recently used profiles, so players in a match are not
+//     decoded from the file on every update. It evicts by CLOCK, the second-chance approximation
+//     of LRU: a hit only sets the profile's referenced flag, and an eviction sweeps a ring of the
+//     cached names, clearing flags until it finds a profile nobody used since the last sweep;
+//   - an ordered index (LongIndex) of (rating, slot) keys packed into longs, highest rating
+//     first. An update moves one key, and the top N is the first N keys, so the leaderboard never
+//     sorts however many players there are;
+//   - the best LEADERS profiles, copied from the index whenever a match touches them.
+// A match ending updates its players' records in place; nothing is replayed on startup. Memory
+// holds one name and slot per player, the cache and the index; profiles of players outside the
+// cache stay in the file.
+//
+// Match ends are synchronized: updates take microseconds, and the matches that end at the same
+// time on different workers take turns here. A cache hit never takes the lock: get() finds the
+// profile in a concurrent map and marks it used with a plain store, and top() copies the published
+// leaders, so leaderboard requests and the gateway's health checks neither wait for a match end nor
+// hold one up. Only a miss takes the lock, to decode the player's record and cache it.
+public final class Ratings implements Closeable {
+    public static final double INITIAL_RATING = 1500;
+    public static final int LEADERS = 100;  // Best players top() serves without the lock
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+    private static final int PROVISIONAL_GAMES = 30;  // Ratings move faster until a player has played this many
+    private static final double PROVISIONAL_K = 40, K = 20;
+
+    // Index keys: the rating in hundredths, inverted so higher ratings sort first, above the slot
+    private static final int SLOT_BITS = 24;
+    private static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+    private static final long MAX_CENTI = (1L << (63 - SLOT_BITS)) - 1;
+
+    // One player's rating, as of when it was read
+    public static final class Profile {
+        public final String name;
+        public final double rating;
+        public final int games, wins;
+        final int slot;
+        volatile boolean referenced;  // Used since the cache's last sweep past it
+
+        Profile(String name, int slot, double rating, int games, int wins) {
+            this.name = name;
+            this.slot = slot;
+            this.rating = rating;
+            this.games = games;
+            this.wins = wins;
+        }
+    }
+
+    private final RatingFile file;
+    // A name reaches the map only once its record is in the file. Profiles are immutable; an
+    // update caches a new one in place of the old.
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();  // Every player, by name
+    private final Map<String, Profile> cache = new ConcurrentHashMap<>();  // Written under the lock
+    private final String[] ring;  // Names in the cache, in the order the sweep visits them (guarded by this)
+    private int cached, hand;  // Ring entries in use, and where the next sweep starts (guarded by this)
+    private int count;  // Slots in use (guarded by this)
+    private final LongIndex index = new LongIndex();  // Every player, best first (guarded by this)
+    private final long[] leaderKeys = new long[LEADERS];  // Index keys of the leaders (guarded by this)
+    private volatile Profile[] leaders = new Profile[0];  // The best min(LEADERS, players), best first
+
+    private Ratings(RatingFile file, int cacheSize) {
+        if (cacheSize < 1) throw new IllegalArgumentException("Profile cache size must be positive: " + cacheSize);
+        this.file = file;
+        this.ring = new String[cacheSize];
+        for (int slot = 0; slot < file.count(); slot++) {
+            slots.put(file.name(slot), slot);
+            index.add(key(file.rating(slot), slot));
+        }
+        count = file.count();
+        publishLeaders();
+    }
+
+    public static Ratings open(Path path) throws IOException {
+        return open(path, DEFAULT_CACHE_SIZE);
+    }
+
+    // Opens or creates the rating file; the name map and index are built from its records
+    public static Ratings open(Path path, int cacheSize) throws IOException {
+        return new Ratings(RatingFile.open(path), cacheSize);
+    }
+
+    public int getPlayerCount() {
+        return slots.size();
+    }
+
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    // A player's current rating, or null if they have never finished a rated match
+    public Profile get(String name) {
+        Profile profile = cache.get(name);
+        if (profile == null) return slots.containsKey(name) ? load(name) : null;
+        if (!profile.referenced) profile.referenced = true;  // Hot profiles are not written on every read
+        return profile;
+    }
+
+    // The `count` best players, best first
+    public List<Profile> top(int count) {
+        Profile[] best = leaders;
+        if (count <= LEADERS || best.length < LEADERS) return List.of(Arrays.copyOf(best, Math.min(count, best.length)));
+        synchronized (this) {
+            long[] keys = new long[Math.min(count, this.count)];
+            int found = index.first(keys, keys.length);
+            List<Profile> top = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) top.add(read((int) (keys[i] & SLOT_MASK)));
+            return top;
+        }
+    }
+
+    // Records a finished match from its standings, winner first; a two-player match is winner and
+    // loser. Each player scores against every other as a win over those placed below them and a
+    // loss to those above, with the K factor split across their opponents, so a free-for-all moves
+    // a rating about as far as one two-player game. Every change is computed from the ratings
+    // before the match. Returns the profiles after it, in the same order.
+    public synchronized Profile[] recordMatch(String... standings) throws IOException {
+        int n = standings.length;
+        Profile[] before = new Profile[n];
+        for (int i = 0; i < n; i++) {
+            before[i] = get(standings[i]);
+            if (before[i] == null) before[i] = create(standings[i]);
+        }
+        Profile[] after = new Profile[n];
+        for (int i = 0; i < n; i++) {
+            double k = ((before[i].games < PROVISIONAL_GAMES) ? PROVISIONAL_K : K) / (n - 1);
+            double change = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) continue;
+                double expected = 1 / (1 + Math.pow(10, (before[j].rating - before[i].rating) / 400));
+                change += k * ((i < j ? 1 : 0) - expected);
+            }
+            after[i] = new Profile(before[i].name, before[i].slot, before[i].rating + change, before[i].games + 1,
+                    before[i].wins + (i == 0 ? 1 : 0));
+        }
+        boolean leadersMoved = leaders.length < LEADERS;
+        long lastLeader = leaderKeys[LEADERS - 1];
+        for (int i = 0; i < n; i++) {
+            long was = key(before[i].rating, before[i].slot), now = key(after[i].rating, after[i].slot);
+            index.remove(was);
+            index.add(now);
+            file.write(after[i].slot, after[i].rating, after[i].games, after[i].wins);
+            cache(after[i]);
+            leadersMoved |= was <= lastLeader || now <= lastLeader;
+        }
+        if (leadersMoved) publishLeaders(after);
+        return after;
+    }
+
+    public synchronized void sync() {
+        file.sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    private Profile create(String name) throws IOException {
+        if (count > SLOT_MASK) throw new IOException("Too many rated players: " + count);
+        int slot = file.append(name, INITIAL_RATING, 0, 0);
+        count++;
+        slots.put(name, slot);
+        index.add(key(INITIAL_RATING, slot));
+        return new Profile(name, slot, INITIAL_RATING, 0, 0);
+    }
+
+    // A cache miss: decodes the player's record and caches it
+    private synchronized Profile load(String name) {
+        Profile profile = cache.get(name);  // Another miss may have loaded it first
+        if (profile != null) return profile;
+        profile = read(slots.get(name));
+        cache(profile);
+        return profile;
+    }
+
+    // Caches `profile` in place of the player's older one, or in a free ring entry, or in place
+    // of the first profile the sweep finds unused since it last passed (caller holds the lock)
+    private void cache(Profile profile) {
+        profile.referenced = true;
+        if (cache.put(profile.name, profile) != null) return;
+        if (cached < ring.length) {
+            ring[cached++] = profile.name;
+            return;
+        }
+        for (Profile resident = cache.get(ring[hand]); resident.referenced; resident = cache.get(ring[hand])) {
+            resident.referenced = false;
+            hand = (hand + 1) % ring.length;
+        }
+        cache.remove(ring[hand]);
+        ring[hand] = profile.name;
+        hand = (hand + 1) % ring.length;
+    }
+
+    private Profile read(int slot) {
+        return new Profile(file.name(slot), slot, file.rating(slot), file.games(slot), file.wins(slot));
+    }
+
+    // Copies the best LEADERS players out of the index for top() (caller holds the lock, or is the
+    // constructor). A leader whose key has not moved keeps their published profile unless they are
+    // among `changed`; only players new to the top are read from the file.
+    private void publishLeaders(Profile... changed) {
+        long[] was = leaderKeys.clone();
+        Profile[] published = leaders;
+        int found = index.first(leaderKeys, LEADERS);
+        if (found < LEADERS) Arrays.fill(leaderKeys, found, LEADERS, Long.MAX_VALUE);  // Every key ranks above the missing
+        Profile[] best = new Profile[found];
+        for (int i = 0; i < found; i++) {
+            int slot = (int) (leaderKeys[i] & SLOT_MASK);
+            for (Profile profile : changed) {
+                if (profile.slot == slot) best[i] = profile;
+            }
+            if (best[i] != null) continue;
+            int at = Arrays.binarySearch(was, 0, published.length, leaderKeys[i]);
+            best[i] = (at >= 0) ? published[at] : read(slot);
+        }
+        leaders = best;
+    }
+
+    private static long key(double rating, int slot) {
+        long centi = Math.max(0, Math.min(MAX_CENTI, Math.round(rating * 100)));
+        return (MAX_CENTI - centi) << SLOT_BITS | slot;
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Plays one two-player game from a script instead of the keyboard, for regression games and for
+// measuring round trips. The fleet and the first `pipeline` attacks go out with HELLO in one
+// write, before the server has even found an opponent; after that every result of our own attack
+// is answered with the next attack straight away, again in one write. The server holds those
+// attacks until our turn comes around (see Protocol), so once the game is under way we never wait
+// a round trip for TURN. With a pipeline of 0 the client plays lock-step instead, one attack per
+// TURN, like a person would.
+//
+// A script names the fleet, the shots to fire in order, and a bot for whatever it leaves out:
+//   # comment
+//   place carrier 0 0 h        ship, row, column, h or v; without place lines the bot places
+//   fire 4 5                   row, column; once the shots run out the bot picks
+//   bot density                density or random (default density)
+//   seed 7                     the bot's random seed (default 1)
+public class ScriptedClient {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+
+    // A parsed script file
+    public static final class Script {
+        final List<int[]> fleet = new ArrayList<>();  // ship, row, column, orientation
+        final List<Integer> shots = new ArrayList<>();  // Cells, in firing order
+        String bot = "density";
+        long seed = 1;
+
+        // Throws IllegalArgumentException naming the line at fault
+        public static Script parse(List<String> lines) {
+            Script script = new Script();
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i).strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] words = line.split("\\s+");
+                try {
+                    switch (words[0]) {
+                        case "place" -> {
+                            int ship = Protocol.shipCode(words[1]);
+                            if (ship < 0) throw new IllegalArgumentException("unknown ship " + words[1]);
+                            int orientation = words[4].equals("h") ? 0 : words[4].equals("v") ? 1 : -1;
+                            if (orientation < 0) throw new IllegalArgumentException("orientation must be h or v");
+                            script.fleet.add(new int[]{ship, Integer.parseInt(words[2]), Integer.parseInt(words[3]), orientation});
+                        }
+                        case "fire" -> {
+                            int row = Integer.parseInt(words[1]), col = Integer.parseInt(words[2]);
+                            if (row < 0 || row >= SIZE || col < 0 || col >= SIZE) throw new IllegalArgumentException("off the board");
+                            script.shots.add(row * SIZE + col);
+                        }
+                        case "bot" -> {
+                            Bot.named(words[1]);  // Fails now rather than mid-game
+                            script.bot = words[1];
+                        }
+                        case "seed" -> script.seed = Long.parseLong(words[1]);
+                        default -> throw new IllegalArgumentException("unknown command " + words[0]);
+                    }
+                } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                    throw new IllegalArgumentException("Line " + (i + 1) + ": malformed: " + line);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage());
+                }
+            }
+            return script;
+        }
+
+        public static Script load(Path file) throws IOException {
+            return parse(Files.readAllLines(file));
+        }
+    }
+
+    // How one game went
+    public static final class Result {
+        public final int me, winner;
+        public final int shots, hits;  // Our attacks the server played, and those that hit
+        public final long nanos;  // From the first write to GAME_OVER
+
+        Result(int me, int winner, int shots, int hits, long nanos) {
+            this.me = me;
+            this.winner = winner;
+            this.shots = shots;
+            this.hits = hits;
+            this.nanos = nanos;
+        }
+    }
+
+    private final Script script;
+    private final int pipeline;  // Attacks kept queued at the server; 0 plays lock-step
+    private final boolean vsBot;
+    private final String name;  // Sent in HELLO, or null
+
+    public ScriptedClient(Script script, int pipeline, boolean vsBot, String name) {
+        if (pipeline < 0 || pipeline > Protocol.MAX_QUEUED_ATTACKS) {
+            throw new IllegalArgumentException("Pipeline must be 0 to " + Protocol.MAX_QUEUED_ATTACKS + ": " + pipeline);
+        }
+        this.script = script;
+        this.pipeline = pipeline;
+        this.vsBot = vsBot;
+        this.name = name;
+    }
+
+    // Connects and plays one game
+    public Result play(String host, int port) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);  // Every write is a whole turn's worth; do not hold it back
+            return play(socket);
+        }
+    }
+
+    // Plays one game on a fresh connection, from HELLO to GAME_OVER
+    public Result play(Socket socket) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        ByteBuffer outBuffer = ByteBuffer.allocate(Protocol.MAX_CLIENT_FRAME_SIZE + Protocol.MAX_FIXED_FRAME_SIZE * Protocol.MAX_QUEUED_ATTACKS);
+        ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+        Frame frame = new Frame();
+        Bot bot = Bot.named(script.bot).apply(new SplittableRandom(script.seed));
+        boolean[] fired = new boolean[SIZE * SIZE];
+        int[] inFlight = new int[Protocol.MAX_QUEUED_ATTACKS + 1];  // Cells sent and not yet answered, oldest first
+        int sent = 0, answered = 0, nextScripted = 0, shots = 0, hits = 0;
+
+        long start = System.nanoTime();
+        int flags = vsBot ? Protocol.HELLO_VS_BOT : 0;
+        if (name != null) {
+            Protocol.writeHello(outBuffer, flags, Protocol.utf8(name));
+        } else {
+            Protocol.writeHello(outBuffer, flags);
+        }
+        int fleet = Protocol.startFleet(outBuffer);
+        if (script.fleet.isEmpty()) {
+            bot.placeFleet((ship, row, col, orientation) -> Protocol.addFleetShip(outBuffer, ship, row, col, orientation));
+        } else {
+            for (int[] ship : script.fleet) Protocol.addFleetShip(outBuffer, ship[0], ship[1], ship[2], ship[3]);
+        }
+        Protocol.finishFleet(outBuffer, fleet);
+
+        int me = 0;
+        while (true) {
+            // Keep `pipeline` attacks queued ahead of our turn (one per TURN when lock-step), once
+            // the frames already here are read: the game may be over, and they coalesce into one write
+            while (in.available() == 0 && sent - answered < pipeline && sent < fired.length) {
+                int cell = (nextScripted < script.shots.size()) ? script.shots.get(nextScripted++) : botShot(bot, fired);
+                if (cell < 0) break;
+                fired[cell] = true;
+                inFlight[sent++ % inFlight.length] = cell;
+                Protocol.writeAttack(outBuffer, cell / SIZE, cell % SIZE);
+            }
+            if (outBuffer.position() > 0 && in.available() == 0) {
+                out.write(outBuffer.array(), 0, outBuffer.position());
+                out.flush();
+                outBuffer.clear();
+            }
+
+            Protocol.readFrame(in, scratch, frame);
+            switch (frame.type) {
+                case Protocol.ROLE -> me = frame.a;
+                case Protocol.RULES -> {
+                    if (!frame.rules().isStandard()) throw new ProtocolException("Scripts play the standard board only");
+                }
+                case Protocol.PLAYERS -> throw new ProtocolException("Scripts play two-player matches only");
+                case Protocol.FLEET_RESULT -> {
+                    if (frame.a != Protocol.PLACE_OK) throw new ProtocolException("Fleet rejected: status " + frame.a + " at ship " + frame.b);
+                }
+                case Protocol.TURN -> {
+                    if (pipeline == 0 && frame.a == me) {
+                        int cell = (nextScripted < script.shots.size()) ? script.shots.get(nextScripted++) : botShot(bot, fired);
+                        fired[cell] = true;
+                        inFlight[sent++ % inFlight.length] = cell;
+                        Protocol.writeAttack(outBuffer, cell / SIZE, cell % SIZE);
+                    }
+                }
+                case Protocol.ATTACK_RESULT -> {
+                    if (frame.a != me) continue;
+                    int cell = inFlight[answered++ % inFlight.length];
+                    if (frame.b > Protocol.RESULT_SUNK) throw new ProtocolException("Attack at (" + cell / SIZE + ", " + cell % SIZE + ") rejected: result " + frame.b);
+                    shots++;
+                    if (frame.b != Protocol.RESULT_MISS) hits++;
+                    bot.onAttackResult(cell, frame.b);
+                }
+                case Protocol.ERROR -> throw new ProtocolException(frame.a == Protocol.ERROR_TIMED_OUT ? "Timed out" : "Server error " + frame.a);
+                case Protocol.GAME_OVER -> {
+                    return new Result(me, frame.a, shots, hits, System.nanoTime() - start);
+                }
+                default -> {
+                    // The banner, GAME_START and board resyncs are not needed to play
+                }
+            }
+        }
+    }
+
+    // The bot's next cell that has not been fired at yet; scripted shots never told it they were taken
+    private static int botShot(Bot bot, boolean[] fired) {
+        for (int tries = 0; tries < fired.length; tries++) {
+            int cell = bot.nextShot();
+            if (!fired[cell]) return cell;
+        }
+        return -1;
+    }
+}
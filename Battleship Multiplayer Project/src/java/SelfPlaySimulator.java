@@ -0,0 +1,221 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Plays bot-against-bot games headlessly, without sockets, across all cores.
+// Games are split into chunks on a work-stealing ForkJoinPool. Every game draws from its own
+// random source seeded from --seed and the game number, so a run gives the same games no
+// matter how many threads play them or in which order. One CSV line per game is streamed to
+// --out as chunks finish; only the running totals stay in memory.
+//
+// Usage: java -cp bin SelfPlaySimulator [--games=1000000] [--threads=N] [--seed=1]
+//            [--engine=java|jni] [--p1=random|density] [--p2=random|density] [--out=simulation.csv]
+public class SelfPlaySimulator {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int CHUNK_GAMES = 1024;  // Games per leaf task and per write to the output
+    private static final int MAX_TURNS = 4 * SIZE * SIZE;  // Ends games whose bots keep repeating shots
+    private static final int FLEET_SHIPS = 5;
+
+    private final long games;
+    private final long seed;
+    private final Supplier<? extends BattleshipPlayer> playerFactory;
+    private final Function<SplittableRandom, Bot> player1Bot, player2Bot;
+    private final Writer out;
+
+    // Running totals, updated once per chunk
+    private final LongAdder gamesPlayed = new LongAdder();
+    private final LongAdder turnsPlayed = new LongAdder();
+    private final LongAdder player1Wins = new LongAdder();
+    private final LongAdder player2Wins = new LongAdder();
+    private final LongAdder firstAttackerWins = new LongAdder();
+    private final LongAdder unfinished = new LongAdder();  // Games cut off at MAX_TURNS
+
+    public SelfPlaySimulator(long games, long seed, Supplier<? extends BattleshipPlayer> playerFactory,
+                             Function<SplittableRandom, Bot> player1Bot, Function<SplittableRandom, Bot> player2Bot,
+                             Writer out) {
+        this.games = games;
+        this.seed = seed;
+        this.playerFactory = playerFactory;
+        this.player1Bot = player1Bot;
+        this.player2Bot = player2Bot;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long games = 1_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        Supplier<? extends BattleshipPlayer> playerFactory = BitboardPlayer::new;
+        String player1 = "random", player2 = "random";
+        String outPath = "simulation.csv";
+        for (String arg : args) {
+            if (arg.startsWith("--games=")) {
+                games = Long.parseLong(arg.substring("--games=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.equals("--engine=java")) {
+                playerFactory = BitboardPlayer::new;
+            } else if (arg.equals("--engine=jni")) {
+                playerFactory = new NativePlayerPool(256)::acquire;  // Reuse native players across games
+            } else if (arg.startsWith("--p1=")) {
+                player1 = arg.substring("--p1=".length());
+            } else if (arg.startsWith("--p2=")) {
+                player2 = arg.substring("--p2=".length());
+            } else if (arg.startsWith("--out=")) {
+                outPath = arg.substring("--out=".length());
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.err.println("Usage: java -cp bin SelfPlaySimulator [--games=1000000] [--threads=N] [--seed=1] "
+                        + "[--engine=java|jni] [--p1=random|density] [--p2=random|density] [--out=simulation.csv]");
+                return;
+            }
+        }
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outPath), StandardCharsets.US_ASCII), 1 << 16)) {
+            out.write("game,first_attacker,winner,turns,p1_shots,p1_hits,p2_shots,p2_hits\n");
+            SelfPlaySimulator simulator = new SelfPlaySimulator(games, seed, playerFactory,
+                    Bot.named(player1), Bot.named(player2), out);
+
+            System.out.println("Simulating " + games + " games of " + player1 + " vs " + player2 + " on " + threads + " threads...");
+            long start = System.nanoTime();
+            simulator.run(threads);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            simulator.printSummary(seconds);
+            System.out.println("Per-game results written to " + outPath);
+        }
+    }
+
+    public void run(int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Chunk(0, games));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void printSummary(double seconds) {
+        long played = gamesPlayed.sum();
+        long finished = played - unfinished.sum();
+        System.out.printf("Games: %,d in %.1f s (%,.0f games/s)%n", played, seconds, played / seconds);
+        System.out.printf("Average game length: %.2f turns%n", (double) turnsPlayed.sum() / played);
+        System.out.println("Player 1 win rate: " + rate(player1Wins.sum(), finished));
+        System.out.println("Player 2 win rate: " + rate(player2Wins.sum(), finished));
+        System.out.println("First attacker win rate: " + rate(firstAttackerWins.sum(), finished));
+        if (unfinished.sum() > 0) System.out.printf("Unfinished after %d turns: %,d%n", MAX_TURNS, unfinished.sum());
+    }
+
+    // Win rate with a 95% confidence interval
+    private static String rate(long wins, long games) {
+        double p = games == 0 ? 0 : (double) wins / games;
+        double margin = games == 0 ? 0 : 1.96 * Math.sqrt(p * (1 - p) / games);
+        return String.format("%.2f%% +- %.2f%%", 100 * p, 100 * margin);
+    }
+
+    // Splits the game range until it is one chunk, then plays it and writes its results in one go
+    private class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long from, to;
+
+        Chunk(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_GAMES) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new Chunk(from, middle), new Chunk(middle, to));
+                return;
+            }
+
+            StringBuilder lines = new StringBuilder((int) (to - from) * 32);
+            GameResult result = new GameResult();
+            ByteBuffer fleet = ByteBuffer.allocateDirect(FLEET_SHIPS * BattleshipPlayer.FLEET_RECORD_SIZE);
+            long turns = 0, wins1 = 0, wins2 = 0, firstWins = 0, cutOff = 0;
+            for (long game = from; game < to; game++) {
+                playGame(game, fleet, result);
+                turns += result.turns;
+                if (result.winner == 1) wins1++;
+                if (result.winner == 2) wins2++;
+                if (result.winner == result.firstAttacker) firstWins++;
+                if (result.winner == 0) cutOff++;
+                lines.append(game).append(',').append(result.firstAttacker).append(',').append(result.winner).append(',')
+                        .append(result.turns).append(',').append(result.shots[0]).append(',').append(result.hits[0]).append(',')
+                        .append(result.shots[1]).append(',').append(result.hits[1]).append('\n');
+            }
+
+            try {
+                synchronized (out) {
+                    out.append(lines);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            gamesPlayed.add(to - from);
+            turnsPlayed.add(turns);
+            player1Wins.add(wins1);
+            player2Wins.add(wins2);
+            firstAttackerWins.add(firstWins);
+            unfinished.add(cutOff);
+        }
+    }
+
+    // The bot lays out its fleet in the buffer and the player places all of it in one call
+    private static void placeFleet(Bot bot, BattleshipPlayer player, ByteBuffer fleet) {
+        fleet.clear();
+        bot.placeFleet((ship, row, col, orientation) ->
+                fleet.put((byte) ship).put((byte) row).put((byte) col).put((byte) orientation));
+        player.placeFleet(fleet, fleet.position() / BattleshipPlayer.FLEET_RECORD_SIZE);
+    }
+
+    // Outcome of one game, reused across the games of a chunk
+    private static class GameResult {
+        int firstAttacker, winner, turns;  // winner is 0 if the game was cut off
+        final int[] shots = new int[2], hits = new int[2];
+    }
+
+    private void playGame(long game, ByteBuffer fleet, GameResult result) {
+        try (BattleshipPlayer player1 = playerFactory.get(); BattleshipPlayer player2 = playerFactory.get()) {
+            playGame(game, player1, player2, fleet, result);
+        }
+    }
+
+    private void playGame(long game, BattleshipPlayer player1, BattleshipPlayer player2, ByteBuffer fleet, GameResult result) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + game);
+        Bot[] bots = {player1Bot.apply(random.split()), player2Bot.apply(random.split())};
+        placeFleet(bots[0], player1, fleet);
+        placeFleet(bots[1], player2, fleet);
+
+        // GameEngine rotates the turns just as in a networked match
+        GameEngine gameEngine = new GameEngine(player1, player2);
+        gameEngine.setFirstAttacker(random.nextInt(2) + 1);
+        result.firstAttacker = gameEngine.getCurrentPlayer();
+        result.shots[0] = result.shots[1] = result.hits[0] = result.hits[1] = 0;
+
+        int turns = 0;
+        while (!gameEngine.isGameOver() && turns < MAX_TURNS) {
+            int attacker = gameEngine.getCurrentPlayer() - 1;
+            int cell = bots[attacker].nextShot();
+            int code = AttackResult.code(gameEngine.attack(cell / SIZE, cell % SIZE));
+            bots[attacker].onAttackResult(cell, code);
+            result.shots[attacker]++;
+            if (code == Protocol.RESULT_HIT || code == Protocol.RESULT_SUNK) result.hits[attacker]++;
+            gameEngine.nextTurn();
+            turns++;
+        }
+
+        result.turns = turns;
+        result.winner = gameEngine.getWinner();
+    }
+}
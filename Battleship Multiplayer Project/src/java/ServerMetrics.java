@@ -0,0 +1,221 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Counters, gauges and latency histograms for one server. Everything is recorded with adders and
+// lock-free histograms, so matches, connections and engine calls can all record at once without
+// contending. Exposed as JMX MBeans under "battleship:*,port=N" once registerMBeans() is called,
+// and as a periodic text dump in the log (see --metrics-interval in BattleshipServer).
+public final class ServerMetrics implements ServerMetricsMBean {
+    private final LatencyHistogram turnLatency = new LatencyHistogram("turn");  // Attack frame read to both results sent
+    private final Map<String, LatencyHistogram> engineCalls = new ConcurrentSkipListMap<>();  // By BattleshipPlayer method
+
+    private final LongAdder bytesIn = new LongAdder(), bytesOut = new LongAdder();
+    private final LongAdder placements = new LongAdder(), placementRejections = new LongAdder();
+    private final LongAdder attackRejections = new LongAdder();  // Out of bounds or already attacked
+    private final LongAdder matchesStarted = new LongAdder(), matchesFinished = new LongAdder(), matchesAbandoned = new LongAdder();
+    private final LongAdder matchesForfeited = new LongAdder();  // Finished because a player timed out or left; also in finished
+    private final LongAdder playerTimeouts = new LongAdder();  // Players disconnected for missing a deadline or heartbeat
+
+    // Gauges read from the server when asked
+    private IntSupplier activeMatches = () -> 0, connectedPlayers = () -> 0, waitingPlayers = () -> 0;
+
+    private MBeanServer mbeanServer;  // Set once registered; later engine histograms register too
+    private String objectNameSuffix;
+
+    public void setGauges(IntSupplier activeMatches, IntSupplier connectedPlayers, IntSupplier waitingPlayers) {
+        this.activeMatches = activeMatches;
+        this.connectedPlayers = connectedPlayers;
+        this.waitingPlayers = waitingPlayers;
+    }
+
+    // --- Recording ---
+
+    public void recordTurn(long nanos) {
+        turnLatency.record(nanos);
+    }
+
+    // Histogram for one engine method, created on first use
+    public LatencyHistogram engineCall(String method) {
+        LatencyHistogram histogram = engineCalls.get(method);
+        if (histogram != null) return histogram;
+        synchronized (this) {
+            histogram = engineCalls.computeIfAbsent(method, LatencyHistogram::new);
+            if (mbeanServer != null) register(histogram, "battleship:type=EngineCall,name=" + method);
+            return histogram;
+        }
+    }
+
+    public void addBytesIn(long bytes) {
+        bytesIn.add(bytes);
+    }
+
+    public void addBytesOut(long bytes) {
+        bytesOut.add(bytes);
+    }
+
+    public void placement(boolean accepted) {
+        (accepted ? placements : placementRejections).increment();
+    }
+
+    public void attackRejected() {
+        attackRejections.increment();
+    }
+
+    public void matchStarted() {
+        matchesStarted.increment();
+    }
+
+    public void matchEnded(boolean finished) {
+        (finished ? matchesFinished : matchesAbandoned).increment();
+    }
+
+    public void matchForfeited() {
+        matchesForfeited.increment();
+    }
+
+    public void playerTimedOut() {
+        playerTimeouts.increment();
+    }
+
+    public LatencyHistogram getTurnLatency() {
+        return turnLatency;
+    }
+
+    // --- Reporting ---
+
+    // Registers this and every histogram with the platform MBean server; a second server in
+    // the same JVM needs a different port to register
+    public synchronized void registerMBeans(int port) {
+        mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        objectNameSuffix = ",port=" + port;
+        register(this, "battleship:type=Server");
+        register(turnLatency, "battleship:type=Latency,name=turn");
+        for (LatencyHistogram histogram : engineCalls.values()) register(histogram, "battleship:type=EngineCall,name=" + histogram.getName());
+    }
+
+    private void register(Object mbean, String name) {
+        try {
+            mbeanServer.registerMBean(mbean, new ObjectName(name + objectNameSuffix));
+        } catch (JMException e) {
+            Log.error("[Metrics] Cannot register " + name + " with JMX: " + e.getMessage());
+        }
+    }
+
+    // Logs the summary every `seconds` on a daemon thread
+    public void startReporting(long seconds) {
+        Thread.ofPlatform().daemon().name("metrics-reporter").start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(seconds * 1000);
+                    Log.info(getSummary());
+                }
+            } catch (InterruptedException e) {
+                // Daemon thread; nothing to clean up
+            }
+        });
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("[Metrics] matches active=%d started=%,d finished=%,d abandoned=%,d forfeited=%,d; players=%d waiting=%d timed out=%,d%n",
+                getActiveMatches(), getMatchesStarted(), getMatchesFinished(), getMatchesAbandoned(), getMatchesForfeited(),
+                getConnectedPlayers(), getWaitingPlayers(), getPlayerTimeouts()));
+        summary.append(String.format("[Metrics] bytes in=%,d out=%,d; placements=%,d rejected=%.1f%%; attacks rejected=%,d; log lines dropped=%,d%n",
+                getBytesIn(), getBytesOut(), getPlacements(), 100 * getPlacementRejectionRate(), getAttackRejections(), getLogLinesDropped()));
+        summary.append("[Metrics] ").append(turnLatency.summary());
+        for (LatencyHistogram histogram : engineCalls.values()) {
+            if (histogram.getCount() > 0) summary.append(System.lineSeparator()).append("[Metrics] engine ").append(histogram.summary());
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public int getActiveMatches() {
+        return activeMatches.getAsInt();
+    }
+
+    @Override
+    public int getConnectedPlayers() {
+        return connectedPlayers.getAsInt();
+    }
+
+    @Override
+    public int getWaitingPlayers() {
+        return waitingPlayers.getAsInt();
+    }
+
+    @Override
+    public long getMatchesStarted() {
+        return matchesStarted.sum();
+    }
+
+    @Override
+    public long getMatchesFinished() {
+        return matchesFinished.sum();
+    }
+
+    @Override
+    public long getMatchesAbandoned() {
+        return matchesAbandoned.sum();
+    }
+
+    @Override
+    public long getMatchesForfeited() {
+        return matchesForfeited.sum();
+    }
+
+    @Override
+    public long getPlayerTimeouts() {
+        return playerTimeouts.sum();
+    }
+
+    @Override
+    public long getTurns() {
+        return turnLatency.getCount();
+    }
+
+    @Override
+    public long getPlacements() {
+        return placements.sum();
+    }
+
+    @Override
+    public long getPlacementRejections() {
+        return placementRejections.sum();
+    }
+
+    // Share of placement attempts that were rejected
+    @Override
+    public double getPlacementRejectionRate() {
+        long rejected = placementRejections.sum();
+        long total = placements.sum() + rejected;
+        return total == 0 ? 0 : (double) rejected / total;
+    }
+
+    @Override
+    public long getAttackRejections() {
+        return attackRejections.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getLogLinesDropped() {
+        return Log.getDroppedCount();
+    }
+}
@@ -0,0 +1,36 @@
+// JMX view of a BattleshipServer's counters and gauges; latency histograms are separate MBeans
+public interface ServerMetricsMBean {
+    int getActiveMatches();
+
+    int getConnectedPlayers();
+
+    int getWaitingPlayers();
+
+    long getMatchesStarted();
+
+    long getMatchesFinished();
+
+    long getMatchesAbandoned();
+
+    long getMatchesForfeited();
+
+    long getPlayerTimeouts();
+
+    long getTurns();
+
+    long getPlacements();
+
+    long getPlacementRejections();
+
+    double getPlacementRejectionRate();
+
+    long getAttackRejections();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getLogLinesDropped();
+
+    String getSummary();
+}
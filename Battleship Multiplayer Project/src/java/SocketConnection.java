@@ -0,0 +1,198 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Blocking transport: one socket, read by a virtual thread and written by another. A match worker
+// never blocks on the socket: flush() copies the frames onto the connection's outbound bytes and
+// returns, and the writer thread sends them whenever the player reads. A player who falls more than
+// MAX_QUEUED_BYTES behind is disconnected rather than buffered without end.
+public class SocketConnection implements PlayerConnection {
+    private static final int WRITE_BUFFER_SIZE = 8 * 1024;  // Large enough for the welcome banner
+    static final int MAX_QUEUED_BYTES = 256 * 1024;  // Flushed but unwritten bytes a player may fall behind by
+    static final long CLOSE_DRAIN_MILLIS = 2_000;  // How long close() lets queued bytes drain before dropping them
+
+    private final Socket socket;  // Socket connected to the player's client
+    private final OutputStream out;  // Raw output stream; only the writer thread and sendShared write to it
+    private final DataInputStream in;  // Input stream for receiving frames from the player
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);  // Frames waiting for flush()
+    private final ByteBuffer readScratch = ByteBuffer.allocate(Protocol.MAX_CLIENT_FRAME_SIZE);
+    private final Frame frame = new Frame();  // Reused for every frame read
+    private final ServerMetrics metrics;  // Counts bytes in and out, or null
+
+    // Flushed bytes wait in `queued` until the writer swaps it for its own `sending` array, so
+    // neither side allocates once both have grown to fit a typical burst. A ReentrantLock, not a
+    // monitor: the writer is a virtual thread and must not pin its carrier while it waits.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();  // Bytes queued, all of them sent, or closing
+    private byte[] queued = new byte[WRITE_BUFFER_SIZE];  // Flushed, not yet taken by the writer (guarded by lock)
+    private int queuedLength;
+    private byte[] sending = new byte[WRITE_BUFFER_SIZE];  // What the writer is sending (writer only)
+    private boolean busy;  // The writer has taken bytes it has not finished sending (guarded by lock)
+    private volatile boolean closing;  // close() was called; the writer closes the socket once the queue drains
+    private Thread writer;  // Started on the first flush
+
+    public SocketConnection(Socket socket) throws IOException {
+        this(socket, null);
+    }
+
+    public SocketConnection(Socket socket, ServerMetrics metrics) throws IOException {
+        this.socket = socket;
+        this.metrics = metrics;
+        this.out = socket.getOutputStream();
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    @Override
+    public ByteBuffer writeBuffer(int size) throws IOException {
+        if (writeBuffer.remaining() < size) {
+            flush();  // Make room by queueing what is already buffered
+        }
+        return writeBuffer;
+    }
+
+    // Queues the buffered frames for the writer thread; never waits for the socket
+    @Override
+    public void flush() throws IOException {
+        int length = writeBuffer.position();
+        if (length == 0) return;
+        writeBuffer.clear();
+        lock.lock();
+        try {
+            if (closing) throw new EOFException("Connection to " + getRemoteAddress() + " is closed");
+            if (queuedLength + length > MAX_QUEUED_BYTES) {
+                Log.error("Disconnecting " + getRemoteAddress() + ": more than " + MAX_QUEUED_BYTES + " bytes waiting to be written");
+                closeNow();
+                throw new IOException("Connection to " + getRemoteAddress() + " is not being read");
+            }
+            if (queuedLength + length > queued.length) {
+                queued = Arrays.copyOf(queued, Math.min(MAX_QUEUED_BYTES, Math.max(queued.length * 2, queuedLength + length)));
+            }
+            System.arraycopy(writeBuffer.array(), 0, queued, queuedLength, length);
+            queuedLength += length;
+            if (writer == null) {
+                writer = Thread.ofVirtual().name("writer").start(this::writeQueued);
+            } else {
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Shared frames go to the stream as they are, once everything queued before them is written;
+    // a spectator's snapshot may be larger than the write buffer, and copying it in would gain
+    // nothing. Only spectator threads call this, and it blocks while the player is slow.
+    @Override
+    public void sendShared(List<byte[]> frames) throws IOException {
+        flush();
+        lock.lock();
+        try {
+            while ((queuedLength > 0 || busy) && !closing) changed.await();
+            if (closing) throw new EOFException("Connection to " + getRemoteAddress() + " is closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing to " + getRemoteAddress());
+        } finally {
+            lock.unlock();
+        }
+        // The writer is idle until the next flush, which this connection's one writer is not making
+        long sent = 0;
+        for (byte[] encoded : frames) {
+            out.write(encoded);
+            sent += encoded.length;
+        }
+        out.flush();
+        if (metrics != null) metrics.addBytesOut(sent);
+    }
+
+    // Writer thread: sends queued bytes until the connection closes, then closes the socket
+    private void writeQueued() {
+        try {
+            while (true) {
+                int length;
+                lock.lock();
+                try {
+                    busy = false;
+                    changed.signalAll();  // Wakes a sendShared waiting for the queue to drain
+                    while (queuedLength == 0 && !closing) changed.await();
+                    if (queuedLength == 0) break;  // Closing, and everything queued has been sent
+                    byte[] swap = sending;
+                    sending = queued;
+                    queued = swap;
+                    length = queuedLength;
+                    queuedLength = 0;
+                    busy = true;
+                } finally {
+                    lock.unlock();
+                }
+                out.write(sending, 0, length);
+                out.flush();
+                if (metrics != null) metrics.addBytesOut(length);
+            }
+        } catch (IOException | InterruptedException e) {
+            // The player is gone; the reader sees the close too
+        }
+        closeNow();
+    }
+
+    @Override
+    public Frame readFrame() throws IOException {
+        Protocol.readFrame(in, readScratch, frame);
+        if (metrics != null) metrics.addBytesIn(readScratch.limit());
+        return frame;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closing || socket.isClosed();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    // Lets the writer send what is already queued, then closes the socket; a player who has not
+    // read it within CLOSE_DRAIN_MILLIS is cut off. Never blocks.
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closing) return;
+            closing = true;
+            if (writer == null || (queuedLength == 0 && !busy)) {
+                closeNow();  // Nothing left to send
+                return;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        CompletableFuture.delayedExecutor(CLOSE_DRAIN_MILLIS, TimeUnit.MILLISECONDS).execute(this::closeNow);
+    }
+
+    // Closes the socket at once, dropping anything still queued; a blocked write or read fails
+    private void closeNow() {
+        lock.lock();
+        try {
+            closing = true;
+            queuedLength = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (socket.isClosed()) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.error("Error closing connection to " + getRemoteAddress() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+// Java backend for boards of any size and fleet (see BoardRules). Nothing is kept per cell of the
+// board: ship cells and our shots live in CellMaps, so a 1000x1000 board with a few hundred ships
+// costs some kilobytes once the fleet is placed and grows by a few bytes a shot. Every ship
+// counts its cells still intact, so an attack decides hit, sink and loss with two map lookups,
+// and a placement checks overlap with one lookup per cell. Results are the same packed codes the
+// other engines return.
+public class SparsePlayer implements BattleshipPlayer {
+    private static final int HIT = 1;  // Low bit of a ship cell's value; the rest is the ship's index
+    private static final byte OCCUPIED_CELL = 1, MISSED_CELL = 2, HIT_CELL = 3;  // Cell states, as in GameLogic.h
+
+    private final BoardRules rules;
+    private final int rows, cols;
+
+    private final CellMap shipCells;  // Self grid: ship index << 1, plus HIT once the cell is hit
+    private final CellMap shots = new CellMap();  // Target grid: MISSED_CELL or HIT_CELL for each attack we made
+    private final int[] shipCodes;  // Protocol ship code by ship index, in placement order
+    private final int[] intact;  // Cells not yet hit, by ship index
+    private int shipsPlaced = 0;
+
+    private int numShips;  // Ships remaining; the player loses at zero
+
+    public SparsePlayer(BoardRules rules) {
+        this.rules = rules;
+        this.rows = rules.getRows();
+        this.cols = rules.getCols();
+        this.shipCodes = new int[rules.getShipCount()];
+        this.intact = new int[rules.getShipCount()];
+        this.numShips = rules.getShipCount();
+        int fleetCells = 0;
+        for (int ship = 0; ship < BoardRules.SHIP_TYPES; ship++) fleetCells += rules.getFleet(ship) * Protocol.shipSize(ship);
+        this.shipCells = new CellMap(fleetCells);  // Never grows
+    }
+
+    public BoardRules getRules() {
+        return rules;
+    }
+
+    @Override
+    public int PlaceShip(String type, int[] coords, int orientation) {
+        return placeShip(Protocol.shipCode(type), coords[0], coords[1], orientation);
+    }
+
+    private int placeShip(int ship, int startRow, int startCol, int orientation) {
+        if (startRow < 0 || startRow >= rows || startCol < 0 || startCol >= cols) return -1;
+        if (orientation != 0 && orientation != 1) return -1;
+        int length = Protocol.shipSize(ship);
+        if (length == 0 || shipsPlaced == shipCodes.length) return -1;
+        if ((orientation == 0 ? startCol : startRow) + length > (orientation == 0 ? cols : rows)) return -1;
+
+        int start = startRow * cols + startCol;
+        int step = (orientation == 0) ? 1 : cols;
+        for (int i = 0; i < length; i++) {
+            if (shipCells.get(start + i * step) != CellMap.ABSENT) return -1;
+        }
+        for (int i = 0; i < length; i++) shipCells.put(start + i * step, shipsPlaced << 1);
+        shipCodes[shipsPlaced] = ship;
+        intact[shipsPlaced] = length;
+        shipsPlaced++;
+        return 1;
+    }
+
+    @Override
+    public int attack(int row, int col, BattleshipPlayer opponent) {
+        SparsePlayer other = (SparsePlayer) opponent;
+        if (row < 0 || row >= rows || col < 0 || col >= cols) return Protocol.RESULT_OUT_OF_BOUNDS;
+        int cell = row * cols + col;
+        if (shots.get(cell) != CellMap.ABSENT) return Protocol.RESULT_ALREADY_ATTACKED;
+
+        int value = other.shipCells.get(cell);
+        if (value == CellMap.ABSENT) {
+            shots.put(cell, MISSED_CELL);
+            return Protocol.RESULT_MISS;
+        }
+        if ((value & HIT) != 0) return AttackResult.EMPTY;  // Unreachable through the game rules
+
+        shots.put(cell, HIT_CELL);
+        other.shipCells.put(cell, value | HIT);
+        int index = value >>> 1;
+        if (--other.intact[index] > 0) return Protocol.RESULT_HIT;
+        other.numShips--;
+        return AttackResult.pack(Protocol.RESULT_SUNK, other.shipCodes[index], other.numShips == 0);
+    }
+
+    @Override
+    public boolean HasLost() {
+        return numShips == 0;
+    }
+
+    // The text grids are rows * cols * 3 characters; they are meant for small boards and debugging
+
+    @Override
+    public String printSelfGrid() {
+        StringBuilder buffer = new StringBuilder(12 + rows * (cols * 3 + 1));
+        buffer.append("Self Grid:\n");
+        for (int row = 0; row < rows; row++) appendRow(buffer, row, false);
+        return buffer.toString();
+    }
+
+    @Override
+    public String printTargetGrid() {
+        StringBuilder buffer = new StringBuilder(14 + rows * (cols * 3 + 1));
+        buffer.append("Target Grid:\n");
+        for (int row = 0; row < rows; row++) appendRow(buffer, row, true);
+        return buffer.toString();
+    }
+
+    @Override
+    public String printGridsSideBySide() {
+        StringBuilder buffer = new StringBuilder(50 + rows * (cols * 6 + 11));
+        buffer.append("   Self Grid").append(" ".repeat(Math.max(1, cols * 3 + 9 - "Target Grid".length()))).append("Target Grid\n");
+        for (int row = 0; row < rows; row++) {
+            appendRow(buffer, row, false);
+            buffer.setLength(buffer.length() - 1);  // Continue the line with the target row
+            buffer.append("          ");
+            appendRow(buffer, row, true);
+        }
+        return buffer.toString();
+    }
+
+    @Override
+    public void copySelfGrid(byte[] cells) {
+        Arrays.fill(cells, 0, rows * cols, (byte) 0);
+        for (int slot = 0; slot < shipCells.slots(); slot++) {
+            int cell = shipCells.cellAt(slot);
+            if (cell != CellMap.ABSENT) cells[cell] = selfState(shipCells.valueAt(slot));
+        }
+    }
+
+    @Override
+    public void copyTargetGrid(byte[] cells) {
+        Arrays.fill(cells, 0, rows * cols, (byte) 0);
+        for (int slot = 0; slot < shots.slots(); slot++) {
+            int cell = shots.cellAt(slot);
+            if (cell != CellMap.ABSENT) cells[cell] = (byte) shots.valueAt(slot);
+        }
+    }
+
+    @Override
+    public void copySelfCells(CellMap cells) {
+        for (int slot = 0; slot < shipCells.slots(); slot++) {
+            int cell = shipCells.cellAt(slot);
+            if (cell != CellMap.ABSENT) cells.put(cell, selfState(shipCells.valueAt(slot)));
+        }
+    }
+
+    @Override
+    public void copyTargetCells(CellMap cells) {
+        for (int slot = 0; slot < shots.slots(); slot++) {
+            int cell = shots.cellAt(slot);
+            if (cell != CellMap.ABSENT) cells.put(cell, shots.valueAt(slot));
+        }
+    }
+
+    // Snapshots only have room for the standard board
+    @Override
+    public int exportState(byte[] out) {
+        return -1;
+    }
+
+    @Override
+    public boolean importState(byte[] snapshot, int length) {
+        return false;
+    }
+
+    private static byte selfState(int value) {
+        return ((value & HIT) != 0) ? HIT_CELL : OCCUPIED_CELL;
+    }
+
+    private void appendRow(StringBuilder buffer, int row, boolean target) {
+        for (int col = 0; col < cols; col++) {
+            int value = target ? shots.get(row * cols + col) : shipCells.get(row * cols + col);
+            int state = (value == CellMap.ABSENT) ? 0 : target ? value : selfState(value);
+            buffer.append(' ').append((char) ('0' + state)).append(' ');
+        }
+        buffer.append('\n');
+    }
+}
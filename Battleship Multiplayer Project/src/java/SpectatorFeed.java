@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Streams one match to any number of spectators. Each event is encoded once into a byte array
+// that every spectator's connection sends as is. The match only appends it to a ring of the last
+// `backlog` events and releases a latch, so a turn costs the same with one spectator or ten
+// thousand. Every spectator has a virtual thread that sends whatever it has not seen yet; one
+// that falls a whole ring behind skips what it missed and is sent a single snapshot of both
+// boards instead, so a slow spectator holds up neither the match nor the others.
+// Spectators see both fleets. The boards are kept as CellMaps, so a large board costs what is on
+// it; snapshots of boards too large for GRID frames are sent as CELLS frames.
+public final class SpectatorFeed {
+    public static final int DEFAULT_BACKLOG = 64;  // Events a spectator may lag before it is sent a snapshot
+    private static final long LINGER_MILLIS = 50;  // A spectator wakes at most this often, whatever the turn rate
+
+    private static final byte OCCUPIED = 1, MISSED = 2, HIT = 3;  // Cell states, as in GameLogic.h
+
+    private final int matchId;
+    private final BoardRules rules;
+    private final AtomicReferenceArray<byte[]> ring;  // Event n is at n % length until event n + length
+    private volatile long published = 0;  // Events appended so far
+    private volatile CountDownLatch nextEvent = new CountDownLatch(1);  // Released when the next event is appended
+    private volatile boolean finished = false;  // No more events will come
+
+    // The spectators' view of the match, kept here so snapshots never touch the players
+    private final ReentrantLock lock = new ReentrantLock();  // Guards appends, the view and the snapshot
+    private final ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FIXED_FRAME_SIZE);
+    private final CellMap board1 = new CellMap(), board2 = new CellMap();  // Ships, misses and hits by row * cols + col
+    private int seq = 0;  // Board changes so far
+    private int turn = 0;  // Player to attack; 0 until the game starts
+    private int winner = 0;
+    private int overReason = Protocol.OVER_FLEET_SUNK;
+    private byte[] snapshot;  // Encoded view as of event snapshotAt
+    private long snapshotAt = -1;
+
+    private final AtomicInteger watching = new AtomicInteger();
+    private final AtomicLong snapshotsSent = new AtomicLong();  // Snapshots sent to spectators that fell behind
+
+    public SpectatorFeed(int matchId) {
+        this(matchId, DEFAULT_BACKLOG);
+    }
+
+    public SpectatorFeed(int matchId, int backlog) {
+        this(matchId, backlog, BoardRules.STANDARD);
+    }
+
+    public SpectatorFeed(int matchId, BoardRules rules) {
+        this(matchId, DEFAULT_BACKLOG, rules);
+    }
+
+    public SpectatorFeed(int matchId, int backlog, BoardRules rules) {
+        this.matchId = matchId;
+        this.rules = rules;
+        this.ring = new AtomicReferenceArray<>(backlog);
+    }
+
+    // Tells the spectator it is watching and on what board, then streams the match to it on its own virtual thread
+    public void subscribe(PlayerConnection spectator) throws IOException {
+        Protocol.writeRole(spectator.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), 0);
+        Protocol.writeRules(spectator.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), rules);
+        spectator.flush();
+        watching.incrementAndGet();
+        Thread.ofVirtual().name("spectator-" + matchId).start(() -> stream(spectator));
+    }
+
+    // --- Events, published by the match ---
+
+    // Before any event: the match carries on from boards rebuilt from the journal, each player's
+    // fleet from their self grid and the shots at it from the opponent's target grid. `turn` is
+    // the player to attack, 0 while placing. Spectators start from a snapshot of them.
+    public void restore(BattleshipPlayer player1, BattleshipPlayer player2, int turn) {
+        lock.lock();
+        try {
+            player1.copySelfCells(board1);
+            player2.copyTargetCells(board1);
+            player2.copySelfCells(board2);
+            player1.copyTargetCells(board2);
+            this.turn = turn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shipPlaced(int player, int ship, int row, int col, int orientation) {
+        lock.lock();
+        try {
+            CellMap board = (player == 1) ? board1 : board2;
+            for (int i = 0; i < Protocol.shipSize(ship); i++) {
+                board.put((row + (orientation == 1 ? i : 0)) * rules.getCols() + col + (orientation == 0 ? i : 0), OCCUPIED);
+            }
+            Protocol.writeShipPlaced(scratch, player, ship, row, col, orientation, ++seq);
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void gameStarted() {
+        lock.lock();
+        try {
+            Protocol.writeGameStart(scratch);
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void turn(int player) {
+        lock.lock();
+        try {
+            turn = player;
+            Protocol.writeTurn(scratch, player);
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // An accepted attack; rejected ones change nothing and are not shown
+    public void attacked(int attacker, int result, int row, int col) {
+        lock.lock();
+        try {
+            CellMap board = (attacker == 1) ? board2 : board1;
+            board.put(row * rules.getCols() + col, (result == Protocol.RESULT_MISS) ? MISSED : HIT);
+            Protocol.writeAttackResult(scratch, attacker, result, row, col, ++seq);
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void gameOver(int winner) {
+        gameOver(winner, Protocol.OVER_FLEET_SUNK);
+    }
+
+    public void gameOver(int winner, int reason) {
+        lock.lock();
+        try {
+            this.winner = winner;
+            this.overReason = reason;
+            Protocol.writeGameOver(scratch, winner, reason);
+            append();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ends the feed; spectators are sent what is left and then disconnected
+    public void finish() {
+        finished = true;
+        wakeSpectators();
+    }
+
+    // Copies the frame in scratch into its own array and appends it (caller holds the lock)
+    private void append() {
+        byte[] frame = Arrays.copyOf(scratch.array(), scratch.position());
+        scratch.clear();
+        ring.set((int) (published % ring.length()), frame);
+        published++;
+        wakeSpectators();
+    }
+
+    // Releasing a latch wakes one waiter, which wakes the next, so this is O(1) for the match
+    private void wakeSpectators() {
+        CountDownLatch released = nextEvent;
+        nextEvent = new CountDownLatch(1);
+        released.countDown();
+    }
+
+    // --- Spectators ---
+
+    private void stream(PlayerConnection spectator) {
+        long cursor = -1;  // Next event to send; starts with a snapshot
+        List<byte[]> frames = new ArrayList<>();
+        try {
+            while (true) {
+                CountDownLatch wake = nextEvent;  // Read before published, so no append is missed
+                long head = published;
+                if (cursor == head) {
+                    if (finished) return;
+                    wake.await();
+                    Thread.sleep(LINGER_MILLIS);  // Let a few more events collect, so they share one write
+                    continue;
+                }
+
+                frames.clear();
+                if (cursor >= 0 && head - cursor < ring.length()) {
+                    for (long n = cursor; n < head; n++) frames.add(ring.get((int) (n % ring.length())));
+                    if (published - cursor < ring.length()) {
+                        cursor = head;
+                    } else {
+                        frames.clear();  // Overwritten while we read them
+                    }
+                }
+                if (frames.isEmpty()) {
+                    if (cursor >= 0) snapshotsSent.incrementAndGet();
+                    lock.lock();
+                    try {
+                        if (snapshotAt != published) encodeSnapshot();
+                        frames.add(snapshot);
+                        cursor = snapshotAt;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                spectator.sendShared(frames);  // Blocks while this spectator is slow; events pile up in the ring
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The spectator left; nothing else depends on it
+        } finally {
+            spectator.close();
+            watching.decrementAndGet();
+        }
+    }
+
+    // Both boards in full, then whose turn it is or who won (caller holds the lock)
+    private void encodeSnapshot() {
+        ByteBuffer out;
+        if (rules.fitsGridFrame()) {
+            int rows = rules.getRows(), cols = rules.getCols();
+            out = ByteBuffer.allocate(2 * Protocol.gridFrameSize(rows, cols) + Protocol.MAX_FIXED_FRAME_SIZE);
+            Protocol.writeGrid(out, Protocol.GRID_PLAYER1, seq, rows, cols, dense(board1));
+            Protocol.writeGrid(out, Protocol.GRID_PLAYER2, seq, rows, cols, dense(board2));
+        } else {
+            out = ByteBuffer.allocate(Protocol.cellsSize(board1.size()) + Protocol.cellsSize(board2.size()) + Protocol.MAX_FIXED_FRAME_SIZE);
+            Protocol.writeCells(out, Protocol.GRID_PLAYER1, seq, rules.getCols(), board1);
+            Protocol.writeCells(out, Protocol.GRID_PLAYER2, seq, rules.getCols(), board2);
+        }
+        if (winner != 0) {
+            Protocol.writeGameOver(out, winner, overReason);
+        } else if (turn != 0) {
+            Protocol.writeTurn(out, turn);
+        }
+        snapshot = Arrays.copyOf(out.array(), out.position());
+        snapshotAt = published;
+    }
+
+    // A board as the row-major cell array of a GRID frame
+    private byte[] dense(CellMap board) {
+        byte[] cells = new byte[rules.getRows() * rules.getCols()];
+        for (int slot = 0; slot < board.slots(); slot++) {
+            int cell = board.cellAt(slot);
+            if (cell != CellMap.ABSENT) cells[cell] = (byte) board.valueAt(slot);
+        }
+        return cells;
+    }
+
+    public int getSpectatorCount() {
+        return watching.get();
+    }
+
+    public long getSnapshotsSent() {
+        return snapshotsSent.get();
+    }
+}
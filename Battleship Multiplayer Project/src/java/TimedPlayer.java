@@ -0,0 +1,136 @@
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+// Wraps a player of either engine and records how long each call takes in ServerMetrics, one
+// histogram per method. With the native engine these are the JNI call durations. The server
+// wraps its player factory with this, so matches need no timing code of their own.
+public final class TimedPlayer implements BattleshipPlayer {
+    private final BattleshipPlayer player;
+    private final LatencyHistogram placeShip, placeFleet, attack, hasLost, copyGrid, print, snapshot, close;
+
+    private TimedPlayer(BattleshipPlayer player, ServerMetrics metrics) {
+        this.player = player;
+        this.placeShip = metrics.engineCall("PlaceShip");
+        this.placeFleet = metrics.engineCall("placeFleet");
+        this.attack = metrics.engineCall("attack");
+        this.hasLost = metrics.engineCall("HasLost");
+        this.copyGrid = metrics.engineCall("copyGrid");
+        this.print = metrics.engineCall("printGrid");
+        this.snapshot = metrics.engineCall("snapshot");
+        this.close = metrics.engineCall("close");
+    }
+
+    // A factory whose players are timed
+    public static Supplier<BattleshipPlayer> timed(Supplier<? extends BattleshipPlayer> factory, ServerMetrics metrics) {
+        return () -> new TimedPlayer(factory.get(), metrics);
+    }
+
+    @Override
+    public int PlaceShip(String type, int[] coords, int orientation) {
+        long start = System.nanoTime();
+        int result = player.PlaceShip(type, coords, orientation);
+        placeShip.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public int placeFleet(ByteBuffer ships, int count) {
+        long start = System.nanoTime();
+        int placed = player.placeFleet(ships, count);
+        placeFleet.record(System.nanoTime() - start);
+        return placed;
+    }
+
+    // Both players of a match are timed, so the opponent is unwrapped for the engine
+    @Override
+    public int attack(int row, int col, BattleshipPlayer other) {
+        BattleshipPlayer opponent = (other instanceof TimedPlayer timed) ? timed.player : other;
+        long start = System.nanoTime();
+        int result = player.attack(row, col, opponent);
+        attack.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public boolean HasLost() {
+        long start = System.nanoTime();
+        boolean lost = player.HasLost();
+        hasLost.record(System.nanoTime() - start);
+        return lost;
+    }
+
+    @Override
+    public String printSelfGrid() {
+        long start = System.nanoTime();
+        String grid = player.printSelfGrid();
+        print.record(System.nanoTime() - start);
+        return grid;
+    }
+
+    @Override
+    public String printTargetGrid() {
+        long start = System.nanoTime();
+        String grid = player.printTargetGrid();
+        print.record(System.nanoTime() - start);
+        return grid;
+    }
+
+    @Override
+    public String printGridsSideBySide() {
+        long start = System.nanoTime();
+        String grids = player.printGridsSideBySide();
+        print.record(System.nanoTime() - start);
+        return grids;
+    }
+
+    @Override
+    public void copySelfGrid(byte[] cells) {
+        long start = System.nanoTime();
+        player.copySelfGrid(cells);
+        copyGrid.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void copyTargetGrid(byte[] cells) {
+        long start = System.nanoTime();
+        player.copyTargetGrid(cells);
+        copyGrid.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void copySelfCells(CellMap cells) {
+        long start = System.nanoTime();
+        player.copySelfCells(cells);
+        copyGrid.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void copyTargetCells(CellMap cells) {
+        long start = System.nanoTime();
+        player.copyTargetCells(cells);
+        copyGrid.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public int exportState(byte[] out) {
+        long start = System.nanoTime();
+        int length = player.exportState(out);
+        snapshot.record(System.nanoTime() - start);
+        return length;
+    }
+
+    @Override
+    public boolean importState(byte[] state, int length) {
+        long start = System.nanoTime();
+        boolean imported = player.importState(state, length);
+        snapshot.record(System.nanoTime() - start);
+        return imported;
+    }
+
+    @Override
+    public void close() {
+        long start = System.nanoTime();
+        player.close();
+        close.record(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Hashed timing wheel: one thread keeps every deadline in the server. Time is cut into ticks and
+// a deadline goes into slot (tick % wheelSize) with the number of full turns of the wheel still
+// to wait, so scheduling and cancelling are O(1) no matter how many deadlines are pending, and
+// each tick only visits one slot. Deadlines fire up to one tick late.
+//
+// Scheduling and cancelling only touch lock-free queues; the slots themselves belong to the wheel
+// thread. Tasks run on the wheel thread, so they must be short and must never block.
+public final class TimingWheel {
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_WHEEL_SIZE = 512;  // Slots; one turn of the wheel is 51.2 s
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;  // Leaves the rest for later ticks under a burst
+
+    // A scheduled task; cancel() it once it is no longer needed
+    public static final class Timeout {
+        private static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile int state = PENDING;
+
+        // Owned by the wheel thread
+        private long remainingRounds;
+        private int slot = -1;  // -1 while not in a slot
+        private Timeout previous, next;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // Returns false if the task already ran or was already cancelled
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) return false;
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+    }
+
+    private final long tickNanos;
+    private final Timeout[] slots;  // Head of each slot's doubly linked list
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private long tick = 0;  // Last tick processed (wheel thread only)
+
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();  // Waiting to be put in a slot
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();  // Waiting to be taken out of one
+    private final AtomicLong pending = new AtomicLong();  // Scheduled, not yet run or cancelled
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public TimingWheel() {
+        this(DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    public TimingWheel(long tickMillis, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        this.tickNanos = tickMillis * 1_000_000;
+        this.slots = new Timeout[wheelSize];
+        this.mask = wheelSize - 1;
+        this.thread = Thread.ofPlatform().daemon().name("timing-wheel").start(this::run);
+    }
+
+    // Runs `task` on the wheel thread once `delayMillis` have passed
+    public Timeout schedule(Runnable task, long delayMillis) {
+        long delayNanos = Math.max(0, delayMillis) * 1_000_000;
+        long deadlineTick = (System.nanoTime() - startNanos + delayNanos + tickNanos - 1) / tickNanos;  // Never early
+        Timeout timeout = new Timeout(this, task, deadlineTick);
+        pending.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    public long getPendingCount() {
+        return pending.get();
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            long nextTick = startNanos + (tick + 1) * tickNanos;
+            long wait;
+            while ((wait = nextTick - System.nanoTime()) > 0 && running) LockSupport.parkNanos(wait);
+            tick++;
+
+            removeCancelled();
+            transferScheduled();
+            expire(slots[(int) (tick & mask)]);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.slot >= 0) {
+                unlink(timeout);
+                pending.decrementAndGet();
+            }
+            // Not in a slot yet: transferScheduled() drops it when it gets there
+        }
+    }
+
+    private void transferScheduled() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = scheduled.poll();
+            if (timeout == null) return;
+            if (timeout.state == Timeout.CANCELLED) {
+                pending.decrementAndGet();
+                continue;
+            }
+            long dueTick = Math.max(timeout.deadlineTick, tick);  // Already due: this tick's slot
+            timeout.remainingRounds = (dueTick - tick) / slots.length;
+            link(timeout, (int) (dueTick & mask));
+        }
+    }
+
+    private void expire(Timeout head) {
+        Timeout timeout = head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.state == Timeout.CANCELLED) {
+                unlink(timeout);
+                pending.decrementAndGet();
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                unlink(timeout);
+                if (Timeout.STATE.compareAndSet(timeout, Timeout.PENDING, Timeout.EXPIRED)) {
+                    pending.decrementAndGet();
+                    try {
+                        timeout.task.run();
+                    } catch (RuntimeException e) {
+                        Log.error("[Timers] Task failed: " + e);
+                    }
+                } else {
+                    pending.decrementAndGet();  // Cancelled since the check above
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private void link(Timeout timeout, int slot) {
+        timeout.slot = slot;
+        timeout.previous = null;
+        timeout.next = slots[slot];
+        if (slots[slot] != null) slots[slot].previous = timeout;
+        slots[slot] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) timeout.next.previous = timeout.previous;
+        timeout.slot = -1;
+        timeout.previous = timeout.next = null;
+    }
+}
@@ -0,0 +1,303 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+// The workloads behind jmh.GameCoreBenchmark, here in the default package with the game they
+// measure. Each prepares its state in prepare(), outside the measured time, so attacks always hit
+// fresh cells and sinks always complete a ship; players from the last invocation are closed there
+// too, so native players do not pile up for the Cleaner. Backend "jni" plays on native players,
+// "java" on BitboardPlayer.
+public final class CoreWorkloads {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+
+    private CoreWorkloads() {
+    }
+
+    // A workload on players made fresh for every invocation
+    private abstract static class OnPlayers implements jmh.Workload {
+        final boolean jni;
+        final int count;
+        final List<BattleshipPlayer> made = new ArrayList<>();  // Every player of the last invocation
+
+        OnPlayers(String backend, int count) {
+            this.jni = backend.equals("jni");
+            this.count = count;
+        }
+
+        @Override
+        public void prepare() {
+            for (BattleshipPlayer player : made) player.close();
+            made.clear();
+        }
+
+        BattleshipPlayer[] newPlayers(int players) {
+            BattleshipPlayer[] fresh = CoreWorkloads.newPlayers(jni, players);
+            made.addAll(List.of(fresh));
+            return fresh;
+        }
+    }
+
+    // PlaceShip for the whole fleet on each of `count` players
+    public static final class Placements extends OnPlayers {
+        private final int[][] coords = new int[Bench.SHIPS][];
+        private BattleshipPlayer[] players;
+
+        public Placements(String backend, int count) {
+            super(backend, count);
+            for (int ship = 0; ship < coords.length; ship++) coords[ship] = new int[]{Bench.fleetRow(ship), 0};
+        }
+
+        @Override
+        public void prepare() {
+            super.prepare();
+            players = newPlayers(count);
+        }
+
+        @Override
+        public int run() {
+            int placed = 0;
+            for (BattleshipPlayer player : players) {
+                for (int ship = 0; ship < Bench.SHIPS; ship++) placed += player.PlaceShip(Protocol.shipName(ship), coords[ship], 0);
+            }
+            return placed;
+        }
+    }
+
+    // `count` pairs with a placed fleet; the attacker attacks every cell `target` selects. With
+    // preHit set, every other fleet cell is hit first so each measured attack sinks a ship.
+    private abstract static class Attacks extends OnPlayers {
+        private final IntPredicate target;
+        private final boolean preHit;
+        private BattleshipPlayer[] players;
+
+        Attacks(String backend, int count, IntPredicate target, boolean preHit) {
+            super(backend, count);
+            this.target = target;
+            this.preHit = preHit;
+        }
+
+        @Override
+        public void prepare() {
+            super.prepare();
+            players = newPlayers(count * 2);
+            for (int i = 0; i < count; i++) {
+                Bench.placeFleet(players[2 * i + 1]);
+                if (!preHit) continue;
+                for (int cell = 0; cell < SIZE * SIZE; cell++) {
+                    if (isFleetCell(cell) && !isLastShipCell(cell)) players[2 * i].attack(cell / SIZE, cell % SIZE, players[2 * i + 1]);
+                }
+            }
+        }
+
+        @Override
+        public int run() {
+            int hash = 0;
+            for (int i = 0; i < count; i++) {
+                BattleshipPlayer attacker = players[2 * i], defender = players[2 * i + 1];
+                for (int cell = 0; cell < SIZE * SIZE; cell++) {
+                    if (target.test(cell)) hash += attacker.attack(cell / SIZE, cell % SIZE, defender);
+                }
+            }
+            return hash;
+        }
+    }
+
+    // Every empty cell of a fresh fleet
+    public static final class Misses extends Attacks {
+        public Misses(String backend, int count) {
+            super(backend, count, cell -> !isFleetCell(cell), false);
+        }
+    }
+
+    // Every fleet cell except the one that sinks its ship
+    public static final class Hits extends Attacks {
+        public Hits(String backend, int count) {
+            super(backend, count, cell -> isFleetCell(cell) && !isLastShipCell(cell), false);
+        }
+    }
+
+    // The last cell of each ship, with the rest of the ship already hit
+    public static final class Sinks extends Attacks {
+        public Sinks(String backend, int count) {
+            super(backend, count, CoreWorkloads::isLastShipCell, true);
+        }
+    }
+
+    // Whole games: alternate attacks in row-major order, switching turns through GameEngine
+    public static final class Games extends OnPlayers {
+        private final int[] next = new int[2];  // Next cell each player attacks
+        private GameEngine[] engines;
+
+        public Games(String backend, int count) {
+            super(backend, count);
+        }
+
+        @Override
+        public void prepare() {
+            super.prepare();
+            BattleshipPlayer[] players = newPlayers(count * 2);
+            for (BattleshipPlayer player : players) Bench.placeFleet(player);
+            engines = new GameEngine[count];
+            for (int i = 0; i < count; i++) engines[i] = new GameEngine(players[2 * i], players[2 * i + 1]);
+        }
+
+        @Override
+        public int run() {
+            int turns = 0;
+            for (GameEngine engine : engines) {
+                next[0] = next[1] = 0;
+                while (!engine.isGameOver()) {
+                    int cell = next[engine.getCurrentPlayer() - 1]++;
+                    engine.attack(cell / SIZE, cell % SIZE);
+                    engine.nextTurn();
+                    turns++;
+                }
+            }
+            return turns;
+        }
+    }
+
+    // HasLost, cycling through many players so the JIT cannot hoist the check out of the loop
+    public static final class LossChecks implements jmh.Workload {
+        private final BattleshipPlayer[] players;
+        private int next;
+
+        public LossChecks(String backend, int count) {
+            players = newPlayers(backend.equals("jni"), 1024);
+        }
+
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public int run() {
+            return players[next++ & 1023].HasLost() ? 1 : 0;
+        }
+    }
+
+    // Both grids of a pair a few turns into a game, so they contain every cell state
+    public static final class SideBySide implements jmh.Workload {
+        private final BattleshipPlayer[] pair;
+
+        public SideBySide(String backend, int count) {
+            pair = newPlayers(backend.equals("jni"), 2);
+        }
+
+        @Override
+        public void prepare() {
+            Bench.placeFleet(pair[0]);
+            Bench.placeFleet(pair[1]);
+            for (int cell = 0; cell < 30; cell += 3) {
+                pair[0].attack(cell / SIZE, cell % SIZE, pair[1]);
+                pair[1].attack(cell / SIZE, cell % SIZE, pair[0]);
+            }
+        }
+
+        @Override
+        public int run() {
+            return pair[0].printGridsSideBySide().length();
+        }
+    }
+
+    // The client's own grid, drawn from its local board
+    public static final class ClientGrid implements jmh.Workload {
+        private final ClientBoard board = new ClientBoard(SIZE, SIZE);
+
+        public ClientGrid(String backend, int count) {
+        }
+
+        @Override
+        public void prepare() {
+            for (int ship = 0; ship < Bench.SHIPS; ship++) board.applyPlacement(ship, Bench.fleetRow(ship), 0, 0, ship + 1);
+        }
+
+        @Override
+        public int run() {
+            return board.renderSelfGrid().length();
+        }
+    }
+
+    // An attack command in the old String form, as the server used to parse it
+    public static final class LegacyCommands implements jmh.Workload {
+        private final String[] commands = new String[SIZE * SIZE];
+        private int next;
+
+        public LegacyCommands(String backend, int count) {
+        }
+
+        @Override
+        public void prepare() {
+            for (int cell = 0; cell < commands.length; cell++) commands[cell] = (cell / SIZE) + " " + (cell % SIZE);
+        }
+
+        @Override
+        public int run() {
+            String command = commands[next++ % commands.length];
+            if (!command.matches("\\d+ \\d+")) return -1;
+            String[] coords = command.split(" ");
+            return Integer.parseInt(coords[0]) + Integer.parseInt(coords[1]);
+        }
+    }
+
+    // Binary frames decoded one after another from a buffer of `count`
+    private abstract static class Frames implements jmh.Workload {
+        final int count;
+        final ByteBuffer frames;
+        private final Frame frame = new Frame();
+
+        Frames(int count) {
+            this.count = count;
+            this.frames = ByteBuffer.allocate(count * Protocol.MAX_FIXED_FRAME_SIZE);
+        }
+
+        @Override
+        public void prepare() {
+            frames.rewind();  // Encoded once; decoding does not change them
+        }
+
+        @Override
+        public int run() {
+            int sum = 0;
+            try {
+                while (Protocol.decode(frames, frame, Protocol.MAX_CLIENT_FRAME_SIZE)) sum += frame.a + frame.b;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return sum;
+        }
+    }
+
+    public static final class AttackFrames extends Frames {
+        public AttackFrames(String backend, int count) {
+            super(count);
+            for (int i = 0; i < count; i++) Protocol.writeAttack(frames, (i % 100) / SIZE, i % SIZE);
+            frames.flip();
+        }
+    }
+
+    public static final class PlaceFrames extends Frames {
+        public PlaceFrames(String backend, int count) {
+            super(count);
+            for (int i = 0; i < count; i++) Protocol.writePlace(frames, i % Bench.SHIPS, i % SIZE, 0, 0);
+            frames.flip();
+        }
+    }
+
+    private static BattleshipPlayer[] newPlayers(boolean jni, int count) {
+        BattleshipPlayer[] players = new BattleshipPlayer[count];
+        for (int i = 0; i < count; i++) players[i] = jni ? new BattleshipJNI() : new BitboardPlayer();
+        return players;
+    }
+
+    private static boolean isFleetCell(int cell) {
+        return Bench.isFleetCell(cell / SIZE, cell % SIZE);
+    }
+
+    private static boolean isLastShipCell(int cell) {
+        int row = cell / SIZE, col = cell % SIZE;
+        return Bench.isFleetCell(row, col) && col == Protocol.shipSize(row / 2) - 1;
+    }
+}
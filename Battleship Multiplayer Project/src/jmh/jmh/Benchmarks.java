@@ -0,0 +1,26 @@
+package jmh;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of target/benchmarks.jar: JMH's own command line, with the allocation profiler
+// (gc.alloc.rate.norm is bytes per operation) always on. A native engine case needs
+// bin/BattleshipGame.dll under the working directory; `-p backend=java` skips them.
+public final class Benchmarks {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams() || options.shouldListProfilers()
+                || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        boolean profiled = options.getProfilers().stream().anyMatch(profiler -> profiler.getKlass().equals("gc"));
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(options);
+        if (!profiled) builder.addProfiler(GCProfiler.class);
+        new Runner(builder.build()).run();
+    }
+}
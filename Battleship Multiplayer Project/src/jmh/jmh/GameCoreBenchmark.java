@@ -0,0 +1,229 @@
+package jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The game core, the JNI boundary and the network codec: PlaceShip, Attack (miss, hit and sink),
+// HasLost and grid rendering on both engines, a whole game driven through GameEngine.nextTurn,
+// client board rendering, and parsing attack commands in the old String form and as binary frames.
+//
+// Operations that use up their state (an attacked cell cannot be attacked again) run in batches
+// on state rebuilt before every invocation, and report time per operation of the batch. The
+// allocation profiler counts that rebuild too, so their B/op includes a share of the fresh players.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameCoreBenchmark {
+    static final int PLAYERS = 256;  // Players given a fleet per invocation
+    static final int PAIRS = 64;  // Attacker and defender pairs per invocation
+    static final int GAMES = 16;  // Whole games per invocation
+    static final int FRAMES = 4096;  // Frames decoded per invocation
+
+    static final int SHIPS = 5, FLEET_CELLS = 17, CELLS = 100;  // The standard fleet and board
+
+    // State for operations that use it up, rebuilt before every invocation
+    public abstract static class Consumed {
+        Workload workload;
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            workload.prepare();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Placements extends Consumed {
+        @Param({"jni", "java"})
+        public String backend;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$Placements", backend, PLAYERS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Misses extends Consumed {
+        @Param({"jni", "java"})
+        public String backend;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$Misses", backend, PAIRS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Hits extends Consumed {
+        @Param({"jni", "java"})
+        public String backend;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$Hits", backend, PAIRS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sinks extends Consumed {
+        @Param({"jni", "java"})
+        public String backend;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$Sinks", backend, PAIRS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Games extends Consumed {
+        @Param({"jni", "java"})
+        public String backend;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$Games", backend, GAMES);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AttackFrames extends Consumed {
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$AttackFrames", "java", FRAMES);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PlaceFrames extends Consumed {
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$PlaceFrames", "java", FRAMES);
+        }
+    }
+
+    // State for operations that leave it as it was, built once per trial
+    @State(Scope.Thread)
+    public static class LossChecks {
+        @Param({"jni", "java"})
+        public String backend;
+        Workload workload;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$LossChecks", backend, 1);
+            workload.prepare();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class SideBySide {
+        @Param({"jni", "java"})
+        public String backend;
+        Workload workload;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$SideBySide", backend, 1);
+            workload.prepare();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientGrid {
+        Workload workload;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$ClientGrid", "java", 1);
+            workload.prepare();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class LegacyCommands {
+        Workload workload;
+
+        @Setup(Level.Trial)
+        public void create() {
+            workload = Workload.create("CoreWorkloads$LegacyCommands", "java", 1);
+            workload.prepare();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PLAYERS * SHIPS)
+    public int placeShip(Placements state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS * (CELLS - FLEET_CELLS))
+    public int attackMiss(Misses state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS * (FLEET_CELLS - SHIPS))
+    public int attackHit(Hits state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS * SHIPS)
+    public int attackSink(Sinks state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public int hasLost(LossChecks state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public int renderSideBySide(SideBySide state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public int gameLoop(Games state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public int renderClientBoard(ClientGrid state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    public int parseAttackLegacy(LegacyCommands state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int parseAttackBinary(AttackFrames state) {
+        return state.workload.run();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int parsePlaceBinary(PlaceFrames state) {
+        return state.workload.run();
+    }
+}
@@ -0,0 +1,24 @@
+package jmh;
+
+// The body of one benchmark. JMH only generates code for benchmark classes in a named package,
+// while the game lives in the default package, which a named package cannot import. So the
+// benchmarks in this package create their workload by class name once per trial and call it
+// through this interface; the call site only ever sees one class, so the JIT inlines it like a
+// direct call. The workloads themselves are in the default package (see CoreWorkloads).
+public interface Workload {
+    // Builds fresh state for the next run(), outside the measured time
+    void prepare();
+
+    // The measured operations; returns something derived from their results for JMH to consume
+    int run();
+
+    // Creates the default-package workload `className` for `backend` ("jni" or "java") and
+    // `count` operations per run
+    static Workload create(String className, String backend, int count) {
+        try {
+            return (Workload) Class.forName(className).getConstructor(String.class, int.class).newInstance(backend, count);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create workload " + className, e);
+        }
+    }
+}
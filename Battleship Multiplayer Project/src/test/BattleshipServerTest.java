@@ -0,0 +1,199 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// A whole server in this JVM, on both transports
+class BattleshipServerTest {
+    private static final int CUT_OFF_MATCH = 5;
+    private static final long[] CUT_OFF_TOKENS = {0, 0x5EA7_0001L, 0x5EA7_0002L};
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    // Connects once the server is listening
+    private static Socket connect(int port) throws Exception {
+        while (true) {
+            try {
+                return new Socket("localhost", port);
+            } catch (IOException e) {
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    // Sends the frames `writer` encodes
+    private static void send(Socket socket, java.util.function.Consumer<ByteBuffer> writer) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_CLIENT_FRAME_SIZE);
+        writer.accept(out);
+        socket.getOutputStream().write(out.array(), 0, out.position());
+    }
+
+    // The next frame of `type`, skipping any other frames before it
+    private static Frame next(Socket socket, int type) throws IOException {
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        ByteBuffer scratch = ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE);
+        Frame frame = new Frame();
+        do {
+            Protocol.readFrame(in, scratch, frame);
+        } while (frame.type != type);
+        return frame;
+    }
+
+    // What a crashed server left in its journal: match 5 with both fleets placed, player 1's miss,
+    // and no end
+    private static void journalCutOffMatch(Path directory) throws IOException {
+        try (MatchJournal journal = MatchJournal.open(directory)) {
+            journal.matchStarted(CUT_OFF_MATCH);
+            for (int player = 1; player <= 2; player++) {
+                journal.seatToken(CUT_OFF_MATCH, player, CUT_OFF_TOKENS[player]);
+                StandardFleet.journal(journal, CUT_OFF_MATCH, player);
+            }
+            journal.attacked(CUT_OFF_MATCH, 1, 9, 9, AttackResult.pack(Protocol.RESULT_MISS, -1, false));
+        }
+    }
+
+    private static Socket resume(int port, int matchId, long token) throws Exception {
+        Socket socket = connect(port);
+        send(socket, out -> {
+            Protocol.writeHello(out, Protocol.HELLO_RESUME);
+            Protocol.writeResume(out, matchId, token);
+        });
+        return socket;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void aMatchCutOffByACrashIsResumedByTheNextServer(boolean useNio, @TempDir Path directory) throws Exception {
+        journalCutOffMatch(directory);
+        int port = freePort();
+        BattleshipServer server = new BattleshipServer(port, useNio, 1, BitboardPlayer::new);
+        server.openJournal(directory, 10);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        try (Socket player2 = resume(port, CUT_OFF_MATCH, CUT_OFF_TOKENS[2])) {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertEquals(2, next(player2, Protocol.ROLE).a);
+                assertEquals(StandardFleet.SHIPS, next(player2, Protocol.SESSION).b);
+                assertEquals(1, next(player2, Protocol.GRID).payload[0]);  // The carrier's first cell, from the journaled fleet
+                assertEquals(2, next(player2, Protocol.TURN).a);  // Player 1 made the last attack
+            });
+            send(player2, out -> Protocol.writeAttack(out, 0, 0));
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(Protocol.RESULT_HIT, next(player2, Protocol.ATTACK_RESULT).b));
+
+            try (Socket player1 = resume(port, CUT_OFF_MATCH, CUT_OFF_TOKENS[1])) {
+                assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                    assertEquals(1, next(player1, Protocol.ROLE).a);
+                    assertEquals(3, next(player1, Protocol.GRID).payload[0]);  // Player 2's hit on the carrier
+                    assertEquals(1, next(player1, Protocol.TURN).a);
+                });
+            }
+
+            // New matches are numbered after the recovered one
+            try (Socket first = connect(port); Socket second = connect(port)) {
+                send(first, out -> Protocol.writeHello(out, Protocol.HELLO_SESSION));
+                send(second, out -> Protocol.writeHello(out, Protocol.HELLO_SESSION));
+                assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(CUT_OFF_MATCH + 1, next(first, Protocol.SESSION).a));
+            }
+        } finally {
+            server.stopServer();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void aRecoveredMatchNobodyResumesIsAbandoned(boolean useNio, @TempDir Path directory) throws Exception {
+        journalCutOffMatch(directory);
+        int port = freePort();
+        BattleshipServer server = new BattleshipServer(port, useNio, 1, BitboardPlayer::new);
+        server.setReconnectTimeout(200);
+        server.openJournal(directory, 10);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                int[] ended = {-1};
+                while (ended[0] < 0) {
+                    Thread.sleep(50);
+                    MatchJournal.read(directory, record -> {
+                        if (record.type == MatchJournal.END && record.matchId == CUT_OFF_MATCH) ended[0] = record.winner;
+                    });
+                }
+                assertEquals(0, ended[0]);  // Neither player came back to win it
+            });
+            try (Socket late = resume(port, CUT_OFF_MATCH, CUT_OFF_TOKENS[1])) {
+                assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(Protocol.ERROR_NO_SUCH_SEAT, next(late, Protocol.ERROR).a));
+            }
+        } finally {
+            server.stopServer();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void aPlayerResumesTheirSeatOnANewConnection(boolean useNio) throws Exception {
+        int port = freePort();
+        BattleshipServer server = new BattleshipServer(port, useNio, 1, BitboardPlayer::new);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        try (Socket opponent = connect(port)) {
+            int seat;
+            Frame session;
+            try (Socket first = connect(port)) {
+                send(first, out -> Protocol.writeHello(out, Protocol.HELLO_SESSION));
+                send(opponent, out -> Protocol.writeHello(out, Protocol.HELLO_SESSION));
+                seat = next(first, Protocol.ROLE).a;
+                session = next(first, Protocol.SESSION);
+            }  // Lost before placing anything
+            int matchId = session.a;
+            long token = session.token;
+
+            try (Socket again = connect(port)) {
+                send(again, out -> {
+                    Protocol.writeHello(out, Protocol.HELLO_RESUME);
+                    Protocol.writeResume(out, matchId, token);
+                });
+                assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                    assertEquals(seat, next(again, Protocol.ROLE).a);
+                    assertEquals(token, next(again, Protocol.SESSION).token);
+                    next(again, Protocol.TEXT);  // Placement is still open
+                });
+            }
+            try (Socket thief = connect(port)) {
+                send(thief, out -> {
+                    Protocol.writeHello(out, Protocol.HELLO_RESUME);
+                    Protocol.writeResume(out, matchId, token + 1);
+                });
+                assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(Protocol.ERROR_NO_SUCH_SEAT, next(thief, Protocol.ERROR).a));
+            }
+        } finally {
+            server.stopServer();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void aClientThatNeverSaysHelloIsDisconnected(boolean useNio) throws Exception {
+        int port = freePort();
+        BattleshipServer server = new BattleshipServer(port, useNio, 1, BitboardPlayer::new);
+        server.setHandshakeTimeout(300);
+        Thread.ofPlatform().daemon().name("server").start(server::startServer);
+        try (Socket silent = connect(port)) {
+            InputStream in = silent.getInputStream();
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(-1, in.read()));
+        } finally {
+            server.stopServer();
+        }
+    }
+}
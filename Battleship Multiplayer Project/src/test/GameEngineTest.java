@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// Turn order, eliminations and free-for-all attacks on the pure-Java engine
+class GameEngineTest {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+
+    private static BitboardPlayer playerWithFleet() {
+        BitboardPlayer player = new BitboardPlayer();
+        assertEquals(StandardFleet.SHIPS, StandardFleet.placeOn(player));
+        return player;
+    }
+
+    @Test
+    void sinkingTheLastShipEndsTheGame() {
+        GameEngine engine = new GameEngine(playerWithFleet(), playerWithFleet());
+        engine.setFirstAttacker(1);
+        int[] cells = StandardFleet.cells();
+        for (int i = 0; i < cells.length; i++) {
+            assertFalse(engine.isGameOver());
+            int result = engine.attack(cells[i] / SIZE, cells[i] % SIZE);
+            assertEquals(i == cells.length - 1, AttackResult.isGameOver(result));
+        }
+        assertTrue(engine.isGameOver());
+        assertEquals(1, engine.getWinner());
+        assertFalse(engine.isAlive(2));
+    }
+
+    @Test
+    void turnsAlternateInATwoPlayerGame() {
+        GameEngine engine = new GameEngine(playerWithFleet(), playerWithFleet());
+        engine.setFirstAttacker(2);
+        engine.nextTurn();
+        assertEquals(1, engine.getCurrentPlayer());
+        engine.nextTurn();
+        assertEquals(2, engine.getCurrentPlayer());
+    }
+
+    @Test
+    void eliminatedPlayersLoseTheirTurn() {
+        BattleshipPlayer[] players = {playerWithFleet(), playerWithFleet(), playerWithFleet()};
+        GameEngine engine = new GameEngine(players, BitboardPlayer::new);
+        engine.setFirstAttacker(1);
+        engine.eliminate(2);
+        engine.nextTurn();
+        assertEquals(3, engine.getCurrentPlayer());
+        assertEquals(2, engine.getAliveCount());
+        assertEquals(Protocol.RESULT_BAD_TARGET, engine.attack(2, 0, 0));
+
+        engine.eliminate(1);
+        assertTrue(engine.isGameOver());
+        assertEquals(3, engine.getWinner());
+    }
+
+    @Test
+    void aCellAnotherAttackerHitIsStillAHit() {
+        BattleshipPlayer[] players = {playerWithFleet(), playerWithFleet(), playerWithFleet()};
+        GameEngine engine = new GameEngine(players, BitboardPlayer::new);
+        engine.setFirstAttacker(1);
+        assertEquals(Protocol.RESULT_HIT, AttackResult.code(engine.attack(3, 0, 0)));
+        engine.nextTurn();
+        assertEquals(Protocol.RESULT_HIT, AttackResult.code(engine.attack(3, 0, 0)));  // Player 2 on the same cell
+        assertEquals(Protocol.RESULT_ALREADY_ATTACKED, AttackResult.code(engine.attack(3, 0, 0)));
+
+        byte[] grid = new byte[SIZE * SIZE];
+        engine.copyTargetGrid(2, 3, SIZE, grid);
+        assertEquals(3, grid[0]);
+        engine.close();
+    }
+}
@@ -0,0 +1,44 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+// The rating index against a TreeSet doing the same adds and removes
+class LongIndexTest {
+    @Test
+    void staysSortedThroughSplitsAndMerges() {
+        LongIndex index = new LongIndex();
+        TreeSet<Long> expected = new TreeSet<>();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextLong(20_000);
+            // Mostly adds until the set is large, then mostly removes, so chunks split and merge
+            boolean add = random.nextInt(100) < ((i < 100_000) ? 70 : 30);
+            assertEquals(add ? expected.add(key) : expected.remove(key), add ? index.add(key) : index.remove(key));
+        }
+        assertEquals(expected.size(), index.size());
+
+        long[] keys = new long[expected.size() + 1];
+        assertEquals(expected.size(), index.first(keys, keys.length));
+        long[] sorted = expected.stream().mapToLong(Long::longValue).toArray();
+        assertArrayEquals(sorted, Arrays.copyOf(keys, sorted.length));
+    }
+
+    @Test
+    void firstStopsAtTheCount() {
+        LongIndex index = new LongIndex();
+        for (long key = 1000; key > 0; key--) index.add(key);
+        long[] keys = new long[3];
+        assertEquals(3, index.first(keys, 3));
+        assertArrayEquals(new long[]{1, 2, 3}, keys);
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        index.first(keys, 3);
+        assertArrayEquals(new long[]{2, 3, 4}, keys);
+    }
+}
@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Reading the journal back, retiring the segments of ended matches, and what recovery is left with
+class MatchJournalTest {
+    private static final int SEGMENT_SIZE = 4096;  // About 200 attack records
+    private static final int MISS = AttackResult.pack(Protocol.RESULT_MISS, -1, false);
+
+    @TempDir
+    Path directory;
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    // A standard fleet for both players, then `attacks` misses on the empty last row by alternate
+    // players from player 1
+    private static void playMatch(MatchJournal journal, int matchId, int attacks) throws IOException {
+        journal.matchStarted(matchId);
+        for (int player = 1; player <= 2; player++) StandardFleet.journal(journal, matchId, player);
+        for (int i = 0; i < attacks; i++) journal.attacked(matchId, 1 + i % 2, 9, i / 2, MISS);
+    }
+
+    private static MatchReplayer replay(Path directory) throws IOException {
+        MatchReplayer replayer = new MatchReplayer(BitboardPlayer::new, match -> { });
+        MatchJournal.read(directory, replayer);
+        return replayer;
+    }
+
+    @Test
+    void segmentsOfEndedMatchesAreDeleted() throws IOException {
+        try (MatchJournal journal = MatchJournal.open(directory, SEGMENT_SIZE, 1)) {
+            for (int match = 1; match <= 40; match++) {
+                playMatch(journal, match, 10);
+                journal.matchEnded(match, 1);
+            }
+            journal.sync();
+            assertTrue(journal.getSegmentsDeleted() > 0);
+            assertEquals(1, segmentFiles());  // Only the one being appended to
+        }
+    }
+
+    @Test
+    void anOpenMatchKeepsEverySegmentFromItsStart() throws IOException {
+        try (MatchJournal journal = MatchJournal.open(directory, SEGMENT_SIZE, 1)) {
+            playMatch(journal, 1, 10);
+            journal.matchEnded(1, 1);
+            playMatch(journal, 2, 6);  // Cut off below
+            for (int match = 3; match <= 40; match++) {
+                playMatch(journal, match, 10);
+                journal.matchEnded(match, 1);
+            }
+            journal.sync();
+        }
+        MatchReplayer replayer = replay(directory);
+        List<MatchReplayer.ReplayedMatch> unfinished = replayer.getUnfinished();
+        assertEquals(1, unfinished.size());
+        assertEquals(2, unfinished.get(0).matchId);
+        assertEquals(6, unfinished.get(0).attacks);
+        assertEquals(0, unfinished.get(0).mismatches);
+        assertEquals(40, replayer.getMaxMatchId());
+    }
+
+    @Test
+    void matchIdsOutliveTheSegmentsThatHeldThem() throws IOException {
+        try (MatchJournal journal = MatchJournal.open(directory, SEGMENT_SIZE, 1)) {
+            for (int match = 1; match <= 40; match++) {
+                playMatch(journal, match, 10);
+                journal.matchEnded(match, 1);
+            }
+        }
+        // Reopened twice with nothing appended, so the segments that recorded the ids are long gone
+        for (int run = 0; run < 2; run++) {
+            try (MatchJournal journal = MatchJournal.open(directory, SEGMENT_SIZE, 1)) {
+                journal.sync();
+            }
+        }
+        assertEquals(40, replay(directory).getMaxMatchId());
+    }
+
+    @Test
+    void recoveryGetsTheSeatTokensAndWhereTheMatchStood() throws IOException {
+        try (MatchJournal journal = MatchJournal.open(directory, SEGMENT_SIZE, 1)) {
+            journal.matchStarted(7);
+            journal.seatToken(7, 1, 0x1234_5678_9ABC_DEF0L);
+            journal.seatToken(7, 2, -42);
+            for (int player = 1; player <= 2; player++) StandardFleet.journal(journal, 7, player);
+            journal.attacked(7, 2, 0, 0, AttackResult.pack(Protocol.RESULT_HIT, -1, false));
+            journal.attacked(7, 1, 12, 0, AttackResult.pack(Protocol.RESULT_OUT_OF_BOUNDS, -1, false));  // Rejected, but it used the turn
+        }
+
+        MatchReplayer replayer = new MatchReplayer(BitboardPlayer::new, match -> { });
+        try (MatchJournal journal = MatchJournal.open(directory, SEGMENT_SIZE, 1, replayer)) {
+            assertTrue(journal.getRecoveredCount() > 0);
+        }
+        MatchReplayer.ReplayedMatch match = replayer.getUnfinished().get(0);
+        assertEquals(0x1234_5678_9ABC_DEF0L, match.tokens[1]);
+        assertEquals(-42, match.tokens[2]);
+        assertEquals(StandardFleet.SHIPS, match.shipsPlaced[1]);
+        assertEquals(StandardFleet.SHIPS, match.shipsPlaced[2]);
+        assertEquals(1, match.lastAttacker);
+        assertEquals(0, match.mismatches);
+    }
+}
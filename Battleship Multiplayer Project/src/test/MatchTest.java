@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// A two-player match driven frame by frame on the pure-Java engines
+class MatchTest {
+    private final ScriptedConnection player1 = new ScriptedConnection();
+    private final ScriptedConnection player2 = new ScriptedConnection();
+    private ActorScheduler scheduler;
+    private TimingWheel wheel;
+    private Match match;
+    private final long[] tokens = new long[3];  // Seat tokens from each player's SESSION
+
+    @BeforeEach
+    void createScheduler() {
+        scheduler = new ActorScheduler(1);
+        wheel = new TimingWheel();
+    }
+
+    @AfterEach
+    void stop() {
+        scheduler.shutdown();
+        wheel.stop();
+    }
+
+    private void start(BoardRules rules) throws InterruptedException {
+        start(rules, null);
+    }
+
+    // Starts a match whose players may resume their seats, and waits for the welcome banner that
+    // opens placement
+    private void start(BoardRules rules, MatchTimeouts timeouts) throws InterruptedException {
+        match = new Match(1, player1, player2, rules.isStandard() ? BitboardPlayer::new : () -> new SparsePlayer(rules),
+                null, null, timeouts, rules, scheduler);
+        match.allowResume(1);
+        match.allowResume(2);
+        match.start(() -> { });
+        tokens[1] = player1.next(Protocol.SESSION).token;
+        tokens[2] = player2.next(Protocol.SESSION).token;
+        player1.next(Protocol.TEXT);
+    }
+
+    // Sends the standard fleet in one FLEET frame and expects it accepted
+    private static void placeFleet(ScriptedConnection player) throws Exception {
+        player.send(StandardFleet::writeFleet);
+        assertEquals(Protocol.PLACE_OK, player.next(Protocol.FLEET_RESULT).a);
+    }
+
+    @Test
+    void resyncIsAnsweredOncePerBoardChange() throws Exception {
+        start(BoardRules.STANDARD);
+        player1.send(Protocol::writeResync);
+        assertEquals(0, player1.next(Protocol.GRID).seq);
+        player1.send(Protocol::writeResync);
+        assertEquals(Protocol.ERROR_RESYNC_REFUSED, player1.next(Protocol.ERROR).a);
+
+        player1.send(out -> Protocol.writePlace(out, 4, 0, 0, 0));
+        assertEquals(1, player1.next(Protocol.PLACE_RESULT).seq);
+        player1.send(Protocol::writeResync);
+        assertEquals(1, player1.next(Protocol.GRID).seq);
+    }
+
+    @Test
+    void largeBoardsAreResyncedWithoutBlockingTheWorker() throws Exception {
+        start(BoardRules.parse("100x100", "standard"));
+        player1.send(out -> Protocol.writePlace(out, 4, 50, 50, 0));
+        player1.next(Protocol.PLACE_RESULT);
+        player1.send(Protocol::writeResync);
+
+        Frame self = player1.next(Protocol.CELLS);
+        assertEquals(Protocol.GRID_SELF, self.a);
+        assertEquals(2, self.c);  // The destroyer's two cells
+        assertEquals(0, player1.sharedSends());  // Queued like any other frame, not sent as shared frames
+    }
+
+    @Test
+    void aDroppedPlayerTakesTheirSeatBackWithTheirToken() throws Exception {
+        start(BoardRules.STANDARD);
+        placeFleet(player1);
+        placeFleet(player2);
+        player1.next(Protocol.GAME_START);
+        player1.drop();
+
+        ScriptedConnection back = new ScriptedConnection();
+        match.resume(back, tokens[1]);
+        assertEquals(1, back.next(Protocol.ROLE).a);
+        Frame session = back.next(Protocol.SESSION);
+        assertEquals(tokens[1], session.token);
+        assertEquals(StandardFleet.SHIPS, session.b);
+        Frame self = back.next(Protocol.GRID);
+        assertEquals(Protocol.GRID_SELF, self.a);
+        assertEquals(1, self.payload[0]);  // The carrier's first cell
+        back.next(Protocol.GAME_START);
+
+        // Whoever's turn it is, player 1 plays it from the new connection; the old one is ignored
+        if (back.next(Protocol.TURN).a == 2) {
+            player2.send(out -> Protocol.writeAttack(out, 9, 9));
+            assertEquals(1, back.next(Protocol.TURN).a);
+        }
+        player1.send(out -> Protocol.writeAttack(out, 5, 5));
+        back.send(out -> Protocol.writeAttack(out, 0, 0));
+        Frame result = back.next(Protocol.ATTACK_RESULT);
+        assertEquals(1, result.a);
+        assertEquals(Protocol.RESULT_HIT, result.b);
+        assertEquals(0, result.c);
+    }
+
+    @Test
+    void aSeatNobodyResumesInTimeIsForfeited() throws Exception {
+        start(BoardRules.STANDARD, new MatchTimeouts(wheel, 0, 0, 0, 200));
+        placeFleet(player1);
+        placeFleet(player2);
+        player2.drop();
+
+        Frame over = player1.next(Protocol.GAME_OVER);
+        assertEquals(1, over.a);
+        assertEquals(Protocol.OVER_LEFT, over.b);
+        ScriptedConnection late = new ScriptedConnection();
+        match.resume(late, tokens[2]);
+        assertEquals(Protocol.ERROR_NO_SUCH_SEAT, late.next(Protocol.ERROR).a);
+    }
+
+    @Test
+    void aWrongTokenIsRefusedAndTheSeatKept() throws Exception {
+        start(BoardRules.STANDARD);
+        ScriptedConnection stranger = new ScriptedConnection();
+        match.resume(stranger, tokens[1] ^ 1);
+        assertEquals(Protocol.ERROR_NO_SUCH_SEAT, stranger.next(Protocol.ERROR).a);
+
+        player1.send(Protocol::writeResync);
+        assertEquals(0, player1.next(Protocol.GRID).seq);
+    }
+}
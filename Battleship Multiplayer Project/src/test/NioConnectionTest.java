@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// The event-loop transport: flushes never wait for the socket, a peer that never reads is cut
+// off, and buffers still held by the writing thread never go back to the pool early
+class NioConnectionTest {
+    private final BufferPool bufferPool = new BufferPool(8 * 1024, 64);
+    private ServerSocketChannel server;
+    private Socket peer;  // The player's end
+    private EventLoop eventLoop;
+    private NioConnection connection;
+
+    @BeforeEach
+    void connect() throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        peer = new Socket(InetAddress.getLoopbackAddress(), server.socket().getLocalPort());
+        SocketChannel channel = server.accept();
+        channel.configureBlocking(false);
+        eventLoop = new EventLoop();
+        Thread.ofPlatform().name("event-loop").daemon().start(eventLoop);
+        connection = new NioConnection(channel, eventLoop, bufferPool);
+        eventLoop.register(connection, channel);
+    }
+
+    @AfterEach
+    void disconnect() throws IOException {
+        connection.close();
+        eventLoop.shutdown();
+        peer.close();
+        server.close();
+    }
+
+    // Waits until everything handed to the event loop so far has run
+    private void drainEventLoop() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        eventLoop.execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void flushedFramesReachThePeer() throws IOException {
+        Protocol.writeTurn(connection.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), 2);
+        connection.flush();
+
+        Frame frame = new Frame();
+        Protocol.readFrame(new DataInputStream(peer.getInputStream()), ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE), frame);
+        assertEquals(Protocol.TURN, frame.type);
+        assertEquals(2, frame.a);
+    }
+
+    @Test
+    void aPeerThatNeverReadsIsDisconnectedWithoutBlockingTheWriter() {
+        byte[] text = new byte[4 * 1024];
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, () -> {
+            while (true) {
+                Protocol.writeText(connection.writeBuffer(Protocol.textFrameSize(text)), text);
+                connection.flush();
+            }
+        }));
+        assertTrue(connection.isClosed());
+    }
+
+    @Test
+    void framesLargerThanAPooledBufferAreQueuedWhole() throws IOException {
+        CellMap cells = new CellMap();
+        for (int cell = 0; cell < 5000; cell++) cells.put(cell, cell % 4);
+        ByteBuffer encoded = ByteBuffer.allocate(Protocol.cellsSize(cells.size()));
+        Protocol.writeCells(encoded, Protocol.GRID_SELF, 3, 100, cells);
+        connection.flush(encoded.array());
+
+        Frame frame = new Frame();
+        Protocol.readFrame(new DataInputStream(peer.getInputStream()), ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE), frame);
+        assertEquals(Protocol.CELLS, frame.type);
+        assertEquals(5000, frame.c);
+        for (int i = 0; i < frame.c; i++) {
+            int cell = frame.cellRow(i) * 100 + frame.cellCol(i);
+            assertEquals(cells.get(cell), frame.cellState(i));
+        }
+    }
+
+    @Test
+    void closeSendsWhatIsFlushedFirst() throws IOException {
+        Protocol.writeGameOver(connection.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), 1);
+        connection.flush();
+        connection.close();
+
+        DataInputStream in = new DataInputStream(peer.getInputStream());
+        Frame frame = new Frame();
+        Protocol.readFrame(in, ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE), frame);
+        assertEquals(Protocol.GAME_OVER, frame.type);
+        assertEquals(-1, in.read());  // Then the channel closes
+    }
+
+    @Test
+    void aBufferBeingEncodedIsNotPooledWhenTheConnectionDrops() throws Exception {
+        ByteBuffer encoding = connection.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE);
+        eventLoop.execute(connection::closeNow);  // As when the player disconnects mid-frame
+        drainEventLoop();
+
+        // Every idle buffer in the pool, until it has to allocate a new one
+        int allocated = bufferPool.getAllocatedCount();
+        while (bufferPool.getAllocatedCount() == allocated) assertNotSame(encoding, bufferPool.acquire());
+
+        Protocol.writeTurn(encoding, 1);  // The writer finishes its frame into a buffer nobody else holds
+        assertThrows(IOException.class, () -> connection.flush());
+    }
+}
@@ -0,0 +1,204 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// Player snapshots (exportState / importState) on both backends: every state of random games
+// survives a round trip, the backends write the same bytes, a game moved through its snapshots
+// plays out the same, and malformed snapshots are refused. The native cases are skipped where the
+// native library cannot be loaded.
+class PlayerSnapshotTest {
+    private static final int SIZE = BattleshipPlayer.GRID_SIZE;
+    private static final int GAMES = 200;
+
+    private static boolean nativeLoaded() {
+        try {
+            new BattleshipJNI().close();
+            return true;
+        } catch (UnsatisfiedLinkError e) {
+            return false;
+        }
+    }
+
+    private static Supplier<BattleshipPlayer> backend(String engine) {
+        assumeTrue(engine.equals("java") || nativeLoaded(), "Native library not loaded");
+        return engine.equals("jni") ? BattleshipJNI::new : BitboardPlayer::new;
+    }
+
+    private static byte[] export(BattleshipPlayer player) {
+        byte[] state = new byte[PlayerSnapshot.MAX_SIZE];
+        return Arrays.copyOf(state, player.exportState(state));
+    }
+
+    private static void assertSameState(BattleshipPlayer expected, BattleshipPlayer actual) {
+        byte[] expectedCells = new byte[SIZE * SIZE], actualCells = new byte[SIZE * SIZE];
+        expected.copySelfGrid(expectedCells);
+        actual.copySelfGrid(actualCells);
+        assertArrayEquals(expectedCells, actualCells, "Self grid");
+        expected.copyTargetGrid(expectedCells);
+        actual.copyTargetGrid(actualCells);
+        assertArrayEquals(expectedCells, actualCells, "Target grid");
+        assertEquals(expected.HasLost(), actual.HasLost());
+    }
+
+    // Random placements, some overlapping or off the grid, until each side has five ships
+    private static void placeRandomly(BattleshipPlayer[][] sides, Random random, Runnable afterEachMove) {
+        for (int p = 0; p < 2; p++) {
+            int placed = 0;
+            while (placed < StandardFleet.SHIPS) {
+                String type = Protocol.shipName(random.nextInt(StandardFleet.SHIPS));
+                int[] coords = {random.nextInt(SIZE + 2) - 1, random.nextInt(SIZE + 2) - 1};
+                int orientation = random.nextInt(3);
+                int first = sides[0][p].PlaceShip(type, coords, orientation);
+                for (int side = 1; side < sides.length; side++) assertEquals(first, sides[side][p].PlaceShip(type, coords, orientation));
+                if (first == 1) placed++;
+                afterEachMove.run();
+            }
+        }
+    }
+
+    // The same random attack on every side's game; returns the result, which every side must agree on
+    private static int attackRandomly(BattleshipPlayer[][] sides, Random random, int attacker) {
+        int row = random.nextInt(SIZE + 2) - 1, col = random.nextInt(SIZE + 2) - 1;
+        int result = sides[0][attacker].attack(row, col, sides[0][1 - attacker]);
+        for (int side = 1; side < sides.length; side++) assertEquals(result, sides[side][attacker].attack(row, col, sides[side][1 - attacker]));
+        return result;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"java", "jni"})
+    void everyStateOfARandomGameRoundTrips(String engine) {
+        Supplier<BattleshipPlayer> players = backend(engine);
+        Random random = new Random(42);
+        for (int game = 0; game < GAMES; game++) {
+            BattleshipPlayer[][] sides = {{players.get(), players.get()}};
+            Runnable check = () -> {
+                for (BattleshipPlayer player : sides[0]) {
+                    byte[] state = export(player);
+                    assertTrue(PlayerSnapshot.isValid(state, state.length));
+                    BattleshipPlayer restored = players.get();
+                    assertTrue(restored.importState(state, state.length));
+                    assertSameState(player, restored);
+                    assertArrayEquals(state, export(restored));
+                    restored.close();
+                }
+            };
+            placeRandomly(sides, random, check);
+            for (int attacker = 0; !sides[0][0].HasLost() && !sides[0][1].HasLost(); attacker = 1 - attacker) {
+                attackRandomly(sides, random, attacker);
+                check.run();
+            }
+            for (BattleshipPlayer player : sides[0]) player.close();
+        }
+    }
+
+    @Test
+    void bothBackendsWriteTheSameSnapshots() {
+        assumeTrue(nativeLoaded(), "Native library not loaded");
+        Random random = new Random(7);
+        for (int game = 0; game < GAMES; game++) {
+            BattleshipPlayer[][] sides = {{new BattleshipJNI(), new BattleshipJNI()}, {new BitboardPlayer(), new BitboardPlayer()}};
+            Runnable check = () -> {
+                for (int p = 0; p < 2; p++) {
+                    assertArrayEquals(export(sides[0][p]), export(sides[1][p]));
+                    assertSameState(sides[0][p], sides[1][p]);
+                }
+            };
+            placeRandomly(sides, random, check);
+            for (int attacker = 0; !sides[0][0].HasLost() && !sides[0][1].HasLost(); attacker = 1 - attacker) {
+                attackRandomly(sides, random, attacker);
+                check.run();
+            }
+            for (BattleshipPlayer player : sides[0]) player.close();
+        }
+    }
+
+    // At a random move the game is copied through snapshots into fresh players, of the same backend
+    // and, when it is loaded, of the other one; every later result must match the game that stayed
+    @ParameterizedTest
+    @ValueSource(strings = {"java", "jni"})
+    void aGameMovedThroughItsSnapshotsPlaysOutTheSame(String engine) {
+        Supplier<BattleshipPlayer> players = backend(engine);
+        Supplier<BattleshipPlayer> other = engine.equals("java") ? (nativeLoaded() ? BattleshipJNI::new : BitboardPlayer::new) : BitboardPlayer::new;
+        Random random = new Random(11);
+        for (int game = 0; game < GAMES; game++) {
+            BattleshipPlayer[][] original = {{players.get(), players.get()}};
+            placeRandomly(original, random, () -> { });
+            int moveAt = random.nextInt(60);
+            int attacker = 0;
+            for (int turn = 0; turn < moveAt && !original[0][0].HasLost() && !original[0][1].HasLost(); turn++, attacker = 1 - attacker) {
+                attackRandomly(original, random, attacker);
+            }
+
+            BattleshipPlayer[][] sides = {original[0], {players.get(), players.get()}, {other.get(), other.get()}};
+            for (int side = 1; side < sides.length; side++) {
+                for (int p = 0; p < 2; p++) {
+                    byte[] state = export(original[0][p]);
+                    assertTrue(sides[side][p].importState(state, state.length));
+                }
+            }
+            for (; !original[0][0].HasLost() && !original[0][1].HasLost(); attacker = 1 - attacker) attackRandomly(sides, random, attacker);
+            for (int side = 1; side < sides.length; side++) {
+                for (int p = 0; p < 2; p++) assertSameState(original[0][p], sides[side][p]);
+            }
+            for (BattleshipPlayer[] pair : sides) {
+                for (BattleshipPlayer player : pair) player.close();
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"java", "jni"})
+    void malformedSnapshotsAreRefusedAndChangeNothing(String engine) {
+        Supplier<BattleshipPlayer> players = backend(engine);
+        BattleshipPlayer player = players.get(), opponent = players.get();
+        StandardFleet.placeOn(player);
+        StandardFleet.placeOn(opponent);
+        opponent.attack(0, 0, player);
+        byte[] good = export(player);
+        int length = good.length;
+
+        byte[][] cases = new byte[9][];
+        int[] lengths = new int[cases.length];
+        for (int i = 0; i < cases.length; i++) {
+            cases[i] = Arrays.copyOf(good, PlayerSnapshot.MAX_SIZE);
+            lengths[i] = length;
+        }
+        lengths[0] = length - 1;  // Truncated
+        lengths[1] = 0;  // Empty
+        cases[2][0] = (byte) (PlayerSnapshot.MAX_SHIPS + 1);  // Too many ships
+        lengths[2] = PlayerSnapshot.size(PlayerSnapshot.MAX_SHIPS + 1);
+        PlayerSnapshot.writeShip(cases[3], 0, PlayerSnapshot.packShip(SIZE * SIZE, 0, 0, 0));  // Start cell off the grid
+        PlayerSnapshot.writeShip(cases[4], 0, PlayerSnapshot.packShip(7, 0, 0, 0));  // Runs off the right edge
+        PlayerSnapshot.writeShip(cases[5], 0, PlayerSnapshot.packShip(2 * SIZE, 0, 0, 0));  // Overlaps the battleship
+        PlayerSnapshot.writeShip(cases[6], 4, PlayerSnapshot.packShip(8 * SIZE, 4, 0, 0b100));  // Hit beyond a destroyer
+        PlayerSnapshot.writeShip(cases[7], 4, PlayerSnapshot.packShip(8 * SIZE, 7, 0, 0));  // Unknown ship code
+        cases[8][length - 1] = (byte) 243;  // Target byte out of range
+
+        for (int i = 0; i < cases.length; i++) {
+            assertFalse(PlayerSnapshot.isValid(cases[i], lengths[i]), "Case " + i);
+            assertFalse(player.importState(cases[i], lengths[i]), "Case " + i);
+            assertArrayEquals(good, export(player), "Case " + i);
+        }
+        player.close();
+        opponent.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"java", "jni"})
+    void aFullFleetTakesThirtyOneBytes(String engine) {
+        BattleshipPlayer player = backend(engine).get();
+        StandardFleet.placeOn(player);
+        assertEquals(31, PlayerSnapshot.FLEET_SIZE);
+        assertEquals(PlayerSnapshot.FLEET_SIZE, export(player).length);
+        player.close();
+    }
+}
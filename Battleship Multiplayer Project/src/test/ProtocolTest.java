@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+// Encoding and decoding frames, including frames that arrive in pieces
+class ProtocolTest {
+    @Test
+    void attackRoundTrips() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        Protocol.writeAttack(buffer, 3, 7);
+        Protocol.writeAttack(buffer, 9, 0, 4);
+        buffer.flip();
+
+        Frame frame = new Frame();
+        assertTrue(Protocol.decode(buffer, frame, Protocol.MAX_CLIENT_FRAME_SIZE));
+        assertEquals(Protocol.ATTACK, frame.type);
+        assertEquals(3, frame.a);
+        assertEquals(7, frame.b);
+        assertEquals(0, frame.c);
+        assertTrue(Protocol.decode(buffer, frame, Protocol.MAX_CLIENT_FRAME_SIZE));
+        assertEquals(9, frame.a);
+        assertEquals(4, frame.c);
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void aPartialFrameWaitsForTheRest() throws Exception {
+        ByteBuffer whole = ByteBuffer.allocate(64);
+        Protocol.writeAttackResult(whole, 2, Protocol.RESULT_SUNK, 4, 5, 17);
+        whole.flip();
+
+        ByteBuffer partial = ByteBuffer.allocate(64);
+        partial.put(whole.array(), 0, whole.limit() - 1).flip();
+        Frame frame = new Frame();
+        assertFalse(Protocol.decode(partial, frame, Protocol.MAX_FRAME_SIZE));
+        assertEquals(0, partial.position());  // Nothing consumed
+
+        partial.compact().put(whole.array()[whole.limit() - 1]).flip();
+        assertTrue(Protocol.decode(partial, frame, Protocol.MAX_FRAME_SIZE));
+        assertEquals(Protocol.ATTACK_RESULT, frame.type);
+        assertEquals(17, frame.seq);
+    }
+
+    @Test
+    void fleetFramesCarryEveryShip() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAX_CLIENT_FRAME_SIZE);
+        int start = Protocol.startFleet(buffer);
+        Protocol.addFleetShip(buffer, 0, 1, 2, 0);
+        Protocol.addFleetShip(buffer, 4, 9, 8, 1);
+        Protocol.finishFleet(buffer, start);
+        buffer.flip();
+
+        Frame frame = new Frame();
+        assertTrue(Protocol.decode(buffer, frame, Protocol.MAX_CLIENT_FRAME_SIZE));
+        assertEquals(Protocol.FLEET, frame.type);
+        assertEquals(2, frame.a);
+        assertEquals(4, frame.fleetShip(1));
+        assertEquals(9, frame.fleetRow(1));
+    }
+
+    @Test
+    void oversizedFramesAreRefused() {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putShort((short) Protocol.MAX_CLIENT_FRAME_SIZE).flip();
+        assertThrows(StreamCorruptedException.class, () -> Protocol.decode(buffer, new Frame(), Protocol.MAX_CLIENT_FRAME_SIZE));
+    }
+}
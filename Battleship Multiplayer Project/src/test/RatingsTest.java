@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Rating updates, the leaderboard, the profile cache and reopening the rating file
+class RatingsTest {
+    @TempDir
+    Path directory;
+
+    private static String name(int player) {
+        return "player-" + player;
+    }
+
+    @Test
+    void aWinMovesBothRatingsByTheSameAmount() throws Exception {
+        try (Ratings ratings = Ratings.open(directory.resolve("ratings.dat"))) {
+            Ratings.Profile[] after = ratings.recordMatch("ann", "bob");
+            assertEquals(Ratings.INITIAL_RATING + 20, after[0].rating, 1e-9);  // Provisional K of 40, expected score 0.5
+            assertEquals(Ratings.INITIAL_RATING - 20, after[1].rating, 1e-9);
+            assertEquals(1, ratings.get("ann").wins);
+            assertEquals(0, ratings.get("bob").wins);
+            assertNull(ratings.get("cat"));
+        }
+    }
+
+    @Test
+    void thePublishedLeadersFollowEveryChange() throws Exception {
+        int players = Ratings.LEADERS + 50;
+        try (Ratings ratings = Ratings.open(directory.resolve("ratings.dat"))) {
+            for (int i = 0; i < players; i++) ratings.recordMatch(name(i), name((i + 1) % players));
+
+            // The weakest player climbs from outside the leaders to the top
+            String climber = ratings.top(players).get(players - 1).name;
+            for (int i = 0, wins = 0; wins < 40; i++) {
+                if (name(i).equals(climber)) continue;
+                ratings.recordMatch(climber, name(i));
+                wins++;
+            }
+            assertEquals(climber, ratings.top(1).get(0).name);
+
+            // The lock-free leaders agree with a full walk of the index
+            List<Ratings.Profile> all = ratings.top(players);
+            assertEquals(players, all.size());
+            List<Ratings.Profile> leaders = ratings.top(Ratings.LEADERS);
+            for (int i = 0; i < leaders.size(); i++) assertEquals(all.get(i).name, leaders.get(i).name);
+            for (int i = 1; i < all.size(); i++) assertTrue(all.get(i - 1).rating >= all.get(i).rating - 0.01);
+        }
+    }
+
+    @Test
+    void theProfileCacheStaysBoundedAndEvictsWhatWasNotUsed() throws Exception {
+        try (Ratings ratings = Ratings.open(directory.resolve("ratings.dat"), 8)) {
+            ratings.recordMatch("ann", "bob");
+            double annRating = ratings.get("ann").rating;
+            for (int i = 0; i < 100; i++) {
+                ratings.recordMatch(name(i), name(i + 1));
+                ratings.get("ann");  // Used between every match, so never the one evicted
+                assertTrue(ratings.getCachedCount() <= 8);
+            }
+            Ratings.Profile ann = ratings.get("ann");
+            assertTrue(ann == ratings.get("ann"));  // Served from the cache, not decoded again
+            assertEquals(annRating, ann.rating);
+
+            // Players evicted long ago are read back from the file as they were left
+            Ratings.Profile first = ratings.get(name(0));
+            assertEquals(Ratings.INITIAL_RATING + 20, first.rating, 1e-9);
+            assertEquals(1, first.games);
+            assertEquals(1, first.wins);
+            assertEquals(103, ratings.getPlayerCount());
+        }
+    }
+
+    @Test
+    void reopeningKeepsEveryRating() throws Exception {
+        Path file = directory.resolve("ratings.dat");
+        double rating;
+        try (Ratings ratings = Ratings.open(file)) {
+            for (int i = 0; i < 20; i++) ratings.recordMatch(name(i), name(i + 1));
+            rating = ratings.get(name(5)).rating;
+        }
+        try (Ratings ratings = Ratings.open(file)) {
+            assertEquals(21, ratings.getPlayerCount());
+            assertEquals(rating, ratings.get(name(5)).rating);
+            assertEquals(name(0), ratings.top(1).get(0).name);  // Won their only match, against a fresh player
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// A player played by the test: frames the match flushes are decoded into a queue the test reads
+// with next(), and the test's own frames go straight to the match's listener with send()
+final class ScriptedConnection implements PlayerConnection {
+    private final ByteBuffer outbound = ByteBuffer.allocate(64 * 1024);
+    private final BlockingQueue<Frame> received = new LinkedBlockingQueue<>();
+    private final CountDownLatch listening = new CountDownLatch(1);
+    private final AtomicInteger sharedSends = new AtomicInteger();  // sendShared calls, which only spectators should make
+    private volatile Listener listener;
+    private volatile boolean closed;
+
+    @Override
+    public synchronized ByteBuffer writeBuffer(int size) throws IOException {
+        if (closed) throw new EOFException("Scripted player has left");
+        if (outbound.remaining() < size) flush();
+        return outbound;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        outbound.flip();
+        try {
+            Frame frame = new Frame();
+            while (Protocol.decode(outbound, frame, Protocol.MAX_FRAME_SIZE)) received.add(frame.copy());
+        } finally {
+            outbound.compact();
+        }
+    }
+
+    @Override
+    public void sendShared(List<byte[]> frames) throws IOException {
+        sharedSends.incrementAndGet();
+        PlayerConnection.super.sendShared(frames);
+    }
+
+    @Override
+    public Frame readFrame() throws IOException {
+        throw new EOFException("The match listens instead");
+    }
+
+    @Override
+    public void listen(Listener listener) {
+        this.listener = listener;
+        listening.countDown();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return "scripted";
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    // Encodes one frame with `writer` and hands it to the match
+    void send(Consumer<ByteBuffer> writer) throws Exception {
+        assertTrue(listening.await(5, TimeUnit.SECONDS), "The match never listened");
+        ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAX_CLIENT_FRAME_SIZE);
+        writer.accept(buffer);
+        buffer.flip();
+        Frame frame = new Frame();
+        assertTrue(Protocol.decode(buffer, frame, Protocol.MAX_CLIENT_FRAME_SIZE));
+        listener.onFrame(frame);
+    }
+
+    // The next frame of `type` the match sent, skipping any other frames before it
+    Frame next(int type) throws InterruptedException {
+        while (true) {
+            Frame frame = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(frame, "No frame of type " + type + " arrived");
+            if (frame.type == type) return frame;
+        }
+    }
+
+    // The player's connection is lost
+    void drop() {
+        closed = true;
+        listener.onClosed();
+    }
+
+    int sharedSends() {
+        return sharedSends.get();
+    }
+}
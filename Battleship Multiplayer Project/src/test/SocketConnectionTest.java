@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// The blocking transport queues writes instead of blocking the caller, and cuts off a peer that
+// never reads
+class SocketConnectionTest {
+    private ServerSocket server;
+    private Socket peer;  // The player's end
+    private SocketConnection connection;
+
+    @BeforeEach
+    void connect() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        peer = new Socket(server.getInetAddress(), server.getLocalPort());
+        connection = new SocketConnection(server.accept());
+    }
+
+    @AfterEach
+    void disconnect() throws IOException {
+        connection.close();
+        peer.close();
+        server.close();
+    }
+
+    @Test
+    void flushedFramesReachThePeer() throws IOException {
+        Protocol.writeTurn(connection.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), 2);
+        connection.flush();
+
+        Frame frame = new Frame();
+        Protocol.readFrame(new DataInputStream(peer.getInputStream()), ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE), frame);
+        assertEquals(Protocol.TURN, frame.type);
+        assertEquals(2, frame.a);
+    }
+
+    @Test
+    void aPeerThatNeverReadsIsDisconnectedWithoutBlockingTheWriter() {
+        byte[] text = new byte[4 * 1024];
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, () -> {
+            while (true) {
+                Protocol.writeText(connection.writeBuffer(Protocol.textFrameSize(text)), text);
+                connection.flush();
+            }
+        }));
+        assertTrue(connection.isClosed());
+    }
+
+    @Test
+    void closeSendsWhatIsQueuedFirst() throws IOException {
+        Protocol.writeGameOver(connection.writeBuffer(Protocol.MAX_FIXED_FRAME_SIZE), 1);
+        connection.flush();
+        connection.close();
+
+        DataInputStream in = new DataInputStream(peer.getInputStream());
+        Frame frame = new Frame();
+        Protocol.readFrame(in, ByteBuffer.allocate(Protocol.MAX_FRAME_SIZE), frame);
+        assertEquals(Protocol.GAME_OVER, frame.type);
+        assertEquals(-1, in.read());  // Then the socket closes
+    }
+}
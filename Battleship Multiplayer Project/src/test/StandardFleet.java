@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// The fleet the tests place: ship type i horizontal from column 0 on row 2 * i, with the names and
+// lengths Protocol gives the ship types
+final class StandardFleet {
+    static final int SHIPS = BoardRules.SHIP_TYPES;
+
+    private StandardFleet() {
+    }
+
+    static int row(int ship) {
+        return 2 * ship;
+    }
+
+    // Places the fleet one PlaceShip call at a time; returns how many ships were accepted
+    static int placeOn(BattleshipPlayer player) {
+        int placed = 0;
+        for (int ship = 0; ship < SHIPS; ship++) placed += player.PlaceShip(Protocol.shipName(ship), new int[]{row(ship), 0}, 0);
+        return placed;
+    }
+
+    // Every cell the fleet covers, as row * GRID_SIZE + col, in row-major order
+    static int[] cells() {
+        int count = 0;
+        for (int ship = 0; ship < SHIPS; ship++) count += Protocol.shipSize(ship);
+        int[] cells = new int[count];
+        count = 0;
+        for (int ship = 0; ship < SHIPS; ship++) {
+            for (int col = 0; col < Protocol.shipSize(ship); col++) cells[count++] = row(ship) * BattleshipPlayer.GRID_SIZE + col;
+        }
+        return cells;
+    }
+
+    // The fleet in one FLEET frame
+    static void writeFleet(ByteBuffer out) {
+        int start = Protocol.startFleet(out);
+        for (int ship = 0; ship < SHIPS; ship++) Protocol.addFleetShip(out, ship, row(ship), 0, 0);
+        Protocol.finishFleet(out, start);
+    }
+
+    // Journals every ship of the fleet as placed by `player`
+    static void journal(MatchJournal journal, int matchId, int player) throws IOException {
+        for (int ship = 0; ship < SHIPS; ship++) journal.shipPlaced(matchId, player, ship, row(ship), 0, 0);
+    }
+}